@@ -3,7 +3,10 @@ package com.seventodie;
 import com.seventodie.blocks.BlockManager;
 import com.seventodie.commands.CommandManager;
 import com.seventodie.listeners.BlockInteractionListener;
+import com.seventodie.listeners.ChunkListener;
+import com.seventodie.listeners.MenuListener;
 import com.seventodie.listeners.PlayerListener;
+import com.seventodie.listeners.TraderListener;
 import com.seventodie.listeners.WorldGenListener;
 import com.seventodie.quests.QuestManager;
 import com.seventodie.tools.ToolManager;
@@ -14,7 +17,13 @@ import com.seventodie.utils.SchematicUtils;
 import com.seventodie.worldgen.BiomeMapper;
 import com.seventodie.worldgen.RoadGenerator;
 import com.seventodie.worldgen.StructureManager;
+import com.seventodie.worldgen.StructurePlacementEngine;
+import com.seventodie.worldgen.SurfaceHeightService;
+import com.seventodie.worldgen.WorldPopulator;
 
+import java.util.concurrent.CompletableFuture;
+
+import org.bukkit.World;
 import org.bukkit.plugin.java.JavaPlugin;
 
 /**
@@ -27,8 +36,11 @@ public class SevenToDiePlugin extends JavaPlugin {
   private BlockManager blockManager;
   private ToolManager toolManager;
   private StructureManager structureManager;
+  private StructurePlacementEngine structurePlacementEngine;
   private RoadGenerator roadGenerator;
   private BiomeMapper biomeMapper;
+  private SurfaceHeightService surfaceHeightService;
+  private WorldPopulator worldPopulator;
   private TraderManager traderManager;
   private QuestManager questManager;
   private SchematicUtils schematicUtils;
@@ -42,6 +54,9 @@ public class SevenToDiePlugin extends JavaPlugin {
     // Initialize managers
     initializeManagers();
     
+    // Fold the state journal into the database at a fixed interval
+    scheduleJournalCompaction();
+    
     // Register event listeners
     registerEventListeners();
     
@@ -59,21 +74,35 @@ public class SevenToDiePlugin extends JavaPlugin {
   @Override
   public void onDisable() {
     try {
-      // Save data
-      if (databaseManager != null) {
-        databaseManager.shutdown();
+      // Stop populating chunks with our generators
+      if (worldPopulator != null) {
+        worldPopulator.detachAll();
       }
       
-      // Cleanup managers
+      // Cleanup managers (queues their final writes)
       if (traderManager != null) {
         traderManager.cleanup();
       }
+      if (structurePlacementEngine != null) {
+        structurePlacementEngine.cleanup();
+      }
       if (structureManager != null) {
         structureManager.cleanup();
       }
       if (blockManager != null) {
         blockManager.cleanup();
       }
+      if (questManager != null) {
+        questManager.saveQuests();
+      }
+      if (surfaceHeightService != null) {
+        surfaceHeightService.clear();
+      }
+      
+      // Save data
+      if (databaseManager != null) {
+        databaseManager.shutdown();
+      }
       
       // Handle remaining tasks
       getServer().getScheduler().cancelTasks(this);
@@ -84,6 +113,27 @@ public class SevenToDiePlugin extends JavaPlugin {
     }
   }
   
+  /**
+   * Periodically snapshot all managers so older journal segments can be deleted.
+   */
+  private void scheduleJournalCompaction() {
+    if (databaseManager.getJournal() == null) {
+      return;
+    }
+    long ticks = Math.max(1, configManager.getInt("database.journal.compact-interval-minutes", 5)) * 60L * 20L;
+    getServer().getScheduler().runTaskTimer(this, () -> databaseManager.compactJournal(this::saveAll), ticks, ticks);
+  }
+  
+  /**
+   * Save the state of every manager that persists to the database.
+   * 
+   * @return A future completed once everything is written
+   */
+  public CompletableFuture<Void> saveAll() {
+    return CompletableFuture.allOf(blockManager.saveBlocks(), questManager.saveQuests(),
+        traderManager.saveTraders(), traderManager.getLedger().flush());
+  }
+  
   /**
    * Initialize all managers.
    */
@@ -107,10 +157,18 @@ public class SevenToDiePlugin extends JavaPlugin {
     schematicUtils = new SchematicUtils(this);
     
     // World generation
+    surfaceHeightService = new SurfaceHeightService();
     biomeMapper = new BiomeMapper(this);
+    structurePlacementEngine = new StructurePlacementEngine(this);
     structureManager = new StructureManager(this, schematicUtils);
     roadGenerator = new RoadGenerator(this);
     
+    // Worlds loaded before us miss WorldInitEvent, so hook them up here
+    worldPopulator = new WorldPopulator(this);
+    for (World world : getServer().getWorlds()) {
+      worldPopulator.attach(world);
+    }
+    
     // Game mechanics
     blockManager = new BlockManager(this);
     toolManager = new ToolManager(this);
@@ -118,6 +176,13 @@ public class SevenToDiePlugin extends JavaPlugin {
     // Game systems
     traderManager = new TraderManager(this);
     questManager = new QuestManager(this);
+    
+    // Load stored state once every manager exists
+    structureManager.loadWorlds();
+    blockManager.loadBlocks();
+    traderManager.loadWorlds();
+    traderManager.start();
+    questManager.loadQuests();
   }
   
   /**
@@ -127,6 +192,9 @@ public class SevenToDiePlugin extends JavaPlugin {
     getServer().getPluginManager().registerEvents(new BlockInteractionListener(this), this);
     getServer().getPluginManager().registerEvents(new PlayerListener(this), this);
     getServer().getPluginManager().registerEvents(new WorldGenListener(this), this);
+    getServer().getPluginManager().registerEvents(new ChunkListener(this), this);
+    getServer().getPluginManager().registerEvents(new TraderListener(this), this);
+    getServer().getPluginManager().registerEvents(new MenuListener(), this);
   }
   
   /**
@@ -174,6 +242,10 @@ public class SevenToDiePlugin extends JavaPlugin {
     return structureManager;
   }
   
+  public StructurePlacementEngine getStructurePlacementEngine() {
+    return structurePlacementEngine;
+  }
+  
   public RoadGenerator getRoadGenerator() {
     return roadGenerator;
   }
@@ -182,6 +254,14 @@ public class SevenToDiePlugin extends JavaPlugin {
     return biomeMapper;
   }
   
+  public SurfaceHeightService getSurfaceHeightService() {
+    return surfaceHeightService;
+  }
+  
+  public WorldPopulator getWorldPopulator() {
+    return worldPopulator;
+  }
+  
   public TraderManager getTraderManager() {
     return traderManager;
   }
@@ -1,7 +1,9 @@
 package com.seventodie.blocks;
 
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.bukkit.event.block.BlockBreakEvent;
@@ -14,10 +16,17 @@ import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 
 import com.seventodie.SevenToDiePlugin;
+import com.seventodie.storage.FrameBlockRecord;
+import com.seventodie.storage.StateJournal;
+import com.seventodie.storage.repository.FrameBlockRepository;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
 
 /**
  * Manages block upgrades and special blocks (frames)
@@ -35,7 +44,14 @@ public class BlockManager {
     }
     
     private final SevenToDiePlugin plugin;
-    private final Map<Location, FrameBlock> blocks = new HashMap<>();
+    private final FrameBlockStore blocks = new FrameBlockStore();
+    
+    /** Owner recorded for frames loaded from rows written before owners were stored */
+    private static final UUID UNKNOWN_OWNER = new UUID(0L, 0L);
+    
+    /** Delay before retrying a failed chunk load, doubled per attempt up to the maximum */
+    private static final long LOAD_RETRY_TICKS = 100;
+    private static final long MAX_LOAD_RETRY_TICKS = 1200;
     
     /**
      * Material tiers for upgrades (in order)
@@ -56,6 +72,16 @@ public class BlockManager {
         { Material.WHITE_CONCRETE, Material.LIGHT_GRAY_CONCRETE, Material.GRAY_CONCRETE, Material.BLACK_CONCRETE }
     };
     
+    /** Materials a placed frame block can have */
+    private static final Set<Material> FRAME_MATERIALS = EnumSet.noneOf(Material.class);
+    
+    static {
+        for (Material[] tier : UPGRADE_TIERS) {
+            FRAME_MATERIALS.addAll(List.of(tier));
+        }
+        FRAME_MATERIALS.add(Material.STONE);
+    }
+    
     /**
      * Constructor for BlockManager
      * 
@@ -63,15 +89,200 @@ public class BlockManager {
      */
     public BlockManager(SevenToDiePlugin plugin) {
         this.plugin = plugin;
-        loadBlocks();
     }
     
     /**
-     * Load blocks from database
+     * Load frame blocks for the chunks that are already loaded. Called once
+     * after construction; chunks loaded later are picked up through
+     * {@link #loadChunk(Chunk)}.
+     */
+    public void loadBlocks() {
+        for (World world : plugin.getServer().getWorlds()) {
+            for (Chunk chunk : world.getLoadedChunks()) {
+                loadChunk(chunk);
+            }
+        }
+    }
+    
+    /**
+     * Load a chunk's frame blocks from storage asynchronously. Until the
+     * rows arrive the chunk is pending and frame interactions in it are held off.
+     * 
+     * @param chunk The chunk that was loaded
+     */
+    public void loadChunk(Chunk chunk) {
+        World world = chunk.getWorld();
+        int chunkX = chunk.getX();
+        int chunkZ = chunk.getZ();
+        FrameBlockStore.ChunkFrames pending = blocks.beginLoad(world, chunkX, chunkZ);
+        if (pending == null) {
+            // Still in memory (e.g. unloaded and reloaded before eviction)
+            return;
+        }
+        
+        requestChunk(world, chunkX, chunkZ, pending, 0);
+    }
+    
+    /**
+     * Read a pending chunk's frame blocks from storage. A failed read keeps the
+     * chunk pending and is retried with backoff, so a chunk whose rows could not
+     * be read is never saved over them. Blocks broken after a failed read are
+     * not protected, so rows whose block is gone by the time the read succeeds
+     * are dropped.
+     * 
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @param pending The pending chunk
+     * @param attempt The number of failed reads so far
+     */
+    private void requestChunk(World world, int chunkX, int chunkZ, FrameBlockStore.ChunkFrames pending, int attempt) {
+        String worldName = world.getName();
+        getFrameRepository().loadChunk(worldName, chunkX, chunkZ).whenComplete((rows, error) -> {
+            if (error != null) {
+                plugin.getServer().getScheduler().runTask(plugin, pending::markLoadFailed);
+                long delay = Math.min(LOAD_RETRY_TICKS << Math.min(attempt, 4), MAX_LOAD_RETRY_TICKS);
+                plugin.getLogger().log(Level.WARNING, "Failed to load frame blocks for chunk "
+                        + worldName + " " + chunkX + "," + chunkZ + ", retrying in " + (delay / 20) + "s", error);
+                plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
+                    // Give up once the chunk is unloaded; the next load starts over
+                    if (blocks.getChunk(world, chunkX, chunkZ) == pending) {
+                        requestChunk(world, chunkX, chunkZ, pending, attempt + 1);
+                    }
+                }, delay);
+                return;
+            }
+            
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                // Discard the result if the chunk was unloaded while loading
+                if (blocks.getChunk(world, chunkX, chunkZ) != pending) {
+                    return;
+                }
+                boolean dropped = false;
+                for (FrameBlockRecord row : rows) {
+                    if (pending.hasLoadFailed() && world.getBlockAt(row.x(), row.y(), row.z()).getType().isAir()) {
+                        dropped = true;
+                        continue;
+                    }
+                    int durability = row.durability() >= 0 ? row.durability() : getTierDurability(row.tier());
+                    pending.merge(row.x(), row.y(), row.z(), row.tier(), durability, row.upgradeProgress(),
+                            row.owner() != null ? row.owner() : UNKNOWN_OWNER);
+                }
+                pending.finishLoad();
+                if (dropped) {
+                    pending.markDirty();
+                }
+            });
+        });
+    }
+    
+    /**
+     * Write a chunk's frame blocks back if they changed and evict them from
+     * memory. Changed frames stay in memory until their write succeeds.
+     * 
+     * @param chunk The chunk that is being unloaded
+     */
+    public void unloadChunk(Chunk chunk) {
+        FrameBlockStore.ChunkFrames frames = blocks.getChunk(chunk.getWorld(), chunk.getX(), chunk.getZ());
+        if (frames == null) {
+            return;
+        }
+        // A pending chunk never read its stored rows, so saving it would replace them
+        if (frames.isDirty() && !frames.isPending()) {
+            saveChunk(chunk.getWorld(), frames);
+        } else {
+            blocks.removeChunk(chunk.getWorld(), chunk.getX(), chunk.getZ());
+        }
+    }
+    
+    /**
+     * Queue a chunk's frame blocks to be written. The chunk stays dirty until
+     * the write succeeds, so a failed or rejected write is retried by the next
+     * {@link #saveBlocks()}; once written, an unloaded chunk is evicted.
+     * 
+     * @param world The world
+     * @param frames The chunk's frames
+     * @return A future completed once the chunk is written
+     */
+    private CompletableFuture<Void> saveChunk(World world, FrameBlockStore.ChunkFrames frames) {
+        List<FrameBlockRecord> rows = new ArrayList<>(frames.size());
+        frames.forEach((x, y, z, slot) -> rows.add(toRecord(frames, x, y, z, slot)));
+        int version = frames.getVersion();
+        
+        CompletableFuture<Void> saved = getFrameRepository().saveChunk(world.getName(), frames.getChunkX(), frames.getChunkZ(), rows);
+        saved.whenComplete((result, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed to save frame blocks for chunk " + world.getName() + " "
+                        + frames.getChunkX() + "," + frames.getChunkZ() + "; keeping them in memory to retry", error);
+                return;
+            }
+            if (plugin.isEnabled()) {
+                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    frames.markClean(version);
+                    evictIfUnloaded(world, frames);
+                });
+            }
+        });
+        return saved;
+    }
+    
+    /**
+     * Evict a saved chunk's frame blocks if the chunk is no longer loaded
+     * 
+     * @param world The world
+     * @param frames The chunk's frames
+     */
+    private void evictIfUnloaded(World world, FrameBlockStore.ChunkFrames frames) {
+        int chunkX = frames.getChunkX();
+        int chunkZ = frames.getChunkZ();
+        if (!frames.isDirty() && blocks.getChunk(world, chunkX, chunkZ) == frames
+                && !world.isChunkLoaded(chunkX, chunkZ)) {
+            blocks.removeChunk(world, chunkX, chunkZ);
+        }
+    }
+    
+    /**
+     * Convert a stored frame block to its row
+     * 
+     * @param frames The chunk holding the frame block
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param slot The frame block's slot in the chunk
+     * @return The row
      */
-    private void loadBlocks() {
-        // TODO: Implement database loading
-        // For now, just initialize empty
+    private static FrameBlockRecord toRecord(FrameBlockStore.ChunkFrames frames, int x, int y, int z, int slot) {
+        UUID owner = frames.getOwner(slot);
+        return new FrameBlockRecord(x, y, z, frames.getTier(slot), UNKNOWN_OWNER.equals(owner) ? null : owner,
+                frames.getDurability(slot), frames.getUpgradeProgress(slot));
+    }
+    
+    /**
+     * Record a frame change in the state journal so it survives a crash
+     * before the chunk is next saved
+     * 
+     * @param world The world
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param chunk The chunk holding the frame block
+     * @param slot The frame block's slot, or {@link FrameBlockStore#NONE} if the frame was removed
+     */
+    private void journalFrame(World world, int x, int y, int z, FrameBlockStore.ChunkFrames chunk, int slot) {
+        StateJournal journal = plugin.getDatabaseManager().getJournal();
+        if (journal != null) {
+            journal.recordFrame(world.getName(), slot != FrameBlockStore.NONE ? toRecord(chunk, x, y, z, slot)
+                    : new FrameBlockRecord(x, y, z, FrameBlockStore.NONE, null, FrameBlockRecord.FULL_DURABILITY, 0));
+        }
+    }
+    
+    /**
+     * Get the frame block repository
+     * 
+     * @return The repository
+     */
+    private FrameBlockRepository getFrameRepository() {
+        return plugin.getDatabaseManager().getRepositories().getFrameBlocks();
     }
     
     /**
@@ -90,9 +301,22 @@ public class BlockManager {
         if (item.hasItemMeta() && item.getItemMeta().getPersistentDataContainer().has(frameKey, PersistentDataType.INTEGER)) {
             int tier = item.getItemMeta().getPersistentDataContainer().get(frameKey, PersistentDataType.INTEGER);
             
-            // Create a frame block
-            FrameBlock frameBlock = new FrameBlock(block.getLocation(), tier, player.getUniqueId());
-            blocks.put(block.getLocation(), frameBlock);
+            // Hold off until the chunk's frames are loaded, or its first save would replace the stored ones
+            FrameBlockStore.ChunkFrames chunk = blocks.getChunk(block.getWorld(), block.getX() >> 4, block.getZ() >> 4);
+            if (chunk == null || chunk.isPending()) {
+                if (chunk == null) {
+                    loadChunk(block.getChunk());
+                }
+                event.setCancelled(true);
+                player.sendMessage(Component.text("This area is still loading, try again in a moment.", NamedTextColor.YELLOW));
+                return true;
+            }
+            
+            // Store the frame block
+            blocks.put(block.getWorld(), block.getX(), block.getY(), block.getZ(),
+                    tier, getTierDurability(tier), 0, player.getUniqueId());
+            journalFrame(block.getWorld(), block.getX(), block.getY(), block.getZ(),
+                    chunk, chunk.find(block.getX(), block.getY(), block.getZ()));
             
             player.sendMessage(Component.text("Placed a frame block (tier " + tier + ")", NamedTextColor.GREEN));
             return true;
@@ -109,20 +333,34 @@ public class BlockManager {
      */
     public boolean handleBlockBreak(BlockBreakEvent event) {
         Block block = event.getBlock();
-        Location location = block.getLocation();
+        FrameBlockStore.ChunkFrames chunk = blocks.getChunk(block.getWorld(), block.getX() >> 4, block.getZ() >> 4);
+        if (chunk == null) {
+            return false;
+        }
         
-        // Check if this is a frame block
-        if (blocks.containsKey(location)) {
-            FrameBlock frameBlock = blocks.get(location);
+        // Hold off until the chunk's frames are loaded so a frame is never broken as a plain block.
+        // Only blocks that could be frames are held, and only until a read fails, so a slow
+        // or unavailable database does not make the whole area unbreakable.
+        if (chunk.isPending()) {
+            if (!FRAME_MATERIALS.contains(block.getType()) || chunk.hasLoadFailed()) {
+                return false;
+            }
+            event.setCancelled(true);
+            event.getPlayer().sendMessage(Component.text("This area is still loading, try again in a moment.", NamedTextColor.YELLOW));
+            return true;
+        }
+        
+        // Check if this is a frame block (removing it in the same lookup)
+        int tier = chunk.remove(block.getX(), block.getY(), block.getZ());
+        if (tier != FrameBlockStore.NONE) {
+            journalFrame(block.getWorld(), block.getX(), block.getY(), block.getZ(), chunk, FrameBlockStore.NONE);
             
             // Drop the appropriate items
             event.setDropItems(false);
-            ItemStack drop = createFrameBlockItem(frameBlock.getTier());
+            Location location = block.getLocation();
+            ItemStack drop = createFrameBlockItem(tier);
             location.getWorld().dropItemNaturally(location, drop);
             
-            // Remove the frame block
-            blocks.remove(location);
-            
             return true;
         }
         
@@ -142,19 +380,19 @@ public class BlockManager {
             return false;
         }
         
-        Location location = block.getLocation();
-        
         // Check if this is a frame block
-        if (blocks.containsKey(location)) {
-            FrameBlock frameBlock = blocks.get(location);
-            
-            // Check if the item is a valid upgrade material
+        FrameBlockStore.ChunkFrames chunk = blocks.getChunk(block.getWorld(), block.getX() >> 4, block.getZ() >> 4);
+        if (chunk != null && chunk.isPending()) {
+            player.sendMessage(Component.text("This area is still loading, try again in a moment.", NamedTextColor.YELLOW));
+            return true;
+        }
+        int slot = chunk == null ? FrameBlockStore.NONE : chunk.find(block.getX(), block.getY(), block.getZ());
+        if (slot != FrameBlockStore.NONE) {
+            // Try to upgrade the block with the item's material
             Material material = item.getType();
-            int currentTier = frameBlock.getTier();
-            
-            // Try to upgrade the block
-            if (tryUpgradeBlock(frameBlock, material)) {
-                player.sendMessage(Component.text("Upgraded frame block to tier " + frameBlock.getTier(), NamedTextColor.GREEN));
+            if (tryUpgradeBlock(chunk, slot, material)) {
+                journalFrame(block.getWorld(), block.getX(), block.getY(), block.getZ(), chunk, slot);
+                player.sendMessage(Component.text("Upgraded frame block to tier " + chunk.getTier(slot), NamedTextColor.GREEN));
                 
                 // Consume one item
                 if (player.getGameMode() != org.bukkit.GameMode.CREATIVE) {
@@ -171,14 +409,15 @@ public class BlockManager {
     }
     
     /**
-     * Try to upgrade a block with a material
+     * Try to upgrade a stored frame block with a material
      * 
-     * @param frameBlock The frame block
+     * @param chunk The chunk holding the frame block
+     * @param slot The frame block's slot in the chunk
      * @param material The material
      * @return True if upgraded
      */
-    private boolean tryUpgradeBlock(FrameBlock frameBlock, Material material) {
-        int currentTier = frameBlock.getTier();
+    private boolean tryUpgradeBlock(FrameBlockStore.ChunkFrames chunk, int slot, Material material) {
+        int currentTier = chunk.getTier(slot);
         
         // Check if the material is a valid upgrade for the current tier
         for (int tierIndex = 0; tierIndex < UPGRADE_TIERS.length; tierIndex++) {
@@ -189,7 +428,9 @@ public class BlockManager {
                     // Found the material in a tier
                     if (tierIndex > currentTier) {
                         // Upgrade to the new tier
-                        frameBlock.setTier(tierIndex);
+                        chunk.setTier(slot, tierIndex);
+                        chunk.setDurability(slot, getTierDurability(tierIndex));
+                        chunk.setUpgradeProgress(slot, 0);
                         return true;
                     } else if (tierIndex == currentTier) {
                         // Already at this tier, but we can still consume the material
@@ -202,6 +443,17 @@ public class BlockManager {
         return false;
     }
     
+    /**
+     * Get the full durability of a tier
+     * 
+     * @param tier The tier
+     * @return The durability
+     */
+    private int getTierDurability(int tier) {
+        FrameType[] types = FrameType.values();
+        return tier >= 0 && tier < types.length ? getFrameBlockDurability(types[tier]) : 100;
+    }
+    
     /**
      * Create a frame block item
      * 
@@ -250,20 +502,53 @@ public class BlockManager {
     }
     
     /**
-     * Get a frame block at a location
+     * Get a snapshot of the frame block at a location. Changes to the returned
+     * object are not written back; use the block manager to modify frames.
      * 
      * @param location The location
      * @return The frame block, or null if not found
      */
     public FrameBlock getFrameBlock(Location location) {
-        return blocks.get(location);
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        FrameBlockStore.ChunkFrames chunk = blocks.getChunk(location.getWorld(), x >> 4, z >> 4);
+        int slot = chunk == null ? FrameBlockStore.NONE : chunk.find(x, y, z);
+        if (slot == FrameBlockStore.NONE) {
+            return null;
+        }
+        
+        FrameBlock frameBlock = new FrameBlock(new Location(location.getWorld(), x, y, z),
+                chunk.getTier(slot), chunk.getOwner(slot));
+        frameBlock.setDurability(chunk.getDurability(slot));
+        frameBlock.setMaxDurability(getTierDurability(chunk.getTier(slot)));
+        frameBlock.setUpgradeProgress(chunk.getUpgradeProgress(slot));
+        return frameBlock;
+    }
+    
+    /**
+     * Get the number of frame blocks currently held in memory
+     * 
+     * @return The frame block count
+     */
+    public int getFrameBlockCount() {
+        return blocks.size();
     }
     
     /**
-     * Save blocks to database
+     * Queue every modified chunk's frame blocks to be written to the database
+     * 
+     * @return A future completed once every chunk is written
      */
-    public void saveBlocks() {
-        // TODO: Implement database saving
+    public CompletableFuture<Void> saveBlocks() {
+        List<CompletableFuture<Void>> saves = new ArrayList<>();
+        blocks.forEachChunk((worldId, frames) -> {
+            World world = plugin.getServer().getWorld(worldId);
+            if (world != null && frames.isDirty() && !frames.isPending()) {
+                saves.add(saveChunk(world, frames));
+            }
+        });
+        return CompletableFuture.allOf(saves.toArray(new CompletableFuture<?>[0]));
     }
     
     /**
@@ -5,17 +5,40 @@ import org.bukkit.command.CommandSender;
 
 import com.seventodie.SevenToDiePlugin;
 import com.seventodie.commands.BaseCommand;
+import com.seventodie.storage.ConnectionHealthMonitor;
+import com.seventodie.storage.StorageBackend;
+import com.seventodie.storage.StorageExecutor;
+import com.seventodie.storage.WorldDataTransfer;
+import com.seventodie.storage.WriteBehindQueue;
+import com.seventodie.utils.schematic.SchematicCache;
+import com.seventodie.worldgen.StructurePlacementEngine;
 
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
 
 /**
  * Main command for the SevenToDie plugin.
  */
 public class SevenToDieCommand extends BaseCommand {
     
-    private static final List<String> SUBCOMMANDS = Arrays.asList("reload", "info", "trader", "quest", "reset");
+    private static final List<String> SUBCOMMANDS = Arrays.asList("reload", "info", "cache", "trader", "quest",
+            "export", "import", "reset");
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+    private static final String EXPORT_SUFFIX = ".ndjson.gz";
+    
+    // The action of the transfer in progress, or null
+    private final AtomicReference<String> runningTransfer = new AtomicReference<>();
     
     public SevenToDieCommand(SevenToDiePlugin plugin) {
         super(plugin, "seventodie", "seventodie.admin", false);
@@ -34,10 +57,16 @@ public class SevenToDieCommand extends BaseCommand {
                 return reloadPlugin(sender);
             case "info":
                 return showInfo(sender);
+            case "cache":
+                return showCache(sender, args);
             case "trader":
                 return redirectToTraderCommand(sender, args);
             case "quest":
                 return redirectToQuestCommand(sender, args);
+            case "export":
+                return exportData(sender, args);
+            case "import":
+                return importData(sender, args);
             case "reset":
                 return resetPlugin(sender);
             default:
@@ -73,17 +102,81 @@ public class SevenToDieCommand extends BaseCommand {
                          (protocolLibPresent ? ChatColor.GREEN + "Installed" : ChatColor.RED + "Missing"));
         
         // Display statistics
-        int frameBlocks = 0; // Placeholder - would count frame blocks from database
+        int frameBlocks = plugin.getBlockManager().getFrameBlockCount();
         int traders = plugin.getTraderManager().getAllTraderOutposts().size();
         
         sender.sendMessage(ChatColor.YELLOW + "Statistics:");
         sender.sendMessage(ChatColor.YELLOW + " - Frame Blocks: " + ChatColor.WHITE + frameBlocks);
         sender.sendMessage(ChatColor.YELLOW + " - Traders: " + ChatColor.WHITE + traders);
         
+        // Display structure placement metrics
+        StructurePlacementEngine placement = plugin.getStructurePlacementEngine();
+        sender.sendMessage(ChatColor.YELLOW + " - Structures Queued: " + ChatColor.WHITE + placement.getJobCount()
+                + ChatColor.GRAY + " (" + placement.getUnitCount() + " sections, "
+                + placement.getBlocksPerSecond() + " blocks/s, last tick "
+                + (placement.getLastTickNanos() / 1000000.0) + " ms)");
+        
+        // Display write-behind queue metrics
+        WriteBehindQueue writeQueue = plugin.getDatabaseManager().getWriteQueue();
+        if (writeQueue != null) {
+            sender.sendMessage(ChatColor.YELLOW + " - Pending DB Writes: " + ChatColor.WHITE + writeQueue.getQueueDepth()
+                    + ChatColor.GRAY + " (last flush " + (writeQueue.getLastFlushNanos() / 1000000.0) + " ms, max "
+                    + (writeQueue.getMaxFlushNanos() / 1000000.0) + " ms)");
+        }
+        
+        // Display storage executor metrics
+        StorageExecutor executor = plugin.getDatabaseManager().getStorageExecutor();
+        sender.sendMessage(ChatColor.YELLOW + " - Storage Tasks: " + ChatColor.WHITE + executor.getActiveCount()
+                + "/" + executor.getMaxThreads() + " active, " + executor.getQueueDepth() + " queued"
+                + ChatColor.GRAY + " (" + executor.getTotalRejected() + " rejected, p99 "
+                + (executor.getP99LatencyNanos() / 1000000.0) + " ms)");
+        
+        // Display database health
+        ConnectionHealthMonitor health = plugin.getDatabaseManager().getHealthMonitor();
+        StorageBackend backend = plugin.getDatabaseManager().getStorageBackend();
+        if (health != null && backend != null) {
+            sender.sendMessage(ChatColor.YELLOW + " - Database (" + backend.getName() + "): "
+                    + (health.isHealthy() ? ChatColor.GREEN + "Healthy" : ChatColor.RED + "Unavailable")
+                    + ChatColor.GRAY + " (last success " + (health.getMillisSinceLastSuccess() / 1000) + "s ago, "
+                    + health.getTotalReconnects() + " reconnects)");
+        }
+        
         sender.sendMessage(ChatColor.GOLD + "=============================");
         return true;
     }
     
+    /**
+     * Show schematic cache statistics, or clear the cache
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True (command handled)
+     */
+    private boolean showCache(CommandSender sender, String[] args) {
+        SchematicCache cache = plugin.getSchematicUtils().getCache();
+        
+        if (args.length > 1 && args[1].equalsIgnoreCase("clear")) {
+            cache.clear();
+            sendSuccess(sender, "Schematic cache cleared.");
+            return true;
+        }
+        
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        long requests = hits + misses;
+        
+        sender.sendMessage(ChatColor.GOLD + "===== " + ChatColor.GREEN + "Schematic Cache" + ChatColor.GOLD + " =====");
+        sender.sendMessage(ChatColor.YELLOW + "Schematics: " + ChatColor.WHITE + cache.size());
+        sender.sendMessage(ChatColor.YELLOW + "Memory: " + ChatColor.WHITE + (cache.getTotalBytes() / 1024) + " KB"
+                + ChatColor.GRAY + " / " + (cache.getMaxBytes() / 1024) + " KB");
+        sender.sendMessage(ChatColor.YELLOW + "Hits: " + ChatColor.WHITE + hits
+                + ChatColor.GRAY + " (" + (requests == 0 ? 0 : hits * 100 / requests) + "%)");
+        sender.sendMessage(ChatColor.YELLOW + "Misses: " + ChatColor.WHITE + misses);
+        sender.sendMessage(ChatColor.YELLOW + "Rotations Built: " + ChatColor.WHITE + cache.getRotationsBuilt());
+        sender.sendMessage(ChatColor.YELLOW + "Evictions: " + ChatColor.WHITE + cache.getEvictions());
+        return true;
+    }
+    
     /**
      * Reload the plugin
      * 
@@ -106,6 +199,170 @@ public class SevenToDieCommand extends BaseCommand {
         return true;
     }
     
+    /**
+     * Export all plugin data to plugins/SevenToDie/exports
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True (command handled)
+     */
+    private boolean exportData(CommandSender sender, String[] args) {
+        String name = args.length > 1 ? args[1]
+                : "export-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File file = getExportFile(sender, name);
+        if (file == null || !startTransfer(sender, "Export")) {
+            return true;
+        }
+        
+        if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            runningTransfer.set(null);
+            sendError(sender, "Failed to create " + file.getParentFile());
+            return true;
+        }
+        if ("region".equalsIgnoreCase(plugin.getConfigManager().getString("database.frame-block-storage", "sql"))) {
+            sendInfo(sender, "Frame blocks in region files are not exported; copy the frames folder as well.");
+        }
+        
+        // Write everything in memory first so the export is complete
+        sendInfo(sender, "Saving plugin data before export...");
+        plugin.saveAll().whenComplete((result, error) -> {
+            if (error != null) {
+                runningTransfer.set(null);
+                plugin.getLogger().log(Level.WARNING, "Failed to save data before export", error);
+                reply(sender, ChatColor.RED + "Export aborted: saving plugin data failed.");
+                return;
+            }
+            runTransfer(sender, "Export", transfer -> transfer.exportTo(file, progress(sender, "Exported")),
+                    "Exported to " + file.getName());
+        });
+        return true;
+    }
+    
+    /**
+     * Import plugin data from plugins/SevenToDie/exports
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True (command handled)
+     */
+    private boolean importData(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            sendError(sender, "Usage: /seventodie import <name>");
+            return true;
+        }
+        
+        File file = getExportFile(sender, args[1]);
+        if (file == null) {
+            return true;
+        }
+        if (!file.isFile()) {
+            sendError(sender, "No export named " + args[1] + " in " + file.getParentFile().getName() + "/");
+            return true;
+        }
+        if (plugin.getDatabaseManager().getStorageBackend() == null || !plugin.getDatabaseManager().isPersistent()) {
+            sendError(sender, "Export and import need a database; the plugin is running in memory-only mode.");
+            return true;
+        }
+        
+        // Rows written now would be overwritten by the data loaded in memory, so the import waits for a restart
+        try {
+            plugin.getDatabaseManager().stageImport(file);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to stage import", e);
+            sendError(sender, "Failed to stage the import: " + e.getMessage());
+            return true;
+        }
+        sendSuccess(sender, "Staged " + file.getName() + " for import. It is imported on the next server start, "
+                + "before any plugin data loads.");
+        sendInfo(sender, "Delete " + plugin.getDatabaseManager().getPendingImportFile().getName()
+                + " in exports/ to cancel.");
+        return true;
+    }
+    
+    /**
+     * Resolve an export name to its file
+     * 
+     * @param sender The command sender
+     * @param name The export name, with or without the file extension
+     * @return The file, or null if the name is not allowed
+     */
+    private File getExportFile(CommandSender sender, String name) {
+        if (name.endsWith(EXPORT_SUFFIX)) {
+            name = name.substring(0, name.length() - EXPORT_SUFFIX.length());
+        }
+        if (!FILE_NAME.matcher(name).matches()) {
+            sendError(sender, "Export names may only contain letters, digits, '-' and '_'.");
+            return null;
+        }
+        return new File(new File(plugin.getDataFolder(), "exports"), name + EXPORT_SUFFIX);
+    }
+    
+    /**
+     * Claim the transfer slot, since only one transfer may run at a time
+     * 
+     * @param sender The command sender
+     * @param action The transfer's action, e.g. "Export"
+     * @return True if the transfer may start
+     */
+    private boolean startTransfer(CommandSender sender, String action) {
+        if (plugin.getDatabaseManager().getStorageBackend() == null || !plugin.getDatabaseManager().isPersistent()) {
+            sendError(sender, "Export and import need a database; the plugin is running in memory-only mode.");
+            return false;
+        }
+        String running = runningTransfer.compareAndExchange(null, action);
+        if (running != null) {
+            sendError(sender, "A transfer is already running (" + running.toLowerCase(Locale.ROOT) + ").");
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * A step of an export or import
+     */
+    @FunctionalInterface
+    private interface TransferStep {
+        Map<String, Long> run(WorldDataTransfer transfer) throws IOException, SQLException;
+    }
+    
+    /**
+     * Run a transfer on its own thread, since it can take minutes on large
+     * worlds, and report the row counts when it finishes
+     */
+    private void runTransfer(CommandSender sender, String action, TransferStep step, String doneMessage) {
+        WorldDataTransfer transfer = new WorldDataTransfer(plugin.getDatabaseManager().getStorageBackend());
+        Thread thread = new Thread(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                Map<String, Long> counts = step.run(transfer);
+                long total = counts.values().stream().mapToLong(Long::longValue).sum();
+                reply(sender, ChatColor.GREEN + doneMessage);
+                reply(sender, ChatColor.YELLOW + action + "ed " + total + " rows in "
+                        + (System.currentTimeMillis() - start) / 1000.0 + "s " + ChatColor.GRAY + counts);
+            } catch (IOException | SQLException | RuntimeException e) {
+                plugin.getLogger().log(Level.WARNING, action + " failed", e);
+                reply(sender, ChatColor.RED + action + " failed: " + e.getMessage());
+            } finally {
+                runningTransfer.set(null);
+            }
+        }, "SevenToDie-" + action);
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private WorldDataTransfer.Progress progress(CommandSender sender, String verb) {
+        return (table, rows) -> reply(sender, ChatColor.GRAY + verb + " " + rows + " rows of " + table);
+    }
+    
+    /**
+     * Send a message from a transfer thread on the main thread
+     */
+    private void reply(CommandSender sender, String message) {
+        if (plugin.isEnabled()) {
+            plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(message));
+        }
+    }
+    
     /**
      * Reset the plugin (clean database, etc.)
      * 
@@ -154,6 +411,24 @@ public class SevenToDieCommand extends BaseCommand {
         return true;
     }
     
+    /**
+     * List the names of the files in the exports folder
+     * 
+     * @return The export names
+     */
+    private List<String> listExports() {
+        List<String> names = new ArrayList<>();
+        File[] files = new File(plugin.getDataFolder(), "exports").listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(EXPORT_SUFFIX)) {
+                    names.add(file.getName().substring(0, file.getName().length() - EXPORT_SUFFIX.length()));
+                }
+            }
+        }
+        return names;
+    }
+    
     @Override
     public List<String> tabComplete(CommandSender sender, String[] args) {
         if (args.length == 1) {
@@ -166,6 +441,16 @@ public class SevenToDieCommand extends BaseCommand {
             String[] subArgs = Arrays.copyOfRange(args, 1, args.length);
             
             switch (subCommand) {
+                case "cache":
+                    if (subArgs.length == 1) {
+                        return filterTabCompletions(subArgs, Arrays.asList("clear"));
+                    }
+                    break;
+                case "import":
+                    if (subArgs.length == 1) {
+                        return filterTabCompletions(subArgs, listExports());
+                    }
+                    break;
                 case "trader":
                     // Forward to trader command
                     // Ideally, we would directly call the trader command's tab complete method
@@ -7,6 +7,7 @@ import org.bukkit.entity.Player;
 
 import com.seventodie.SevenToDiePlugin;
 import com.seventodie.commands.BaseCommand;
+import com.seventodie.traders.TradeLedger;
 import com.seventodie.traders.TraderManager;
 import com.seventodie.worldgen.StructureManager;
 
@@ -20,7 +21,7 @@ import java.util.UUID;
  */
 public class TraderCommand extends BaseCommand {
     
-    private static final List<String> SUBCOMMANDS = Arrays.asList("list", "spawn", "remove");
+    private static final List<String> SUBCOMMANDS = Arrays.asList("list", "spawn", "remove", "top");
     
     public TraderCommand(SevenToDiePlugin plugin) {
         super(plugin, "trader", "seventodie.trader", false);
@@ -42,6 +43,8 @@ public class TraderCommand extends BaseCommand {
                 return spawnTrader(sender, args);
             case "remove":
                 return removeTrader(sender, args);
+            case "top":
+                return showTopSellers(sender, args);
             default:
                 sendUsage(sender);
                 return true;
@@ -164,6 +167,62 @@ public class TraderCommand extends BaseCommand {
         return true;
     }
     
+    /**
+     * Show the best-selling items and traders over recent days. Reads the
+     * ledger's running totals, so it costs the same however many trades
+     * were made.
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True (command handled)
+     */
+    private boolean showTopSellers(CommandSender sender, String[] args) {
+        int days = 7;
+        if (args.length >= 2) {
+            try {
+                days = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                days = -1;
+            }
+            if (days < 1 || days > TradeLedger.TOTALS_DAYS) {
+                sendError(sender, "Days must be a number from 1 to " + TradeLedger.TOTALS_DAYS + ".");
+                return true;
+            }
+        }
+        
+        TradeLedger ledger = plugin.getTraderManager().getLedger();
+        List<TradeLedger.TradeTotal> items = ledger.getTopItems(days, 10);
+        if (items.isEmpty()) {
+            sendInfo(sender, "Nothing was bought from traders in the last " + days + " days.");
+            return true;
+        }
+        
+        sender.sendMessage(ChatColor.GOLD + "===== Top sellers, last " + days + " days =====");
+        int rank = 1;
+        for (TradeLedger.TradeTotal item : items) {
+            sender.sendMessage(ChatColor.YELLOW + String.valueOf(rank++) + ". " +
+                             ChatColor.WHITE + item.key().toLowerCase().replace('_', ' ') + " " +
+                             ChatColor.GRAY + item.volume() + " sold for " + item.revenue() + " " +
+                             TradeLedger.CURRENCY);
+        }
+        
+        sender.sendMessage(ChatColor.GOLD + "===== Top traders =====");
+        rank = 1;
+        for (TradeLedger.TradeTotal trader : ledger.getTopTraders(days, 5)) {
+            TraderManager.TraderOutpost outpost = plugin.getTraderManager().getOutpost(UUID.fromString(trader.key()));
+            String where = outpost != null && outpost.getLocation().getWorld() != null
+                    ? outpost.getLocation().getWorld().getName() + ", " + outpost.getLocation().getBlockX() + ", " +
+                      outpost.getLocation().getBlockZ()
+                    : trader.key();
+            sender.sendMessage(ChatColor.YELLOW + String.valueOf(rank++) + ". " +
+                             ChatColor.WHITE + where + " " +
+                             ChatColor.GRAY + trader.volume() + " items for " + trader.revenue() + " " +
+                             TradeLedger.CURRENCY);
+        }
+        
+        return true;
+    }
+    
     @Override
     public List<String> tabComplete(CommandSender sender, String[] args) {
         if (args.length == 1) {
@@ -67,6 +67,22 @@ public class BlockInteractionListener implements Listener {
         }
     }
     
+    /**
+     * Keep cached surface heights in step with placed blocks
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlaced(BlockPlaceEvent event) {
+        plugin.getSurfaceHeightService().invalidate(event.getBlock());
+    }
+    
+    /**
+     * Keep cached surface heights in step with broken blocks
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBroken(BlockBreakEvent event) {
+        plugin.getSurfaceHeightService().invalidate(event.getBlock());
+    }
+    
     /**
      * Handle player interact events for custom blocks and tools
      */
@@ -0,0 +1,51 @@
+package com.seventodie.listeners;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+
+import com.seventodie.SevenToDiePlugin;
+
+/**
+ * Handles chunk load and unload events so per-chunk data is only kept in
+ * memory while the chunk is loaded.
+ */
+public class ChunkListener implements Listener {
+    
+    private final SevenToDiePlugin plugin;
+    
+    /**
+     * Constructor for ChunkListener
+     * 
+     * @param plugin The SevenToDie plugin instance
+     */
+    public ChunkListener(SevenToDiePlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Load frame blocks and spawn trader NPCs for a chunk as it is loaded
+     * 
+     * @param event The chunk load event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        plugin.getBlockManager().loadChunk(event.getChunk());
+        if (plugin.getTraderManager() != null) {
+            plugin.getTraderManager().onChunkLoad(event.getChunk());
+        }
+    }
+    
+    /**
+     * Save and evict frame blocks and cached surface heights for a chunk as it is unloaded
+     * 
+     * @param event The chunk unload event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        plugin.getBlockManager().unloadChunk(event.getChunk());
+        plugin.getSurfaceHeightService().invalidate(event.getChunk());
+    }
+}
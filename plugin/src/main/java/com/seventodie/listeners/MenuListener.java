@@ -0,0 +1,43 @@
+package com.seventodie.listeners;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+
+import com.seventodie.menu.Menu;
+
+/**
+ * Routes clicks in plugin menus to their slot handlers. Menus are read-only,
+ * so every click and drag involving one is cancelled.
+ */
+public class MenuListener implements Listener {
+    
+    /**
+     * Dispatch a click in a menu
+     * 
+     * @param event The click event
+     */
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onInventoryClick(InventoryClickEvent event) {
+        // getHolder(false) skips the block state snapshot other holders would build
+        if (!(event.getInventory().getHolder(false) instanceof Menu<?> menu)) {
+            return;
+        }
+        event.setCancelled(true);
+        menu.handleClick(event);
+    }
+    
+    /**
+     * Stop items from being dragged into a menu
+     * 
+     * @param event The drag event
+     */
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        if (event.getInventory().getHolder(false) instanceof Menu<?>) {
+            event.setCancelled(true);
+        }
+    }
+}
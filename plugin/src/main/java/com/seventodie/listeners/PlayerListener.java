@@ -17,13 +17,9 @@ import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
-import org.bukkit.event.inventory.InventoryClickEvent;
-import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
 
 import com.seventodie.SevenToDiePlugin;
-import com.seventodie.traders.TraderNPC;
 import com.seventodie.worldgen.StructureManager.Structure;
 
 /**
@@ -35,7 +31,6 @@ public class PlayerListener implements Listener {
     private final SevenToDiePlugin plugin;
     
     // Maps to track player state and interactions
-    private final Map<UUID, UUID> playerTradingWith = new HashMap<>();
     private final Map<UUID, Long> lastZombieKillTime = new HashMap<>();
     
     public PlayerListener(SevenToDiePlugin plugin) {
@@ -55,10 +50,15 @@ public class PlayerListener implements Listener {
         player.sendMessage(ChatColor.GRAY + "Find traders, complete quests, upgrade buildings, " +
                           "and survive the zombie apocalypse!");
         
-        // Check if player has active quests and notify them
-        if (plugin.getQuestManager().hasActiveQuests(player)) {
-            player.sendMessage(ChatColor.YELLOW + "You have active quests! Check with a trader to view them.");
-        }
+        // Balances stay loaded once read, so only the first join reads storage
+        plugin.getTraderManager().getLedger().loadBalance(player.getUniqueId());
+        
+        // Check if player has active quests once they are loaded and notify them
+        plugin.getQuestManager().loadPlayerProgress(player.getUniqueId(), () -> {
+            if (player.isOnline() && plugin.getQuestManager().hasActiveQuests(player)) {
+                player.sendMessage(ChatColor.YELLOW + "You have active quests! Check with a trader to view them.");
+            }
+        });
     }
     
     /**
@@ -69,11 +69,11 @@ public class PlayerListener implements Listener {
         Player player = event.getPlayer();
         UUID playerId = player.getUniqueId();
         
-        // Clear any trading sessions
-        playerTradingWith.remove(playerId);
-        
         // Clear any other player-specific tracked data
         lastZombieKillTime.remove(playerId);
+        
+        // Save quest progress and drop it from memory
+        plugin.getQuestManager().unloadPlayerProgress(playerId);
     }
     
     /**
@@ -125,76 +125,11 @@ public class PlayerListener implements Listener {
     @EventHandler(priority = EventPriority.NORMAL)
     public void onPlayerInteractEntity(PlayerInteractEntityEvent event) {
         Player player = event.getPlayer();
-        Entity entity = event.getRightClicked();
+        UUID entityId = event.getRightClicked().getUniqueId();
         
-        // Check if this is a trader NPC
-        for (Object outpost : plugin.getTraderManager().getAllTraderOutposts()) {
-            UUID traderNpcId = ((com.seventodie.traders.TraderManager.TraderOutpost)outpost).getNpcId();
-            
-            if (traderNpcId != null && entity.getUniqueId().equals(traderNpcId)) {
-                // Record that this player is trading with this trader
-                playerTradingWith.put(player.getUniqueId(), traderNpcId);
-                
-                // Let the trader manager handle the interaction
-                plugin.getTraderManager().handleTraderInteraction(player, traderNpcId);
-                event.setCancelled(true);
-                return;
-            }
-        }
-    }
-    
-    /**
-     * Handle inventory click events for trading UI
-     */
-    @EventHandler(priority = EventPriority.NORMAL)
-    public void onInventoryClick(InventoryClickEvent event) {
-        if (event.getWhoClicked() instanceof Player && event.getView().getTitle().contains("Shop")) {
-            Player player = (Player) event.getWhoClicked();
-            UUID traderId = playerTradingWith.get(player.getUniqueId());
-            
-            if (traderId != null) {
-                // Check if this is a shop item
-                if (event.getCurrentItem() != null && event.getCurrentItem().hasItemMeta()) {
-                    ItemMeta meta = event.getCurrentItem().getItemMeta();
-                    
-                    // Process purchase
-                    for (Object trader : plugin.getTraderManager().getAllTraderOutposts()) {
-                        UUID npcId = ((com.seventodie.traders.TraderManager.TraderOutpost)trader).getNpcId();
-                        if (npcId != null && npcId.equals(traderId)) {
-                            // Find the NPC and process the purchase
-                            TraderNPC npc = null; // We would need a getter for this from the trader manager
-                            
-                            // For now, just prevent the click and check for quest item
-                            event.setCancelled(true);
-                            
-                            // Check if this is the quest item
-                            if (meta.getDisplayName().contains("Quest")) {
-                                // Show quests to player
-                                showPlayerQuests(player);
-                                return;
-                            }
-                            
-                            return;
-                        }
-                    }
-                }
-                
-                // Cancel the event to prevent taking items
-                event.setCancelled(true);
-            }
-        }
-    }
-    
-    /**
-     * Handle inventory close events for traders
-     */
-    @EventHandler(priority = EventPriority.NORMAL)
-    public void onInventoryClose(InventoryCloseEvent event) {
-        if (event.getPlayer() instanceof Player && event.getView().getTitle().contains("Shop")) {
-            Player player = (Player) event.getPlayer();
-            
-            // Clear trading record
-            playerTradingWith.remove(player.getUniqueId());
+        // Let the trader manager handle the interaction if this is a trader NPC
+        if (plugin.getTraderManager().handleTraderInteraction(player, entityId)) {
+            event.setCancelled(true);
         }
     }
     
@@ -219,37 +154,6 @@ public class PlayerListener implements Listener {
         }
     }
     
-    /**
-     * Show active quests to a player
-     * 
-     * @param player The player to show quests to
-     */
-    private void showPlayerQuests(Player player) {
-        player.sendMessage(ChatColor.GOLD + "Your Active Quests:");
-        
-        int questCount = 0;
-        for (com.seventodie.quests.Quest quest : plugin.getQuestManager().getPlayerActiveQuests(player)) {
-            int progress = quest.getProgress(player.getUniqueId());
-            int target = quest.getTargetAmount();
-            int percent = (int)((progress / (double)target) * 100);
-            
-            player.sendMessage(ChatColor.YELLOW + "- " + quest.getTitle() + 
-                              ChatColor.GRAY + " (" + progress + "/" + target + ", " + percent + "%)");
-            player.sendMessage(ChatColor.WHITE + "  " + quest.getDescription());
-            
-            // If quest is complete, show completion message
-            if (quest.isCompletedByPlayer(player.getUniqueId())) {
-                player.sendMessage(ChatColor.GREEN + "  This quest is complete! Talk to a trader to claim your reward.");
-            }
-            
-            questCount++;
-        }
-        
-        if (questCount == 0) {
-            player.sendMessage(ChatColor.RED + "You have no active quests. Talk to a trader to get some!");
-        }
-    }
-    
     /**
      * Get quest rewards for a completed quest
      * 
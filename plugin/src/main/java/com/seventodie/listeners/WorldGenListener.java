@@ -1,19 +1,18 @@
 package com.seventodie.listeners;
 
-import org.bukkit.Chunk;
 import org.bukkit.World;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.WorldInitEvent;
 import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 
 import com.seventodie.SevenToDiePlugin;
 
 /**
- * Handles world generation and chunk loading events to add custom elements
- * like roads, structures, and biome modifications.
+ * Handles world events to hook custom elements like roads, structures, and
+ * biome modifications into world generation.
  */
 public class WorldGenListener implements Listener {
     
@@ -31,12 +30,13 @@ public class WorldGenListener implements Listener {
         // Register any custom generators or modifications
         plugin.getLogger().info("World " + event.getWorld().getName() + " is initializing");
         
-        // This is where we would register custom chunk generators, but since we're modifying
-        // after vanilla generation, we'll do that in chunk load events instead
+        // Roads and biome palettes are applied by our populator as chunks generate
+        plugin.getWorldPopulator().attach(event.getWorld());
     }
     
     /**
-     * Handle world loading to load saved structures and data
+     * Handle world loading to load saved structures, traders and quests.
+     * Worlds loaded before the plugin are handled by the managers at startup.
      */
     @EventHandler(priority = EventPriority.NORMAL)
     public void onWorldLoad(WorldLoadEvent event) {
@@ -44,48 +44,20 @@ public class WorldGenListener implements Listener {
         
         plugin.getLogger().info("World " + world.getName() + " loaded");
         
-        // Load structures for this world
-        // This is handled by the structure manager during plugin startup
+        plugin.getStructureManager().loadWorld(world);
+        plugin.getTraderManager().loadWorld(world);
+        plugin.getQuestManager().loadWorld(world);
     }
     
     /**
-     * Handle chunk loading to add roads and structures
+     * Handle world unloading to drop the world's structures, traders and quests
      */
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onChunkLoad(ChunkLoadEvent event) {
-        // Only process newly generated chunks
-        if (!event.isNewChunk()) {
-            return;
-        }
-        
-        Chunk chunk = event.getChunk();
-        World world = chunk.getWorld();
-        
-        // Skip non-overworld dimensions
-        if (world.getEnvironment() != World.Environment.NORMAL) {
-            return;
-        }
-        
-        // Generate roads and structures
-        // Since road generation might be intensive, schedule it for the next tick
-        plugin.getServer().getScheduler().runTask(plugin, () -> {
-            // Generate roads in this chunk
-            plugin.getRoadGenerator().generateRoadsInChunk(
-                world, 
-                chunk.getX(), 
-                chunk.getZ()
-            );
-            
-            // Structures are generated via the road nodes in the road generator
-        });
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        World world = event.getWorld();
         
-        // Apply biome modifications for this chunk
-        plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-            plugin.getBiomeMapper().applyBiomeToChunk(
-                world,
-                chunk.getX(),
-                chunk.getZ()
-            );
-        }, 2L); // Slight delay to ensure road generation completes first
+        plugin.getQuestManager().unloadWorld(world);
+        plugin.getTraderManager().unloadWorld(world);
+        plugin.getStructureManager().unloadWorld(world);
     }
 }
@@ -0,0 +1,76 @@
+package com.seventodie.menu;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+
+/**
+ * One player's open menu. As the holder of its inventory it identifies the
+ * inventory as a plugin menu, so listeners recognize menus with a single
+ * instanceof check instead of comparing titles.
+ *
+ * @param <S> The session type
+ */
+public final class Menu<S> implements InventoryHolder {
+
+    private final MenuTemplate<S> template;
+    private final S session;
+    private final Inventory inventory;
+
+    /**
+     * Constructor for Menu
+     *
+     * @param template The template the menu is opened from
+     * @param session The session the menu carries
+     */
+    Menu(MenuTemplate<S> template, S session) {
+        this.template = template;
+        this.session = session;
+        this.inventory = Bukkit.createInventory(this, template.getSize(), template.getTitle());
+        // setContents copies each item into the inventory
+        inventory.setContents(template.getContents());
+    }
+
+    /**
+     * Run the click handler of the clicked slot, or the template's handler
+     * for the player's own inventory if the click was below the menu
+     *
+     * @param event The click event, already cancelled
+     */
+    public void handleClick(InventoryClickEvent event) {
+        if (event.getClickedInventory() == null || !(event.getWhoClicked() instanceof Player player)) {
+            return;
+        }
+        MenuTemplate.ClickHandler<S> handler = event.getClickedInventory() == inventory
+                ? template.getHandler(event.getSlot())
+                : template.getPlayerInventoryHandler();
+        if (handler != null) {
+            handler.onClick(player, session, event);
+        }
+    }
+
+    /**
+     * Get the session
+     *
+     * @return The session
+     */
+    public S getSession() {
+        return session;
+    }
+
+    /**
+     * Get the template the menu was opened from
+     *
+     * @return The template
+     */
+    public MenuTemplate<S> getTemplate() {
+        return template;
+    }
+
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+}
@@ -0,0 +1,193 @@
+package com.seventodie.menu;
+
+import net.kyori.adventure.text.Component;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * An immutable, pre-rendered menu page: its title, items and a click handler
+ * per slot. Items are built once when the template is built; opening the
+ * template for a player copies them into a new inventory, so viewers never
+ * share item instances and nothing is rebuilt per open.
+ *
+ * @param <S> The session type menus opened from this template carry
+ */
+public final class MenuTemplate<S> {
+
+    /**
+     * Handles a click on a menu slot
+     *
+     * @param <S> The session type
+     */
+    @FunctionalInterface
+    public interface ClickHandler<S> {
+        /**
+         * @param player The player who clicked
+         * @param session The menu's session
+         * @param event The click event, already cancelled
+         */
+        void onClick(Player player, S session, InventoryClickEvent event);
+    }
+
+    private final int size;
+    private final Component title;
+    private final ItemStack[] contents;
+    private final ClickHandler<S>[] handlers;
+    private final ClickHandler<S> playerInventoryHandler;
+
+    private MenuTemplate(Builder<S> builder) {
+        this.size = builder.contents.length;
+        this.title = builder.title;
+        this.contents = new ItemStack[size];
+        for (int slot = 0; slot < size; slot++) {
+            ItemStack item = builder.contents[slot];
+            contents[slot] = item != null ? item.clone() : null;
+        }
+        this.handlers = builder.handlers.clone();
+        this.playerInventoryHandler = builder.playerInventoryHandler;
+    }
+
+    /**
+     * Start building a template
+     *
+     * @param rows The number of rows, 1 to 6
+     * @param title The title
+     * @param <S> The session type
+     * @return The builder
+     */
+    public static <S> Builder<S> builder(int rows, Component title) {
+        return new Builder<>(rows, title);
+    }
+
+    /**
+     * Open a menu from this template for a player
+     *
+     * @param player The player
+     * @param session The session the menu carries
+     * @return The opened menu
+     */
+    public Menu<S> open(Player player, S session) {
+        Menu<S> menu = new Menu<>(this, session);
+        player.openInventory(menu.getInventory());
+        return menu;
+    }
+
+    /**
+     * Get the number of slots
+     *
+     * @return The size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the title
+     *
+     * @return The title
+     */
+    public Component getTitle() {
+        return title;
+    }
+
+    /**
+     * Get the pre-rendered items. The inventory copies them, so the array
+     * is never handed to a viewer.
+     *
+     * @return The items by slot
+     */
+    ItemStack[] getContents() {
+        return contents;
+    }
+
+    /**
+     * Get the click handler for a slot
+     *
+     * @param slot The slot
+     * @return The handler, or null if the slot does nothing
+     */
+    ClickHandler<S> getHandler(int slot) {
+        return slot >= 0 && slot < size ? handlers[slot] : null;
+    }
+
+    /**
+     * Get the handler for clicks in the viewer's own inventory
+     *
+     * @return The handler, or null if those clicks do nothing
+     */
+    ClickHandler<S> getPlayerInventoryHandler() {
+        return playerInventoryHandler;
+    }
+
+    /**
+     * Builds a {@link MenuTemplate}
+     *
+     * @param <S> The session type
+     */
+    public static final class Builder<S> {
+
+        private final Component title;
+        private final ItemStack[] contents;
+        private final ClickHandler<S>[] handlers;
+        private ClickHandler<S> playerInventoryHandler;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Builder(int rows, Component title) {
+            if (rows < 1 || rows > 6) {
+                throw new IllegalArgumentException("A menu has 1 to 6 rows, not " + rows);
+            }
+            this.title = title;
+            this.contents = new ItemStack[rows * 9];
+            this.handlers = (ClickHandler<S>[]) new ClickHandler[rows * 9];
+        }
+
+        /**
+         * Put an item that does nothing when clicked
+         *
+         * @param slot The slot
+         * @param item The item
+         * @return This builder
+         */
+        public Builder<S> item(int slot, ItemStack item) {
+            contents[slot] = item;
+            return this;
+        }
+
+        /**
+         * Put an item with a click handler
+         *
+         * @param slot The slot
+         * @param item The item
+         * @param handler The click handler
+         * @return This builder
+         */
+        public Builder<S> button(int slot, ItemStack item, ClickHandler<S> handler) {
+            contents[slot] = item;
+            handlers[slot] = handler;
+            return this;
+        }
+
+        /**
+         * Handle clicks in the viewer's own inventory below the menu. The
+         * event's slot is then a slot of the player's inventory.
+         *
+         * @param handler The click handler
+         * @return This builder
+         */
+        public Builder<S> playerInventoryClick(ClickHandler<S> handler) {
+            playerInventoryHandler = handler;
+            return this;
+        }
+
+        /**
+         * Build the template
+         *
+         * @return The template
+         */
+        public MenuTemplate<S> build() {
+            return new MenuTemplate<>(this);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.seventodie.storage;
+
+import java.util.UUID;
+
+/**
+ * A player's currency balance, as stored in the player_balances table.
+ */
+public record BalanceRecord(UUID playerId, long balance) {
+}
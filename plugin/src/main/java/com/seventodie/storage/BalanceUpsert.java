@@ -0,0 +1,29 @@
+package com.seventodie.storage;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Insert or replace a player's balance.
+ */
+public record BalanceUpsert(BalanceRecord balance) implements Mutation {
+
+    private static final Map<SqlDialect, String> SQL = SqlDialect.upserts("player_balances",
+            List.of("player_id", "balance"),
+            List.of("player_id"));
+
+    @Override
+    public String getKey() {
+        return "player_balances:" + balance.playerId();
+    }
+
+    @Override
+    public void write(Batch batch) throws SQLException {
+        PreparedStatement stmt = batch.statement(SQL.get(batch.dialect()));
+        stmt.setString(1, balance.playerId().toString());
+        stmt.setLong(2, balance.balance());
+        stmt.addBatch();
+    }
+}
@@ -0,0 +1,124 @@
+package com.seventodie.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JDBC batch used by a single {@link WriteBehindQueue} flush.
+ *
+ * Consecutive mutations that use the same SQL share one batched statement.
+ * When the SQL changes the pending batch is executed first, so statements
+ * always run in the order the mutations were queued.
+ */
+public class Batch {
+
+    private final Connection connection;
+    private final SqlDialect dialect;
+    private final StatementCache statementCache;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private PreparedStatement current;
+    private int pending;
+    private int executed;
+
+    /**
+     * Constructor for Batch
+     *
+     * @param connection The connection the flush runs on
+     * @param dialect The SQL dialect of the connection
+     * @param statementCache The statement cache, or null to prepare statements per flush
+     */
+    Batch(Connection connection, SqlDialect dialect, StatementCache statementCache) {
+        this.connection = connection;
+        this.dialect = dialect;
+        this.statementCache = statementCache;
+    }
+
+    /**
+     * Get the SQL dialect of the connection
+     *
+     * @return The dialect
+     */
+    public SqlDialect dialect() {
+        return dialect;
+    }
+
+    /**
+     * Get the batched statement for a SQL string. Callers bind parameters and
+     * call {@link PreparedStatement#addBatch()}.
+     *
+     * @param sql The SQL
+     * @return The prepared statement
+     * @throws SQLException If the statement cannot be prepared
+     */
+    public PreparedStatement statement(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = statementCache != null
+                    ? statementCache.prepare(connection, sql)
+                    : connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        if (statement != current) {
+            executePending();
+            current = statement;
+        }
+        pending++;
+        return statement;
+    }
+
+    /**
+     * Get the underlying connection, for mutations that cannot be batched
+     *
+     * @return The connection
+     * @throws SQLException If pending batches cannot be executed first
+     */
+    public Connection connection() throws SQLException {
+        executePending();
+        current = null;
+        return connection;
+    }
+
+    /**
+     * Execute any pending batched statements
+     *
+     * @throws SQLException If execution fails
+     */
+    void executePending() throws SQLException {
+        if (current != null && pending > 0) {
+            current.executeBatch();
+            executed += pending;
+        }
+        pending = 0;
+    }
+
+    /**
+     * Get the number of statements executed so far
+     *
+     * @return The statement count
+     */
+    int getExecuted() {
+        return executed;
+    }
+
+    /**
+     * Close all prepared statements. Cached statements stay open and only
+     * have any batch left over from a failed flush cleared.
+     */
+    void close() {
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                if (statementCache != null) {
+                    statement.clearBatch();
+                } else {
+                    statement.close();
+                }
+            } catch (SQLException ignored) {
+                // Closing is best effort
+            }
+        }
+        statements.clear();
+    }
+}
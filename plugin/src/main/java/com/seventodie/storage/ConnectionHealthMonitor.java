@@ -0,0 +1,208 @@
+package com.seventodie.storage;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracks whether the database is reachable without adding round trips to
+ * the callers that ask.
+ *
+ * Real queries report their outcome, and a keepalive probe runs only when no
+ * query has succeeded recently. A failure marks the database unhealthy and
+ * starts a recovery loop on the monitor thread that probes, reconnects and
+ * backs off exponentially until a probe succeeds again.
+ */
+public class ConnectionHealthMonitor {
+
+    /**
+     * A cheap query used to check the connection
+     */
+    @FunctionalInterface
+    public interface Probe {
+        void run() throws SQLException;
+    }
+
+    /**
+     * Drops and reopens broken connections
+     */
+    @FunctionalInterface
+    public interface Reconnector {
+        void reconnect() throws SQLException;
+    }
+
+    private static final long KEEPALIVE_INTERVAL_MS = 30000;
+    private static final long MIN_RETRY_DELAY_MS = 1000;
+    private static final long MAX_RETRY_DELAY_MS = 60000;
+
+    private final Logger logger;
+    private final Probe probe;
+    private final Reconnector reconnector;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean recovering = new AtomicBoolean();
+
+    private volatile boolean healthy = true;
+    private volatile long lastSuccessMillis = System.currentTimeMillis();
+    private volatile long retryDelay = MIN_RETRY_DELAY_MS;
+
+    // Metrics, updated from query threads and the recovery thread
+    private final LongAdder totalFailures = new LongAdder();
+    private final LongAdder totalReconnects = new LongAdder();
+
+    /**
+     * Constructor for ConnectionHealthMonitor
+     *
+     * @param logger The logger for state changes
+     * @param probe The keepalive query
+     * @param reconnector Reopens connections when a probe fails
+     */
+    public ConnectionHealthMonitor(Logger logger, Probe probe, Reconnector reconnector) {
+        this.logger = logger;
+        this.probe = probe;
+        this.reconnector = reconnector;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SevenToDie-DbHealth");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start the keepalive probe. Called once the monitor is constructed so the
+     * scheduler never sees a partially built instance.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::keepalive,
+                KEEPALIVE_INTERVAL_MS, KEEPALIVE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Check if the database was reachable at the last query or probe. Never
+     * touches the database.
+     *
+     * @return True if healthy
+     */
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Report a query that completed
+     */
+    public void recordSuccess() {
+        lastSuccessMillis = System.currentTimeMillis();
+        if (!healthy && !recovering.get()) {
+            healthy = true;
+            logger.info("Database connection restored");
+        }
+    }
+
+    /**
+     * Report a query that failed. Marks the database unhealthy and starts
+     * recovery if it is not already running.
+     *
+     * @param e The failure
+     */
+    public void recordFailure(SQLException e) {
+        totalFailures.increment();
+        if (healthy) {
+            healthy = false;
+            logger.warning("Database query failed, checking connection: " + e.getMessage());
+        }
+        startRecovery(0);
+    }
+
+    private void keepalive() {
+        if (!healthy || System.currentTimeMillis() - lastSuccessMillis < KEEPALIVE_INTERVAL_MS) {
+            return;
+        }
+        try {
+            probe.run();
+            recordSuccess();
+        } catch (SQLException e) {
+            recordFailure(e);
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Database keepalive probe failed", e);
+        }
+    }
+
+    private void startRecovery(long delay) {
+        if (recovering.compareAndSet(false, true)) {
+            schedule(delay);
+        }
+    }
+
+    private void schedule(long delay) {
+        try {
+            scheduler.schedule(this::recover, delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // Rejected after shutdown
+            recovering.set(false);
+        }
+    }
+
+    private void recover() {
+        try {
+            try {
+                probe.run();
+            } catch (SQLException first) {
+                totalReconnects.increment();
+                reconnector.reconnect();
+                probe.run();
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.warning("Database still unavailable, retrying in " + (retryDelay / 1000) + "s: " + e.getMessage());
+            long delay = retryDelay;
+            retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MS);
+            schedule(delay);
+            return;
+        }
+
+        retryDelay = MIN_RETRY_DELAY_MS;
+        lastSuccessMillis = System.currentTimeMillis();
+        recovering.set(false);
+        if (!healthy) {
+            healthy = true;
+            logger.info("Database connection restored");
+        }
+    }
+
+    /**
+     * Stop probing
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Get the time since the last successful query or probe
+     *
+     * @return The age in milliseconds
+     */
+    public long getMillisSinceLastSuccess() {
+        return System.currentTimeMillis() - lastSuccessMillis;
+    }
+
+    /**
+     * Get the number of failed queries and probes reported
+     *
+     * @return The failure count
+     */
+    public long getTotalFailures() {
+        return totalFailures.sum();
+    }
+
+    /**
+     * Get the number of times connections were reopened
+     *
+     * @return The reconnect count
+     */
+    public long getTotalReconnects() {
+        return totalReconnects.sum();
+    }
+}
@@ -0,0 +1,15 @@
+package com.seventodie.storage;
+
+import java.util.UUID;
+
+/**
+ * A frame block row as stored in the frame_blocks table.
+ *
+ * Rows written before ownership and wear were stored have a null owner and a
+ * negative durability, meaning the full durability of their tier.
+ */
+public record FrameBlockRecord(int x, int y, int z, int tier, UUID owner, int durability, int upgradeProgress) {
+
+    /** Durability of rows that predate stored durability */
+    public static final int FULL_DURABILITY = -1;
+}
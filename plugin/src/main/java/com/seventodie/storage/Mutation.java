@@ -0,0 +1,27 @@
+package com.seventodie.storage;
+
+import java.sql.SQLException;
+
+/**
+ * A pending database write, queued in the {@link WriteBehindQueue}.
+ *
+ * Mutations with the same key are coalesced: only the most recently queued
+ * mutation for a key is written when the queue is flushed.
+ */
+public interface Mutation {
+
+    /**
+     * Get the coalescing key, normally the table name plus the primary key
+     *
+     * @return The key
+     */
+    String getKey();
+
+    /**
+     * Bind this mutation to the batched statements of a flush
+     *
+     * @param batch The batch being flushed
+     * @throws SQLException If binding fails
+     */
+    void write(Batch batch) throws SQLException;
+}
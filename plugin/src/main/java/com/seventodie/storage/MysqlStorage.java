@@ -0,0 +1,100 @@
+package com.seventodie.storage;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * MySQL backend, shared by every server on the network.
+ *
+ * The pool has a fixed size so connections are not opened and closed as load
+ * changes. Batched writes are rewritten by the driver into multi-row inserts,
+ * and prepared statements are cached on the server side. Connections are
+ * retired before a typical server wait_timeout and kept alive in between.
+ */
+public class MysqlStorage implements StorageBackend {
+
+    private static final int CONNECTION_TIMEOUT = 5000;
+    private static final long MAX_LIFETIME = 1800000; // 30 minutes
+    private static final long KEEPALIVE_TIME = 300000; // 5 minutes
+    private static final int STATEMENTS_PER_CONNECTION = 32;
+
+    private final HikariDataSource pool;
+    private final StatementCache statementCache = new StatementCache(STATEMENTS_PER_CONNECTION);
+
+    /**
+     * Constructor for MysqlStorage
+     *
+     * @param jdbcUrl The JDBC URL, jdbc:mysql://, jdbc:mariadb:// or jdbc:h2: in MySQL mode
+     * @param username The username
+     * @param password The password
+     * @param poolSize The number of connections
+     */
+    public MysqlStorage(String jdbcUrl, String username, String password, int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setPoolName("SevenToDie-MySQL");
+        config.setMinimumIdle(Math.max(1, poolSize));
+        config.setMaximumPoolSize(Math.max(1, poolSize));
+        config.setConnectionTimeout(CONNECTION_TIMEOUT);
+        config.setMaxLifetime(MAX_LIFETIME);
+        config.setKeepaliveTime(KEEPALIVE_TIME);
+
+        // Driver tuning only applies to the MySQL drivers; H2 rejects unknown settings
+        if (jdbcUrl.startsWith("jdbc:mysql:") || jdbcUrl.startsWith("jdbc:mariadb:")) {
+            config.addDataSourceProperty("rewriteBatchedStatements", "true");
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", "250");
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+            config.addDataSourceProperty("useLocalSessionState", "true");
+            config.addDataSourceProperty("cacheResultSetMetadata", "true");
+            config.addDataSourceProperty("cacheServerConfiguration", "true");
+            config.addDataSourceProperty("elideSetAutoCommits", "true");
+            config.addDataSourceProperty("maintainTimeStats", "false");
+            // Statements that set a fetch size (exports) stream through a server cursor
+            config.addDataSourceProperty("useCursorFetch", "true");
+        }
+
+        this.pool = new HikariDataSource(config);
+    }
+
+    @Override
+    public String getName() {
+        return "MySQL";
+    }
+
+    @Override
+    public SqlDialect getDialect() {
+        return SqlDialect.MYSQL;
+    }
+
+    @Override
+    public Connection getWriteConnection() throws SQLException {
+        return pool.getConnection();
+    }
+
+    @Override
+    public Connection getReadConnection() throws SQLException {
+        return pool.getConnection();
+    }
+
+    @Override
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    @Override
+    public void evictConnections() {
+        pool.getHikariPoolMXBean().softEvictConnections();
+    }
+
+    @Override
+    public void close() {
+        statementCache.clear();
+        pool.close();
+    }
+}
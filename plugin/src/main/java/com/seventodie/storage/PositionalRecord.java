@@ -0,0 +1,37 @@
+package com.seventodie.storage;
+
+import java.util.UUID;
+
+/**
+ * A stored row with an ID and a position, loadable by chunk.
+ */
+public interface PositionalRecord {
+
+    /**
+     * Get the row ID
+     *
+     * @return The ID
+     */
+    UUID id();
+
+    /**
+     * Get the world name
+     *
+     * @return The world name
+     */
+    String world();
+
+    /**
+     * Get the X coordinate
+     *
+     * @return The X coordinate
+     */
+    double x();
+
+    /**
+     * Get the Z coordinate
+     *
+     * @return The Z coordinate
+     */
+    double z();
+}
@@ -0,0 +1,24 @@
+package com.seventodie.storage;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Delete one row by ID. Shares its key with {@link RowUpsert}, so a delete
+ * replaces a queued upsert of the same row and the reverse.
+ */
+public record RowDelete(String table, UUID id) implements Mutation {
+
+    @Override
+    public String getKey() {
+        return table + ":" + id;
+    }
+
+    @Override
+    public void write(Batch batch) throws SQLException {
+        PreparedStatement stmt = batch.statement("DELETE FROM " + table + " WHERE id = ?");
+        stmt.setString(1, id.toString());
+        stmt.addBatch();
+    }
+}
@@ -0,0 +1,333 @@
+package com.seventodie.storage;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * The plugin's schema migrations, in version order.
+ *
+ * Migrations are append-only: once released, a migration's effect is never
+ * changed. Schema changes go in a new migration with the next version number.
+ *
+ * Every step checks before it creates, so a migration that MySQL partly
+ * committed before failing can simply run again.
+ */
+public final class SchemaMigrations {
+
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    private SchemaMigrations() {
+    }
+
+    /**
+     * Get every migration
+     *
+     * @param dialect The SQL dialect of the database being migrated
+     * @return The migrations
+     */
+    public static List<SchemaMigrator.Migration> all(SqlDialect dialect) {
+        return List.of(
+            new SchemaMigrator.Migration(1, "Create base tables",
+                    connection -> createBaseTables(connection, dialect)),
+            new SchemaMigrator.Migration(2, "Add chunk coordinate columns", SchemaMigrations::addChunkColumns),
+            new SchemaMigrator.Migration(3, "Index positional tables by chunk",
+                    connection -> addChunkIndexes(connection, dialect)),
+            new SchemaMigrator.Migration(4, "Add trader open state", SchemaMigrations::addTraderOpen),
+            new SchemaMigrator.Migration(5, "Create trader stock table",
+                    connection -> createTraderStock(connection, dialect)),
+            new SchemaMigrator.Migration(6, "Create trade ledger tables",
+                    connection -> createTradeLedger(connection, dialect)),
+            new SchemaMigrator.Migration(7, "Add frame owner and wear",
+                    connection -> addFrameState(connection, dialect))
+        );
+    }
+
+    /**
+     * The tables as they were before versioning. Uses IF NOT EXISTS so databases
+     * created by older releases adopt version 1 without changes. On SQLite the
+     * statements are exactly the ones older releases ran.
+     */
+    private static void createBaseTables(Connection connection, SqlDialect dialect) throws SQLException {
+        String key = dialect.keyType();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(
+                "CREATE TABLE IF NOT EXISTS structures (" +
+                "id " + key + " PRIMARY KEY, " +
+                "type TEXT NOT NULL, " +
+                "world " + key + " NOT NULL, " +
+                "x DOUBLE NOT NULL, " +
+                "y DOUBLE NOT NULL, " +
+                "z DOUBLE NOT NULL, " +
+                "size_x DOUBLE NOT NULL, " +
+                "size_y DOUBLE NOT NULL, " +
+                "size_z DOUBLE NOT NULL, " +
+                "schematic TEXT NOT NULL, " +
+                "rotation INTEGER NOT NULL" +
+                ")"
+            );
+
+            statement.execute(
+                "CREATE TABLE IF NOT EXISTS quests (" +
+                "id " + key + " PRIMARY KEY, " +
+                "title TEXT NOT NULL, " +
+                "description TEXT NOT NULL, " +
+                "target_type TEXT NOT NULL, " +
+                "target_amount INTEGER NOT NULL, " +
+                "world " + key + " NOT NULL, " +
+                "x DOUBLE NOT NULL, " +
+                "y DOUBLE NOT NULL, " +
+                "z DOUBLE NOT NULL, " +
+                "structure_id " + key + ", " +
+                "completed BOOLEAN NOT NULL DEFAULT 0" +
+                ")"
+            );
+
+            statement.execute(
+                "CREATE TABLE IF NOT EXISTS traders (" +
+                "id " + key + " PRIMARY KEY, " +
+                "name TEXT NOT NULL, " +
+                "world " + key + " NOT NULL, " +
+                "x DOUBLE NOT NULL, " +
+                "y DOUBLE NOT NULL, " +
+                "z DOUBLE NOT NULL, " +
+                "structure_id " + key +
+                dialect.foreignKey("structure_id", "structures") +
+                ")"
+            );
+
+            statement.execute(
+                "CREATE TABLE IF NOT EXISTS player_quests (" +
+                "player_id " + key + " NOT NULL, " +
+                "quest_id " + key + " NOT NULL, " +
+                "progress INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (player_id, quest_id)" +
+                dialect.foreignKey("quest_id", "quests") +
+                ")"
+            );
+
+            statement.execute(
+                "CREATE TABLE IF NOT EXISTS frame_blocks (" +
+                "world " + key + " NOT NULL, " +
+                "x INTEGER NOT NULL, " +
+                "y INTEGER NOT NULL, " +
+                "z INTEGER NOT NULL, " +
+                "tier INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (world, x, y, z)" +
+                ")"
+            );
+        }
+    }
+
+    /**
+     * Add chunk_x and chunk_z to every positional table and fill them from the
+     * block coordinates of existing rows
+     */
+    private static void addChunkColumns(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : new String[] {"structures", "quests", "traders", "frame_blocks"}) {
+                addColumn(connection, statement, table, "chunk_x", "INTEGER");
+                addColumn(connection, statement, table, "chunk_z", "INTEGER");
+            }
+        }
+
+        backfillChunks(connection, "structures", "id");
+        backfillChunks(connection, "quests", "id");
+        backfillChunks(connection, "traders", "id");
+        backfillChunks(connection, "frame_blocks", "world", "x", "y", "z");
+    }
+
+    /**
+     * Compute chunk coordinates in Java rather than SQL, because integer
+     * division and shifts of negative numbers differ between databases
+     */
+    private static void backfillChunks(Connection connection, String table, String... keyColumns) throws SQLException {
+        String keys = String.join(", ", keyColumns);
+        String where = String.join(" = ? AND ", keyColumns) + " = ?";
+
+        try (Statement select = connection.createStatement();
+             ResultSet rs = select.executeQuery("SELECT " + keys + ", x, z FROM " + table);
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE " + table + " SET chunk_x = ?, chunk_z = ? WHERE " + where)) {
+            int pending = 0;
+            while (rs.next()) {
+                update.setInt(1, toChunk(rs.getDouble(keyColumns.length + 1)));
+                update.setInt(2, toChunk(rs.getDouble(keyColumns.length + 2)));
+                for (int i = 1; i <= keyColumns.length; i++) {
+                    update.setObject(i + 2, rs.getObject(i));
+                }
+                update.addBatch();
+                if (++pending >= BACKFILL_BATCH_SIZE) {
+                    update.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                update.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Add (world, chunk_x, chunk_z) indexes so chunk-scoped loads are range scans.
+     * player_quests needs no index for lookups by player: its primary key
+     * (player_id, quest_id) already starts with player_id.
+     */
+    private static void addChunkIndexes(Connection connection, SqlDialect dialect) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : new String[] {"structures", "quests", "traders", "frame_blocks"}) {
+                createIndex(connection, statement, dialect, "idx_" + table + "_chunk", table,
+                        "world, chunk_x, chunk_z");
+            }
+        }
+    }
+
+    /**
+     * Persist whether each trader is open, so the state survives restarts
+     * instead of being recomputed on the first outpost update. Named is_open
+     * because OPEN is a keyword in MySQL.
+     */
+    private static void addTraderOpen(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            addColumn(connection, statement, "traders", "is_open", "BOOLEAN NOT NULL DEFAULT 0");
+        }
+    }
+
+    /**
+     * Persist each outpost's generated stock, so a restart neither rerolls it
+     * nor resets the restock timer. The stock is one encoded snapshot per
+     * outpost, since it is only ever read and replaced whole.
+     */
+    private static void createTraderStock(Connection connection, SqlDialect dialect) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(
+                "CREATE TABLE IF NOT EXISTS trader_stock (" +
+                "trader_id " + dialect.keyType() + " PRIMARY KEY, " +
+                "restocked_at BIGINT NOT NULL, " +
+                "stock TEXT NOT NULL" +
+                ")"
+            );
+        }
+    }
+
+    /**
+     * The trade ledger, player balances, and per-day totals per trader and
+     * item. The totals are kept up to date as trades are recorded, so reports
+     * never scan the ledger itself.
+     */
+    private static void createTradeLedger(Connection connection, SqlDialect dialect) throws SQLException {
+        String key = dialect.keyType();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(
+                "CREATE TABLE IF NOT EXISTS trade_ledger (" +
+                "id " + key + " PRIMARY KEY, " +
+                "player_id " + key + " NOT NULL, " +
+                "trader_id " + key + " NOT NULL, " +
+                "material " + key + " NOT NULL, " +
+                "amount INTEGER NOT NULL, " +
+                "price BIGINT NOT NULL, " +
+                "side " + key + " NOT NULL, " +
+                "created_at BIGINT NOT NULL" +
+                ")"
+            );
+            createIndex(connection, statement, dialect, "idx_trade_ledger_player", "trade_ledger",
+                    "player_id, created_at");
+
+            statement.execute(
+                "CREATE TABLE IF NOT EXISTS player_balances (" +
+                "player_id " + key + " PRIMARY KEY, " +
+                "balance BIGINT NOT NULL" +
+                ")"
+            );
+
+            statement.execute(
+                "CREATE TABLE IF NOT EXISTS trade_totals (" +
+                "trade_day INTEGER NOT NULL, " +
+                "trader_id " + key + " NOT NULL, " +
+                "material " + key + " NOT NULL, " +
+                "side " + key + " NOT NULL, " +
+                "volume BIGINT NOT NULL, " +
+                "revenue BIGINT NOT NULL, " +
+                "PRIMARY KEY (trade_day, trader_id, material, side)" +
+                ")"
+            );
+        }
+    }
+
+    /**
+     * Persist each frame's owner, durability and upgrade progress, which were
+     * lost on every chunk unload. Existing rows keep a null owner and a
+     * durability of -1, which loads as the full durability of their tier.
+     */
+    private static void addFrameState(Connection connection, SqlDialect dialect) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            addColumn(connection, statement, "frame_blocks", "owner", dialect.keyType());
+            addColumn(connection, statement, "frame_blocks", "durability", "INTEGER NOT NULL DEFAULT -1");
+            addColumn(connection, statement, "frame_blocks", "upgrade_progress", "INTEGER NOT NULL DEFAULT 0");
+        }
+    }
+
+    /**
+     * Add a column unless it already exists
+     */
+    private static void addColumn(Connection connection, Statement statement, String table, String column,
+                                  String definition) throws SQLException {
+        if (!columnExists(connection, table, column)) {
+            statement.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+    }
+
+    /**
+     * Create an index unless it already exists. Needed on MySQL, which has no
+     * CREATE INDEX IF NOT EXISTS.
+     */
+    private static void createIndex(Connection connection, Statement statement, SqlDialect dialect, String name,
+                                    String table, String columns) throws SQLException {
+        if (!indexExists(connection, table, name)) {
+            statement.execute(dialect.createIndex(name, table, columns));
+        }
+    }
+
+    private static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                if (meta.getColumnName(i).equalsIgnoreCase(column)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean indexExists(Connection connection, String table, String index) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        // H2 stores unquoted names in upper case, the others as written
+        for (String name : new String[] {table, table.toUpperCase()}) {
+            try (ResultSet rs = meta.getIndexInfo(connection.getCatalog(), null, name, false, true)) {
+                while (rs.next()) {
+                    if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Convert a block coordinate to a chunk coordinate
+     *
+     * @param coordinate The block coordinate
+     * @return The chunk coordinate
+     */
+    public static int toChunk(double coordinate) {
+        return (int) Math.floor(coordinate) >> 4;
+    }
+}
@@ -0,0 +1,139 @@
+package com.seventodie.storage;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * SQLite connection profile: one writer connection plus a pool of readers.
+ *
+ * SQLite serializes writers, so extra write connections only queue on the
+ * database lock. The database runs in WAL mode, which lets the readers work
+ * alongside the writer, with synchronous=NORMAL (safe in WAL mode; a power
+ * loss can lose the last commits but never corrupts the file), memory-mapped
+ * reads, in-memory temp tables and a larger page cache. Connections are only
+ * retired when they are found broken, so prepared statements cached per
+ * connection stay valid.
+ */
+public class SqliteStorage implements StorageBackend {
+
+    private static final int CONNECTION_TIMEOUT = 3000;
+    private static final int BUSY_TIMEOUT = 5000;
+    private static final int STATEMENTS_PER_CONNECTION = 32;
+
+    private final HikariDataSource writer;
+    private final HikariDataSource readers;
+    private final StatementCache statementCache = new StatementCache(STATEMENTS_PER_CONNECTION);
+
+    /**
+     * Constructor for SqliteStorage
+     *
+     * @param databaseFile The database file
+     * @param readerCount The number of reader connections
+     * @param cacheSizeKb The page cache size per connection in KiB
+     * @param mmapSizeMb The memory-mapped region size in MiB
+     */
+    public SqliteStorage(File databaseFile, int readerCount, int cacheSizeKb, int mmapSizeMb) {
+        String url = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+
+        HikariConfig writerConfig = createConfig(url, "SevenToDie-SQLite-Writer", 1, cacheSizeKb, mmapSizeMb);
+        this.writer = new HikariDataSource(writerConfig);
+
+        HikariConfig readerConfig = createConfig(url, "SevenToDie-SQLite-Reader", Math.max(1, readerCount),
+                cacheSizeKb, mmapSizeMb);
+        readerConfig.setConnectionInitSql("PRAGMA query_only = 1");
+        HikariDataSource readerPool;
+        try {
+            readerPool = new HikariDataSource(readerConfig);
+        } catch (RuntimeException e) {
+            writer.close();
+            throw e;
+        }
+        this.readers = readerPool;
+    }
+
+    private static HikariConfig createConfig(String url, String poolName, int size, int cacheSizeKb, int mmapSizeMb) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setPoolName(poolName);
+        config.setMinimumIdle(size);
+        config.setMaximumPoolSize(size);
+        config.setConnectionTimeout(CONNECTION_TIMEOUT);
+        // A local file has nothing to time out; keep connections and their cached statements
+        config.setIdleTimeout(0);
+        config.setMaxLifetime(0);
+
+        // Applied by the driver as pragmas when each connection opens
+        config.addDataSourceProperty("journal_mode", "WAL");
+        config.addDataSourceProperty("synchronous", "NORMAL");
+        config.addDataSourceProperty("temp_store", "MEMORY");
+        config.addDataSourceProperty("cache_size", String.valueOf(-cacheSizeKb));
+        config.addDataSourceProperty("mmap_size", String.valueOf(mmapSizeMb * 1024L * 1024L));
+        config.addDataSourceProperty("busy_timeout", String.valueOf(BUSY_TIMEOUT));
+        return config;
+    }
+
+    @Override
+    public String getName() {
+        return "SQLite";
+    }
+
+    @Override
+    public SqlDialect getDialect() {
+        return SqlDialect.SQLITE;
+    }
+
+    /**
+     * Borrow the writer connection. Only one caller holds it at a time.
+     *
+     * @return The writer connection
+     * @throws SQLException If the connection cannot be borrowed
+     */
+    @Override
+    public Connection getWriteConnection() throws SQLException {
+        return writer.getConnection();
+    }
+
+    /**
+     * Borrow a read-only connection
+     *
+     * @return A reader connection
+     * @throws SQLException If no reader becomes available in time
+     */
+    @Override
+    public Connection getReadConnection() throws SQLException {
+        return readers.getConnection();
+    }
+
+    /**
+     * Get the prepared statement cache shared by both pools
+     *
+     * @return The statement cache
+     */
+    @Override
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    /**
+     * Retire every pooled connection so the pools open fresh ones. Connections
+     * in use are closed when they are returned.
+     */
+    @Override
+    public void evictConnections() {
+        writer.getHikariPoolMXBean().softEvictConnections();
+        readers.getHikariPoolMXBean().softEvictConnections();
+    }
+
+    /**
+     * Close the cached statements and both pools
+     */
+    @Override
+    public void close() {
+        statementCache.clear();
+        readers.close();
+        writer.close();
+    }
+}
@@ -0,0 +1,11 @@
+package com.seventodie.storage;
+
+import java.util.UUID;
+
+/**
+ * A structure row as stored in the structures table.
+ */
+public record StructureRecord(UUID id, String type, String world, double x, double y, double z,
+                              double sizeX, double sizeY, double sizeZ, String schematic,
+                              int rotation) implements PositionalRecord {
+}
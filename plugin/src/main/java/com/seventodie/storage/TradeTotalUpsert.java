@@ -0,0 +1,34 @@
+package com.seventodie.storage;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Insert or replace one day's trade totals for an item at a trader. The
+ * totals are absolute, so a repeated write leaves the same row.
+ */
+public record TradeTotalUpsert(TradeTotalRecord totals) implements Mutation {
+
+    private static final Map<SqlDialect, String> SQL = SqlDialect.upserts("trade_totals",
+            List.of("trade_day", "trader_id", "material", "side", "volume", "revenue"),
+            List.of("trade_day", "trader_id", "material", "side"));
+
+    @Override
+    public String getKey() {
+        return "trade_totals:" + totals.day() + ":" + totals.traderId() + ":" + totals.material() + ":" + totals.side();
+    }
+
+    @Override
+    public void write(Batch batch) throws SQLException {
+        PreparedStatement stmt = batch.statement(SQL.get(batch.dialect()));
+        stmt.setInt(1, totals.day());
+        stmt.setString(2, totals.traderId().toString());
+        stmt.setString(3, totals.material());
+        stmt.setString(4, totals.side().name());
+        stmt.setLong(5, totals.volume());
+        stmt.setLong(6, totals.revenue());
+        stmt.addBatch();
+    }
+}
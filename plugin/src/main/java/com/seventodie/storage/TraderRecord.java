@@ -0,0 +1,10 @@
+package com.seventodie.storage;
+
+import java.util.UUID;
+
+/**
+ * A trader row as stored in the traders table.
+ */
+public record TraderRecord(UUID id, String name, String world, double x, double y, double z,
+                           UUID structureId, boolean open) implements PositionalRecord {
+}
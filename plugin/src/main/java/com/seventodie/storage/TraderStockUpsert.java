@@ -0,0 +1,30 @@
+package com.seventodie.storage;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Insert or replace a trader outpost's stock.
+ */
+public record TraderStockUpsert(TraderStockRecord stock) implements Mutation {
+
+    private static final Map<SqlDialect, String> SQL = SqlDialect.upserts("trader_stock",
+            List.of("trader_id", "restocked_at", "stock"),
+            List.of("trader_id"));
+
+    @Override
+    public String getKey() {
+        return "trader_stock:" + stock.traderId();
+    }
+
+    @Override
+    public void write(Batch batch) throws SQLException {
+        PreparedStatement stmt = batch.statement(SQL.get(batch.dialect()));
+        stmt.setString(1, stock.traderId().toString());
+        stmt.setLong(2, stock.restockedAt());
+        stmt.setString(3, stock.stock());
+        stmt.addBatch();
+    }
+}
@@ -0,0 +1,629 @@
+package com.seventodie.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind queue that moves database writes off the calling thread.
+ *
+ * Mutations are coalesced by key and flushed by a dedicated thread in JDBC
+ * batches inside a single transaction. A flush starts when the queue reaches
+ * the batch size or when the flush interval elapses, whichever comes first.
+ * When a batch fails, its mutations are written again one at a time, so
+ * one bad row cannot hold back the rest. Mutations that fail with a transient
+ * error (lost connection, serialization failure, busy database) are re-queued
+ * (newer writes for the same key win) and retried with backoff; any other
+ * failure is permanent, and the mutation is logged and dead-lettered instead
+ * of being retried forever. Callers that need to know when their writes are
+ * durable use {@link #enqueueAll(Collection)}, whose future completes after
+ * the flush that wrote them commits, or fails if one of them was dead-lettered.
+ *
+ * The queue holds at most {@link #MAX_PENDING} distinct keys. Past that, new
+ * keys are refused, so a database that is down for long turns into failed
+ * saves (which the state journal still covers) rather than unbounded memory.
+ */
+public class WriteBehindQueue {
+
+    /**
+     * Supplies connections to the flush thread
+     */
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection getConnection() throws SQLException;
+    }
+
+    private static final long FLUSH_INTERVAL_MS = 1000;
+    private static final int BATCH_SIZE = 500;
+    private static final long MAX_RETRY_DELAY_MS = 30000;
+    private static final long SHUTDOWN_TIMEOUT_MS = 30000;
+    private static final int MAX_PENDING = 100000;
+    private static final int MAX_DEAD_LETTERS = 100;
+    // SQLite result codes for a database another connection holds locked
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+
+    /**
+     * A mutation that could not be written and will not be retried
+     */
+    public record DeadLetter(Mutation mutation, String error, long failedAt) {
+    }
+
+    /**
+     * A caller waiting for some keys to be written
+     */
+    private record Waiter(CompletableFuture<Void> future, List<String> keys) {
+    }
+
+    private final Logger logger;
+    private final ConnectionSource connectionSource;
+    private final SqlDialect dialect;
+    private final StatementCache statementCache;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushRequested = lock.newCondition();
+    private final Condition flushCompleted = lock.newCondition();
+    private final Thread flushThread;
+
+    private volatile ConnectionHealthMonitor healthMonitor;
+    private LinkedHashMap<String, Mutation> pending = new LinkedHashMap<>();
+    private Map<String, Mutation> inFlight = Map.of();
+    private List<Waiter> waiters = new ArrayList<>();
+    private final ArrayDeque<DeadLetter> deadLetters = new ArrayDeque<>();
+    private volatile boolean running = true;
+    private boolean flushing;
+    private long flushGeneration;
+    private long retryDelay;
+
+    // Metrics
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+    private volatile long totalFlushed;
+    private volatile long totalCoalesced;
+    private volatile long totalFailures;
+    private volatile long totalDeadLettered;
+    private volatile long totalRefused;
+
+    /**
+     * Constructor for WriteBehindQueue
+     *
+     * @param logger The logger for flush errors
+     * @param connectionSource The connection source used by the flush thread
+     */
+    public WriteBehindQueue(Logger logger, ConnectionSource connectionSource) {
+        this(logger, connectionSource, SqlDialect.SQLITE, null);
+    }
+
+    /**
+     * Constructor for WriteBehindQueue
+     *
+     * @param logger The logger for flush errors
+     * @param connectionSource The connection source used by the flush thread
+     * @param dialect The SQL dialect of the connections
+     * @param statementCache The cache to prepare statements from, or null to prepare them per flush
+     */
+    public WriteBehindQueue(Logger logger, ConnectionSource connectionSource, SqlDialect dialect,
+                            StatementCache statementCache) {
+        this.logger = logger;
+        this.connectionSource = connectionSource;
+        this.dialect = dialect;
+        this.statementCache = statementCache;
+        this.flushThread = new Thread(this::run, "SevenToDie-WriteBehind");
+        this.flushThread.setDaemon(true);
+        this.flushThread.start();
+    }
+
+    /**
+     * Set the monitor that flush outcomes are reported to
+     *
+     * @param healthMonitor The health monitor, or null
+     */
+    public void setHealthMonitor(ConnectionHealthMonitor healthMonitor) {
+        this.healthMonitor = healthMonitor;
+    }
+
+    /**
+     * Queue several mutations, replacing any queued mutations with the same keys
+     *
+     * @param mutations The mutations
+     * @return A future completed once the mutations have been written, or
+     *         completed exceptionally if they could not be
+     */
+    public CompletableFuture<Void> enqueueAll(Collection<? extends Mutation> mutations) {
+        if (mutations.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        lock.lock();
+        try {
+            if (!running) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Write-behind queue is shut down"));
+            }
+            // Writes that replace queued keys are always taken; only new keys count against the cap
+            int added = 0;
+            for (Mutation mutation : mutations) {
+                if (!pending.containsKey(mutation.getKey())) {
+                    added++;
+                }
+            }
+            if (pending.size() + added > MAX_PENDING) {
+                totalRefused += mutations.size();
+                return CompletableFuture.failedFuture(new IllegalStateException(
+                        "Write-behind queue is full (" + pending.size() + " writes waiting)"));
+            }
+
+            List<String> keys = new ArrayList<>(mutations.size());
+            for (Mutation mutation : mutations) {
+                keys.add(mutation.getKey());
+                if (pending.put(mutation.getKey(), mutation) != null) {
+                    totalCoalesced++;
+                }
+            }
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            waiters.add(new Waiter(future, keys));
+            if (pending.size() >= BATCH_SIZE) {
+                flushRequested.signal();
+            }
+            return future;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the newest mutation for a key that has not been committed yet,
+     * including one in the batch currently being written. Readers use this
+     * to see their own writes before the database does.
+     *
+     * @param key The mutation key
+     * @return The mutation, or null if nothing for the key is outstanding
+     */
+    public Mutation getQueued(String key) {
+        lock.lock();
+        try {
+            Mutation mutation = pending.get(key);
+            return mutation != null ? mutation : inFlight.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the newest uncommitted mutation of every key with a prefix, for
+     * readers that load many keys at once
+     *
+     * @param prefix The key prefix
+     * @return The mutations by key, empty if nothing is outstanding
+     */
+    public Map<String, Mutation> getQueuedByPrefix(String prefix) {
+        Map<String, Mutation> queued = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            for (Map<String, Mutation> source : List.of(inFlight, pending)) {
+                for (Map.Entry<String, Mutation> entry : source.entrySet()) {
+                    if (entry.getKey().startsWith(prefix)) {
+                        queued.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return queued;
+    }
+
+    /**
+     * Block until everything queued before this call has been written
+     *
+     * @param timeoutMs The maximum time to wait in milliseconds
+     * @return True if the queue was drained in time
+     */
+    public boolean flush(long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            if (pending.isEmpty() && !flushing) {
+                return true;
+            }
+            // A flush already in progress does not include mutations queued after it started
+            long target = flushGeneration + (flushing ? 2 : 1);
+            flushRequested.signal();
+            while (flushGeneration < target || retryDelay > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !flushThread.isAlive()) {
+                    return false;
+                }
+                flushCompleted.awaitNanos(remaining);
+                flushRequested.signal();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop accepting mutations, write everything still queued and stop the flush thread
+     *
+     * @return True if everything queued was written
+     */
+    public boolean shutdown() {
+        lock.lock();
+        try {
+            running = false;
+            flushRequested.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            flushThread.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int lost = getQueueDepth();
+        boolean drained = !flushThread.isAlive() && lost == 0;
+        if (!drained) {
+            logger.severe("Write-behind queue did not drain on shutdown; " + lost + " writes were not saved");
+        }
+
+        lock.lock();
+        List<Waiter> abandoned;
+        try {
+            abandoned = waiters;
+            waiters = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+        fail(abandoned);
+        return drained;
+    }
+
+    private static void fail(List<Waiter> abandoned) {
+        IllegalStateException e = new IllegalStateException("Queued writes were not saved before shutdown");
+        for (Waiter waiter : abandoned) {
+            waiter.future().completeExceptionally(e);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            LinkedHashMap<String, Mutation> batch;
+            List<Waiter> batchWaiters;
+            lock.lock();
+            try {
+                long wait = retryDelay > 0 ? retryDelay : FLUSH_INTERVAL_MS;
+                if (retryDelay > 0 || (running && pending.size() < BATCH_SIZE)) {
+                    flushRequested.await(wait, TimeUnit.MILLISECONDS);
+                }
+                if (pending.isEmpty()) {
+                    flushGeneration++;
+                    flushCompleted.signalAll();
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+                batch = pending;
+                inFlight = batch;
+                pending = new LinkedHashMap<>();
+                batchWaiters = waiters;
+                waiters = new ArrayList<>();
+                flushing = true;
+            } catch (InterruptedException e) {
+                // Interrupts are ignored; shutdown is signalled through the running flag
+                continue;
+            } finally {
+                lock.unlock();
+            }
+
+            Map<String, Mutation> retry = new LinkedHashMap<>();
+            Map<String, Exception> dead = new LinkedHashMap<>();
+            Exception failure = write(batch);
+            if (failure != null) {
+                if (isTransient(failure)) {
+                    retry = batch;
+                } else if (batch.size() == 1) {
+                    dead.put(batch.keySet().iterator().next(), failure);
+                } else {
+                    writeEach(batch, retry, dead);
+                }
+            }
+
+            List<Waiter> completed = new ArrayList<>();
+            List<Waiter> failed = new ArrayList<>();
+            lock.lock();
+            try {
+                flushing = false;
+                inFlight = Map.of();
+                List<Waiter> requeued = new ArrayList<>();
+                for (Waiter waiter : batchWaiters) {
+                    if (containsAny(dead, waiter.keys())) {
+                        failed.add(waiter);
+                    } else if (containsAny(retry, waiter.keys())) {
+                        requeued.add(waiter);
+                    } else {
+                        completed.add(waiter);
+                    }
+                }
+                for (Map.Entry<String, Exception> entry : dead.entrySet()) {
+                    deadLetter(batch.get(entry.getKey()), entry.getValue());
+                }
+
+                if (retry.isEmpty()) {
+                    retryDelay = 0;
+                } else {
+                    // Put the failed mutations back in front of anything queued since
+                    LinkedHashMap<String, Mutation> merged = new LinkedHashMap<>(retry);
+                    merged.putAll(pending);
+                    pending = merged;
+                    requeued.addAll(waiters);
+                    waiters = requeued;
+                    retryDelay = retryDelay == 0 ? FLUSH_INTERVAL_MS : Math.min(retryDelay * 2, MAX_RETRY_DELAY_MS);
+                    if (!running && retryDelay >= MAX_RETRY_DELAY_MS) {
+                        // Give up rather than block shutdown forever
+                        return;
+                    }
+                }
+                flushGeneration++;
+                flushCompleted.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            // Completed outside the lock, since callers may chain work onto the futures
+            for (Waiter waiter : completed) {
+                waiter.future().complete(null);
+            }
+            IllegalStateException rejected = new IllegalStateException("A queued write was rejected by the database");
+            for (Waiter waiter : failed) {
+                waiter.future().completeExceptionally(rejected);
+            }
+        }
+    }
+
+    /**
+     * Write the mutations of a failed batch one at a time. Once one fails with
+     * a transient error the database is assumed unavailable, and it and every
+     * mutation after it are left for the next retry.
+     *
+     * @param batch The failed batch
+     * @param retry Receives the mutations to retry
+     * @param dead Receives the keys of the mutations that failed for good, with the error
+     */
+    private void writeEach(Map<String, Mutation> batch, Map<String, Mutation> retry, Map<String, Exception> dead) {
+        for (Map.Entry<String, Mutation> entry : batch.entrySet()) {
+            if (!retry.isEmpty()) {
+                retry.put(entry.getKey(), entry.getValue());
+                continue;
+            }
+            Exception failure = write(Map.of(entry.getKey(), entry.getValue()));
+            if (failure == null) {
+                continue;
+            }
+            if (isTransient(failure)) {
+                retry.put(entry.getKey(), entry.getValue());
+            } else {
+                dead.put(entry.getKey(), failure);
+            }
+        }
+    }
+
+    /**
+     * Record a mutation that will not be retried. Called with the lock held.
+     */
+    private void deadLetter(Mutation mutation, Exception error) {
+        totalDeadLettered++;
+        logger.log(Level.SEVERE, "Dropping queued database write " + mutation.getKey()
+                + " after a permanent error", error);
+        if (deadLetters.size() >= MAX_DEAD_LETTERS) {
+            deadLetters.removeFirst();
+        }
+        deadLetters.addLast(new DeadLetter(mutation, String.valueOf(error.getMessage()), System.currentTimeMillis()));
+    }
+
+    private static boolean containsAny(Map<String, ?> map, List<String> keys) {
+        if (map.isEmpty()) {
+            return false;
+        }
+        for (String key : keys) {
+            if (map.containsKey(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether a write failure may succeed if retried: a connection
+     * error (SQLState class 08), a serialization failure or deadlock (40001),
+     * or a busy SQLite database. Anything else, such as a constraint
+     * violation, would fail the same way every time.
+     *
+     * @param failure The failure
+     * @return True if the write should be retried
+     */
+    private boolean isTransient(Exception failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientException || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (cause instanceof SQLException e) {
+                String state = e.getSQLState();
+                if (state != null && (state.startsWith("08") || state.equals("40001"))) {
+                    return true;
+                }
+                if (dialect == SqlDialect.SQLITE
+                        && (e.getErrorCode() == SQLITE_BUSY || e.getErrorCode() == SQLITE_LOCKED)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write mutations in one transaction
+     *
+     * @param batch The mutations
+     * @return Null if they were committed, otherwise the failure
+     */
+    private Exception write(Map<String, Mutation> batch) {
+        long start = System.nanoTime();
+        try (Connection connection = connectionSource.getConnection()) {
+            if (connection == null) {
+                // 08003: connection does not exist, so the batch is retried
+                throw new SQLException("No database connection available", "08003");
+            }
+
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            Batch statements = new Batch(connection, dialect, statementCache);
+            try {
+                for (Mutation mutation : batch.values()) {
+                    mutation.write(statements);
+                }
+                statements.executePending();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                statements.close();
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException | RuntimeException e) {
+            totalFailures++;
+            boolean retry = isTransient(e);
+            if (retry || batch.size() > 1) {
+                logger.log(Level.WARNING, "Failed to flush " + batch.size() + " queued database writes, "
+                        + (retry ? "will retry" : "writing them one at a time"), e);
+            }
+            ConnectionHealthMonitor monitor = healthMonitor;
+            if (monitor != null && retry && e instanceof SQLException sqlException) {
+                monitor.recordFailure(sqlException);
+            }
+            return e;
+        }
+
+        ConnectionHealthMonitor monitor = healthMonitor;
+        if (monitor != null) {
+            monitor.recordSuccess();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        lastFlushNanos = elapsed;
+        if (elapsed > maxFlushNanos) {
+            maxFlushNanos = elapsed;
+        }
+        totalFlushed += batch.size();
+        return null;
+    }
+
+    /**
+     * Get the number of mutations waiting to be written
+     *
+     * @return The queue depth
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the duration of the last successful flush
+     *
+     * @return The duration in nanoseconds
+     */
+    public long getLastFlushNanos() {
+        return lastFlushNanos;
+    }
+
+    /**
+     * Get the duration of the slowest successful flush
+     *
+     * @return The duration in nanoseconds
+     */
+    public long getMaxFlushNanos() {
+        return maxFlushNanos;
+    }
+
+    /**
+     * Get the total number of mutations written
+     *
+     * @return The mutation count
+     */
+    public long getTotalFlushed() {
+        return totalFlushed;
+    }
+
+    /**
+     * Get the number of mutations replaced by a newer mutation before being written
+     *
+     * @return The coalesced count
+     */
+    public long getTotalCoalesced() {
+        return totalCoalesced;
+    }
+
+    /**
+     * Get the number of failed flush attempts
+     *
+     * @return The failure count
+     */
+    public long getTotalFailures() {
+        return totalFailures;
+    }
+
+    /**
+     * Get the number of mutations dropped after a permanent error
+     *
+     * @return The dead-lettered count
+     */
+    public long getTotalDeadLettered() {
+        return totalDeadLettered;
+    }
+
+    /**
+     * Get the number of mutations refused because the queue was full
+     *
+     * @return The refused count
+     */
+    public long getTotalRefused() {
+        return totalRefused;
+    }
+
+    /**
+     * Get the most recent mutations dropped after a permanent error, oldest first
+     *
+     * @return A copy of the dead letters
+     */
+    public List<DeadLetter> getDeadLetters() {
+        lock.lock();
+        try {
+            return new ArrayList<>(deadLetters);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
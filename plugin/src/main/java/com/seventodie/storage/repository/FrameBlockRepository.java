@@ -0,0 +1,39 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.FrameBlockRecord;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Repository for frame blocks, which are always loaded and saved a chunk at a time.
+ */
+public interface FrameBlockRepository {
+
+    /**
+     * Load the frame blocks of one chunk
+     *
+     * @param world The world name
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The frame blocks
+     */
+    CompletableFuture<List<FrameBlockRecord>> loadChunk(String world, int chunkX, int chunkZ);
+
+    /**
+     * Replace the stored frame blocks of one chunk
+     *
+     * @param world The world name
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @param frames The chunk's current frame blocks
+     * @return A future completed once the chunk is stored
+     */
+    CompletableFuture<Void> saveChunk(String world, int chunkX, int chunkZ, List<FrameBlockRecord> frames);
+
+    /**
+     * Release files held by the repository, first writing any saves it
+     * queued itself. Saves queued on the write-behind queue are not affected.
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,55 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.ConnectionHealthMonitor;
+import com.seventodie.storage.FrameBlockRecord;
+import com.seventodie.storage.FrameChunkReplace;
+import com.seventodie.storage.StorageBackend;
+import com.seventodie.storage.WriteBehindQueue;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * JDBC repository for the frame_blocks table.
+ */
+public class JdbcFrameBlockRepository extends JdbcRepository implements FrameBlockRepository {
+
+    private static final String CHUNK_SQL = "SELECT x, y, z, tier, owner, durability, upgrade_progress FROM frame_blocks "
+            + "WHERE world = ? AND chunk_x = ? AND chunk_z = ?";
+
+    /**
+     * Constructor for JdbcFrameBlockRepository
+     *
+     * @param backend The storage backend
+     * @param writeQueue The write-behind queue
+     * @param executor The executor that runs queries
+     * @param healthMonitor The monitor query outcomes are reported to, or null
+     */
+    public JdbcFrameBlockRepository(StorageBackend backend, WriteBehindQueue writeQueue, Executor executor,
+                                    ConnectionHealthMonitor healthMonitor) {
+        super(backend, writeQueue, executor, healthMonitor);
+    }
+
+    @Override
+    public CompletableFuture<List<FrameBlockRecord>> loadChunk(String world, int chunkX, int chunkZ) {
+        // A chunk reloaded before its last save was flushed must not read the older rows
+        if (getQueued(FrameChunkReplace.key(world, chunkX, chunkZ)) instanceof FrameChunkReplace queued) {
+            return CompletableFuture.completedFuture(List.copyOf(queued.frames()));
+        }
+        return query(CHUNK_SQL, stmt -> {
+            stmt.setString(1, world);
+            stmt.setInt(2, chunkX);
+            stmt.setInt(3, chunkZ);
+        }, rs -> {
+            String owner = rs.getString(5);
+            return new FrameBlockRecord(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4),
+                    owner != null ? UUID.fromString(owner) : null, rs.getInt(6), rs.getInt(7));
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveChunk(String world, int chunkX, int chunkZ, List<FrameBlockRecord> frames) {
+        return write(List.of(new FrameChunkReplace(world, chunkX, chunkZ, frames)));
+    }
+}
@@ -0,0 +1,115 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.ConnectionHealthMonitor;
+import com.seventodie.storage.Mutation;
+import com.seventodie.storage.PositionalRecord;
+import com.seventodie.storage.RowDelete;
+import com.seventodie.storage.RowUpsert;
+import com.seventodie.storage.SchemaMigrations;
+import com.seventodie.storage.StorageBackend;
+import com.seventodie.storage.TableMapping;
+import com.seventodie.storage.WriteBehindQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+/**
+ * JDBC repository for a positional table. Works on any backend, since the
+ * upsert comes from the backend's dialect.
+ *
+ * @param <T> The record type
+ */
+public class JdbcPositionalRepository<T extends PositionalRecord> extends JdbcRepository
+        implements PositionalRepository<T> {
+
+    private final TableMapping<T> mapping;
+    private final String chunkSql;
+    private final String worldSql;
+
+    /**
+     * Constructor for JdbcPositionalRepository
+     *
+     * @param mapping The table mapping
+     * @param backend The storage backend
+     * @param writeQueue The write-behind queue
+     * @param executor The executor that runs queries
+     * @param healthMonitor The monitor query outcomes are reported to, or null
+     */
+    public JdbcPositionalRepository(TableMapping<T> mapping, StorageBackend backend, WriteBehindQueue writeQueue,
+                                    Executor executor, ConnectionHealthMonitor healthMonitor) {
+        super(backend, writeQueue, executor, healthMonitor);
+        this.mapping = mapping;
+        this.chunkSql = "SELECT " + mapping.getColumns() + " FROM " + mapping.getTable()
+                + " WHERE world = ? AND chunk_x = ? AND chunk_z = ?";
+        this.worldSql = "SELECT " + mapping.getColumns() + " FROM " + mapping.getTable() + " WHERE world = ?";
+    }
+
+    @Override
+    public CompletableFuture<List<T>> loadChunk(String world, int chunkX, int chunkZ) {
+        Map<String, Mutation> queued = getQueuedByPrefix(mapping.getTable() + ":");
+        return query(chunkSql, stmt -> {
+            stmt.setString(1, world);
+            stmt.setInt(2, chunkX);
+            stmt.setInt(3, chunkZ);
+        }, mapping::read).thenApply(rows -> overlay(rows, queued, record -> record.world().equals(world)
+                && SchemaMigrations.toChunk(record.x()) == chunkX
+                && SchemaMigrations.toChunk(record.z()) == chunkZ));
+    }
+
+    @Override
+    public CompletableFuture<List<T>> loadWorld(String world) {
+        Map<String, Mutation> queued = getQueuedByPrefix(mapping.getTable() + ":");
+        return query(worldSql, stmt -> stmt.setString(1, world), mapping::read)
+                .thenApply(rows -> overlay(rows, queued, record -> record.world().equals(world)));
+    }
+
+    /**
+     * Apply the writes that were still queued when a load started, so rows
+     * saved or deleted just before the load are not read back stale
+     *
+     * @param rows The rows read from the database
+     * @param queued The queued mutations of this table by key
+     * @param inRange Whether a queued record belongs to the loaded range
+     * @return The rows with the queued upserts and deletes applied
+     */
+    private List<T> overlay(List<T> rows, Map<String, Mutation> queued, Predicate<T> inRange) {
+        if (queued.isEmpty()) {
+            return rows;
+        }
+        List<T> result = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            if (!queued.containsKey(mapping.getTable() + ":" + row.id())) {
+                result.add(row);
+            }
+        }
+        for (Mutation mutation : queued.values()) {
+            if (mutation instanceof RowUpsert<?> upsert && upsert.mapping() == mapping) {
+                @SuppressWarnings("unchecked")
+                T record = (T) upsert.record();
+                if (inRange.test(record)) {
+                    result.add(record);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAll(Collection<T> records) {
+        List<RowUpsert<T>> upserts = new ArrayList<>(records.size());
+        for (T record : records) {
+            upserts.add(new RowUpsert<>(mapping, record));
+        }
+        return write(upserts);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(UUID id) {
+        return write(List.of(new RowDelete(mapping.getTable(), id)));
+    }
+}
@@ -0,0 +1,70 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.BalanceRecord;
+import com.seventodie.storage.BalanceUpsert;
+import com.seventodie.storage.ConnectionHealthMonitor;
+import com.seventodie.storage.Mutation;
+import com.seventodie.storage.StorageBackend;
+import com.seventodie.storage.TradeInsert;
+import com.seventodie.storage.TradeRecord;
+import com.seventodie.storage.TradeTotalRecord;
+import com.seventodie.storage.TradeTotalUpsert;
+import com.seventodie.storage.WriteBehindQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * JDBC repository for the trade_ledger, player_balances and trade_totals tables.
+ */
+public class JdbcTradeLedgerRepository extends JdbcRepository implements TradeLedgerRepository {
+
+    private static final String BALANCE_SQL = "SELECT balance FROM player_balances WHERE player_id = ?";
+    private static final String TOTALS_SQL = "SELECT trade_day, trader_id, material, side, volume, revenue "
+            + "FROM trade_totals WHERE trade_day >= ?";
+
+    /**
+     * Constructor for JdbcTradeLedgerRepository
+     *
+     * @param backend The storage backend
+     * @param writeQueue The write-behind queue
+     * @param executor The executor that runs queries
+     * @param healthMonitor The monitor query outcomes are reported to, or null
+     */
+    public JdbcTradeLedgerRepository(StorageBackend backend, WriteBehindQueue writeQueue, Executor executor,
+                                     ConnectionHealthMonitor healthMonitor) {
+        super(backend, writeQueue, executor, healthMonitor);
+    }
+
+    @Override
+    public CompletableFuture<Long> loadBalance(UUID playerId) {
+        return query(BALANCE_SQL, stmt -> stmt.setString(1, playerId.toString()), rs -> rs.getLong(1))
+                .thenApply(rows -> rows.isEmpty() ? null : rows.get(0));
+    }
+
+    @Override
+    public CompletableFuture<List<TradeTotalRecord>> loadTotalsSince(int firstDay) {
+        return query(TOTALS_SQL, stmt -> stmt.setInt(1, firstDay),
+                rs -> new TradeTotalRecord(rs.getInt(1), UUID.fromString(rs.getString(2)), rs.getString(3),
+                        TradeRecord.Side.valueOf(rs.getString(4)), rs.getLong(5), rs.getLong(6)));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAll(Collection<TradeRecord> trades, Collection<BalanceRecord> balances,
+                                           Collection<TradeTotalRecord> totals) {
+        List<Mutation> mutations = new ArrayList<>(trades.size() + balances.size() + totals.size());
+        for (TradeRecord trade : trades) {
+            mutations.add(new TradeInsert(trade));
+        }
+        for (BalanceRecord balance : balances) {
+            mutations.add(new BalanceUpsert(balance));
+        }
+        for (TradeTotalRecord total : totals) {
+            mutations.add(new TradeTotalUpsert(total));
+        }
+        return write(mutations);
+    }
+}
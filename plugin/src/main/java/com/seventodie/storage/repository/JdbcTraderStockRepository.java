@@ -0,0 +1,49 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.ConnectionHealthMonitor;
+import com.seventodie.storage.StorageBackend;
+import com.seventodie.storage.TraderStockRecord;
+import com.seventodie.storage.TraderStockUpsert;
+import com.seventodie.storage.WriteBehindQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * JDBC repository for the trader_stock table.
+ */
+public class JdbcTraderStockRepository extends JdbcRepository implements TraderStockRepository {
+
+    private static final String ALL_SQL = "SELECT trader_id, restocked_at, stock FROM trader_stock";
+
+    /**
+     * Constructor for JdbcTraderStockRepository
+     *
+     * @param backend The storage backend
+     * @param writeQueue The write-behind queue
+     * @param executor The executor that runs queries
+     * @param healthMonitor The monitor query outcomes are reported to, or null
+     */
+    public JdbcTraderStockRepository(StorageBackend backend, WriteBehindQueue writeQueue, Executor executor,
+                                     ConnectionHealthMonitor healthMonitor) {
+        super(backend, writeQueue, executor, healthMonitor);
+    }
+
+    @Override
+    public CompletableFuture<List<TraderStockRecord>> loadAll() {
+        return query(ALL_SQL, stmt -> { },
+                rs -> new TraderStockRecord(UUID.fromString(rs.getString(1)), rs.getLong(2), rs.getString(3)));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAll(Collection<TraderStockRecord> stock) {
+        List<TraderStockUpsert> upserts = new ArrayList<>(stock.size());
+        for (TraderStockRecord record : stock) {
+            upserts.add(new TraderStockUpsert(record));
+        }
+        return write(upserts);
+    }
+}
@@ -0,0 +1,100 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.FrameBlockRecord;
+import com.seventodie.storage.QuestProgressRecord;
+import com.seventodie.storage.QuestRecord;
+import com.seventodie.storage.StateJournal;
+import com.seventodie.storage.TraderRecord;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Collects the latest value of everything in the journal and writes it
+ * through the repositories. Later entries for the same row or frame replace
+ * earlier ones, so each row is written once however often it changed.
+ */
+public class JournalReplayer implements StateJournal.Replayer {
+
+    private record ChunkKey(String world, int chunkX, int chunkZ) {
+    }
+
+    private record BlockKey(int x, int y, int z) {
+    }
+
+    private final Map<String, QuestProgressRecord> progress = new LinkedHashMap<>();
+    private final Map<UUID, QuestRecord> quests = new LinkedHashMap<>();
+    private final Map<UUID, TraderRecord> traders = new LinkedHashMap<>();
+    private final Map<ChunkKey, Map<BlockKey, FrameBlockRecord>> frames = new HashMap<>();
+
+    @Override
+    public void questProgress(QuestProgressRecord record) {
+        progress.put(record.playerId() + ":" + record.questId(), record);
+    }
+
+    @Override
+    public void quest(QuestRecord record) {
+        quests.put(record.id(), record);
+    }
+
+    @Override
+    public void frame(String world, FrameBlockRecord frame) {
+        frames.computeIfAbsent(new ChunkKey(world, frame.x() >> 4, frame.z() >> 4), k -> new HashMap<>())
+                .put(new BlockKey(frame.x(), frame.y(), frame.z()), frame);
+    }
+
+    @Override
+    public void trader(TraderRecord record) {
+        traders.put(record.id(), record);
+    }
+
+    /**
+     * Write the collected state
+     *
+     * @param repositories The repositories to write through
+     * @return A future completed once everything is written
+     */
+    public CompletableFuture<Void> apply(Repositories repositories) {
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        // Quests first, so progress rows never reference a quest row that is not written yet
+        writes.add(repositories.getQuests().saveAll(quests.values()));
+        writes.add(repositories.getQuestProgress().saveAll(progress.values()));
+        writes.add(repositories.getTraders().saveAll(traders.values()));
+
+        FrameBlockRepository frameBlocks = repositories.getFrameBlocks();
+        for (Map.Entry<ChunkKey, Map<BlockKey, FrameBlockRecord>> entry : frames.entrySet()) {
+            ChunkKey chunk = entry.getKey();
+            Map<BlockKey, FrameBlockRecord> changes = entry.getValue();
+            writes.add(frameBlocks.loadChunk(chunk.world(), chunk.chunkX(), chunk.chunkZ()).thenCompose(stored -> {
+                Map<BlockKey, FrameBlockRecord> merged = new LinkedHashMap<>();
+                for (FrameBlockRecord frame : stored) {
+                    merged.put(new BlockKey(frame.x(), frame.y(), frame.z()), frame);
+                }
+                merged.putAll(changes);
+
+                List<FrameBlockRecord> chunkFrames = new ArrayList<>(merged.size());
+                for (FrameBlockRecord frame : merged.values()) {
+                    if (frame.tier() >= 0) {
+                        chunkFrames.add(frame);
+                    }
+                }
+                return frameBlocks.saveChunk(chunk.world(), chunk.chunkX(), chunk.chunkZ(), chunkFrames);
+            }));
+        }
+
+        return CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Check whether the journal held anything
+     *
+     * @return True if nothing was collected
+     */
+    public boolean isEmpty() {
+        return progress.isEmpty() && quests.isEmpty() && traders.isEmpty() && frames.isEmpty();
+    }
+}
@@ -0,0 +1,35 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.FrameBlockRecord;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory frame block repository. Keeps frames of unloaded chunks for the
+ * rest of the session; nothing survives a restart.
+ */
+public class MemoryFrameBlockRepository implements FrameBlockRepository {
+
+    private final Map<String, List<FrameBlockRecord>> chunks = new ConcurrentHashMap<>();
+
+    @Override
+    public CompletableFuture<List<FrameBlockRecord>> loadChunk(String world, int chunkX, int chunkZ) {
+        return CompletableFuture.completedFuture(chunks.getOrDefault(key(world, chunkX, chunkZ), List.of()));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveChunk(String world, int chunkX, int chunkZ, List<FrameBlockRecord> frames) {
+        if (frames.isEmpty()) {
+            chunks.remove(key(world, chunkX, chunkZ));
+        } else {
+            chunks.put(key(world, chunkX, chunkZ), List.copyOf(frames));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static String key(String world, int chunkX, int chunkZ) {
+        return world + ":" + chunkX + ":" + chunkZ;
+    }
+}
@@ -0,0 +1,60 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.PositionalRecord;
+import com.seventodie.storage.SchemaMigrations;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory positional repository, used when no database is available and
+ * for measuring game logic without database cost. Nothing survives a restart.
+ *
+ * @param <T> The record type
+ */
+public class MemoryPositionalRepository<T extends PositionalRecord> implements PositionalRepository<T> {
+
+    private final Map<UUID, T> records = new ConcurrentHashMap<>();
+
+    @Override
+    public CompletableFuture<List<T>> loadChunk(String world, int chunkX, int chunkZ) {
+        List<T> matches = new ArrayList<>();
+        for (T record : records.values()) {
+            if (record.world().equals(world)
+                    && SchemaMigrations.toChunk(record.x()) == chunkX
+                    && SchemaMigrations.toChunk(record.z()) == chunkZ) {
+                matches.add(record);
+            }
+        }
+        return CompletableFuture.completedFuture(matches);
+    }
+
+    @Override
+    public CompletableFuture<List<T>> loadWorld(String world) {
+        List<T> matches = new ArrayList<>();
+        for (T record : records.values()) {
+            if (record.world().equals(world)) {
+                matches.add(record);
+            }
+        }
+        return CompletableFuture.completedFuture(matches);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAll(Collection<T> toSave) {
+        for (T record : toSave) {
+            records.put(record.id(), record);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(UUID id) {
+        records.remove(id);
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,33 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.QuestProgressRecord;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory quest progress repository. Nothing survives a restart.
+ */
+public class MemoryQuestProgressRepository implements QuestProgressRepository {
+
+    private final Map<UUID, Map<UUID, QuestProgressRecord>> progressByPlayer = new ConcurrentHashMap<>();
+
+    @Override
+    public CompletableFuture<List<QuestProgressRecord>> loadPlayer(UUID playerId) {
+        Map<UUID, QuestProgressRecord> progress = progressByPlayer.get(playerId);
+        return CompletableFuture.completedFuture(progress != null ? new ArrayList<>(progress.values()) : new ArrayList<>());
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAll(Collection<QuestProgressRecord> progress) {
+        for (QuestProgressRecord record : progress) {
+            progressByPlayer.computeIfAbsent(record.playerId(), id -> new ConcurrentHashMap<>())
+                    .put(record.questId(), record);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
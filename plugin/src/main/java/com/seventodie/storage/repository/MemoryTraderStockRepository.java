@@ -0,0 +1,31 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.TraderStockRecord;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory trader stock repository. Nothing survives a restart.
+ */
+public class MemoryTraderStockRepository implements TraderStockRepository {
+
+    private final Map<UUID, TraderStockRecord> stockByTrader = new ConcurrentHashMap<>();
+
+    @Override
+    public CompletableFuture<List<TraderStockRecord>> loadAll() {
+        return CompletableFuture.completedFuture(new ArrayList<>(stockByTrader.values()));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAll(Collection<TraderStockRecord> stock) {
+        for (TraderStockRecord record : stock) {
+            stockByTrader.put(record.traderId(), record);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
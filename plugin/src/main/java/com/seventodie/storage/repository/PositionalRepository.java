@@ -0,0 +1,54 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.PositionalRecord;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Repository for records that have an ID and a position: structures, traders
+ * and quests.
+ *
+ * Loads run off the calling thread and saves are batched, so every method
+ * returns immediately. Futures complete on a storage thread; callers that
+ * touch the world must hop back to the main thread.
+ *
+ * @param <T> The record type
+ */
+public interface PositionalRepository<T extends PositionalRecord> {
+
+    /**
+     * Load the records positioned in one chunk
+     *
+     * @param world The world name
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The records
+     */
+    CompletableFuture<List<T>> loadChunk(String world, int chunkX, int chunkZ);
+
+    /**
+     * Load every record in a world
+     *
+     * @param world The world name
+     * @return The records
+     */
+    CompletableFuture<List<T>> loadWorld(String world);
+
+    /**
+     * Insert or replace records
+     *
+     * @param records The records
+     * @return A future completed once the records are stored
+     */
+    CompletableFuture<Void> saveAll(Collection<T> records);
+
+    /**
+     * Delete a record
+     *
+     * @param id The record ID
+     * @return A future completed once the record is deleted
+     */
+    CompletableFuture<Void> delete(UUID id);
+}
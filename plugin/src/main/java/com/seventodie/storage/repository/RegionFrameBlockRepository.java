@@ -0,0 +1,230 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.FrameBlockRecord;
+import com.seventodie.storage.FrameRegionFile;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Frame block repository that keeps each region's frames in a memory-mapped
+ * {@link FrameRegionFile} under frames/&lt;world&gt;/ instead of SQL rows.
+ *
+ * Every file operation runs on one dedicated thread: opening and growing a
+ * file, encoding a save into the mapping, reading a load and forcing evicted
+ * files to disk. The tick thread only queues work, and since the thread runs
+ * tasks in submission order, a load always sees every save queued before it.
+ * A save completes only once its file has been forced to disk, so callers
+ * such as journal compaction can rely on it; saves queued together share one
+ * force per file.
+ *
+ * Chunks that have never been written to a region file are loaded from the
+ * fallback repository, so switching an existing server to region storage
+ * migrates frames chunk by chunk as they are saved.
+ */
+public class RegionFrameBlockRepository implements FrameBlockRepository {
+
+    private static final int MAX_OPEN_FILES = 64;
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final Logger logger;
+    private final File directory;
+    private final ExecutorService fileThread;
+    private final FrameBlockRepository fallback;
+    // Only used on the file thread
+    private final Map<String, FrameRegionFile> openFiles = new LinkedHashMap<>(16, 0.75f, true);
+    // Files written since the last force; only used on the file thread
+    private final Set<FrameRegionFile> dirtyFiles = new HashSet<>();
+    // The queued force that saves not yet forced wait for, or null; guarded by this
+    private CompletableFuture<Void> pendingForce;
+
+    /**
+     * Constructor for RegionFrameBlockRepository
+     *
+     * @param logger The logger
+     * @param directory The directory holding a folder of region files per world
+     * @param fallback The repository for chunks not yet in a region file, or null
+     */
+    public RegionFrameBlockRepository(Logger logger, File directory, FrameBlockRepository fallback) {
+        this.logger = logger;
+        this.directory = directory;
+        this.fallback = fallback;
+        this.fileThread = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SevenToDie-FrameRegions");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<FrameBlockRecord>> loadChunk(String world, int chunkX, int chunkZ) {
+        return onFileThread(() -> {
+            FrameRegionFile region = getRegion(world, chunkX, chunkZ, false);
+            return region != null && region.contains(chunkX, chunkZ) ? region.read(chunkX, chunkZ) : null;
+        }).thenCompose(frames -> {
+            if (frames != null) {
+                return CompletableFuture.completedFuture(frames);
+            }
+            return fallback != null
+                    ? fallback.loadChunk(world, chunkX, chunkZ)
+                    : CompletableFuture.completedFuture(List.of());
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveChunk(String world, int chunkX, int chunkZ, List<FrameBlockRecord> frames) {
+        List<FrameBlockRecord> copy = List.copyOf(frames);
+        CompletableFuture<Void> written;
+        CompletableFuture<Void> forced;
+        synchronized (this) {
+            written = onFileThread(() -> {
+                FrameRegionFile region = getRegion(world, chunkX, chunkZ, true);
+                region.write(chunkX, chunkZ, copy);
+                dirtyFiles.add(region);
+                return null;
+            });
+            // One force queued behind a burst of saves covers all of them
+            if (pendingForce == null) {
+                pendingForce = onFileThread(this::forceDirtyFiles);
+            }
+            forced = pendingForce;
+        }
+        return written.thenCompose(ignored -> forced);
+    }
+
+    /**
+     * Force every file written since the last force to disk. Runs on the file
+     * thread; saves queued after it starts wait for the next force.
+     */
+    private Void forceDirtyFiles() {
+        synchronized (this) {
+            pendingForce = null;
+        }
+        for (FrameRegionFile region : dirtyFiles) {
+            region.force();
+        }
+        dirtyFiles.clear();
+        return null;
+    }
+
+    @Override
+    public void close() {
+        try {
+            fileThread.execute(() -> {
+                for (FrameRegionFile region : openFiles.values()) {
+                    closeRegion(region);
+                }
+                openFiles.clear();
+                dirtyFiles.clear();
+            });
+        } catch (RejectedExecutionException e) {
+            // Already closed
+            return;
+        }
+
+        // Queued saves run before the files are closed
+        fileThread.shutdown();
+        try {
+            if (!fileThread.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.severe("Frame region files did not close in time; recent frame saves may be lost");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A file operation
+     *
+     * @param <T> The result type
+     */
+    @FunctionalInterface
+    private interface FileTask<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Run a file operation on the file thread
+     *
+     * @param task The operation
+     * @param <T> The result type
+     * @return A future completed with the result
+     */
+    private <T> CompletableFuture<T> onFileThread(FileTask<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.run();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, fileThread);
+        } catch (RejectedExecutionException e) {
+            // Closed; fail like any other storage error
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Get the open region file for a chunk, opening it if needed and closing
+     * the least recently used file if too many are open. Only called on the
+     * file thread.
+     *
+     * @param create Whether to create the file if it does not exist
+     * @return The region file, or null if it does not exist and create is false
+     */
+    private FrameRegionFile getRegion(String world, int chunkX, int chunkZ, boolean create) throws IOException {
+        int regionX = chunkX >> 5;
+        int regionZ = chunkZ >> 5;
+        String key = world + "/r." + regionX + "." + regionZ;
+
+        FrameRegionFile region = openFiles.get(key);
+        if (region != null) {
+            return region;
+        }
+
+        File worldDir = new File(directory, world);
+        File path = new File(worldDir, "r." + regionX + "." + regionZ + ".frames");
+        if (!path.exists()) {
+            if (!create) {
+                return null;
+            }
+            if (!worldDir.isDirectory() && !worldDir.mkdirs()) {
+                throw new IOException("Failed to create " + worldDir);
+            }
+        }
+
+        region = new FrameRegionFile(path);
+        openFiles.put(key, region);
+        if (openFiles.size() > MAX_OPEN_FILES) {
+            Iterator<FrameRegionFile> eldest = openFiles.values().iterator();
+            FrameRegionFile evicted = eldest.next();
+            // Closing forces the file
+            dirtyFiles.remove(evicted);
+            closeRegion(evicted);
+            eldest.remove();
+        }
+        return region;
+    }
+
+    private void closeRegion(FrameRegionFile region) {
+        try {
+            region.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to close frame region file", e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.ConnectionHealthMonitor;
+import com.seventodie.storage.QuestRecord;
+import com.seventodie.storage.StorageBackend;
+import com.seventodie.storage.StructureRecord;
+import com.seventodie.storage.TableMapping;
+import com.seventodie.storage.TraderRecord;
+import com.seventodie.storage.WriteBehindQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * The repositories for every stored aggregate, backed by one storage implementation.
+ */
+public class Repositories {
+
+    private final PositionalRepository<StructureRecord> structures;
+    private final PositionalRepository<TraderRecord> traders;
+    private final PositionalRepository<QuestRecord> quests;
+    private final QuestProgressRepository questProgress;
+    private final FrameBlockRepository frameBlocks;
+    private final TraderStockRepository traderStock;
+    private final TradeLedgerRepository tradeLedger;
+
+    /**
+     * Constructor for Repositories
+     *
+     * @param structures The structure repository
+     * @param traders The trader repository
+     * @param quests The quest repository
+     * @param questProgress The quest progress repository
+     * @param frameBlocks The frame block repository
+     * @param traderStock The trader stock repository
+     * @param tradeLedger The trade ledger repository
+     */
+    public Repositories(PositionalRepository<StructureRecord> structures, PositionalRepository<TraderRecord> traders,
+                        PositionalRepository<QuestRecord> quests, QuestProgressRepository questProgress,
+                        FrameBlockRepository frameBlocks, TraderStockRepository traderStock,
+                        TradeLedgerRepository tradeLedger) {
+        this.structures = structures;
+        this.traders = traders;
+        this.quests = quests;
+        this.questProgress = questProgress;
+        this.frameBlocks = frameBlocks;
+        this.traderStock = traderStock;
+        this.tradeLedger = tradeLedger;
+    }
+
+    /**
+     * Create repositories backed by a database. Works with every backend
+     * (SQLite, MySQL, and H2 through either dialect).
+     *
+     * @param backend The storage backend
+     * @param writeQueue The write-behind queue
+     * @param executor The executor that runs queries
+     * @param healthMonitor The monitor query outcomes are reported to, or null
+     * @return The repositories
+     */
+    public static Repositories jdbc(StorageBackend backend, WriteBehindQueue writeQueue, Executor executor,
+                                    ConnectionHealthMonitor healthMonitor) {
+        return new Repositories(
+                new JdbcPositionalRepository<>(TableMapping.STRUCTURES, backend, writeQueue, executor, healthMonitor),
+                new JdbcPositionalRepository<>(TableMapping.TRADERS, backend, writeQueue, executor, healthMonitor),
+                new JdbcPositionalRepository<>(TableMapping.QUESTS, backend, writeQueue, executor, healthMonitor),
+                new JdbcQuestProgressRepository(backend, writeQueue, executor, healthMonitor),
+                new JdbcFrameBlockRepository(backend, writeQueue, executor, healthMonitor),
+                new JdbcTraderStockRepository(backend, writeQueue, executor, healthMonitor),
+                new JdbcTradeLedgerRepository(backend, writeQueue, executor, healthMonitor));
+    }
+
+    /**
+     * Create repositories that keep everything in memory
+     *
+     * @return The repositories
+     */
+    public static Repositories memory() {
+        return new Repositories(new MemoryPositionalRepository<>(), new MemoryPositionalRepository<>(),
+                new MemoryPositionalRepository<>(), new MemoryQuestProgressRepository(),
+                new MemoryFrameBlockRepository(), new MemoryTraderStockRepository(),
+                new MemoryTradeLedgerRepository());
+    }
+
+    /**
+     * Copy these repositories with a different frame block repository
+     *
+     * @param frameBlocks The frame block repository
+     * @return The repositories
+     */
+    public Repositories withFrameBlocks(FrameBlockRepository frameBlocks) {
+        return new Repositories(structures, traders, quests, questProgress, frameBlocks, traderStock, tradeLedger);
+    }
+
+    /**
+     * Release files held by the repositories
+     */
+    public void close() {
+        frameBlocks.close();
+    }
+
+    /**
+     * Get the structure repository
+     *
+     * @return The repository
+     */
+    public PositionalRepository<StructureRecord> getStructures() {
+        return structures;
+    }
+
+    /**
+     * Get the trader repository
+     *
+     * @return The repository
+     */
+    public PositionalRepository<TraderRecord> getTraders() {
+        return traders;
+    }
+
+    /**
+     * Get the quest repository
+     *
+     * @return The repository
+     */
+    public PositionalRepository<QuestRecord> getQuests() {
+        return quests;
+    }
+
+    /**
+     * Get the quest progress repository
+     *
+     * @return The repository
+     */
+    public QuestProgressRepository getQuestProgress() {
+        return questProgress;
+    }
+
+    /**
+     * Get the frame block repository
+     *
+     * @return The repository
+     */
+    public FrameBlockRepository getFrameBlocks() {
+        return frameBlocks;
+    }
+
+    /**
+     * Get the trader stock repository
+     *
+     * @return The repository
+     */
+    public TraderStockRepository getTraderStock() {
+        return traderStock;
+    }
+
+    /**
+     * Get the trade ledger repository
+     *
+     * @return The repository
+     */
+    public TradeLedgerRepository getTradeLedger() {
+        return tradeLedger;
+    }
+}
@@ -0,0 +1,28 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.TraderStockRecord;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Repository for the stock of trader outposts.
+ */
+public interface TraderStockRepository {
+
+    /**
+     * Load the stock of every outpost. There is one small row per outpost,
+     * so the whole table is read at once.
+     *
+     * @return The stock records
+     */
+    CompletableFuture<List<TraderStockRecord>> loadAll();
+
+    /**
+     * Insert or replace stock records
+     *
+     * @param stock The stock records
+     * @return A future completed once the records are stored
+     */
+    CompletableFuture<Void> saveAll(Collection<TraderStockRecord> stock);
+}
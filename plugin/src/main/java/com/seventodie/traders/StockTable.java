@@ -0,0 +1,168 @@
+package com.seventodie.traders;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+
+import com.seventodie.traders.TraderStock.StockItem;
+import com.seventodie.utils.AliasTable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.random.RandomGenerator;
+
+/**
+ * The compiled stock definition of one trade category: how many entries to
+ * draw and a weighted alias table to draw them from. Compiled once from the
+ * stock config, so generating stock never touches the config.
+ */
+public final class StockTable {
+
+    /** Items a category page holds next to its back button */
+    public static final int MAX_ROLLS = 53;
+
+    /**
+     * A possible stock entry, with inclusive amount and price ranges
+     */
+    public record StockEntry(Material material, int minAmount, int maxAmount, int minPrice, int maxPrice) {
+    }
+
+    private final String category;
+    private final int rolls;
+    private final AliasTable<StockEntry> entries;
+
+    /**
+     * Constructor for StockTable
+     *
+     * @param category The trade category
+     * @param rolls The number of entries drawn per restock
+     * @param entries The weighted entries
+     */
+    public StockTable(String category, int rolls, AliasTable<StockEntry> entries) {
+        this.category = category;
+        this.rolls = rolls;
+        this.entries = entries;
+    }
+
+    /**
+     * Compile the stock table of every category in a stock config. Invalid
+     * entries are logged and skipped.
+     *
+     * @param config The categories section of the stock config, or null
+     * @param logger The logger
+     * @return The tables by category, in config order
+     */
+    public static Map<String, StockTable> compileAll(ConfigurationSection config, Logger logger) {
+        Map<String, StockTable> tables = new LinkedHashMap<>();
+        if (config == null) {
+            return tables;
+        }
+
+        for (String category : config.getKeys(false)) {
+            ConfigurationSection section = config.getConfigurationSection(category);
+            StockTable table = section != null ? compile(category, section, logger) : null;
+            if (table != null) {
+                tables.put(category, table);
+            }
+        }
+        return Collections.unmodifiableMap(tables);
+    }
+
+    private static StockTable compile(String category, ConfigurationSection section, Logger logger) {
+        ConfigurationSection items = section.getConfigurationSection("items");
+        if (items == null) {
+            logger.warning("Trader stock category " + category + " has no items");
+            return null;
+        }
+
+        List<StockEntry> entries = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        for (String name : items.getKeys(false)) {
+            Material material = Material.matchMaterial(name);
+            ConfigurationSection item = items.getConfigurationSection(name);
+            if (material == null || material.isAir() || !material.isItem() || item == null) {
+                logger.warning("Skipping unknown trader stock item " + category + "." + name);
+                continue;
+            }
+
+            double weight = item.getDouble("weight", 1);
+            int[] amount = readRange(item, "amount", 1);
+            int[] price = readRange(item, "price", 1);
+            if (!(weight > 0) || amount == null || price == null) {
+                logger.warning("Skipping invalid trader stock item " + category + "." + name);
+                continue;
+            }
+            entries.add(new StockEntry(material, amount[0], amount[1], price[0], price[1]));
+            weights.add(weight);
+        }
+
+        if (entries.isEmpty()) {
+            logger.warning("Trader stock category " + category + " has no valid items");
+            return null;
+        }
+
+        double[] weightArray = new double[weights.size()];
+        for (int i = 0; i < weightArray.length; i++) {
+            weightArray[i] = weights.get(i);
+        }
+        int rolls = Math.max(1, section.getInt("rolls", entries.size()));
+        if (rolls > MAX_ROLLS) {
+            // Every roll can stock a different item, and a page cannot show more
+            logger.warning("Trader stock category " + category + " rolls " + rolls
+                    + " times, but a trader page holds only " + MAX_ROLLS + " items; using " + MAX_ROLLS);
+            rolls = MAX_ROLLS;
+        }
+        return new StockTable(category, rolls, new AliasTable<>(entries, weightArray));
+    }
+
+    /**
+     * Read a [min, max] range, or a single number for a fixed value
+     *
+     * @return The range, or null if it is invalid
+     */
+    private static int[] readRange(ConfigurationSection section, String path, int defaultValue) {
+        List<Integer> range = section.getIntegerList(path);
+        int min;
+        int max;
+        if (range.size() == 2) {
+            min = range.get(0);
+            max = range.get(1);
+        } else if (range.isEmpty() && !section.isList(path)) {
+            min = max = section.getInt(path, defaultValue);
+        } else {
+            return null;
+        }
+        return min >= 1 && max >= min ? new int[] {min, max} : null;
+    }
+
+    /**
+     * Roll a new stock list. Entries drawn more than once are merged, adding
+     * up their amounts and keeping the first price.
+     *
+     * @param random The random generator
+     * @return The stocked items, in the order first drawn
+     */
+    public List<StockItem> generate(RandomGenerator random) {
+        Map<Material, StockItem> drawn = new LinkedHashMap<>();
+        for (int i = 0; i < rolls; i++) {
+            StockEntry entry = entries.sample(random);
+            int amount = random.nextInt(entry.minAmount(), entry.maxAmount() + 1);
+            drawn.merge(entry.material(),
+                    new StockItem(entry.material(), amount, random.nextInt(entry.minPrice(), entry.maxPrice() + 1)),
+                    (first, again) -> new StockItem(first.material(), first.amount() + again.amount(), first.price()));
+        }
+        return List.copyOf(drawn.values());
+    }
+
+    /**
+     * Get the trade category
+     *
+     * @return The category
+     */
+    public String getCategory() {
+        return category;
+    }
+}
@@ -0,0 +1,414 @@
+package com.seventodie.traders;
+
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.seventodie.SevenToDiePlugin;
+import com.seventodie.storage.BalanceRecord;
+import com.seventodie.storage.TradeRecord;
+import com.seventodie.storage.TradeTotalRecord;
+import com.seventodie.storage.repository.TradeLedgerRepository;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Records every buy and sell at a trader and keeps player balances.
+ *
+ * A trade settles against the player's balance with a compare-and-set, then
+ * its immutable record is appended to a lock-free ring buffer. Once a second
+ * a task off the main thread drains the buffer, adds the trades to per-day
+ * totals per trader and item, and hands the trades, changed balances and
+ * changed totals to storage as one write. Reports such as the top sellers of
+ * the week read the in-memory totals and never scan the ledger.
+ *
+ * Balances stay in memory once loaded; an account is a few dozen bytes.
+ */
+public class TradeLedger {
+
+    /**
+     * The outcome of settling a trade
+     */
+    public enum Settlement {
+        /** The balance was updated and the trade recorded */
+        OK,
+        /** The player cannot afford the trade; nothing changed */
+        INSUFFICIENT_FUNDS,
+        /** The player's balance has not loaded yet; nothing changed */
+        NOT_LOADED
+    }
+
+    /**
+     * Trade totals for one trader or item over a period
+     */
+    public record TradeTotal(String key, long volume, long revenue) {
+    }
+
+    /**
+     * The name of the currency
+     */
+    public static final String CURRENCY = "Dukes";
+
+    // A power of two, so a sequence number maps to a slot with a mask
+    private static final int RING_CAPACITY = 4096;
+    private static final int RING_MASK = RING_CAPACITY - 1;
+    private static final long FLUSH_INTERVAL_TICKS = 20;
+    /** Delay before retrying a failed totals load, doubled per attempt up to the maximum */
+    private static final long LOAD_RETRY_TICKS = 100;
+    private static final long MAX_LOAD_RETRY_TICKS = 1200;
+    // Days of totals kept in memory; the longest period reports can cover
+    public static final int TOTALS_DAYS = 30;
+
+    private final SevenToDiePlugin plugin;
+    private final long startingBalance;
+
+    // Sequence numbers: tail is the next slot to claim, head the next to drain.
+    // A slot holds null between being claimed and being published.
+    private final AtomicReferenceArray<TradeRecord> ring = new AtomicReferenceArray<>(RING_CAPACITY);
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    // Serializes draining; producers never take it
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Map<UUID, AtomicLong> balances = new ConcurrentHashMap<>();
+    private final Map<UUID, AtomicLong> dirtyBalances = new ConcurrentHashMap<>();
+    private final Map<TotalKey, Totals> totals = new ConcurrentHashMap<>();
+    private final Set<TotalKey> dirtyTotals = ConcurrentHashMap.newKeySet();
+    private volatile boolean totalsLoaded;
+    private int prunedThrough;
+    private BukkitTask flushTask;
+    // The last write handed to storage; guarded by flushLock
+    private CompletableFuture<Void> lastSave = CompletableFuture.completedFuture(null);
+
+    /**
+     * Constructor for TradeLedger
+     *
+     * @param plugin The SevenToDie plugin instance
+     */
+    public TradeLedger(SevenToDiePlugin plugin) {
+        this.plugin = plugin;
+        this.startingBalance = Math.max(0, plugin.getConfig().getLong("mechanics.traders.starting-balance", 100));
+    }
+
+    /**
+     * Load recent totals and the balances of online players, and start the
+     * flush task
+     */
+    public void start() {
+        loadTotals(0);
+
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            loadBalance(player.getUniqueId());
+        }
+
+        flushTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::flush,
+                FLUSH_INTERVAL_TICKS, FLUSH_INTERVAL_TICKS);
+    }
+
+    /**
+     * Load the stored totals of the kept period and add them to the totals
+     * counted since startup. Until this succeeds no totals are written, since
+     * that would overwrite the stored ones with partial counts; a failed load
+     * is retried with backoff.
+     *
+     * @param attempt The number of failed loads so far
+     */
+    private void loadTotals(int attempt) {
+        int firstDay = today() - TOTALS_DAYS + 1;
+        getRepository().loadTotalsSince(firstDay).whenComplete((records, error) -> {
+            if (error != null) {
+                long delay = Math.min(LOAD_RETRY_TICKS << Math.min(attempt, 4), MAX_LOAD_RETRY_TICKS);
+                plugin.getLogger().log(Level.WARNING, "Failed to load trade totals, retrying in "
+                        + (delay / 20) + "s; totals are not saved until then", error);
+                if (plugin.isEnabled()) {
+                    plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin,
+                            () -> loadTotals(attempt + 1), delay);
+                }
+                return;
+            }
+            for (TradeTotalRecord record : records) {
+                Totals entry = totals.computeIfAbsent(
+                        new TotalKey(record.day(), record.traderId(), record.material(), record.side()),
+                        key -> new Totals());
+                entry.volume.addAndGet(record.volume());
+                entry.revenue.addAndGet(record.revenue());
+            }
+            totalsLoaded = true;
+        });
+    }
+
+    /**
+     * Load a player's balance if it is not in memory yet. Players who have
+     * never traded start with the configured starting balance.
+     *
+     * @param playerId The player's UUID
+     */
+    public void loadBalance(UUID playerId) {
+        if (balances.containsKey(playerId)) {
+            return;
+        }
+        getRepository().loadBalance(playerId).whenComplete((stored, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed to load the balance of " + playerId, error);
+                return;
+            }
+            balances.putIfAbsent(playerId, new AtomicLong(stored != null ? stored : startingBalance));
+        });
+    }
+
+    /**
+     * Get a player's balance
+     *
+     * @param playerId The player's UUID
+     * @return The balance, or null if it has not loaded yet
+     */
+    public Long getBalance(UUID playerId) {
+        AtomicLong balance = balances.get(playerId);
+        return balance != null ? balance.get() : null;
+    }
+
+    /**
+     * Settle a trade against the player's balance and record it. A buy is
+     * refused if the player cannot afford it.
+     *
+     * @param playerId The player
+     * @param traderId The outpost traded with
+     * @param material The item's material name
+     * @param amount The number of items
+     * @param price The total price
+     * @param side Whether the player buys or sells
+     * @return The outcome
+     */
+    public Settlement settle(UUID playerId, UUID traderId, String material, int amount, long price,
+                             TradeRecord.Side side) {
+        AtomicLong balance = balances.get(playerId);
+        if (balance == null) {
+            return Settlement.NOT_LOADED;
+        }
+
+        if (side == TradeRecord.Side.BUY) {
+            long current;
+            do {
+                current = balance.get();
+                if (current < price) {
+                    return Settlement.INSUFFICIENT_FUNDS;
+                }
+            } while (!balance.compareAndSet(current, current - price));
+        } else {
+            balance.addAndGet(price);
+        }
+        dirtyBalances.put(playerId, balance);
+
+        append(new TradeRecord(UUID.randomUUID(), playerId, traderId, material, amount, price, side,
+                System.currentTimeMillis()));
+        return Settlement.OK;
+    }
+
+    /**
+     * Append a trade to the ring buffer. If the buffer is full, drain it on
+     * this thread first rather than drop the trade.
+     */
+    private void append(TradeRecord trade) {
+        while (true) {
+            long sequence = tail.get();
+            if (sequence - head >= RING_CAPACITY) {
+                flush();
+                continue;
+            }
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                ring.set((int) (sequence & RING_MASK), trade);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drain the ring buffer, update the totals and write everything changed
+     * since the last flush
+     *
+     * @return A future completed once everything drained so far is written,
+     *         including a write still in flight from an earlier flush
+     */
+    public CompletableFuture<Void> flush() {
+        flushLock.lock();
+        try {
+            List<TradeRecord> trades = drain();
+            for (TradeRecord trade : trades) {
+                TotalKey key = new TotalKey(toDay(trade.time()), trade.traderId(), trade.material(), trade.side());
+                Totals entry = totals.computeIfAbsent(key, k -> new Totals());
+                entry.volume.addAndGet(trade.amount());
+                entry.revenue.addAndGet(trade.price());
+                dirtyTotals.add(key);
+            }
+
+            List<BalanceRecord> changedBalances = new ArrayList<>();
+            for (UUID playerId : dirtyBalances.keySet()) {
+                // Removed before reading, so a change made meanwhile marks it dirty again
+                AtomicLong balance = dirtyBalances.remove(playerId);
+                if (balance != null) {
+                    changedBalances.add(new BalanceRecord(playerId, balance.get()));
+                }
+            }
+
+            List<TradeTotalRecord> changedTotals = new ArrayList<>();
+            if (totalsLoaded) {
+                for (TotalKey key : dirtyTotals) {
+                    dirtyTotals.remove(key);
+                    Totals entry = totals.get(key);
+                    changedTotals.add(new TradeTotalRecord(key.day(), key.traderId(), key.material(), key.side(),
+                            entry.volume.get(), entry.revenue.get()));
+                }
+            }
+            pruneTotals();
+
+            // A finished write, even a failed one that was already reported, is not waited on again
+            CompletableFuture<Void> inFlight = lastSave.isDone() ? CompletableFuture.completedFuture(null) : lastSave;
+            if (trades.isEmpty() && changedBalances.isEmpty() && changedTotals.isEmpty()) {
+                return inFlight;
+            }
+            CompletableFuture<Void> saved = getRepository().saveAll(trades, changedBalances, changedTotals);
+            saved.exceptionally(error -> {
+                plugin.getLogger().log(Level.WARNING, "Failed to save " + trades.size() + " trades", error);
+                return null;
+            });
+            lastSave = CompletableFuture.allOf(inFlight, saved);
+            return lastSave;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Take every published trade out of the ring buffer. Stops early at a slot
+     * that is claimed but not yet published; the next flush picks it up.
+     */
+    private List<TradeRecord> drain() {
+        List<TradeRecord> trades = new ArrayList<>();
+        long sequence = head;
+        long end = tail.get();
+        while (sequence < end) {
+            int slot = (int) (sequence & RING_MASK);
+            TradeRecord trade = ring.get(slot);
+            if (trade == null) {
+                break;
+            }
+            ring.set(slot, null);
+            trades.add(trade);
+            sequence++;
+        }
+        // Published after the slots are cleared, so producers only reuse empty slots
+        head = sequence;
+        return trades;
+    }
+
+    /**
+     * Drop totals older than the kept period once a day. Unsaved totals are
+     * kept until written, unless the stored totals never loaded; those days
+     * can no longer be written correctly, so they are dropped too.
+     */
+    private void pruneTotals() {
+        int firstDay = today() - TOTALS_DAYS + 1;
+        if (prunedThrough >= firstDay) {
+            return;
+        }
+        if (!totalsLoaded) {
+            dirtyTotals.removeIf(key -> key.day() < firstDay);
+        }
+        totals.keySet().removeIf(key -> key.day() < firstDay && !dirtyTotals.contains(key));
+        prunedThrough = firstDay;
+    }
+
+    /**
+     * Get the items players bought the most of over recent days
+     *
+     * @param days The number of days, including today, at most {@link #TOTALS_DAYS}
+     * @param limit The most items to return
+     * @return The items by revenue, highest first, keyed by material name
+     */
+    public List<TradeTotal> getTopItems(int days, int limit) {
+        return getTop(days, limit, TotalKey::material);
+    }
+
+    /**
+     * Get the traders that sold the most over recent days
+     *
+     * @param days The number of days, including today, at most {@link #TOTALS_DAYS}
+     * @param limit The most traders to return
+     * @return The traders by revenue, highest first, keyed by outpost ID
+     */
+    public List<TradeTotal> getTopTraders(int days, int limit) {
+        return getTop(days, limit, key -> key.traderId().toString());
+    }
+
+    private List<TradeTotal> getTop(int days, int limit, Function<TotalKey, String> groupBy) {
+        int firstDay = today() - Math.min(days, TOTALS_DAYS) + 1;
+        Map<String, long[]> grouped = new HashMap<>();
+        for (Map.Entry<TotalKey, Totals> entry : totals.entrySet()) {
+            TotalKey key = entry.getKey();
+            if (key.side() != TradeRecord.Side.BUY || key.day() < firstDay) {
+                continue;
+            }
+            long[] sums = grouped.computeIfAbsent(groupBy.apply(key), k -> new long[2]);
+            sums[0] += entry.getValue().volume.get();
+            sums[1] += entry.getValue().revenue.get();
+        }
+
+        List<TradeTotal> result = new ArrayList<>(grouped.size());
+        for (Map.Entry<String, long[]> entry : grouped.entrySet()) {
+            result.add(new TradeTotal(entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+        }
+        result.sort(Comparator.comparingLong(TradeTotal::revenue).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    private static int today() {
+        return (int) LocalDate.now(ZoneOffset.UTC).toEpochDay();
+    }
+
+    private static int toDay(long epochMillis) {
+        return (int) Math.floorDiv(epochMillis, 86_400_000L);
+    }
+
+    private TradeLedgerRepository getRepository() {
+        return plugin.getDatabaseManager().getRepositories().getTradeLedger();
+    }
+
+    /**
+     * Stop the flush task and write out everything still buffered
+     */
+    public void cleanup() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        flush();
+    }
+
+    /**
+     * Identifies one day's totals for an item at a trader
+     */
+    private record TotalKey(int day, UUID traderId, String material, TradeRecord.Side side) {
+    }
+
+    /**
+     * Running totals, updated by the flush and read by reports
+     */
+    private static final class Totals {
+        private final AtomicLong volume = new AtomicLong();
+        private final AtomicLong revenue = new AtomicLong();
+    }
+}
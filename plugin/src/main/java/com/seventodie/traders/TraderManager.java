@@ -1,11 +1,16 @@
 package com.seventodie.traders;
 
 import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
 import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Villager;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.scheduler.BukkitTask;
 
 import net.kyori.adventure.text.Component;
@@ -13,6 +18,12 @@ import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextDecoration;
 
 import com.seventodie.SevenToDiePlugin;
+import com.seventodie.menu.Menu;
+import com.seventodie.menu.MenuTemplate;
+import com.seventodie.storage.SchemaMigrations;
+import com.seventodie.storage.StateJournal;
+import com.seventodie.storage.TraderRecord;
+import com.seventodie.storage.repository.PositionalRepository;
 import com.seventodie.utils.SchematicUtils;
 import com.seventodie.worldgen.StructureManager;
 
@@ -21,7 +32,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
 import org.bukkit.Chunk;
 
 /**
@@ -30,13 +42,25 @@ import org.bukkit.Chunk;
 public class TraderManager {
 
     private final SevenToDiePlugin plugin;
+    // Keyed by entity UUID, so an interaction costs one lookup
     private final Map<UUID, TraderNPC> traders = new HashMap<>();
     private final Map<UUID, TraderOutpost> outposts = new HashMap<>();
     private final boolean useCitizens;
+    // Tags trader entities with their outpost, so they are found again after a restart
+    private final NamespacedKey outpostKey;
+    private final MenuTemplate<TraderNPC> traderMenu;
+    private final TradeLedger ledger;
+    private final StockEngine stockEngine;
+
+    private static final long DAY_LENGTH = 24000;
+    private static final long CLOSING_TIME = 12000;
+    // The last slot of the one-row trader menu holds the quests button
+    private static final int MAX_MENU_CATEGORIES = 8;
 
-    private BukkitTask outpostTask;
     private final Map<World, List<TraderOutpost>> outpostsByWorld = new HashMap<>();
     private final Map<ChunkCoordinate, List<TraderOutpost>> outpostsByChunk = new HashMap<>();
+    // One pending task per world with outposts, due at its next dawn or dusk
+    private final Map<World, BukkitTask> transitionTasks = new HashMap<>();
 
     /**
      * Constructor for TraderManager
@@ -46,82 +70,338 @@ public class TraderManager {
     public TraderManager(SevenToDiePlugin plugin) {
         this.plugin = plugin;
         this.useCitizens = plugin.getServer().getPluginManager().getPlugin("Citizens") != null;
+        this.outpostKey = new NamespacedKey(plugin, "trader_outpost");
+        this.ledger = new TradeLedger(plugin);
+        this.stockEngine = new StockEngine(plugin, ledger);
+        this.traderMenu = buildTraderMenu();
+    }
 
-        // Load traders from database
-        loadTraders();
+    /**
+     * Load stored stock and trade totals and start the restock and ledger
+     * flush timers. Called once after construction.
+     */
+    public void start() {
+        stockEngine.start();
+        ledger.start();
+    }
 
-        // Start outpost update task
-        startOutpostTask();
+    /**
+     * Load traders for the worlds that are already loaded. Called once after
+     * construction; worlds loaded later go through {@link #loadWorld(World)}.
+     */
+    public void loadWorlds() {
+        for (World world : plugin.getServer().getWorlds()) {
+            loadWorld(world);
+        }
+    }
 
-        // Initialize spatial partitioning
-        initializeOutpostMaps();
+    /**
+     * Load a world's traders from storage. Outposts are registered on the main
+     * thread once the rows arrive, unless the world was unloaded meanwhile;
+     * NPCs are spawned only for chunks that are loaded, the rest when their
+     * chunk loads.
+     * 
+     * @param world The world
+     */
+    public void loadWorld(World world) {
+        getRepository().loadWorld(world.getName()).whenComplete((records, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed to load traders for world " + world.getName(), error);
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (plugin.getServer().getWorld(world.getUID()) == world) {
+                    registerLoadedOutposts(world, records);
+                }
+            });
+        });
+    }
+    
+    /**
+     * Save a world's outposts and drop them from memory, along with its
+     * open/close schedule. Trader entities keep their outpost tag and are
+     * taken back when the world loads again.
+     * 
+     * @param world The world being unloaded
+     */
+    public void unloadWorld(World world) {
+        BukkitTask task = transitionTasks.remove(world);
+        if (task != null) {
+            task.cancel();
+        }
+        
+        List<TraderOutpost> worldOutposts = outpostsByWorld.remove(world);
+        if (worldOutposts == null) {
+            return;
+        }
+        List<TraderRecord> records = new ArrayList<>(worldOutposts.size());
+        for (TraderOutpost outpost : worldOutposts) {
+            records.add(toRecord(outpost));
+            outposts.remove(outpost.getId());
+            
+            Location location = outpost.getLocation();
+            ChunkCoordinate coordinate = new ChunkCoordinate(SchemaMigrations.toChunk(location.getX()),
+                    SchemaMigrations.toChunk(location.getZ()));
+            List<TraderOutpost> chunkOutposts = outpostsByChunk.get(coordinate);
+            if (chunkOutposts != null) {
+                chunkOutposts.remove(outpost);
+                if (chunkOutposts.isEmpty()) {
+                    outpostsByChunk.remove(coordinate);
+                }
+            }
+        }
+        traders.values().removeIf(trader -> world.equals(trader.getOutpost().getLocation().getWorld()));
+        save(records);
     }
 
-    private void initializeOutpostMaps() {
-        for (TraderOutpost outpost : outposts.values()) {
-            World world = outpost.getLocation().getWorld();
-            if (world != null) {
-                outpostsByWorld.computeIfAbsent(world, k -> new ArrayList<>()).add(outpost);
+    /**
+     * Register outposts loaded from storage
+     * 
+     * @param world The world the records belong to
+     * @param records The stored outposts
+     */
+    private void registerLoadedOutposts(World world, List<TraderRecord> records) {
+        for (TraderRecord record : records) {
+            if (outposts.containsKey(record.id())) {
+                continue;
+            }
+
+            TraderOutpost outpost = new TraderOutpost(record.id(), new Location(world, record.x(), record.y(), record.z()));
+            outpost.setOpen(record.open());
+            outposts.put(outpost.getId(), outpost);
+
+            if (indexOutpost(outpost)) {
+                ensureTraderNPC(outpost);
             }
-            ChunkCoordinate chunkCoord = new ChunkCoordinate(outpost.getLocation().getChunk());
-            outpostsByChunk.computeIfAbsent(chunkCoord, k -> new ArrayList<>()).add(outpost);
         }
     }
 
     /**
-     * Load traders from database
+     * Add an outpost to the world and chunk indexes, and start its world's
+     * open/close schedule if this is the world's first outpost. An outpost in
+     * a loaded chunk takes the current open state right away.
+     * 
+     * @param outpost The outpost
+     * @return True if the outpost's chunk is loaded
      */
-    private void loadTraders() {
-        // TODO: Implement database loading
-        // This is a placeholder - actual implementation would load from database
+    private boolean indexOutpost(TraderOutpost outpost) {
+        Location location = outpost.getLocation();
+        World world = location.getWorld();
+        // Index by coordinates, since getChunk() would load the chunk
+        int chunkX = SchemaMigrations.toChunk(location.getX());
+        int chunkZ = SchemaMigrations.toChunk(location.getZ());
+        outpostsByChunk.computeIfAbsent(new ChunkCoordinate(chunkX, chunkZ), k -> new ArrayList<>()).add(outpost);
+        if (world == null) {
+            return false;
+        }
+
+        outpostsByWorld.computeIfAbsent(world, k -> new ArrayList<>()).add(outpost);
+        if (!transitionTasks.containsKey(world)) {
+            scheduleTransition(world);
+        }
+
+        boolean loaded = world.isChunkLoaded(chunkX, chunkZ);
+        if (loaded) {
+            reconcileOutpost(outpost, isOpenAt(world.getFullTime()));
+        }
+        return loaded;
     }
 
     /**
-     * Start the outpost update task
+     * Apply any dawn or dusk that passed while a chunk's outposts were unloaded.
+     * NPCs are handled in {@link #onEntitiesLoad}, since entities load after
+     * their chunk.
+     * 
+     * @param chunk The chunk that was loaded
      */
-    private void startOutpostTask() {
-        // Run every minute
-        outpostTask = plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
-            updateOutposts();
-        }, 20 * 60, 20 * 60);
+    public void onChunkLoad(Chunk chunk) {
+        List<TraderOutpost> chunkOutposts = outpostsByChunk.get(new ChunkCoordinate(chunk));
+        if (chunkOutposts == null) {
+            return;
+        }
+
+        boolean open = isOpenAt(chunk.getWorld().getFullTime());
+        for (TraderOutpost outpost : chunkOutposts) {
+            if (chunk.getWorld().equals(outpost.getLocation().getWorld())) {
+                reconcileOutpost(outpost, open);
+            }
+        }
     }
 
-    private static final int UPDATE_RADIUS = 128;
-    private static final int BATCH_SIZE = 16;
-    
-    private void updateOutposts() {
-        // Update the spatial indexing maps - ensure all outposts are properly indexed
-        for (TraderOutpost outpost : outposts.values()) {
-            World world = outpost.getLocation().getWorld();
-            if (world != null) {
-                outpostsByWorld.computeIfAbsent(world, w -> new ArrayList<>()).add(outpost);
+    /**
+     * Take back the trader entities saved with a chunk, and spawn NPCs for the
+     * chunk's outposts that still have none
+     * 
+     * @param chunk The chunk whose entities were loaded
+     * @param entities The loaded entities
+     */
+    public void onEntitiesLoad(Chunk chunk, List<Entity> entities) {
+        for (Entity entity : entities) {
+            TraderOutpost outpost = getTaggedOutpost(entity);
+            if (outpost == null) {
+                // Not a trader, or its outpost has not been loaded yet
+                continue;
+            }
+            if (outpost.getNpcId() == null) {
+                registerTraderNPC(outpost, entity);
+            } else if (!outpost.getNpcId().equals(entity.getUniqueId())) {
+                entity.remove();
             }
         }
 
-        // Process each world's outposts together
-        for (Map.Entry<World, List<TraderOutpost>> entry : outpostsByWorld.entrySet()) {
-            World world = entry.getKey();
-            List<TraderOutpost> worldOutposts = entry.getValue();
-            long worldTime = world.getTime();
-            boolean shouldBeOpen = worldTime >= 0 && worldTime < 12000;
-            
-            // Process in batches for efficiency
-            for (int i = 0; i < worldOutposts.size(); i += BATCH_SIZE) {
-                int end = Math.min(i + BATCH_SIZE, worldOutposts.size());
-                List<TraderOutpost> batch = worldOutposts.subList(i, end);
-                
-                // Update each outpost in the batch
-                for (TraderOutpost outpost : batch) {
-                    if (shouldBeOpen != outpost.isOpen()) {
-                        if (shouldBeOpen) {
-                            openOutpost(outpost);
-                        } else {
-                            closeOutpost(outpost);
-                        }
-                    }
+        List<TraderOutpost> chunkOutposts = outpostsByChunk.get(new ChunkCoordinate(chunk));
+        if (chunkOutposts == null) {
+            return;
+        }
+        for (TraderOutpost outpost : chunkOutposts) {
+            if (outpost.getNpcId() == null && chunk.getWorld().equals(outpost.getLocation().getWorld())) {
+                spawnTraderNPC(outpost);
+            }
+        }
+    }
+
+    /**
+     * Drop a trader entity from the index when it leaves the world, including
+     * when its chunk unloads. The entity keeps its tag and is taken back when
+     * the chunk loads again.
+     * 
+     * @param entity The entity that was removed
+     */
+    public void onEntityRemove(Entity entity) {
+        TraderNPC trader = traders.remove(entity.getUniqueId());
+        if (trader != null && entity.getUniqueId().equals(trader.getOutpost().getNpcId())) {
+            trader.getOutpost().setNpcId(null);
+        }
+    }
+
+    /**
+     * Give an outpost in a loaded chunk its NPC: the tagged entity already in
+     * the chunk if there is one, a new one otherwise. If the chunk's entities
+     * are not loaded yet, {@link #onEntitiesLoad} does this once they are.
+     * 
+     * @param outpost The outpost
+     */
+    private void ensureTraderNPC(TraderOutpost outpost) {
+        Location location = outpost.getLocation();
+        Chunk chunk = location.getWorld().getChunkAt(SchemaMigrations.toChunk(location.getX()),
+                SchemaMigrations.toChunk(location.getZ()));
+        if (outpost.getNpcId() != null || !chunk.isEntitiesLoaded()) {
+            return;
+        }
+
+        for (Entity entity : chunk.getEntities()) {
+            if (getTaggedOutpost(entity) == outpost) {
+                registerTraderNPC(outpost, entity);
+                return;
+            }
+        }
+        spawnTraderNPC(outpost);
+    }
+
+    /**
+     * Get the outpost an entity is tagged with
+     * 
+     * @param entity The entity
+     * @return The outpost, or null if the entity is not a trader or its outpost is not loaded
+     */
+    private TraderOutpost getTaggedOutpost(Entity entity) {
+        String outpostId = entity.getPersistentDataContainer().get(outpostKey, PersistentDataType.STRING);
+        if (outpostId == null) {
+            return null;
+        }
+        try {
+            return outposts.get(UUID.fromString(outpostId));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reschedule a world's next transition after its time was changed by a
+     * command or by sleeping through the night
+     * 
+     * @param world The world
+     */
+    public void onTimeSkip(World world) {
+        if (transitionTasks.containsKey(world)) {
+            // The skip is applied after the event, so read the new time a tick later
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (transitionTasks.containsKey(world)) {
+                    runTransition(world);
+                }
+            });
+        }
+    }
+
+    /**
+     * Schedule a world's next dawn or dusk. Nothing runs between transitions,
+     * however many outposts the world has.
+     * 
+     * @param world The world
+     */
+    private void scheduleTransition(World world) {
+        BukkitTask previous = transitionTasks.remove(world);
+        if (previous != null) {
+            previous.cancel();
+        }
+        long delay = ticksUntilTransition(world.getFullTime());
+        transitionTasks.put(world, plugin.getServer().getScheduler().runTaskLater(plugin,
+                () -> runTransition(world), delay));
+    }
+
+    /**
+     * Open or close the outposts of a world whose chunks are loaded, then
+     * schedule the next transition. Outposts in unloaded chunks catch up
+     * when their chunk loads.
+     * 
+     * @param world The world
+     */
+    private void runTransition(World world) {
+        boolean open = isOpenAt(world.getFullTime());
+        for (TraderOutpost outpost : outpostsByWorld.getOrDefault(world, List.of())) {
+            Location location = outpost.getLocation();
+            if (outpost.isOpen() != open && world.isChunkLoaded(SchemaMigrations.toChunk(location.getX()),
+                    SchemaMigrations.toChunk(location.getZ()))) {
+                if (open) {
+                    openOutpost(outpost);
+                } else {
+                    closeOutpost(outpost);
                 }
             }
         }
+        scheduleTransition(world);
+    }
+
+    /**
+     * Quietly set an outpost to the state it should be in, for outposts that
+     * missed a transition while nobody was near them
+     */
+    private void reconcileOutpost(TraderOutpost outpost, boolean open) {
+        if (outpost.isOpen() != open) {
+            outpost.setOpen(open);
+            journalOutpost(outpost);
+        }
+    }
+
+    /**
+     * Check whether traders are open at a time: from dawn until dusk
+     * 
+     * @param fullTime The world's full time
+     * @return True if open
+     */
+    private static boolean isOpenAt(long fullTime) {
+        return Math.floorMod(fullTime, DAY_LENGTH) < CLOSING_TIME;
+    }
+
+    /**
+     * Get the ticks from a time until the next dawn or dusk
+     * 
+     * @param fullTime The world's full time
+     * @return The ticks, at least 1
+     */
+    private static long ticksUntilTransition(long fullTime) {
+        long timeOfDay = Math.floorMod(fullTime, DAY_LENGTH);
+        return timeOfDay < CLOSING_TIME ? CLOSING_TIME - timeOfDay : DAY_LENGTH - timeOfDay;
     }
 
     /**
@@ -131,6 +411,7 @@ public class TraderManager {
      */
     private void openOutpost(TraderOutpost outpost) {
         outpost.setOpen(true);
+        journalOutpost(outpost);
 
         // Notify nearby players
         List<Player> nearbyPlayers = getNearbyPlayers(outpost.getLocation(), 50);
@@ -150,6 +431,7 @@ public class TraderManager {
      */
     private void closeOutpost(TraderOutpost outpost) {
         outpost.setOpen(false);
+        journalOutpost(outpost);
 
         // Notify nearby players
         List<Player> nearbyPlayers = getNearbyPlayers(outpost.getLocation(), 50);
@@ -163,8 +445,49 @@ public class TraderManager {
 
         // Close any open menus for this trader
         for (Player player : plugin.getServer().getOnlinePlayers()) {
-            // TODO: Implement menu closing
+            if (player.getOpenInventory().getTopInventory().getHolder(false) instanceof Menu<?> menu
+                    && menu.getSession() instanceof TraderNPC trader && trader.getOutpost() == outpost) {
+                player.closeInventory();
+            }
+        }
+    }
+
+    /**
+     * Build the trader main menu once: a button per trade category in the
+     * stock config and a button listing the player's quests
+     * 
+     * @return The menu template
+     */
+    private MenuTemplate<TraderNPC> buildTraderMenu() {
+        List<String> categories = stockEngine.getCategories();
+        if (categories.isEmpty()) {
+            plugin.getLogger().warning("trader-stock.yml has no valid categories; traders have nothing to sell");
+        } else if (categories.size() > MAX_MENU_CATEGORIES) {
+            plugin.getLogger().warning("Only the first " + MAX_MENU_CATEGORIES
+                    + " trader stock categories fit in the trader menu; " + categories.subList(
+                    MAX_MENU_CATEGORIES, categories.size()) + " are not shown");
+            categories = categories.subList(0, MAX_MENU_CATEGORIES);
+        }
+
+        MenuTemplate.Builder<TraderNPC> builder = MenuTemplate.builder(1,
+                Component.text("Trader", NamedTextColor.DARK_GREEN));
+        for (int slot = 0; slot < categories.size(); slot++) {
+            String category = categories.get(slot);
+            builder.button(slot, createButton(Material.PAPER, category, NamedTextColor.GREEN),
+                    (player, trader, event) -> plugin.getServer().getScheduler().runTask(plugin,
+                            () -> trader.openCategory(player, category)));
         }
+        builder.button(8, createButton(Material.WRITABLE_BOOK, "Quests", NamedTextColor.GOLD),
+                (player, trader, event) -> plugin.getQuestManager().sendActiveQuests(player));
+        return builder.build();
+    }
+
+    private static ItemStack createButton(Material material, String name, NamedTextColor color) {
+        ItemStack button = new ItemStack(material);
+        ItemMeta meta = button.getItemMeta();
+        meta.displayName(Component.text(name, color).decoration(TextDecoration.ITALIC, false));
+        button.setItemMeta(meta);
+        return button;
     }
 
     /**
@@ -213,12 +536,7 @@ public class TraderManager {
             outposts.put(outpostId, outpost);
 
             // Add to spatial partitioning maps
-            World world = location.getWorld();
-            if (world != null) {
-                outpostsByWorld.computeIfAbsent(world, k -> new ArrayList<>()).add(outpost);
-            }
-            ChunkCoordinate chunkCoord = new ChunkCoordinate(location.getChunk());
-            outpostsByChunk.computeIfAbsent(chunkCoord, k -> new ArrayList<>()).add(outpost);
+            indexOutpost(outpost);
 
             // Place outpost structure
             Object schematic = plugin.getSchematicUtils().loadSchematic("trader_outpost");
@@ -229,6 +547,7 @@ public class TraderManager {
 
             // Spawn trader NPC
             spawnTraderNPC(outpost);
+            saveOutpost(outpost);
 
             return outpostId;
         } catch (Exception e) {
@@ -267,16 +586,9 @@ public class TraderManager {
                 villager.setAI(false);
                 villager.setInvulnerable(true);
             }
+            entity.getPersistentDataContainer().set(outpostKey, PersistentDataType.STRING, outpost.getId().toString());
 
-            // Create the trader NPC
-            UUID traderId = UUID.randomUUID();
-            TraderNPC trader = new TraderNPC(traderId, entity, outpost);
-            traders.put(traderId, trader);
-
-            // Update the outpost with the NPC ID
-            outpost.setNpcId(traderId);
-
-            return traderId;
+            return registerTraderNPC(outpost, entity);
         } catch (Exception e) {
             plugin.getLogger().severe("Error spawning trader NPC: " + e.getMessage());
             e.printStackTrace();
@@ -284,12 +596,26 @@ public class TraderManager {
         }
     }
 
+    /**
+     * Index a trader entity and link it to its outpost
+     * 
+     * @param outpost The outpost
+     * @param entity The trader entity
+     * @return The trader ID, which is the entity's UUID
+     */
+    private UUID registerTraderNPC(TraderOutpost outpost, Entity entity) {
+        UUID traderId = entity.getUniqueId();
+        traders.put(traderId, new TraderNPC(traderId, entity, outpost, traderMenu, stockEngine));
+        outpost.setNpcId(traderId);
+        return traderId;
+    }
+
     /**
      * Handle a player interacting with a trader
      * 
      * @param player The player
      * @param entityId The entity ID
-     * @return True if handled
+     * @return True if the entity is a trader and the interaction was handled
      */
     public boolean handleTraderInteraction(Player player, UUID entityId) {
         TraderNPC trader = traders.get(entityId);
@@ -297,13 +623,15 @@ public class TraderManager {
             return false;
         }
 
-        return trader.openMenu(player);
+        // Handled even when the trader is closed, so the vanilla trade screen never opens
+        trader.openMenu(player);
+        return true;
     }
 
     /**
      * Get a trader by ID
      * 
-     * @param id The trader ID
+     * @param id The trader ID, which is its entity's UUID
      * @return The trader, or null if not found
      */
     public TraderNPC getTrader(UUID id) {
@@ -344,57 +672,84 @@ public class TraderManager {
         outposts.put(outpostId, outpost);
 
         // Add to spatial partitioning maps
-        World world = location.getWorld();
-        if (world != null) {
-            outpostsByWorld.computeIfAbsent(world, k -> new ArrayList<>()).add(outpost);
-        }
-        ChunkCoordinate chunkCoord = new ChunkCoordinate(location.getChunk());
-        outpostsByChunk.computeIfAbsent(chunkCoord, k -> new ArrayList<>()).add(outpost);
+        indexOutpost(outpost);
 
         // Spawn trader NPC
         spawnTraderNPC(outpost);
+        saveOutpost(outpost);
 
         return outpostId;
     }
 
     /**
-     * Get random trade stock
+     * Get the stock engine
      * 
-     * @param tier The tier
-     * @param category The category
-     * @return The trade stock (item, price)
+     * @return The stock engine
      */
-    public Map<org.bukkit.inventory.ItemStack, Integer> getRandomStock(int tier, String category) {
-        // This is a placeholder - actual implementation would generate stock based on config
-        Map<org.bukkit.inventory.ItemStack, Integer> stock = new HashMap<>();
-
-        // Just add some random items
-        org.bukkit.Material[] materials = {
-            org.bukkit.Material.DIAMOND_SWORD,
-            org.bukkit.Material.IRON_SWORD,
-            org.bukkit.Material.IRON_PICKAXE,
-            org.bukkit.Material.IRON_AXE,
-            org.bukkit.Material.COOKED_BEEF,
-            org.bukkit.Material.GOLDEN_APPLE
-        };
+    public StockEngine getStockEngine() {
+        return stockEngine;
+    }
 
-        for (int i = 0; i < 3 + tier; i++) {
-            int index = ThreadLocalRandom.current().nextInt(materials.length);
-            org.bukkit.inventory.ItemStack item = new org.bukkit.inventory.ItemStack(materials[index]);
-            int price = (tier + 1) * 10 + ThreadLocalRandom.current().nextInt(50);
+    /**
+     * Get the trade ledger
+     * 
+     * @return The trade ledger
+     */
+    public TradeLedger getLedger() {
+        return ledger;
+    }
 
-            stock.put(item, price);
+    /**
+     * Save traders to storage
+     * 
+     * @return A future completed once the traders are written
+     */
+    public CompletableFuture<Void> saveTraders() {
+        List<TraderRecord> records = new ArrayList<>(outposts.size());
+        for (TraderOutpost outpost : outposts.values()) {
+            if (outpost.getLocation().getWorld() != null) {
+                records.add(toRecord(outpost));
+            }
         }
-
-        return stock;
+        return save(records);
     }
 
     /**
-     * Save traders to database
+     * Save one outpost to storage
+     * 
+     * @param outpost The outpost
      */
-    public void saveTraders() {
-        // TODO: Implement database saving
-        // This is a placeholder - actual implementation would save to database
+    private void saveOutpost(TraderOutpost outpost) {
+        if (outpost.getLocation().getWorld() != null) {
+            journalOutpost(outpost);
+            save(List.of(toRecord(outpost)));
+        }
+    }
+
+    private CompletableFuture<Void> save(List<TraderRecord> records) {
+        CompletableFuture<Void> saved = getRepository().saveAll(records);
+        saved.exceptionally(error -> {
+            plugin.getLogger().log(Level.WARNING, "Failed to save " + records.size() + " traders", error);
+            return null;
+        });
+        return saved;
+    }
+
+    private void journalOutpost(TraderOutpost outpost) {
+        StateJournal journal = plugin.getDatabaseManager().getJournal();
+        if (journal != null && outpost.getLocation().getWorld() != null) {
+            journal.recordTrader(toRecord(outpost));
+        }
+    }
+
+    private TraderRecord toRecord(TraderOutpost outpost) {
+        Location location = outpost.getLocation();
+        return new TraderRecord(outpost.getId(), "Trader", location.getWorld().getName(),
+                location.getX(), location.getY(), location.getZ(), outpost.getStructureId(), outpost.isOpen());
+    }
+
+    private PositionalRepository<TraderRecord> getRepository() {
+        return plugin.getDatabaseManager().getRepositories().getTraders();
     }
 
     /**
@@ -402,15 +757,18 @@ public class TraderManager {
      */
     public void cleanup() {
         // Cancel scheduled tasks
-        if (outpostTask != null) {
-            outpostTask.cancel();
+        for (BukkitTask task : transitionTasks.values()) {
+            task.cancel();
         }
+        transitionTasks.clear();
+        stockEngine.cleanup();
+        ledger.cleanup();
 
         // Save data
         saveTraders();
 
-        // Remove NPCs
-        for (TraderNPC trader : traders.values()) {
+        // Remove NPCs; removal calls back into onEntityRemove, so iterate a copy
+        for (TraderNPC trader : new ArrayList<>(traders.values())) {
             if (trader.getEntity() != null && trader.getEntity().isValid()) {
                 trader.getEntity().remove();
             }
@@ -515,8 +873,12 @@ public class TraderManager {
         private final int z;
 
         public ChunkCoordinate(Chunk chunk) {
-            this.x = chunk.getX();
-            this.z = chunk.getZ();
+            this(chunk.getX(), chunk.getZ());
+        }
+
+        public ChunkCoordinate(int x, int z) {
+            this.x = x;
+            this.z = z;
         }
 
         @Override
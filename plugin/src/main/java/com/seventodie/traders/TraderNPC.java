@@ -3,18 +3,11 @@ package com.seventodie.traders;
 import org.bukkit.Location;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.Inventory;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.MerchantRecipe;
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 
+import com.seventodie.menu.MenuTemplate;
 import com.seventodie.traders.TraderManager.TraderOutpost;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -25,7 +18,8 @@ public class TraderNPC {
     private final UUID id;
     private final Entity entity;
     private final TraderOutpost outpost;
-    private final Map<String, List<MerchantRecipe>> tradeCategories = new HashMap<>();
+    private final MenuTemplate<TraderNPC> menu;
+    private final StockEngine stockEngine;
     
     /**
      * Constructor for a TraderNPC
@@ -33,33 +27,16 @@ public class TraderNPC {
      * @param id The unique ID
      * @param entity The entity
      * @param outpost The outpost
+     * @param menu The trader menu, shared by all traders
+     * @param stockEngine The stock engine holding the outpost's stock
      */
-    public TraderNPC(UUID id, Entity entity, TraderOutpost outpost) {
+    public TraderNPC(UUID id, Entity entity, TraderOutpost outpost, MenuTemplate<TraderNPC> menu,
+                     StockEngine stockEngine) {
         this.id = id;
         this.entity = entity;
         this.outpost = outpost;
-        
-        // Initialize trade categories
-        initializeTradeCategories();
-    }
-    
-    /**
-     * Initialize trade categories
-     */
-    private void initializeTradeCategories() {
-        // This is a placeholder - actual implementation would load trades from config
-        List<MerchantRecipe> weapons = new ArrayList<>();
-        List<MerchantRecipe> tools = new ArrayList<>();
-        List<MerchantRecipe> resources = new ArrayList<>();
-        List<MerchantRecipe> food = new ArrayList<>();
-        
-        // Add some placeholder trades (these would normally be configured)
-        // In a real implementation, we would use MerchantRecipe to set up proper trades
-        
-        tradeCategories.put("Weapons", weapons);
-        tradeCategories.put("Tools", tools);
-        tradeCategories.put("Resources", resources);
-        tradeCategories.put("Food", food);
+        this.menu = menu;
+        this.stockEngine = stockEngine;
     }
     
     /**
@@ -111,25 +88,8 @@ public class TraderNPC {
             return false;
         }
         
-        // In a real implementation, we would either:
-        // 1. Use Citizens API to open a custom menu
-        // 2. Use the vanilla merchant API
-        
-        // This is a placeholder - we're just opening a GUI with category buttons
-        Inventory inv = Bukkit.createInventory(null, 9, ChatColor.DARK_GREEN + "Trader");
-        
-        // Add category buttons
-        int slot = 0;
-        for (String category : tradeCategories.keySet()) {
-            ItemStack button = new org.bukkit.inventory.ItemStack(org.bukkit.Material.PAPER);
-            org.bukkit.inventory.meta.ItemMeta meta = button.getItemMeta();
-            meta.setDisplayName(ChatColor.GREEN + category);
-            button.setItemMeta(meta);
-            
-            inv.setItem(slot++, button);
-        }
-        
-        player.openInventory(inv);
+        // The category buttons are pre-rendered in the shared template
+        menu.open(player, this);
         return true;
     }
     
@@ -146,15 +106,13 @@ public class TraderNPC {
             return false;
         }
         
-        List<MerchantRecipe> trades = tradeCategories.get(category);
-        if (trades == null) {
+        if (!stockEngine.getCategories().contains(category)) {
             player.sendMessage(ChatColor.RED + "Unknown trade category.");
             return false;
         }
         
-        // In a real implementation, we would use the trades to create a merchant
-        // For now, we just send a message
-        player.sendMessage(ChatColor.GREEN + "Opened " + category + " trades.");
+        // Pages are rendered once per restock and shared by every viewer
+        stockEngine.getPage(outpost.getId(), category).open(player, this);
         return true;
     }
     
@@ -0,0 +1,193 @@
+package com.seventodie.traders;
+
+import org.bukkit.Material;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import com.seventodie.menu.MenuTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * An immutable snapshot of one outpost's stock. A restock builds a new
+ * snapshot and swaps it in, so readers never see a half-generated stock
+ * and need no locking.
+ *
+ * Each category's menu page is rendered the first time it is opened and
+ * reused until the snapshot is replaced.
+ */
+public final class TraderStock {
+
+    /**
+     * An item in stock
+     */
+    public record StockItem(Material material, int amount, int price) {
+    }
+
+    private final Map<String, List<StockItem>> items;
+    private final long restockedAt;
+    private final Map<String, MenuTemplate<TraderNPC>> pages = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for TraderStock
+     *
+     * @param items The items in stock by category
+     * @param restockedAt When the stock was generated, in epoch milliseconds
+     */
+    public TraderStock(Map<String, List<StockItem>> items, long restockedAt) {
+        Map<String, List<StockItem>> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, List<StockItem>> entry : items.entrySet()) {
+            copy.put(entry.getKey(), List.copyOf(entry.getValue()));
+        }
+        this.items = Collections.unmodifiableMap(copy);
+        this.restockedAt = restockedAt;
+    }
+
+    /**
+     * Get the items in stock in a category
+     *
+     * @param category The category
+     * @return The items, empty if the category has none
+     */
+    public List<StockItem> getItems(String category) {
+        return items.getOrDefault(category, List.of());
+    }
+
+    /**
+     * Find an item in stock in a category
+     *
+     * @param category The category
+     * @param material The item's material
+     * @return The item, or null if it is not in stock
+     */
+    public StockItem find(String category, Material material) {
+        for (StockItem item : getItems(category)) {
+            if (item.material() == material) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find the price a material sells for in any category
+     *
+     * @param material The material
+     * @return The unit price, or -1 if the trader does not stock it
+     */
+    public int findPrice(Material material) {
+        for (List<StockItem> category : items.values()) {
+            for (StockItem item : category) {
+                if (item.material() == material) {
+                    return item.price();
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copy this stock with a different amount of one item. The copy keeps
+     * the restock time and renders its own pages.
+     *
+     * @param category The item's category
+     * @param material The item's material
+     * @param amount The new amount; the item is removed at 0
+     * @return The new stock
+     */
+    public TraderStock withAmount(String category, Material material, int amount) {
+        Map<String, List<StockItem>> copy = new LinkedHashMap<>(items);
+        List<StockItem> changed = new ArrayList<>();
+        for (StockItem item : getItems(category)) {
+            if (item.material() != material) {
+                changed.add(item);
+            } else if (amount > 0) {
+                changed.add(new StockItem(material, amount, item.price()));
+            }
+        }
+        copy.put(category, changed);
+        return new TraderStock(copy, restockedAt);
+    }
+
+    /**
+     * Get when the stock was generated
+     *
+     * @return The time in epoch milliseconds
+     */
+    public long getRestockedAt() {
+        return restockedAt;
+    }
+
+    /**
+     * Get the menu page of a category, rendering it on first use
+     *
+     * @param category The category
+     * @param renderer Renders a category's items into a page
+     * @return The page
+     */
+    public MenuTemplate<TraderNPC> getPage(String category,
+                                           BiFunction<String, List<StockItem>, MenuTemplate<TraderNPC>> renderer) {
+        return pages.computeIfAbsent(category, key -> renderer.apply(key, getItems(key)));
+    }
+
+    /**
+     * Encode the items for storage
+     *
+     * @return The items as JSON: {category: [{material, amount, price}]}
+     */
+    public String encode() {
+        JsonObject json = new JsonObject();
+        for (Map.Entry<String, List<StockItem>> entry : items.entrySet()) {
+            JsonArray array = new JsonArray();
+            for (StockItem item : entry.getValue()) {
+                JsonObject element = new JsonObject();
+                element.addProperty("material", item.material().name());
+                element.addProperty("amount", item.amount());
+                element.addProperty("price", item.price());
+                array.add(element);
+            }
+            json.add(entry.getKey(), array);
+        }
+        return json.toString();
+    }
+
+    /**
+     * Decode stored items. Items whose material no longer exists are dropped.
+     *
+     * @param encoded The encoded items
+     * @param restockedAt When the stock was generated
+     * @return The stock
+     * @throws IllegalArgumentException If the encoded items are malformed
+     */
+    public static TraderStock decode(String encoded, long restockedAt) {
+        Map<String, List<StockItem>> items = new LinkedHashMap<>();
+        try {
+            JsonObject json = JsonParser.parseString(encoded).getAsJsonObject();
+            for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
+                List<StockItem> category = new ArrayList<>();
+                for (JsonElement element : entry.getValue().getAsJsonArray()) {
+                    JsonObject item = element.getAsJsonObject();
+                    Material material = Material.matchMaterial(item.get("material").getAsString());
+                    if (material != null) {
+                        category.add(new StockItem(material, item.get("amount").getAsInt(), item.get("price").getAsInt()));
+                    }
+                }
+                items.put(entry.getKey(), category);
+            }
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException
+                 | NullPointerException e) {
+            throw new IllegalArgumentException("Malformed trader stock", e);
+        }
+        return new TraderStock(items, restockedAt);
+    }
+}
@@ -0,0 +1,253 @@
+package com.seventodie.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Logger;
+
+/**
+ * Extracts the SQLite native library for this platform from the plugin JAR.
+ *
+ * Only the one library matching the OS and architecture is extracted, and a
+ * manifest next to it records the JAR it came from. On later starts the JAR's
+ * size and modification time are compared with the manifest; only if they
+ * changed is the JAR hashed, and only if the hash changed is the library
+ * extracted again. The extracted library is always checked against the hash
+ * in the manifest before it is reused, so a damaged or replaced copy is
+ * extracted again. The result is kept for the rest of the JVM's life, so
+ * reinitializing the database does no file work at all.
+ *
+ * Platforms whose library is not in the JAR are recorded in the manifest too,
+ * so later starts with the same JAR return straight away without hashing it.
+ */
+public class NativeLibraryExtractor {
+
+    private static final String RESOURCE_FOLDER = "native";
+    private static final String MANIFEST_NAME = "native-manifest.properties";
+    private static final int BUFFER_SIZE = 65536;
+
+    private static volatile File extracted;
+    private static volatile boolean resolved;
+
+    private final Logger logger;
+    private final File libsDir;
+    private final File jarFile;
+
+    /**
+     * Constructor for NativeLibraryExtractor
+     *
+     * @param logger The logger
+     * @param libsDir The directory libraries are extracted to
+     * @param jarFile The plugin JAR
+     */
+    public NativeLibraryExtractor(Logger logger, File libsDir, File jarFile) {
+        this.logger = logger;
+        this.libsDir = libsDir;
+        this.jarFile = jarFile;
+    }
+
+    /**
+     * Get the native library for this platform, extracting it if the
+     * recorded copy is missing or came from a different JAR
+     *
+     * @return The library file, or null if this platform has no bundled library
+     * @throws IOException If the library cannot be extracted
+     */
+    public File extract() throws IOException {
+        if (resolved) {
+            return extracted;
+        }
+
+        synchronized (NativeLibraryExtractor.class) {
+            if (!resolved) {
+                extracted = resolve();
+                resolved = true;
+            }
+            return extracted;
+        }
+    }
+
+    private File resolve() throws IOException {
+        String libraryName = selectLibrary(System.getProperty("os.name"), System.getProperty("os.arch"));
+        if (libraryName == null) {
+            logger.warning("No bundled SQLite native library for " + System.getProperty("os.name")
+                    + " " + System.getProperty("os.arch"));
+            return null;
+        }
+
+        File library = new File(libsDir, libraryName);
+        File manifestFile = new File(libsDir, MANIFEST_NAME);
+        Properties manifest = readManifest(manifestFile);
+
+        // Two stat calls tell whether the JAR is the one the manifest describes
+        boolean sameJar = libraryName.equals(manifest.getProperty("library"))
+                && jarFile.length() == parseLong(manifest.getProperty("jar.size"))
+                && jarFile.lastModified() == parseLong(manifest.getProperty("jar.modified"));
+        if (sameJar && "false".equals(manifest.getProperty("library.bundled"))) {
+            return null;
+        }
+        if (sameJar && isIntact(manifest, library)) {
+            return library;
+        }
+
+        manifest.setProperty("jar.size", Long.toString(jarFile.length()));
+        manifest.setProperty("jar.modified", Long.toString(jarFile.lastModified()));
+        manifest.setProperty("library", libraryName);
+
+        if (!isBundled(libraryName)) {
+            logger.info("Plugin JAR has no SQLite native library " + libraryName + "; the driver will use its own");
+            manifest.setProperty("library.bundled", "false");
+            manifest.remove("jar.sha256");
+            manifest.remove("library.size");
+            manifest.remove("library.sha256");
+            writeManifest(manifestFile, manifest);
+            return null;
+        }
+
+        String jarHash = sha256(jarFile);
+        if (!jarHash.equals(manifest.getProperty("jar.sha256")) || !isIntact(manifest, library)) {
+            extractLibrary(libraryName, library);
+            logger.info("Extracted SQLite native library " + libraryName);
+        }
+
+        manifest.setProperty("library.bundled", "true");
+        manifest.setProperty("jar.sha256", jarHash);
+        manifest.setProperty("library.size", Long.toString(library.length()));
+        manifest.setProperty("library.sha256", sha256(library));
+        writeManifest(manifestFile, manifest);
+        return library;
+    }
+
+    /**
+     * Check whether the JAR holds a library, which only reads its central directory
+     */
+    private boolean isBundled(String libraryName) throws IOException {
+        try (JarFile jar = new JarFile(jarFile)) {
+            return jar.getJarEntry(RESOURCE_FOLDER + "/" + libraryName) != null;
+        }
+    }
+
+    /**
+     * Check that the extracted library is the one the manifest recorded. The
+     * size is compared first so a truncated copy is caught without hashing it.
+     */
+    private static boolean isIntact(Properties manifest, File library) throws IOException {
+        return library.isFile()
+                && library.length() == parseLong(manifest.getProperty("library.size"))
+                && sha256(library).equals(manifest.getProperty("library.sha256"));
+    }
+
+    /**
+     * Copy one library out of the JAR, replacing the old copy atomically so a
+     * crash mid-write never leaves a truncated library behind
+     */
+    private void extractLibrary(String libraryName, File library) throws IOException {
+        createLibsDir();
+
+        try (JarFile jar = new JarFile(jarFile)) {
+            JarEntry entry = jar.getJarEntry(RESOURCE_FOLDER + "/" + libraryName);
+            if (entry == null) {
+                throw new IOException("Plugin JAR has no " + RESOURCE_FOLDER + "/" + libraryName);
+            }
+
+            File temp = new File(libsDir, libraryName + ".tmp");
+            try (InputStream in = jar.getInputStream(entry);
+                 OutputStream out = new FileOutputStream(temp)) {
+                in.transferTo(out);
+            }
+            temp.setExecutable(true);
+            Files.move(temp.toPath(), library.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Pick the bundled library for an OS and architecture
+     *
+     * @param osName The os.name property
+     * @param osArch The os.arch property
+     * @return The library file name, or null if none is bundled
+     */
+    public static String selectLibrary(String osName, String osArch) {
+        String os = osName.toLowerCase();
+        String arch = osArch.toLowerCase();
+
+        if (os.contains("win")) {
+            return arch.contains("64") ? "sqlite-native-win-x64.dll" : "sqlite-native-win-x86.dll";
+        } else if (os.contains("mac") || os.contains("darwin")) {
+            return "libsqlite-native-mac.dylib";
+        } else if (os.contains("linux") || os.contains("unix")) {
+            if (arch.contains("arm") || arch.contains("aarch")) {
+                return arch.contains("64") ? "libsqlite-native-linux-aarch64.so" : "libsqlite-native-linux-arm.so";
+            }
+            return arch.contains("64") ? "libsqlite-native-linux-x64.so" : "libsqlite-native-linux-x86.so";
+        }
+        return null;
+    }
+
+    private static Properties readManifest(File file) {
+        Properties manifest = new Properties();
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                manifest.load(in);
+            } catch (IOException e) {
+                // A damaged manifest only costs one re-extraction
+                manifest.clear();
+            }
+        }
+        return manifest;
+    }
+
+    private void createLibsDir() throws IOException {
+        if (!libsDir.isDirectory() && !libsDir.mkdirs()) {
+            throw new IOException("Failed to create " + libsDir);
+        }
+    }
+
+    private void writeManifest(File file, Properties manifest) throws IOException {
+        createLibsDir();
+        try (OutputStream out = new FileOutputStream(file)) {
+            manifest.store(out, "SevenToDie native library manifest, do not edit");
+        }
+    }
+
+    private static String sha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available", e);
+        }
+
+        try (InputStream in = new DigestInputStream(new FileInputStream(file), digest)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (in.read(buffer) != -1) {
+                // Reading updates the digest
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.seventodie.utils;
 
-import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
@@ -8,13 +7,14 @@ import org.bukkit.block.data.BlockData;
 import org.bukkit.util.Vector;
 
 import com.seventodie.SevenToDiePlugin;
+import com.seventodie.utils.schematic.PaletteSchematic;
+import com.seventodie.utils.schematic.SchematicCache;
+import com.seventodie.utils.schematic.Schematic;
+import com.seventodie.utils.schematic.SchematicReader;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.UUID;
 import java.util.logging.Level;
 
 /**
@@ -23,8 +23,7 @@ import java.util.logging.Level;
 public class SchematicUtils {
     
     private final SevenToDiePlugin plugin;
-    private final boolean useWorldEdit;
-    private final Map<String, Object> cachedSchematics = new HashMap<>();
+    private final SchematicCache cache;
     
     /**
      * Constructor for SchematicUtils
@@ -33,7 +32,7 @@ public class SchematicUtils {
      */
     public SchematicUtils(SevenToDiePlugin plugin) {
         this.plugin = plugin;
-        this.useWorldEdit = plugin.getServer().getPluginManager().getPlugin("WorldEdit") != null;
+        this.cache = new SchematicCache(plugin.getConfigManager().getInt("performance.schematic-cache-mb", 64) * 1024L * 1024L);
     }
     
     /**
@@ -43,107 +42,122 @@ public class SchematicUtils {
      * @return The schematic object, or null if failed
      */
     public Object loadSchematic(String name) {
-        if (cachedSchematics.containsKey(name)) {
-            return cachedSchematics.get(name);
-        }
-        
-        if (useWorldEdit) {
-            // Try to load with WorldEdit
-            Object schematic = loadWorldEditSchematic(name);
-            if (schematic != null) {
-                cachedSchematics.put(name, schematic);
-                return schematic;
-            }
+        return loadSchematic(name, 0);
+    }
+    
+    /**
+     * Load a schematic rotated around the Y axis. Decoded schematics and their
+     * rotations are cached, so repeated requests do no work.
+     * 
+     * @param name The schematic name (without extension)
+     * @param rotation The rotation (0-3, clockwise)
+     * @return The rotated schematic, or null if failed
+     */
+    public Schematic loadSchematic(String name, int rotation) {
+        return cache.get(name, rotation, this::loadFromDisk);
+    }
+    
+    /**
+     * Load an unrotated schematic from disk
+     * 
+     * @param name The schematic name (without extension)
+     * @return The schematic, or null if failed
+     */
+    private PaletteSchematic loadFromDisk(String name) {
+        // Try Sponge/MCEdit schematics first
+        PaletteSchematic schematic = loadWorldEditSchematic(name);
+        if (schematic != null) {
+            return schematic;
         }
         
         // Try to load with vanilla NBT
-        Object schematic = loadVanillaSchematic(name);
+        schematic = loadVanillaSchematic(name);
         if (schematic != null) {
-            cachedSchematics.put(name, schematic);
             return schematic;
         }
         
+        plugin.getLogger().warning("Schematic file not found: " + name);
         return null;
     }
     
     /**
-     * Load a WorldEdit schematic
+     * Load a WorldEdit-format schematic (.schem or legacy .schematic). WorldEdit
+     * itself is not required.
      * 
      * @param name The schematic name (without extension)
      * @return The schematic object, or null if failed
      */
-    private Object loadWorldEditSchematic(String name) {
-        // This is a placeholder - actual implementation would use WorldEdit API
-        // Since we're just compiling and not running this yet, we'll leave it as a stub
-        
-        try {
-            // Check for WorldEdit directory first
-            File schematicsDir = new File(plugin.getDataFolder().getParentFile(), "WorldEdit/schematics");
-            if (!schematicsDir.exists()) {
-                // Check plugin directory
-                schematicsDir = new File(plugin.getDataFolder(), "schematics");
-            }
-            
-            if (!schematicsDir.exists()) {
-                plugin.getLogger().warning("Schematics directory not found.");
-                return null;
-            }
-            
-            // Check for both .schem and .schematic extensions
-            File schemFile = new File(schematicsDir, name + ".schem");
-            if (!schemFile.exists()) {
-                schemFile = new File(schematicsDir, name + ".schematic");
-                if (!schemFile.exists()) {
-                    plugin.getLogger().warning("Schematic file not found: " + name);
-                    return null;
-                }
-            }
-            
-            // If WorldEdit is available, we would use its API here to load the schematic
-            // Since this is a placeholder, we'll just return a dummy object
-            return new DummySchematic();
-            
-        } catch (Exception e) {
-            plugin.getLogger().log(Level.SEVERE, "Error loading WorldEdit schematic: " + name, e);
+    private PaletteSchematic loadWorldEditSchematic(String name) {
+        // Check the plugin directory first, then WorldEdit's
+        File schemFile = findSchematicFile(name, ".schem", ".schematic");
+        if (schemFile == null) {
             return null;
         }
+        return readSchematic(schemFile, name);
     }
     
     /**
-     * Load a vanilla Minecraft schematic (NBT)
+     * Load a vanilla Minecraft structure (NBT)
      * 
      * @param name The schematic name (without extension)
      * @return The schematic object, or null if failed
      */
-    private Object loadVanillaSchematic(String name) {
-        // This is a placeholder - actual implementation would use NBT parsing
-        // Since we're just compiling and not running this yet, we'll leave it as a stub
+    private PaletteSchematic loadVanillaSchematic(String name) {
+        File schemFile = findSchematicFile(name, ".nbt");
+        if (schemFile == null) {
+            return null;
+        }
+        return readSchematic(schemFile, name);
+    }
+    
+    /**
+     * Find a schematic file in the plugin or WorldEdit schematics directory
+     * 
+     * @param name The schematic name (without extension)
+     * @param extensions The extensions to try, in order
+     * @return The file, or null if not found
+     */
+    private File findSchematicFile(String name, String... extensions) {
+        File[] directories = {
+            new File(plugin.getDataFolder(), "schematics"),
+            new File(plugin.getDataFolder().getParentFile(), "WorldEdit/schematics")
+        };
         
-        try {
-            File schematicsDir = new File(plugin.getDataFolder(), "schematics");
-            if (!schematicsDir.exists()) {
-                plugin.getLogger().warning("Schematics directory not found.");
-                return null;
-            }
-            
-            File schemFile = new File(schematicsDir, name + ".nbt");
-            if (!schemFile.exists()) {
-                plugin.getLogger().warning("Schematic file not found: " + name);
-                return null;
+        for (File directory : directories) {
+            for (String extension : extensions) {
+                File file = new File(directory, name + extension);
+                if (file.isFile()) {
+                    return file;
+                }
             }
-            
-            // If we were implementing this for real, we would parse the NBT data here
-            // Since this is a placeholder, we'll just return a dummy object
-            return new DummySchematic();
-            
-        } catch (Exception e) {
-            plugin.getLogger().log(Level.SEVERE, "Error loading vanilla schematic: " + name, e);
+        }
+        return null;
+    }
+    
+    /**
+     * Parse a schematic file
+     * 
+     * @param file The file
+     * @param name The schematic name
+     * @return The schematic, or null if it could not be read
+     */
+    private PaletteSchematic readSchematic(File file, String name) {
+        try {
+            long start = System.nanoTime();
+            PaletteSchematic schematic = SchematicReader.read(file, name);
+            plugin.getLogger().fine("Loaded schematic " + name + " (" + schematic.getWidth() + "x"
+                    + schematic.getHeight() + "x" + schematic.getLength() + ", "
+                    + schematic.getPalette().length + " states) in "
+                    + ((System.nanoTime() - start) / 1000000.0) + " ms");
+            return schematic;
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error loading schematic: " + file.getName(), e);
             return null;
         }
     }
     
     /**
-     * Place a schematic in the world
+     * Queue a schematic to be placed in the world over the following ticks
      * 
      * @param schematic The schematic object
      * @param world The world
@@ -151,26 +165,37 @@ public class SchematicUtils {
      * @param y The y coordinate
      * @param z The z coordinate
      * @param rotation The rotation (0-3)
-     * @return True if placed successfully
+     * @return True if queued successfully
      */
     public boolean placeSchematic(Object schematic, World world, int x, int y, int z, int rotation) {
-        if (schematic == null) {
+        return placeSchematic(UUID.randomUUID(), schematic, world, x, y, z, rotation);
+    }
+    
+    /**
+     * Queue a schematic to be placed in the world over the following ticks
+     * 
+     * @param id The placement ID (usually the structure ID)
+     * @param schematic The schematic object
+     * @param world The world
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param rotation The rotation (0-3)
+     * @return True if queued successfully
+     */
+    public boolean placeSchematic(UUID id, Object schematic, World world, int x, int y, int z, int rotation) {
+        if (!(schematic instanceof Schematic)) {
             return false;
         }
         
-        if (useWorldEdit && schematic instanceof DummySchematic) {
-            // If WorldEdit is available, we would use its API here to place the schematic
-            // Since this is a placeholder, we'll just log a message
-            plugin.getLogger().info("Placing WorldEdit schematic at " + world.getName() + ", " + x + ", " + y + ", " + z);
-            return true;
-        } else if (schematic instanceof DummySchematic) {
-            // If using vanilla NBT, we would place blocks manually
-            // Since this is a placeholder, we'll just log a message
-            plugin.getLogger().info("Placing vanilla schematic at " + world.getName() + ", " + x + ", " + y + ", " + z);
-            return true;
+        // Place from the cached pre-rotated variant
+        Schematic rotated = loadSchematic(((Schematic) schematic).getName(), rotation);
+        if (rotated == null) {
+            return false;
         }
         
-        return false;
+        plugin.getStructurePlacementEngine().submit(id, rotated, world, x, y, z, rotation);
+        return true;
     }
     
     /**
@@ -180,13 +205,12 @@ public class SchematicUtils {
      * @return Vector with x, y, z dimensions, or null if invalid
      */
     public Vector getSchematicDimensions(Object schematic) {
-        if (schematic == null) {
+        if (!(schematic instanceof Schematic)) {
             return null;
         }
         
-        // This is a placeholder - actual implementation would get real dimensions
-        // For now, we'll just return a default size
-        return new Vector(16, 8, 16);
+        Schematic loaded = (Schematic) schematic;
+        return new Vector(loaded.getWidth(), loaded.getHeight(), loaded.getLength());
     }
     
     /**
@@ -209,34 +233,11 @@ public class SchematicUtils {
     }
     
     /**
-     * Rotate a relative position around the Y axis
+     * Get the schematic cache
      * 
-     * @param x The x position
-     * @param z The z position
-     * @param rotation The rotation (0-3, clockwise)
-     * @param width The width of the schematic
-     * @param length The length of the schematic
-     * @return Rotated position as int[2] {x, z}
-     */
-    private int[] rotatePosition(int x, int z, int rotation, int width, int length) {
-        switch (rotation & 3) {
-            case 0: // 0 degrees
-                return new int[] { x, z };
-            case 1: // 90 degrees
-                return new int[] { length - 1 - z, x };
-            case 2: // 180 degrees
-                return new int[] { width - 1 - x, length - 1 - z };
-            case 3: // 270 degrees
-                return new int[] { z, width - 1 - x };
-            default:
-                return new int[] { x, z };
-        }
-    }
-    
-    /**
-     * A dummy schematic class for placeholder implementation
+     * @return The cache
      */
-    private static class DummySchematic {
-        // Just a placeholder
+    public SchematicCache getCache() {
+        return cache;
     }
 }
\ No newline at end of file
@@ -0,0 +1,183 @@
+package com.seventodie.utils.schematic;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Minimal streaming NBT reader.
+ *
+ * Reads tags straight off the stream in file order so callers can pick out
+ * the fields they need and skip everything else without building a tag tree.
+ */
+public class NbtReader {
+
+    public static final int TAG_END = 0;
+    public static final int TAG_BYTE = 1;
+    public static final int TAG_SHORT = 2;
+    public static final int TAG_INT = 3;
+    public static final int TAG_LONG = 4;
+    public static final int TAG_FLOAT = 5;
+    public static final int TAG_DOUBLE = 6;
+    public static final int TAG_BYTE_ARRAY = 7;
+    public static final int TAG_STRING = 8;
+    public static final int TAG_LIST = 9;
+    public static final int TAG_COMPOUND = 10;
+    public static final int TAG_INT_ARRAY = 11;
+    public static final int TAG_LONG_ARRAY = 12;
+
+    private final DataInputStream in;
+
+    /**
+     * Constructor for NbtReader
+     *
+     * @param in The uncompressed NBT stream
+     */
+    public NbtReader(DataInputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Get the underlying stream for reading array payloads directly
+     *
+     * @return The stream
+     */
+    public DataInputStream stream() {
+        return in;
+    }
+
+    /**
+     * Read the type of the next named tag in a compound
+     *
+     * @return The tag type, or {@link #TAG_END} at the end of the compound
+     * @throws IOException If the stream fails
+     */
+    public int readType() throws IOException {
+        return in.readUnsignedByte();
+    }
+
+    /**
+     * Read the name of the tag whose type was just read
+     *
+     * @return The tag name
+     * @throws IOException If the stream fails
+     */
+    public String readName() throws IOException {
+        return in.readUTF();
+    }
+
+    public byte readByte() throws IOException {
+        return in.readByte();
+    }
+
+    public short readShort() throws IOException {
+        return in.readShort();
+    }
+
+    public int readInt() throws IOException {
+        return in.readInt();
+    }
+
+    public String readString() throws IOException {
+        return in.readUTF();
+    }
+
+    /**
+     * Read the header of a list tag
+     *
+     * @return The element type in the low byte and the length in the upper bits,
+     *         decode with {@link #listType(long)} and {@link #listLength(long)}
+     * @throws IOException If the stream fails
+     */
+    public long readListHeader() throws IOException {
+        int type = in.readUnsignedByte();
+        int length = in.readInt();
+        return ((long) length << 8) | type;
+    }
+
+    public static int listType(long header) {
+        return (int) (header & 0xFF);
+    }
+
+    public static int listLength(long header) {
+        return (int) (header >> 8);
+    }
+
+    /**
+     * Read a numeric tag of any integer type as an int
+     *
+     * @param type The tag type
+     * @return The value
+     * @throws IOException If the stream fails or the tag is not numeric
+     */
+    public int readIntValue(int type) throws IOException {
+        switch (type) {
+            case TAG_BYTE:
+                return in.readByte();
+            case TAG_SHORT:
+                return in.readShort();
+            case TAG_INT:
+                return in.readInt();
+            case TAG_LONG:
+                return (int) in.readLong();
+            default:
+                throw new IOException("Expected a numeric tag but found type " + type);
+        }
+    }
+
+    /**
+     * Skip the payload of a tag
+     *
+     * @param type The tag type
+     * @throws IOException If the stream fails or the type is unknown
+     */
+    public void skip(int type) throws IOException {
+        switch (type) {
+            case TAG_END:
+                return;
+            case TAG_BYTE:
+                in.skipNBytes(1);
+                return;
+            case TAG_SHORT:
+                in.skipNBytes(2);
+                return;
+            case TAG_INT:
+            case TAG_FLOAT:
+                in.skipNBytes(4);
+                return;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                in.skipNBytes(8);
+                return;
+            case TAG_BYTE_ARRAY:
+                in.skipNBytes(in.readInt());
+                return;
+            case TAG_STRING:
+                in.skipNBytes(in.readUnsignedShort());
+                return;
+            case TAG_LIST: {
+                long header = readListHeader();
+                int elementType = listType(header);
+                for (int i = listLength(header); i > 0; i--) {
+                    skip(elementType);
+                }
+                return;
+            }
+            case TAG_COMPOUND: {
+                int child;
+                while ((child = readType()) != TAG_END) {
+                    in.skipNBytes(in.readUnsignedShort());
+                    skip(child);
+                }
+                return;
+            }
+            case TAG_INT_ARRAY:
+                in.skipNBytes(in.readInt() * 4L);
+                return;
+            case TAG_LONG_ARRAY:
+                in.skipNBytes(in.readInt() * 8L);
+                return;
+            default:
+                throw new IOException("Unknown NBT tag type " + type);
+        }
+    }
+}
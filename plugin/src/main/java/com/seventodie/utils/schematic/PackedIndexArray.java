@@ -0,0 +1,80 @@
+package com.seventodie.utils.schematic;
+
+/**
+ * Fixed-size array of small unsigned integers packed into longs.
+ *
+ * Uses the fewest bits that can hold the largest value. Entries never span
+ * two longs, which keeps {@link #get(int)} to one array read and a shift.
+ */
+public class PackedIndexArray {
+
+    private final long[] data;
+    private final int bits;
+    private final int entriesPerLong;
+    private final long mask;
+    private final int size;
+
+    /**
+     * Constructor for PackedIndexArray
+     *
+     * @param size The number of entries
+     * @param maxValue The largest value that will be stored
+     */
+    public PackedIndexArray(int size, int maxValue) {
+        this.size = size;
+        this.bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(maxValue));
+        this.entriesPerLong = 64 / bits;
+        this.mask = (1L << bits) - 1;
+        this.data = new long[(size + entriesPerLong - 1) / entriesPerLong];
+    }
+
+    /**
+     * Get an entry
+     *
+     * @param index The entry index
+     * @return The value
+     */
+    public int get(int index) {
+        int shift = (index % entriesPerLong) * bits;
+        return (int) ((data[index / entriesPerLong] >>> shift) & mask);
+    }
+
+    /**
+     * Set an entry
+     *
+     * @param index The entry index
+     * @param value The value (must fit in the bit width)
+     */
+    public void set(int index, int value) {
+        int cell = index / entriesPerLong;
+        int shift = (index % entriesPerLong) * bits;
+        data[cell] = (data[cell] & ~(mask << shift)) | ((value & mask) << shift);
+    }
+
+    /**
+     * Get the number of entries
+     *
+     * @return The size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the bits used per entry
+     *
+     * @return The bit width
+     */
+    public int getBits() {
+        return bits;
+    }
+
+    /**
+     * Get the approximate memory used by the packed data
+     *
+     * @return The size in bytes
+     */
+    public long getMemoryBytes() {
+        return data.length * 8L;
+    }
+}
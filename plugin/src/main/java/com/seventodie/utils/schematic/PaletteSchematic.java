@@ -0,0 +1,123 @@
+package com.seventodie.utils.schematic;
+
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.structure.StructureRotation;
+
+/**
+ * Schematic stored as a block palette plus a packed palette index per block.
+ *
+ * Blocks are indexed x + z * width + y * width * length, the Sponge layout.
+ * Palette entries may be null for positions that should not be placed
+ * (structure voids and gaps in vanilla structures).
+ */
+public class PaletteSchematic implements Schematic {
+
+    private final String name;
+    private final int width;
+    private final int height;
+    private final int length;
+    private final BlockData[] palette;
+    private final PackedIndexArray blocks;
+
+    /**
+     * Constructor for PaletteSchematic
+     *
+     * @param name The schematic name
+     * @param width The size along X
+     * @param height The size along Y
+     * @param length The size along Z
+     * @param palette The block palette
+     * @param blocks The palette index of every block
+     */
+    public PaletteSchematic(String name, int width, int height, int length, BlockData[] palette, PackedIndexArray blocks) {
+        this.name = name;
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.palette = palette;
+        this.blocks = blocks;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public BlockData getBlockData(int x, int y, int z) {
+        return palette[blocks.get(x + z * width + y * width * length)];
+    }
+
+    /**
+     * Get the block palette
+     *
+     * @return The palette (not copied)
+     */
+    public BlockData[] getPalette() {
+        return palette;
+    }
+
+    /**
+     * Build a copy rotated around the Y axis. Block states (stairs, doors, etc.)
+     * are rotated along with their positions.
+     *
+     * @param rotation The rotation (0-3, clockwise)
+     * @return The rotated schematic, or this schematic for rotation 0
+     */
+    public PaletteSchematic rotate(int rotation) {
+        rotation &= 3;
+        if (rotation == 0) {
+            return this;
+        }
+
+        StructureRotation structureRotation = SchematicRotation.toStructureRotation(rotation);
+        BlockData[] rotatedPalette = new BlockData[palette.length];
+        for (int i = 0; i < palette.length; i++) {
+            if (palette[i] != null) {
+                rotatedPalette[i] = palette[i].clone();
+                rotatedPalette[i].rotate(structureRotation);
+            }
+        }
+
+        boolean swapped = (rotation & 1) == 1;
+        int rotatedWidth = swapped ? length : width;
+        int rotatedLength = swapped ? width : length;
+        PackedIndexArray rotatedBlocks = new PackedIndexArray(blocks.size(), palette.length - 1);
+        int source = 0;
+        for (int y = 0; y < height; y++) {
+            for (int z = 0; z < length; z++) {
+                for (int x = 0; x < width; x++) {
+                    int rx = SchematicRotation.rotateX(x, z, rotation, width, length);
+                    int rz = SchematicRotation.rotateZ(x, z, rotation, width, length);
+                    rotatedBlocks.set(rx + rz * rotatedWidth + y * rotatedWidth * rotatedLength, blocks.get(source++));
+                }
+            }
+        }
+        return new PaletteSchematic(name, rotatedWidth, height, rotatedLength, rotatedPalette, rotatedBlocks);
+    }
+
+    /**
+     * Get the approximate memory used by this schematic
+     *
+     * @return The size in bytes
+     */
+    public long getMemoryBytes() {
+        // Block indices, palette references and a rough allowance per palette entry
+        return blocks.getMemoryBytes() + palette.length * 72L + 64;
+    }
+}
@@ -0,0 +1,545 @@
+package com.seventodie.utils.schematic;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+
+/**
+ * Reads schematic files into a {@link PaletteSchematic}.
+ *
+ * Supports Sponge schematics (.schem, versions 1-3), legacy MCEdit schematics
+ * (.schematic) and vanilla structure files (.nbt), gzip-compressed or not.
+ * The NBT is streamed: only the palette and block arrays are kept, and the
+ * varint block data is decoded straight into a packed index array. Block
+ * entities, entities and biomes are skipped.
+ */
+public final class SchematicReader {
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private static Material[] legacyMaterials;
+
+    private SchematicReader() {
+    }
+
+    /**
+     * Read a schematic file
+     *
+     * @param file The file
+     * @param name The name to give the schematic
+     * @return The schematic
+     * @throws IOException If the file cannot be read or is not a supported schematic
+     */
+    public static PaletteSchematic read(File file, String name) throws IOException {
+        try (DataInputStream in = open(file)) {
+            NbtReader nbt = new NbtReader(in);
+            if (nbt.readType() != NbtReader.TAG_COMPOUND) {
+                throw new IOException("Not an NBT file: " + file.getName());
+            }
+            nbt.readName();
+
+            ParseState state = new ParseState();
+            readCompound(nbt, state, false);
+            return state.build(name);
+        }
+    }
+
+    private static DataInputStream open(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        try {
+            // Accept both compressed and uncompressed NBT
+            in.mark(2);
+            int first = in.read();
+            int second = in.read();
+            in.reset();
+            if (first == 0x1F && second == 0x8B) {
+                in = new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+            }
+            return new DataInputStream(in);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the fields of a compound we care about, skipping the rest
+     *
+     * @param nbt The reader
+     * @param state The parse state
+     * @param inBlocks True inside a Sponge v3 Blocks container
+     */
+    private static void readCompound(NbtReader nbt, ParseState state, boolean inBlocks) throws IOException {
+        int type;
+        while ((type = nbt.readType()) != NbtReader.TAG_END) {
+            String name = nbt.readName();
+            switch (name) {
+                case "Schematic":
+                    if (type == NbtReader.TAG_COMPOUND) {
+                        // Sponge v3 wraps everything in a Schematic compound
+                        readCompound(nbt, state, false);
+                        continue;
+                    }
+                    break;
+                case "Width":
+                    if (type == NbtReader.TAG_SHORT || type == NbtReader.TAG_INT) {
+                        state.width = readDimension(nbt, type);
+                        continue;
+                    }
+                    break;
+                case "Height":
+                    if (type == NbtReader.TAG_SHORT || type == NbtReader.TAG_INT) {
+                        state.height = readDimension(nbt, type);
+                        continue;
+                    }
+                    break;
+                case "Length":
+                    if (type == NbtReader.TAG_SHORT || type == NbtReader.TAG_INT) {
+                        state.length = readDimension(nbt, type);
+                        continue;
+                    }
+                    break;
+                case "Palette":
+                    if (type == NbtReader.TAG_COMPOUND) {
+                        readSpongePalette(nbt, state);
+                        continue;
+                    }
+                    break;
+                case "BlockData":
+                    if (type == NbtReader.TAG_BYTE_ARRAY) {
+                        readVarints(nbt, state);
+                        continue;
+                    }
+                    break;
+                case "Blocks":
+                    if (type == NbtReader.TAG_COMPOUND) {
+                        readCompound(nbt, state, true);
+                        continue;
+                    } else if (type == NbtReader.TAG_BYTE_ARRAY) {
+                        state.legacyIds = readBytes(nbt);
+                        continue;
+                    }
+                    break;
+                case "Data":
+                    if (type == NbtReader.TAG_BYTE_ARRAY) {
+                        if (inBlocks) {
+                            readVarints(nbt, state);
+                        } else {
+                            state.legacyData = readBytes(nbt);
+                        }
+                        continue;
+                    }
+                    break;
+                case "AddBlocks":
+                    if (type == NbtReader.TAG_BYTE_ARRAY) {
+                        state.legacyAdd = readBytes(nbt);
+                        continue;
+                    }
+                    break;
+                case "size":
+                    if (type == NbtReader.TAG_LIST) {
+                        readStructureSize(nbt, state);
+                        continue;
+                    }
+                    break;
+                case "palette":
+                    if (type == NbtReader.TAG_LIST) {
+                        state.structurePalette = readStructurePalette(nbt);
+                        continue;
+                    }
+                    break;
+                case "palettes":
+                    if (type == NbtReader.TAG_LIST) {
+                        readStructurePalettes(nbt, state);
+                        continue;
+                    }
+                    break;
+                case "blocks":
+                    if (type == NbtReader.TAG_LIST) {
+                        readStructureBlocks(nbt, state);
+                        continue;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            nbt.skip(type);
+        }
+    }
+
+    private static int readDimension(NbtReader nbt, int type) throws IOException {
+        // Sponge stores dimensions as unsigned shorts
+        return type == NbtReader.TAG_SHORT ? nbt.readShort() & 0xFFFF : nbt.readInt();
+    }
+
+    private static byte[] readBytes(NbtReader nbt) throws IOException {
+        byte[] bytes = new byte[nbt.readInt()];
+        nbt.stream().readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Read a Sponge palette (block state string to palette ID)
+     */
+    private static void readSpongePalette(NbtReader nbt, ParseState state) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        int type;
+        while ((type = nbt.readType()) != NbtReader.TAG_END) {
+            names.add(nbt.readName());
+            ids.add(nbt.readIntValue(type));
+        }
+
+        int max = -1;
+        for (int id : ids) {
+            max = Math.max(max, id);
+        }
+        String[] palette = new String[max + 1];
+        for (int i = 0; i < names.size(); i++) {
+            palette[ids.get(i)] = names.get(i);
+        }
+        state.spongePalette = palette;
+    }
+
+    /**
+     * Decode a Sponge varint block array. The byte array length bounds the
+     * block count, so the indices are decoded in one pass through a small buffer.
+     */
+    private static void readVarints(NbtReader nbt, ParseState state) throws IOException {
+        DataInputStream in = nbt.stream();
+        int remaining = in.readInt();
+        char[] blocks = new char[remaining];
+        byte[] buffer = new byte[Math.min(remaining, 8192)];
+        int count = 0;
+        int value = 0;
+        int shift = 0;
+
+        while (remaining > 0) {
+            int read = Math.min(remaining, buffer.length);
+            in.readFully(buffer, 0, read);
+            remaining -= read;
+            for (int i = 0; i < read; i++) {
+                int b = buffer[i];
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) != 0) {
+                    shift += 7;
+                    if (shift > 14) {
+                        throw new IOException("Palette index too large in block data");
+                    }
+                    continue;
+                }
+                if (value > 0xFFFF) {
+                    throw new IOException("Palette index too large in block data");
+                }
+                blocks[count++] = (char) value;
+                value = 0;
+                shift = 0;
+            }
+        }
+
+        state.spongeBlocks = blocks;
+        state.spongeBlockCount = count;
+    }
+
+    private static void readStructureSize(NbtReader nbt, ParseState state) throws IOException {
+        long header = nbt.readListHeader();
+        int type = NbtReader.listType(header);
+        int length = NbtReader.listLength(header);
+        int[] size = new int[3];
+        for (int i = 0; i < length; i++) {
+            int value = nbt.readIntValue(type);
+            if (i < 3) {
+                size[i] = value;
+            }
+        }
+        state.width = size[0];
+        state.height = size[1];
+        state.length = size[2];
+        state.structure = true;
+    }
+
+    private static String[] readStructurePalette(NbtReader nbt) throws IOException {
+        long header = nbt.readListHeader();
+        int type = NbtReader.listType(header);
+        int length = NbtReader.listLength(header);
+        String[] palette = new String[length];
+        for (int i = 0; i < length; i++) {
+            if (type == NbtReader.TAG_COMPOUND) {
+                palette[i] = readBlockState(nbt);
+            } else {
+                nbt.skip(type);
+            }
+        }
+        return palette;
+    }
+
+    private static void readStructurePalettes(NbtReader nbt, ParseState state) throws IOException {
+        // Structures with random variants store several palettes; use the first
+        long header = nbt.readListHeader();
+        int type = NbtReader.listType(header);
+        int length = NbtReader.listLength(header);
+        for (int i = 0; i < length; i++) {
+            if (i == 0 && type == NbtReader.TAG_LIST && state.structurePalette == null) {
+                state.structurePalette = readStructurePalette(nbt);
+            } else {
+                nbt.skip(type);
+            }
+        }
+    }
+
+    /**
+     * Read a vanilla block state compound as a block state string
+     */
+    private static String readBlockState(NbtReader nbt) throws IOException {
+        String blockName = "minecraft:air";
+        StringBuilder properties = null;
+        int type;
+        while ((type = nbt.readType()) != NbtReader.TAG_END) {
+            String name = nbt.readName();
+            if (name.equals("Name") && type == NbtReader.TAG_STRING) {
+                blockName = nbt.readString();
+            } else if (name.equals("Properties") && type == NbtReader.TAG_COMPOUND) {
+                properties = new StringBuilder();
+                int propertyType;
+                while ((propertyType = nbt.readType()) != NbtReader.TAG_END) {
+                    String key = nbt.readName();
+                    if (propertyType != NbtReader.TAG_STRING) {
+                        nbt.skip(propertyType);
+                        continue;
+                    }
+                    if (properties.length() > 0) {
+                        properties.append(',');
+                    }
+                    properties.append(key).append('=').append(nbt.readString());
+                }
+            } else {
+                nbt.skip(type);
+            }
+        }
+        return properties == null || properties.length() == 0 ? blockName : blockName + "[" + properties + "]";
+    }
+
+    private static void readStructureBlocks(NbtReader nbt, ParseState state) throws IOException {
+        long header = nbt.readListHeader();
+        int type = NbtReader.listType(header);
+        int length = NbtReader.listLength(header);
+        int[] blocks = new int[length * 4];
+        int count = 0;
+
+        for (int i = 0; i < length; i++) {
+            if (type != NbtReader.TAG_COMPOUND) {
+                nbt.skip(type);
+                continue;
+            }
+            int stateId = -1;
+            int x = 0;
+            int y = 0;
+            int z = 0;
+            int fieldType;
+            while ((fieldType = nbt.readType()) != NbtReader.TAG_END) {
+                String name = nbt.readName();
+                if (name.equals("state")) {
+                    stateId = nbt.readIntValue(fieldType);
+                } else if (name.equals("pos") && fieldType == NbtReader.TAG_LIST) {
+                    long posHeader = nbt.readListHeader();
+                    int posType = NbtReader.listType(posHeader);
+                    int posLength = NbtReader.listLength(posHeader);
+                    for (int j = 0; j < posLength; j++) {
+                        int value = nbt.readIntValue(posType);
+                        if (j == 0) {
+                            x = value;
+                        } else if (j == 1) {
+                            y = value;
+                        } else if (j == 2) {
+                            z = value;
+                        }
+                    }
+                } else {
+                    nbt.skip(fieldType);
+                }
+            }
+            if (stateId >= 0) {
+                blocks[count++] = x;
+                blocks[count++] = y;
+                blocks[count++] = z;
+                blocks[count++] = stateId;
+            }
+        }
+
+        state.structureBlocks = blocks;
+        state.structureBlockCount = count / 4;
+        state.structure = true;
+    }
+
+    /**
+     * Parse a block state string, falling back to the default state if the
+     * properties are not valid on this server version
+     *
+     * @param blockState The block state string
+     * @return The block data, or null for structure voids and unknown blocks
+     */
+    private static BlockData parseBlockData(String blockState) {
+        if (blockState == null || blockState.equals("minecraft:structure_void")) {
+            return null;
+        }
+        try {
+            return Bukkit.createBlockData(blockState);
+        } catch (IllegalArgumentException e) {
+            int bracket = blockState.indexOf('[');
+            if (bracket > 0) {
+                try {
+                    return Bukkit.createBlockData(blockState.substring(0, bracket));
+                } catch (IllegalArgumentException ignored) {
+                    // Unknown block, skip it
+                }
+            }
+            return null;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static synchronized Material legacyMaterial(int id) {
+        if (legacyMaterials == null) {
+            Material[] byId = new Material[4096];
+            for (Material material : Material.values()) {
+                if (material.isLegacy() && material.getId() >= 0 && material.getId() < byId.length) {
+                    byId[material.getId()] = material;
+                }
+            }
+            legacyMaterials = byId;
+        }
+        return id < legacyMaterials.length ? legacyMaterials[id] : null;
+    }
+
+    /**
+     * Fields collected while streaming a schematic
+     */
+    private static class ParseState {
+        private int width = -1;
+        private int height = -1;
+        private int length = -1;
+
+        // Sponge
+        private String[] spongePalette;
+        private char[] spongeBlocks;
+        private int spongeBlockCount;
+
+        // Legacy MCEdit
+        private byte[] legacyIds;
+        private byte[] legacyData;
+        private byte[] legacyAdd;
+
+        // Vanilla structure
+        private boolean structure;
+        private String[] structurePalette;
+        private int[] structureBlocks;
+        private int structureBlockCount;
+
+        PaletteSchematic build(String name) throws IOException {
+            if (width <= 0 || height <= 0 || length <= 0) {
+                throw new IOException("Schematic has no dimensions");
+            }
+            int volume = width * height * length;
+
+            if (spongeBlocks != null && spongePalette != null) {
+                return buildSponge(name, volume);
+            } else if (legacyIds != null) {
+                return buildLegacy(name, volume);
+            } else if (structure && structurePalette != null) {
+                return buildStructure(name, volume);
+            }
+            throw new IOException("Unrecognised schematic format");
+        }
+
+        private PaletteSchematic buildSponge(String name, int volume) throws IOException {
+            if (spongeBlockCount < volume) {
+                throw new IOException("Block data is shorter than the schematic volume");
+            }
+            BlockData[] palette = new BlockData[spongePalette.length];
+            for (int i = 0; i < palette.length; i++) {
+                palette[i] = parseBlockData(spongePalette[i]);
+            }
+
+            PackedIndexArray blocks = new PackedIndexArray(volume, palette.length - 1);
+            for (int i = 0; i < volume; i++) {
+                int index = spongeBlocks[i];
+                if (index >= palette.length) {
+                    throw new IOException("Block data references missing palette entry " + index);
+                }
+                blocks.set(i, index);
+            }
+            return new PaletteSchematic(name, width, height, length, palette, blocks);
+        }
+
+        @SuppressWarnings("deprecation")
+        private PaletteSchematic buildLegacy(String name, int volume) throws IOException {
+            if (legacyIds.length < volume) {
+                throw new IOException("Block data is shorter than the schematic volume");
+            }
+
+            // Map each (id, data) pair to a palette entry the first time it is seen
+            int[] paletteIndex = new int[1 << 16];
+            Arrays.fill(paletteIndex, -1);
+            List<BlockData> palette = new ArrayList<>();
+            char[] indices = new char[volume];
+
+            for (int i = 0; i < volume; i++) {
+                int id = legacyIds[i] & 0xFF;
+                if (legacyAdd != null && (i >> 1) < legacyAdd.length) {
+                    int add = legacyAdd[i >> 1];
+                    id |= (i & 1) == 0 ? (add & 0x0F) << 8 : (add & 0xF0) << 4;
+                }
+                int data = legacyData != null && i < legacyData.length ? legacyData[i] & 0x0F : 0;
+                int key = (id << 4) | data;
+
+                int index = paletteIndex[key];
+                if (index < 0) {
+                    Material material = legacyMaterial(id);
+                    palette.add(material == null ? null : Bukkit.getUnsafe().fromLegacy(material, (byte) data));
+                    index = palette.size() - 1;
+                    paletteIndex[key] = index;
+                }
+                indices[i] = (char) index;
+            }
+
+            PackedIndexArray blocks = new PackedIndexArray(volume, palette.size() - 1);
+            for (int i = 0; i < volume; i++) {
+                blocks.set(i, indices[i]);
+            }
+            return new PaletteSchematic(name, width, height, length, palette.toArray(new BlockData[0]), blocks);
+        }
+
+        private PaletteSchematic buildStructure(String name, int volume) {
+            // Index 0 is left null so positions without a block are not placed
+            BlockData[] palette = new BlockData[structurePalette.length + 1];
+            for (int i = 0; i < structurePalette.length; i++) {
+                palette[i + 1] = parseBlockData(structurePalette[i]);
+            }
+
+            PackedIndexArray blocks = new PackedIndexArray(volume, palette.length - 1);
+            for (int i = 0; i < structureBlockCount; i++) {
+                int x = structureBlocks[i * 4];
+                int y = structureBlocks[i * 4 + 1];
+                int z = structureBlocks[i * 4 + 2];
+                int state = structureBlocks[i * 4 + 3];
+                if (x < 0 || y < 0 || z < 0 || x >= width || y >= height || z >= length
+                        || state >= structurePalette.length) {
+                    continue;
+                }
+                blocks.set(x + z * width + y * width * length, state + 1);
+            }
+            return new PaletteSchematic(name, width, height, length, palette, blocks);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.seventodie.utils.schematic;
+
+import org.bukkit.block.structure.StructureRotation;
+
+/**
+ * Clockwise quarter-turn rotations around the Y axis.
+ *
+ * Positions are rotated within the schematic footprint, so a rotated
+ * position stays in 0..width-1 / 0..length-1 of the rotated schematic.
+ */
+public final class SchematicRotation {
+
+    private SchematicRotation() {
+    }
+
+    /**
+     * Get the rotated X of a position
+     *
+     * @param x The x position
+     * @param z The z position
+     * @param rotation The rotation (0-3, clockwise)
+     * @param width The unrotated width
+     * @param length The unrotated length
+     * @return The rotated x position
+     */
+    public static int rotateX(int x, int z, int rotation, int width, int length) {
+        switch (rotation & 3) {
+            case 1:
+                return length - 1 - z;
+            case 2:
+                return width - 1 - x;
+            case 3:
+                return z;
+            default:
+                return x;
+        }
+    }
+
+    /**
+     * Get the rotated Z of a position
+     *
+     * @param x The x position
+     * @param z The z position
+     * @param rotation The rotation (0-3, clockwise)
+     * @param width The unrotated width
+     * @param length The unrotated length
+     * @return The rotated z position
+     */
+    public static int rotateZ(int x, int z, int rotation, int width, int length) {
+        switch (rotation & 3) {
+            case 1:
+                return x;
+            case 2:
+                return length - 1 - z;
+            case 3:
+                return width - 1 - x;
+            default:
+                return z;
+        }
+    }
+
+    /**
+     * Get the matching block state rotation
+     *
+     * @param rotation The rotation (0-3, clockwise)
+     * @return The structure rotation
+     */
+    public static StructureRotation toStructureRotation(int rotation) {
+        switch (rotation & 3) {
+            case 1:
+                return StructureRotation.CLOCKWISE_90;
+            case 2:
+                return StructureRotation.CLOCKWISE_180;
+            case 3:
+                return StructureRotation.COUNTERCLOCKWISE_90;
+            default:
+                return StructureRotation.NONE;
+        }
+    }
+}
@@ -4,22 +4,23 @@ import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
+import org.bukkit.RegionAccessor;
 import org.bukkit.World;
 import org.bukkit.block.Biome;
 import org.bukkit.block.Block;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.Listener;
-import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.generator.WorldInfo;
 
 import com.seventodie.SevenToDiePlugin;
 
 /**
  * Maps vanilla Minecraft biomes to 7 Days to Die biome equivalents
  * and modifies block palettes accordingly.
+ * 
+ * Palettes are applied by {@link WorldPopulator} during generation, so the
+ * mappings must not change after construction.
  */
-public class BiomeMapper implements Listener {
+public class BiomeMapper {
     
     private final SevenToDiePlugin plugin;
     
@@ -70,9 +71,6 @@ public class BiomeMapper implements Listener {
         
         // Initialize block palettes
         initBiomePalettes();
-        
-        // Register events
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
     }
     
     /**
@@ -209,50 +207,49 @@ public class BiomeMapper implements Listener {
     }
     
     /**
-     * Handle chunk load to apply biome-specific blocks
+     * Apply biome-specific blocks to a loaded chunk
+     * 
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
      */
-    @EventHandler
-    public void onChunkLoad(ChunkLoadEvent event) {
-        if (event.isNewChunk()) {
-            // This is a newly generated chunk, schedule biome application
-            Bukkit.getScheduler().runTaskLater(plugin, () -> {
-                applyBiomeToChunk(event.getChunk().getWorld(), 
-                                 event.getChunk().getX(), 
-                                 event.getChunk().getZ());
-            }, 10L); // Slight delay to ensure chunk is fully generated
-        }
+    public void applyBiomeToChunk(World world, int chunkX, int chunkZ) {
+        applyBiomeToChunk(world, world, chunkX, chunkZ);
     }
     
     /**
-     * Apply biome-specific blocks to a chunk
+     * Apply biome-specific blocks to a chunk through a region accessor. Safe to
+     * call from world generation threads with a generation region.
      * 
-     * @param world The world
+     * @param worldInfo The world info
+     * @param region The region to modify
      * @param chunkX The chunk X coordinate
      * @param chunkZ The chunk Z coordinate
      */
-    public void applyBiomeToChunk(World world, int chunkX, int chunkZ) {
+    public void applyBiomeToChunk(WorldInfo worldInfo, RegionAccessor region, int chunkX, int chunkZ) {
         int startX = chunkX * 16;
         int startZ = chunkZ * 16;
+        int minY = worldInfo.getMinHeight();
         
         for (int x = 0; x < 16; x++) {
             for (int z = 0; z < 16; z++) {
-                Biome biome = world.getBiome(startX + x, 0, startZ + z);
+                // Find the ground block at this position
+                int maxY = plugin.getSurfaceHeightService().getSurfaceY(worldInfo, region, startX + x, startZ + z) - 1;
+                
+                Biome biome = region.getBiome(startX + x, maxY, startZ + z);
                 SevenBiome sevenBiome = getSevenBiome(biome);
                 BiomePalette palette = biomePalettes.get(sevenBiome);
                 
-                // Find the highest block at this position
-                int maxY = world.getHighestBlockYAt(startX + x, startZ + z);
-                
                 // Apply to top blocks
-                for (int y = maxY; y > maxY - 5; y--) {
-                    Block block = world.getBlockAt(startX + x, y, startZ + z);
+                for (int y = maxY; y > maxY - 5 && y >= minY; y--) {
+                    Material type = region.getType(startX + x, y, startZ + z);
                     
-                    if (block.getType() == Material.GRASS_BLOCK) {
-                        block.setType(palette.grassBlock);
-                    } else if (block.getType() == Material.DIRT) {
-                        block.setType(palette.surfaceBlock);
-                    } else if (block.getType() == Material.STONE) {
-                        block.setType(palette.subsurfaceBlock);
+                    if (type == Material.GRASS_BLOCK) {
+                        region.setType(startX + x, y, startZ + z, palette.grassBlock);
+                    } else if (type == Material.DIRT) {
+                        region.setType(startX + x, y, startZ + z, palette.surfaceBlock);
+                    } else if (type == Material.STONE) {
+                        region.setType(startX + x, y, startZ + z, palette.subsurfaceBlock);
                     }
                 }
             }
@@ -3,12 +3,13 @@ package com.seventodie.worldgen;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.RegionAccessor;
 import org.bukkit.World;
-import org.bukkit.block.Block;
-import org.bukkit.generator.ChunkGenerator;
+import org.bukkit.generator.LimitedRegion;
 import org.bukkit.generator.WorldInfo;
 
 import com.seventodie.SevenToDiePlugin;
@@ -20,270 +21,253 @@ import com.seventodie.SevenToDiePlugin;
 public class RoadGenerator {
 
     private final SevenToDiePlugin plugin;
-    private final Random random;
 
     // Road generation parameters
     private static final int MAIN_ROAD_SPACING = 512; // Distance between main roads
     private static final int SECONDARY_ROAD_SPACING = 128; // Distance between secondary roads
     private static final int ROAD_WIDTH_MAIN = 5; // Width of main roads
     private static final int ROAD_WIDTH_SECONDARY = 3; // Width of secondary roads
+    private static final int STRUCTURE_RADIUS = 64; // Radius around main nodes for structures
 
     // Materials
     private static final Material ROAD_MATERIAL = Material.BLACK_CONCRETE;
     private static final Material ROAD_CURB_MATERIAL = Material.GRAY_CONCRETE;
 
-    // Road nodes for connectivity
-    private List<RoadNode> roadNodes = new ArrayList<>();
-
     /**
-     * Represents a node in the road network
+     * Represents a node (intersection) in the road network.
+     * 
+     * Roads run along fixed grid lines, so a node and its connections are a
+     * function of its coordinates only and never need to be stored.
      */
-    private class RoadNode {
-        int x, z;
-        List<RoadNode> connections = new ArrayList<>();
-        boolean isMainNode;
+    public static final class RoadNode {
+        private final int x;
+        private final int z;
+        private final boolean mainNode;
 
-        public RoadNode(int x, int z, boolean isMainNode) {
+        private RoadNode(int x, int z) {
             this.x = x;
             this.z = z;
-            this.isMainNode = isMainNode;
+            this.mainNode = isRoadLine(x, MAIN_ROAD_SPACING) && isRoadLine(z, MAIN_ROAD_SPACING);
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getZ() {
+            return z;
+        }
+
+        public boolean isMainNode() {
+            return mainNode;
+        }
+
+        /**
+         * Get the adjacent nodes along the roads crossing at this node
+         * 
+         * @return The four neighbouring nodes
+         */
+        public List<RoadNode> getConnections() {
+            List<RoadNode> connections = new ArrayList<>(4);
+            connections.add(new RoadNode(nextRoadLine(x), z));
+            connections.add(new RoadNode(previousRoadLine(x), z));
+            connections.add(new RoadNode(x, nextRoadLine(z)));
+            connections.add(new RoadNode(x, previousRoadLine(z)));
+            return connections;
         }
     }
 
     public RoadGenerator(SevenToDiePlugin plugin) {
         this.plugin = plugin;
-        this.random = new Random();
     }
 
     /**
-     * Generates roads for a chunk that's being generated
+     * Generates roads for a chunk that's being generated. The layout depends only
+     * on the world seed and chunk coordinates, so chunks can be generated in any order.
      * 
-     * @param world The world
+     * @param worldInfo The world info
+     * @param region The region to write the roads to
      * @param chunkX The chunk X coordinate
      * @param chunkZ The chunk Z coordinate
      */
-    public void generateRoadsInChunk(World world, int chunkX, int chunkZ) {
+    public void generateRoadsInChunk(WorldInfo worldInfo, RegionAccessor region, int chunkX, int chunkZ) {
         // Convert to block coordinates
         int blockX = chunkX * 16;
         int blockZ = chunkZ * 16;
 
-        // Check if this chunk should contain main roads
+        // A road line crossing the chunk's X range runs along the Z axis and vice versa
         boolean hasMainRoadX = isNearMainRoad(blockX, MAIN_ROAD_SPACING);
         boolean hasMainRoadZ = isNearMainRoad(blockZ, MAIN_ROAD_SPACING);
 
-        // Check if this chunk should contain secondary roads
         boolean hasSecondaryRoadX = isNearMainRoad(blockX, SECONDARY_ROAD_SPACING);
         boolean hasSecondaryRoadZ = isNearMainRoad(blockZ, SECONDARY_ROAD_SPACING);
 
         // Generate the roads if needed
         if (hasMainRoadX || hasMainRoadZ || hasSecondaryRoadX || hasSecondaryRoadZ) {
             // Find the highest point in the chunk for road height
-            int roadHeight = findAverageGroundHeight(world, blockX, blockZ);
-
-            // Create a road node if this is an intersection
-            if ((hasMainRoadX || hasSecondaryRoadX) && (hasMainRoadZ || hasSecondaryRoadZ)) {
-                // This is a road intersection - add to road nodes
-                boolean isMainNode = hasMainRoadX && hasMainRoadZ;
-                createRoadNode(world, blockX + 8, roadHeight, blockZ + 8, isMainNode);
+            int roadHeight = findAverageGroundHeight(worldInfo, region, blockX, blockZ);
+
+            // Main intersections get structures around them, placed on the main
+            // thread once generation has finished
+            if (hasMainRoadX && hasMainRoadZ) {
+                int nodeX = blockX + 8;
+                int nodeZ = blockZ + 8;
+                Random nodeRandom = nodeRandom(worldInfo.getSeed(), nodeX, nodeZ);
+                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    World world = plugin.getServer().getWorld(worldInfo.getUID());
+                    if (world != null) {
+                        plugin.getStructureManager().scheduleStructuresAroundNode(world, nodeX, nodeZ,
+                                STRUCTURE_RADIUS, nodeRandom);
+                    }
+                });
             }
 
             // Generate the actual roads
             if (hasMainRoadX) {
-                generateRoadSegment(world, blockX, blockZ, true, true, roadHeight);
+                generateRoadSegment(region, blockX, blockZ, false, true, roadHeight);
             } else if (hasSecondaryRoadX) {
-                generateRoadSegment(world, blockX, blockZ, true, false, roadHeight);
+                generateRoadSegment(region, blockX, blockZ, false, false, roadHeight);
             }
 
             if (hasMainRoadZ) {
-                generateRoadSegment(world, blockX, blockZ, false, true, roadHeight);
+                generateRoadSegment(region, blockX, blockZ, true, true, roadHeight);
             } else if (hasSecondaryRoadZ) {
-                generateRoadSegment(world, blockX, blockZ, false, false, roadHeight);
+                generateRoadSegment(region, blockX, blockZ, true, false, roadHeight);
             }
         }
     }
 
     /**
-     * Create a road node at the specified coordinates
+     * Create the random source for a road node. Seeded from the world seed and
+     * node position so every node gets the same result regardless of generation order.
      * 
-     * @param world The world
-     * @param x X coordinate
-     * @param y Y coordinate
-     * @param z Z coordinate
-     * @param isMainNode Whether this is a main road node
+     * @param worldSeed The world seed
+     * @param x The node X coordinate
+     * @param z The node Z coordinate
+     * @return A random seeded for the node
      */
-    private void createRoadNode(World world, int x, int y, int z, boolean isMainNode) {
-        RoadNode node = new RoadNode(x, z, isMainNode);
-        roadNodes.add(node);
-
-        // Connect to nearby nodes
-        connectToNearbyNodes(node);
-
-        // If it's a main node, inform the structure manager to place structures around it
-        if (isMainNode) {
-            plugin.getStructureManager().scheduleStructuresAroundNode(world, x, y, z);
-        }
-    }
-
-    /**
-     * Connect a road node to nearby existing nodes
-     * 
-     * @param node The node to connect
-     */
-    private void connectToNearbyNodes(RoadNode node) {
-        // Find nodes that are aligned on the same road
-        for (RoadNode existingNode : roadNodes) {
-            if (existingNode == node) continue;
-
-            // Check if nodes are on the same X or Z line (road alignment)
-            if (existingNode.x == node.x || existingNode.z == node.z) {
-                // Check distance - connect if they're close enough
-                double distance = Math.sqrt(Math.pow(existingNode.x - node.x, 2) + 
-                                           Math.pow(existingNode.z - node.z, 2));
-
-                if (distance < MAIN_ROAD_SPACING * 1.5) {
-                    node.connections.add(existingNode);
-                    existingNode.connections.add(node);
-                }
-            }
-        }
+    private static Random nodeRandom(long worldSeed, int x, int z) {
+        return new Random(worldSeed ^ (x * 341873128712L) ^ (z * 132897987541L));
     }
 
     /**
      * Generates a segment of road in a chunk
      * 
-     * @param world The world
+     * @param region The region to write to
      * @param blockX The starting X coordinate
      * @param blockZ The starting Z coordinate
      * @param isXAxis True if the road runs along the X axis
      * @param isMainRoad True if this is a main road
      * @param roadHeight The Y level for the road
      */
-    private static final int BATCH_SIZE = 64;
-    
-    private void generateRoadSegment(World world, int blockX, int blockZ, boolean isXAxis, boolean isMainRoad, int roadHeight) {
+    private void generateRoadSegment(RegionAccessor region, int blockX, int blockZ, boolean isXAxis, boolean isMainRoad, int roadHeight) {
         int roadWidth = isMainRoad ? ROAD_WIDTH_MAIN : ROAD_WIDTH_SECONDARY;
 
         // Pre-calculate coordinates and materials
         int roadStart = isXAxis ? (blockZ + 8 - roadWidth / 2) : (blockX + 8 - roadWidth / 2);
         int roadEnd = roadStart + roadWidth;
 
-        // Batch block changes for better performance
-        List<Block> roadBlocks = new ArrayList<>();
-        List<Block> curbBlocks = new ArrayList<>();
-        List<Block> supportBlocks = new ArrayList<>();
-
-        // Generate coordinates
-        if (isXAxis) {
-            for (int x = blockX; x < blockX + 16; x++) {
-                for (int z = roadStart; z < roadEnd; z++) {
-                    Block block = world.getBlockAt(x, roadHeight, z);
-                    if (z == roadStart || z == roadEnd - 1) {
-                        curbBlocks.add(block);
-                    } else {
-                        roadBlocks.add(block);
-                    }
-                    // Add support block
-                    Block support = world.getBlockAt(x, roadHeight - 1, z);
-                    if (support.getType() == Material.AIR || 
-                        support.getType() == Material.WATER ||
-                        support.getType().isItem()) {
-                        supportBlocks.add(support);
-                    }
-                }
-            }
-        } else {
-            for (int z = blockZ; z < blockZ + 16; z++) {
-                for (int x = roadStart; x < roadEnd; x++) {
-                    Block block = world.getBlockAt(x, roadHeight, z);
-                    if (x == roadStart || x == roadEnd - 1) {
-                        curbBlocks.add(block);
-                    } else {
-                        roadBlocks.add(block);
-                    }
-                    // Add support block
-                    Block support = world.getBlockAt(x, roadHeight - 1, z);
-                    if (support.getType() == Material.AIR || 
-                        support.getType() == Material.WATER ||
-                        support.getType().isItem()) {
-                        supportBlocks.add(support);
-                    }
+        for (int along = 0; along < 16; along++) {
+            for (int across = roadStart; across < roadEnd; across++) {
+                int x = isXAxis ? blockX + along : across;
+                int z = isXAxis ? across : blockZ + along;
+                boolean isCurb = across == roadStart || across == roadEnd - 1;
+                region.setType(x, roadHeight, z, isCurb ? ROAD_CURB_MATERIAL : ROAD_MATERIAL);
+
+                // Add support block
+                Material support = region.getType(x, roadHeight - 1, z);
+                if (support == Material.AIR || 
+                    support == Material.WATER ||
+                    support.isItem()) {
+                    region.setType(x, roadHeight - 1, z, Material.STONE);
                 }
             }
         }
+    }
 
-        // Batch apply changes
-        roadBlocks.forEach(block -> block.setType(ROAD_MATERIAL, false));
-        curbBlocks.forEach(block -> block.setType(ROAD_CURB_MATERIAL, false));
-        supportBlocks.forEach(block -> block.setType(Material.STONE, false));
+    /**
+     * Checks if a coordinate is near a main road
+     * 
+     * @param coord The coordinate to check
+     * @param spacing The road spacing
+     * @return True if the coordinate is near a main road
+     */
+    private static boolean isNearMainRoad(int coord, int spacing) {
+        // Calculate distance to nearest road axis
+        int distToRoad = Math.abs(Math.floorMod(coord, spacing) - (spacing / 2));
+        return distToRoad < 8; // Check if within 8 blocks of the road center
+    }
 
-        // Update physics once for the entire area
-        if (!roadBlocks.isEmpty()) {
-            Block first = roadBlocks.get(0);
-            first.getChunk().load(); // This loads the chunk
-        }
+    /**
+     * Check if a coordinate is the center line of a road
+     * 
+     * @param coord The coordinate
+     * @param spacing The road spacing
+     * @return True if a road is centered on the coordinate
+     */
+    private static boolean isRoadLine(int coord, int spacing) {
+        return Math.floorMod(coord - 8, spacing) == spacing / 2;
     }
 
     /**
-     * Places a road block at the specified location
+     * Get the nearest road center line of one spacing
      * 
-     * @param world The world
-     * @param x X coordinate
-     * @param y Y coordinate
-     * @param z Z coordinate
-     * @param isCurb Whether this block is a curb
+     * @param coord The coordinate
+     * @param spacing The road spacing
+     * @return The nearest center line coordinate
      */
-    private void placeRoadBlock(World world, int x, int y, int z, boolean isCurb) {
-        try {
-            // Queue block changes for batch processing
-            Block block = world.getBlockAt(x, y, z);
-            block.setType(isCurb ? ROAD_CURB_MATERIAL : ROAD_MATERIAL, false);
-
-            // Batch update physics once per chunk
-            if (x % 16 == 0 && z % 16 == 0) {
-                world.getChunkAt(x >> 4, z >> 4).setForceLoaded(true);
-            }
-        } catch (Exception e) {
-            plugin.getLogger().warning("Failed to place road block at " + x + "," + y + "," + z + ": " + e.getMessage());
-        }
+    private static int nearestRoadLine(int coord, int spacing) {
+        int offset = spacing / 2 + 8;
+        return Math.floorDiv(coord - offset + spacing / 2, spacing) * spacing + offset;
+    }
 
-        // Add support blocks below if needed
-        Block supportBlock = world.getBlockAt(x, y - 1, z);
-        if (supportBlock.getType().equals(Material.AIR) || 
-            supportBlock.getType().equals(Material.WATER) ||
-            supportBlock.getType().isItem()) {
-            supportBlock.setType(Material.STONE);
-        }
+    /**
+     * Get the first road center line of any spacing after a coordinate
+     * 
+     * @param coord The coordinate
+     * @return The next center line coordinate
+     */
+    private static int nextRoadLine(int coord) {
+        return Math.min(lineAfter(coord, MAIN_ROAD_SPACING), lineAfter(coord, SECONDARY_ROAD_SPACING));
     }
 
     /**
-     * Checks if a coordinate is near a main road
+     * Get the last road center line of any spacing before a coordinate
      * 
-     * @param coord The coordinate to check
-     * @param spacing The road spacing
-     * @return True if the coordinate is near a main road
+     * @param coord The coordinate
+     * @return The previous center line coordinate
      */
-    private boolean isNearMainRoad(int coord, int spacing) {
-        // Calculate distance to nearest road axis
-        int distToRoad = Math.abs(coord % spacing - (spacing / 2));
-        return distToRoad < 8; // Check if within 8 blocks of the road center
+    private static int previousRoadLine(int coord) {
+        return Math.max(lineBefore(coord, MAIN_ROAD_SPACING), lineBefore(coord, SECONDARY_ROAD_SPACING));
+    }
+
+    private static int lineAfter(int coord, int spacing) {
+        int offset = spacing / 2 + 8;
+        return Math.floorDiv(coord - offset, spacing) * spacing + offset + spacing;
+    }
+
+    private static int lineBefore(int coord, int spacing) {
+        int offset = spacing / 2 + 8;
+        return Math.floorDiv(coord - offset - 1, spacing) * spacing + offset;
     }
 
     /**
      * Find the average ground height in a chunk for road placement
      * 
-     * @param world The world
+     * @param worldInfo The world info
+     * @param region The region to sample
      * @param blockX The chunk's X coordinate
      * @param blockZ The chunk's Z coordinate
      * @return The average height for road placement
      */
-    private int findAverageGroundHeight(World world, int blockX, int blockZ) {
+    private int findAverageGroundHeight(WorldInfo worldInfo, RegionAccessor region, int blockX, int blockZ) {
         int totalHeight = 0;
         int sampleCount = 0;
 
         // Sample several points in the chunk
         for (int x = 0; x < 16; x += 4) {
             for (int z = 0; z < 16; z += 4) {
-                int height = getHighestBlockYAt(world, blockX + x, blockZ + z);
+                int height = plugin.getSurfaceHeightService().getSurfaceY(worldInfo, region, blockX + x, blockZ + z);
                 totalHeight += height;
                 sampleCount++;
             }
@@ -294,50 +278,35 @@ public class RoadGenerator {
     }
 
     /**
-     * Get the highest non-air block at a position
+     * Gets the road nodes within a square area for other systems to use
      * 
      * @param world The world
-     * @param x X coordinate
-     * @param z Z coordinate
-     * @return The Y coordinate of the highest block
+     * @param centerX The center X coordinate
+     * @param centerZ The center Z coordinate
+     * @param radius The half-width of the area
+     * @return A future with the locations of the road nodes in the area,
+     *         completed on the main thread once their chunks are loaded
      */
-    private int getHighestBlockYAt(World world, int x, int z) {
-        for (int y = world.getMaxHeight() - 1; y >= 0; y--) {
-            Block block = world.getBlockAt(x, y, z);
-            Material type = block.getType();
-            if (!type.equals(Material.AIR) && 
-                !type.equals(Material.WATER) &&
-                !type.equals(Material.LAVA) &&
-                !type.equals(Material.OAK_LEAVES) &&
-                !type.equals(Material.BIRCH_LEAVES) &&
-                !type.equals(Material.SPRUCE_LEAVES) &&
-                !type.equals(Material.DARK_OAK_LEAVES) &&
-                !type.equals(Material.ACACIA_LEAVES) &&
-                !type.equals(Material.JUNGLE_LEAVES) &&
-                !type.equals(Material.AZALEA_LEAVES) &&
-                !type.equals(Material.FLOWERING_AZALEA_LEAVES) &&
-                !type.name().endsWith("LEAVES")) {
-                return y + 1;
+    public CompletableFuture<List<Location>> getRoadNodeLocations(World world, int centerX, int centerZ, int radius) {
+        List<CompletableFuture<Location>> futures = new ArrayList<>();
+
+        for (int x = nextRoadLine(centerX - radius - 1); x <= centerX + radius; x = nextRoadLine(x)) {
+            for (int z = nextRoadLine(centerZ - radius - 1); z <= centerZ + radius; z = nextRoadLine(z)) {
+                // Get the surface at this location for accurate Y without loading chunks here
+                int nodeX = x;
+                int nodeZ = z;
+                futures.add(plugin.getSurfaceHeightService().getSurfaceYAsync(world, nodeX, nodeZ)
+                        .thenApply(y -> new Location(world, nodeX, y, nodeZ)));
             }
         }
-        return 64; // Default if nothing is found
-    }
-
-    /**
-     * Gets a list of all road nodes for other systems to use
-     * 
-     * @return The list of road nodes
-     */
-    public List<Location> getRoadNodeLocations(World world) {
-        List<Location> locations = new ArrayList<>();
-
-        for (RoadNode node : roadNodes) {
-            // Get the highest block at this location for accurate Y
-            int y = getHighestBlockYAt(world, node.x, node.z);
-            locations.add(new Location(world, node.x, y, node.z));
-        }
 
-        return locations;
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<Location> locations = new ArrayList<>(futures.size());
+            for (CompletableFuture<Location> future : futures) {
+                locations.add(future.join());
+            }
+            return locations;
+        });
     }
 
     /**
@@ -345,40 +314,32 @@ public class RoadGenerator {
      * 
      * @param x X coordinate
      * @param z Z coordinate
-     * @return The nearest road node, or null if none exist
+     * @return The nearest road node
      */
     public RoadNode getNearestRoadNode(int x, int z) {
-        RoadNode nearest = null;
-        double minDistance = Double.MAX_VALUE;
-
-        for (RoadNode node : roadNodes) {
-            double distance = Math.sqrt(Math.pow(node.x - x, 2) + Math.pow(node.z - z, 2));
-            if (distance < minDistance) {
-                minDistance = distance;
-                nearest = node;
-            }
-        }
+        // Nodes form a grid, so the nearest node is the nearest road line on each axis
+        return new RoadNode(nearestRoadLine(x), nearestRoadLine(z));
+    }
 
-        return nearest;
+    /**
+     * Get the nearest road center line of any spacing
+     */
+    private static int nearestRoadLine(int coord) {
+        int main = nearestRoadLine(coord, MAIN_ROAD_SPACING);
+        int secondary = nearestRoadLine(coord, SECONDARY_ROAD_SPACING);
+        return Math.abs(main - coord) <= Math.abs(secondary - coord) ? main : secondary;
     }
 
     /**
-     * Generate roads for a world using a custom chunk generator
+     * Generate roads for a chunk from a block populator. Called on world
+     * generation threads; only the region may be accessed.
      * 
-     * @param generator The chunk generator
      * @param worldInfo The world info
-     * @param random The random generator
      * @param chunkX The chunk X coordinate
      * @param chunkZ The chunk Z coordinate
-     * @param biomeGrid The biome grid
-     * @param defaultChunk The default chunk data
+     * @param region The region being populated
      */
-    public void populateChunk(ChunkGenerator generator, WorldInfo worldInfo, Random random, 
-                           int chunkX, int chunkZ, ChunkGenerator.ChunkData chunkData) {
-        // This would be called from a chunk generator override
-        // Use the methods above to generate roads in the chunk data
-        // WorldInfo doesn't have getWorld() in Paper 1.21, so we need a World parameter to be passed in
-        // This is a placeholder that would be implemented in the actual chunk generator
-        // generateRoadsInChunk(world, chunkX, chunkZ);
+    public void populateChunk(WorldInfo worldInfo, int chunkX, int chunkZ, LimitedRegion region) {
+        generateRoadsInChunk(worldInfo, region, chunkX, chunkZ);
     }
-}
\ No newline at end of file
+}
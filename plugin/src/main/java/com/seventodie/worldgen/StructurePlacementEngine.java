@@ -0,0 +1,565 @@
+package com.seventodie.worldgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.seventodie.SevenToDiePlugin;
+import com.seventodie.utils.schematic.Schematic;
+
+/**
+ * Places structures over many ticks instead of all at once.
+ *
+ * Each structure job is split into work units of one chunk section (16x16x16)
+ * each. Every tick the engine applies blocks from the highest priority units
+ * until the configured block or time budget is spent. Units in chunks closest
+ * to players go first. Units in unloaded chunks are loaded asynchronously
+ * and held with a plugin chunk ticket until the last queued unit in the chunk,
+ * from any job, is done or cancelled. The queue is saved under structures/ so unfinished
+ * jobs resume after a restart; re-placing a partially placed unit is harmless.
+ */
+public class StructurePlacementEngine {
+
+    private static final String QUEUE_FILE = "structures/placement-queue.yml";
+
+    private static final int CLOCK_CHECK_INTERVAL = 64; // Blocks between clock reads
+    private static final int REPRIORITIZE_TICKS = 20;
+    private static final int MAX_PENDING_CHUNK_LOADS = 4;
+    private static final int SAVE_INTERVAL_TICKS = 20 * 30;
+
+    private final SevenToDiePlugin plugin;
+    private final int maxBlocksPerTick;
+    private final long maxNanosPerTick;
+
+    private final Map<UUID, PlacementJob> jobs = new LinkedHashMap<>();
+    private final List<WorkUnit> units = new ArrayList<>();
+    // Queued units per chunk, and the chunks being loaded or held with a ticket
+    private final Map<ChunkKey, Integer> chunkUnits = new HashMap<>();
+    private final Set<ChunkKey> loadingChunks = new HashSet<>();
+    private final Set<ChunkKey> ticketedChunks = new HashSet<>();
+    private BukkitTask task;
+    private int pendingChunkLoads;
+    private int ticksSinceReprioritize;
+    private int ticksSinceSave;
+    private boolean prioritiesStale;
+    private boolean dirty;
+
+    // Metrics
+    private long totalBlocksPlaced;
+    private long lastTickNanos;
+    private int blocksThisSecond;
+    private int blocksPerSecond;
+
+    /**
+     * Constructor for StructurePlacementEngine
+     *
+     * @param plugin The SevenToDie plugin instance
+     */
+    public StructurePlacementEngine(SevenToDiePlugin plugin) {
+        this.plugin = plugin;
+        this.maxBlocksPerTick = Math.max(1, plugin.getConfigManager().getInt(
+                "performance.structure-placement.max-blocks-per-tick", 2000));
+        this.maxNanosPerTick = (long) (plugin.getConfigManager().getDouble(
+                "performance.structure-placement.max-millis-per-tick", 2.0) * 1000000L);
+
+        loadQueue();
+
+        task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    /**
+     * Queue a schematic to be placed
+     *
+     * @param id The job ID (usually the structure ID)
+     * @param schematic The schematic, already rotated
+     * @param world The world
+     * @param x The origin x coordinate
+     * @param y The origin y coordinate
+     * @param z The origin z coordinate
+     * @param rotation The rotation the schematic was rotated by, used to reload it on resume
+     */
+    public void submit(UUID id, Schematic schematic, World world, int x, int y, int z, int rotation) {
+        PlacementJob job = new PlacementJob(id, schematic, world.getUID(), x, y, z, rotation & 3);
+        cancel(id);
+        jobs.put(id, job);
+
+        int maxX = x + schematic.getWidth() - 1;
+        int maxY = y + schematic.getHeight() - 1;
+        int maxZ = z + schematic.getLength() - 1;
+        for (int chunkX = x >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkZ = z >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                for (int section = y >> 4; section <= maxY >> 4; section++) {
+                    addUnit(new WorkUnit(job, chunkX, chunkZ, section, 0));
+                }
+            }
+        }
+
+        prioritiesStale = true;
+        dirty = true;
+    }
+
+    /**
+     * Cancel a queued job. Blocks already placed are left in place.
+     *
+     * @param id The job ID
+     * @return True if a job was cancelled
+     */
+    public boolean cancel(UUID id) {
+        PlacementJob job = jobs.remove(id);
+        if (job == null) {
+            return false;
+        }
+        units.removeIf(unit -> {
+            if (unit.job != job) {
+                return false;
+            }
+            releaseUnit(unit);
+            return true;
+        });
+        dirty = true;
+        return true;
+    }
+
+    private void addUnit(WorkUnit unit) {
+        if (unit.volume() > 0) {
+            unit.job.remainingUnits++;
+            units.add(unit);
+            chunkUnits.merge(unit.chunkKey(), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Forget a unit that is done or cancelled, releasing its chunk's ticket if
+     * no other queued unit is in the chunk
+     */
+    private void releaseUnit(WorkUnit unit) {
+        ChunkKey key = unit.chunkKey();
+        Integer remaining = chunkUnits.merge(key, -1, Integer::sum);
+        if (remaining != null && remaining > 0) {
+            return;
+        }
+        chunkUnits.remove(key);
+        if (ticketedChunks.remove(key)) {
+            removeTicket(key);
+        }
+    }
+
+    private void removeTicket(ChunkKey key) {
+        World world = plugin.getServer().getWorld(key.worldId());
+        if (world != null) {
+            world.removePluginChunkTicket(key.chunkX(), key.chunkZ(), plugin);
+        }
+    }
+
+    /**
+     * Apply queued blocks within this tick's budget
+     */
+    private void tick() {
+        long start = System.nanoTime();
+        long deadline = start + maxNanosPerTick;
+
+        if (++ticksSinceReprioritize >= REPRIORITIZE_TICKS) {
+            ticksSinceReprioritize = 0;
+            blocksPerSecond = blocksThisSecond;
+            blocksThisSecond = 0;
+            prioritiesStale = true;
+        }
+        if (prioritiesStale) {
+            reprioritize();
+        }
+
+        int placed = 0;
+        Iterator<WorkUnit> iterator = units.iterator();
+        while (iterator.hasNext() && placed < maxBlocksPerTick && System.nanoTime() < deadline) {
+            WorkUnit unit = iterator.next();
+            World world = plugin.getServer().getWorld(unit.job.worldId);
+            if (world == null) {
+                continue;
+            }
+            if (!world.isChunkLoaded(unit.chunkX, unit.chunkZ)) {
+                requestChunk(world, unit);
+                continue;
+            }
+
+            int unitPlaced = unit.apply(world, maxBlocksPerTick - placed, deadline);
+            placed += unitPlaced;
+            if (unitPlaced > 0) {
+                // Placement fires no block events, so cached surface heights would go stale
+                plugin.getSurfaceHeightService().invalidate(world, unit.minX, unit.minZ, unit.sizeX, unit.sizeZ);
+            }
+            if (unit.isDone()) {
+                iterator.remove();
+                completeUnit(unit);
+            }
+            dirty = true;
+        }
+
+        totalBlocksPlaced += placed;
+        blocksThisSecond += placed;
+        lastTickNanos = System.nanoTime() - start;
+
+        if (++ticksSinceSave >= SAVE_INTERVAL_TICKS) {
+            ticksSinceSave = 0;
+            if (dirty) {
+                saveQueue(false);
+            }
+        }
+    }
+
+    /**
+     * Load a unit's chunk in the background and hold it until every queued
+     * unit in the chunk is done
+     */
+    private void requestChunk(World world, WorkUnit unit) {
+        ChunkKey key = unit.chunkKey();
+        if (ticketedChunks.contains(key) || loadingChunks.contains(key)
+                || pendingChunkLoads >= MAX_PENDING_CHUNK_LOADS) {
+            return;
+        }
+        loadingChunks.add(key);
+        pendingChunkLoads++;
+        world.getChunkAtAsync(unit.chunkX, unit.chunkZ).whenComplete((chunk, error) -> {
+            pendingChunkLoads--;
+            loadingChunks.remove(key);
+            // Units cancelled while the chunk loaded no longer need it held
+            if (chunk != null && chunkUnits.containsKey(key) && ticketedChunks.add(key)) {
+                chunk.addPluginChunkTicket(plugin);
+            }
+        });
+    }
+
+    private void completeUnit(WorkUnit unit) {
+        releaseUnit(unit);
+
+        PlacementJob job = unit.job;
+        if (--job.remainingUnits == 0) {
+            jobs.remove(job.id);
+            plugin.getLogger().fine("Finished placing " + job.schematic.getName() + " (" + job.id + ")");
+        }
+    }
+
+    /**
+     * Order units by distance to the nearest player in the same world
+     */
+    private void reprioritize() {
+        prioritiesStale = false;
+        if (units.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, List<Player>> playersByWorld = new HashMap<>();
+        for (WorkUnit unit : units) {
+            List<Player> players = playersByWorld.computeIfAbsent(unit.job.worldId, id -> {
+                World world = plugin.getServer().getWorld(id);
+                return world == null ? List.of() : world.getPlayers();
+            });
+
+            long best = Long.MAX_VALUE;
+            int centerX = (unit.chunkX << 4) + 8;
+            int centerZ = (unit.chunkZ << 4) + 8;
+            for (Player player : players) {
+                long dx = player.getLocation().getBlockX() - centerX;
+                long dz = player.getLocation().getBlockZ() - centerZ;
+                best = Math.min(best, dx * dx + dz * dz);
+            }
+            unit.priority = best;
+        }
+
+        // Stable sort keeps bottom-up section order within a job
+        units.sort((a, b) -> Long.compare(a.priority, b.priority));
+    }
+
+    /**
+     * Load jobs saved by a previous run
+     */
+    private void loadQueue() {
+        File file = new File(plugin.getDataFolder(), QUEUE_FILE);
+        if (!file.exists()) {
+            return;
+        }
+
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+        ConfigurationSection section = config.getConfigurationSection("jobs");
+        if (section == null) {
+            return;
+        }
+
+        for (String key : section.getKeys(false)) {
+            ConfigurationSection jobSection = section.getConfigurationSection(key);
+            try {
+                String schematicName = jobSection.getString("schematic");
+                int rotation = jobSection.getInt("rotation") & 3;
+                Schematic schematic = plugin.getSchematicUtils().loadSchematic(schematicName, rotation);
+                if (schematic == null) {
+                    plugin.getLogger().warning("Dropping queued structure " + key
+                            + ": schematic " + schematicName + " could not be loaded");
+                    continue;
+                }
+
+                PlacementJob job = new PlacementJob(UUID.fromString(key), schematic,
+                        UUID.fromString(jobSection.getString("world")),
+                        jobSection.getInt("x"), jobSection.getInt("y"), jobSection.getInt("z"), rotation);
+                for (String unit : jobSection.getStringList("units")) {
+                    String[] parts = unit.split(",");
+                    addUnit(new WorkUnit(job, Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                            Integer.parseInt(parts[2]), Integer.parseInt(parts[3])));
+                }
+                if (job.remainingUnits > 0) {
+                    jobs.put(job.id, job);
+                }
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.WARNING, "Dropping unreadable queued structure " + key, e);
+            }
+        }
+
+        if (!jobs.isEmpty()) {
+            plugin.getLogger().info("Resuming placement of " + jobs.size() + " structures");
+        }
+        prioritiesStale = true;
+    }
+
+    /**
+     * Save the queue so unfinished jobs resume after a restart
+     *
+     * @param sync True to write the file on the calling thread
+     */
+    private void saveQueue(boolean sync) {
+        dirty = false;
+
+        Map<PlacementJob, List<String>> unitsByJob = new LinkedHashMap<>();
+        for (WorkUnit unit : units) {
+            unitsByJob.computeIfAbsent(unit.job, job -> new ArrayList<>())
+                    .add(unit.chunkX + "," + unit.chunkZ + "," + unit.section + "," + unit.cursor);
+        }
+
+        YamlConfiguration config = new YamlConfiguration();
+        for (Map.Entry<PlacementJob, List<String>> entry : unitsByJob.entrySet()) {
+            PlacementJob job = entry.getKey();
+            ConfigurationSection section = config.createSection("jobs." + job.id);
+            section.set("schematic", job.schematic.getName());
+            section.set("world", job.worldId.toString());
+            section.set("x", job.x);
+            section.set("y", job.y);
+            section.set("z", job.z);
+            section.set("rotation", job.rotation);
+            section.set("units", entry.getValue());
+        }
+
+        String contents = config.saveToString();
+        File file = new File(plugin.getDataFolder(), QUEUE_FILE);
+        if (sync) {
+            writeQueueFile(file, contents);
+        } else {
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> writeQueueFile(file, contents));
+        }
+    }
+
+    private synchronized void writeQueueFile(File file, String contents) {
+        try {
+            File parent = file.getParentFile();
+            if (!parent.exists()) {
+                parent.mkdirs();
+            }
+            File temp = new File(parent, file.getName() + ".tmp");
+            Files.writeString(temp.toPath(), contents, StandardCharsets.UTF_8);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to save structure placement queue", e);
+        }
+    }
+
+    /**
+     * Get the number of structures waiting to be placed
+     *
+     * @return The job count
+     */
+    public int getJobCount() {
+        return jobs.size();
+    }
+
+    /**
+     * Get the number of chunk sections waiting to be placed
+     *
+     * @return The work unit count
+     */
+    public int getUnitCount() {
+        return units.size();
+    }
+
+    /**
+     * Get the total number of blocks placed since startup
+     *
+     * @return The block count
+     */
+    public long getTotalBlocksPlaced() {
+        return totalBlocksPlaced;
+    }
+
+    /**
+     * Get the number of blocks placed during the last second
+     *
+     * @return The blocks per second
+     */
+    public int getBlocksPerSecond() {
+        return blocksPerSecond;
+    }
+
+    /**
+     * Get the time spent in the last tick
+     *
+     * @return The duration in nanoseconds
+     */
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    /**
+     * Stop placing and save the remaining queue
+     */
+    public void cleanup() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        saveQueue(true);
+        for (ChunkKey key : ticketedChunks) {
+            removeTicket(key);
+        }
+        ticketedChunks.clear();
+        chunkUnits.clear();
+        jobs.clear();
+        units.clear();
+    }
+
+    /**
+     * A chunk in a world
+     */
+    private record ChunkKey(UUID worldId, int chunkX, int chunkZ) {
+    }
+
+    /**
+     * A structure waiting to be placed
+     */
+    private static class PlacementJob {
+        private final UUID id;
+        private final Schematic schematic;
+        private final UUID worldId;
+        private final int x;
+        private final int y;
+        private final int z;
+        private final int rotation;
+        private int remainingUnits;
+
+        PlacementJob(UUID id, Schematic schematic, UUID worldId, int x, int y, int z, int rotation) {
+            this.id = id;
+            this.schematic = schematic;
+            this.worldId = worldId;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.rotation = rotation;
+        }
+    }
+
+    /**
+     * The part of a job inside one chunk section
+     */
+    private static class WorkUnit {
+        private final PlacementJob job;
+        private final int chunkX;
+        private final int chunkZ;
+        private final int section;
+
+        // World-space box of this unit, clipped to the structure
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int sizeX;
+        private final int sizeY;
+        private final int sizeZ;
+
+        private int cursor;
+        private long priority;
+
+        WorkUnit(PlacementJob job, int chunkX, int chunkZ, int section, int cursor) {
+            this.job = job;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.section = section;
+            this.cursor = cursor;
+
+            this.minX = Math.max(chunkX << 4, job.x);
+            this.minY = Math.max(section << 4, job.y);
+            this.minZ = Math.max(chunkZ << 4, job.z);
+            this.sizeX = Math.max(0, Math.min((chunkX << 4) + 16, job.x + job.schematic.getWidth()) - minX);
+            this.sizeY = Math.max(0, Math.min((section << 4) + 16, job.y + job.schematic.getHeight()) - minY);
+            this.sizeZ = Math.max(0, Math.min((chunkZ << 4) + 16, job.z + job.schematic.getLength()) - minZ);
+        }
+
+        ChunkKey chunkKey() {
+            return new ChunkKey(job.worldId, chunkX, chunkZ);
+        }
+
+        int volume() {
+            return sizeX * sizeY * sizeZ;
+        }
+
+        boolean isDone() {
+            return cursor >= volume();
+        }
+
+        /**
+         * Place blocks from the cursor onwards, bottom layer first
+         *
+         * @param world The world
+         * @param maxBlocks The maximum number of blocks to place
+         * @param deadline The System.nanoTime() to stop at
+         * @return The number of blocks placed
+         */
+        int apply(World world, int maxBlocks, long deadline) {
+            Schematic schematic = job.schematic;
+            int layer = sizeX * sizeZ;
+            int volume = volume();
+            int placed = 0;
+            int visited = 0;
+
+            while (cursor < volume && placed < maxBlocks) {
+                int worldY = minY + cursor / layer;
+                int rem = cursor % layer;
+                int worldZ = minZ + rem / sizeX;
+                int worldX = minX + rem % sizeX;
+                cursor++;
+
+                BlockData data = schematic.getBlockData(worldX - job.x, worldY - job.y, worldZ - job.z);
+                if (data != null) {
+                    world.getBlockAt(worldX, worldY, worldZ).setBlockData(data, false);
+                    placed++;
+                }
+
+                if (++visited % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+                    break;
+                }
+            }
+            return placed;
+        }
+    }
+}
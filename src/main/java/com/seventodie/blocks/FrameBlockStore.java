@@ -0,0 +1,609 @@
+package com.seventodie.blocks;
+
+import org.bukkit.World;
+
+import com.seventodie.utils.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact in-memory storage for frame blocks.
+ *
+ * Frame blocks are grouped per world and per chunk. Inside a chunk they are
+ * kept in an open-addressing table keyed by the packed block position, with
+ * tier, durability, upgrade progress and owner stored in parallel primitive
+ * arrays. Owners are interned once in a shared table and referenced by index.
+ * Lookups do not allocate.
+ */
+public class FrameBlockStore {
+
+    /** Returned by lookups when there is no frame block at the position */
+    public static final int NONE = -1;
+
+    private final Map<UUID, LongObjectMap<ChunkFrames>> worlds = new HashMap<>();
+    private final List<UUID> owners = new ArrayList<>();
+    private final Map<UUID, Integer> ownerIndex = new HashMap<>();
+    private int size;
+
+    /**
+     * Pack chunk coordinates into a single key (same layout as Paper's chunk keys)
+     *
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The packed key
+     */
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX & 0xFFFFFFFFL) | (((long) chunkZ & 0xFFFFFFFFL) << 32);
+    }
+
+    /**
+     * Get the frames stored for a chunk
+     *
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The chunk's frames, or null if it has none
+     */
+    public ChunkFrames getChunk(World world, int chunkX, int chunkZ) {
+        LongObjectMap<ChunkFrames> chunks = worlds.get(world.getUID());
+        return chunks == null ? null : chunks.get(chunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Get the frames stored for a chunk, creating an empty entry if needed
+     *
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The chunk's frames
+     */
+    public ChunkFrames getOrCreateChunk(World world, int chunkX, int chunkZ) {
+        return worlds.computeIfAbsent(world.getUID(), k -> new LongObjectMap<>())
+                .computeIfAbsent(chunkKey(chunkX, chunkZ), k -> new ChunkFrames(this, chunkX, chunkZ));
+    }
+
+    /**
+     * Start loading a chunk. Creates an empty entry for the chunk that reports
+     * {@link ChunkFrames#isPending()} until the stored rows have been merged in.
+     *
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The pending entry, or null if the chunk is already held in memory
+     */
+    public ChunkFrames beginLoad(World world, int chunkX, int chunkZ) {
+        LongObjectMap<ChunkFrames> chunks = worlds.computeIfAbsent(world.getUID(), k -> new LongObjectMap<>());
+        long key = chunkKey(chunkX, chunkZ);
+        if (chunks.get(key) != null) {
+            return null;
+        }
+        ChunkFrames chunk = new ChunkFrames(this, chunkX, chunkZ);
+        chunk.pending = true;
+        chunks.put(key, chunk);
+        return chunk;
+    }
+
+    /**
+     * Visit every chunk held in memory
+     *
+     * @param visitor The visitor, given the world UID and the chunk
+     */
+    public void forEachChunk(ChunkVisitor visitor) {
+        for (Map.Entry<UUID, LongObjectMap<ChunkFrames>> entry : worlds.entrySet()) {
+            UUID worldId = entry.getKey();
+            entry.getValue().forEach((key, chunk) -> visitor.visit(worldId, chunk));
+        }
+    }
+
+    /**
+     * Remove all frames stored for a chunk
+     *
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The removed frames, or null if the chunk had none
+     */
+    public ChunkFrames removeChunk(World world, int chunkX, int chunkZ) {
+        LongObjectMap<ChunkFrames> chunks = worlds.get(world.getUID());
+        if (chunks == null) {
+            return null;
+        }
+        ChunkFrames removed = chunks.remove(chunkKey(chunkX, chunkZ));
+        if (removed != null) {
+            size -= removed.size();
+        }
+        return removed;
+    }
+
+    /**
+     * Get the tier of the frame block at a position
+     *
+     * @param world The world
+     * @param x The block x coordinate
+     * @param y The block y coordinate
+     * @param z The block z coordinate
+     * @return The tier, or {@link #NONE} if there is no frame block
+     */
+    public int getTier(World world, int x, int y, int z) {
+        ChunkFrames chunk = getChunk(world, x >> 4, z >> 4);
+        if (chunk == null) {
+            return NONE;
+        }
+        int slot = chunk.find(x, y, z);
+        return slot == NONE ? NONE : chunk.getTier(slot);
+    }
+
+    /**
+     * Store a frame block, replacing any frame block at the same position
+     *
+     * @param world The world
+     * @param x The block x coordinate
+     * @param y The block y coordinate
+     * @param z The block z coordinate
+     * @param tier The tier
+     * @param durability The current durability
+     * @param upgradeProgress The upgrade progress
+     * @param owner The owner's UUID
+     */
+    public void put(World world, int x, int y, int z, int tier, int durability, int upgradeProgress, UUID owner) {
+        getOrCreateChunk(world, x >> 4, z >> 4).put(x, y, z, tier, durability, upgradeProgress, internOwner(owner));
+    }
+
+    /**
+     * Remove the frame block at a position
+     *
+     * @param world The world
+     * @param x The block x coordinate
+     * @param y The block y coordinate
+     * @param z The block z coordinate
+     * @return The removed block's tier, or {@link #NONE} if there was none
+     */
+    public int remove(World world, int x, int y, int z) {
+        ChunkFrames chunk = getChunk(world, x >> 4, z >> 4);
+        if (chunk == null) {
+            return NONE;
+        }
+        return chunk.remove(x, y, z);
+    }
+
+    /**
+     * Get the total number of stored frame blocks
+     *
+     * @return The count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove every frame block
+     */
+    public void clear() {
+        worlds.clear();
+        owners.clear();
+        ownerIndex.clear();
+        size = 0;
+    }
+
+    /**
+     * Get the index of an owner in the shared owner table, adding it if needed
+     *
+     * @param owner The owner's UUID
+     * @return The owner index
+     */
+    int internOwner(UUID owner) {
+        Integer index = ownerIndex.get(owner);
+        if (index == null) {
+            index = owners.size();
+            owners.add(owner);
+            ownerIndex.put(owner, index);
+        }
+        return index;
+    }
+
+    /**
+     * Get an owner by index
+     *
+     * @param index The owner index
+     * @return The owner's UUID
+     */
+    UUID getOwner(int index) {
+        return owners.get(index);
+    }
+
+    /**
+     * Frame blocks of a single chunk.
+     *
+     * Positions are packed into an int (y in the high bits, local z and x in
+     * the low byte) and stored with linear probing. Removal shifts entries back
+     * so no tombstones are needed.
+     */
+    public static class ChunkFrames {
+
+        private static final float LOAD_FACTOR = 0.6f;
+
+        private final FrameBlockStore store;
+        private final int chunkX;
+        private final int chunkZ;
+
+        private int[] keys;
+        private boolean[] used;
+        private byte[] tiers;
+        private int[] durability;
+        private int[] upgradeProgress;
+        private int[] owners;
+        private int count;
+        private int mask;
+        private boolean pending;
+        private boolean loadFailed;
+        private boolean dirty;
+        private int version;
+
+        ChunkFrames(FrameBlockStore store, int chunkX, int chunkZ) {
+            this.store = store;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            allocate(8);
+        }
+
+        /**
+         * Pack a block position into the key used inside a chunk
+         *
+         * @param x The block x coordinate
+         * @param y The block y coordinate
+         * @param z The block z coordinate
+         * @return The packed key
+         */
+        public static int packLocal(int x, int y, int z) {
+            return (y << 8) | ((z & 15) << 4) | (x & 15);
+        }
+
+        /**
+         * Find the slot of a frame block
+         *
+         * @param x The block x coordinate
+         * @param y The block y coordinate
+         * @param z The block z coordinate
+         * @return The slot, or {@link FrameBlockStore#NONE} if absent
+         */
+        public int find(int x, int y, int z) {
+            int key = packLocal(x, y, z);
+            int slot = mix(key) & mask;
+            while (used[slot]) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return NONE;
+        }
+
+        void put(int x, int y, int z, int tier, int durabilityValue, int progress, int owner) {
+            int key = packLocal(x, y, z);
+            int slot = mix(key) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                count++;
+                store.size++;
+            }
+            tiers[slot] = (byte) tier;
+            durability[slot] = durabilityValue;
+            upgradeProgress[slot] = progress;
+            owners[slot] = owner;
+            dirty = true;
+            version++;
+
+            if (count >= keys.length * LOAD_FACTOR) {
+                rehash(keys.length << 1);
+            }
+        }
+
+        int remove(int x, int y, int z) {
+            int slot = find(x, y, z);
+            if (slot == NONE) {
+                return NONE;
+            }
+            int tier = tiers[slot];
+
+            // Backward shift deletion
+            int gap = slot;
+            int next = (gap + 1) & mask;
+            while (used[next]) {
+                int home = mix(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    copySlot(next, gap);
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+            used[gap] = false;
+            count--;
+            store.size--;
+            dirty = true;
+            version++;
+            return tier;
+        }
+
+        /**
+         * Finish a pending load by merging stored rows. Positions changed while
+         * the load was pending keep their in-memory values.
+         *
+         * @param x The block x coordinate
+         * @param y The block y coordinate
+         * @param z The block z coordinate
+         * @param tier The stored tier
+         * @param durabilityValue The stored durability
+         * @param progress The stored upgrade progress
+         * @param owner The stored owner
+         */
+        void merge(int x, int y, int z, int tier, int durabilityValue, int progress, UUID owner) {
+            if (find(x, y, z) == NONE) {
+                boolean wasDirty = dirty;
+                put(x, y, z, tier, durabilityValue, progress, store.internOwner(owner));
+                dirty = wasDirty;
+            }
+        }
+
+        /**
+         * Mark the pending load as complete
+         */
+        void finishLoad() {
+            pending = false;
+        }
+
+        /**
+         * Record that a read of this chunk's stored frame blocks failed
+         */
+        void markLoadFailed() {
+            loadFailed = true;
+        }
+
+        /**
+         * Check if a read of this chunk's stored frame blocks has failed since
+         * the load started
+         *
+         * @return True if a read failed
+         */
+        public boolean hasLoadFailed() {
+            return loadFailed;
+        }
+
+        /**
+         * Check if this chunk's stored frame blocks are still being loaded
+         *
+         * @return True if the load is pending
+         */
+        public boolean isPending() {
+            return pending;
+        }
+
+        /**
+         * Check if this chunk changed since it was loaded or last saved
+         *
+         * @return True if modified
+         */
+        public boolean isDirty() {
+            return dirty;
+        }
+
+        /**
+         * Get the modification count, used to tell if the chunk changed while
+         * a save was in flight
+         *
+         * @return The modification count
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * Mark this chunk as saved unless it changed after the saved snapshot
+         *
+         * @param savedVersion The {@link #getVersion()} the save was taken at
+         */
+        public void markClean(int savedVersion) {
+            if (version == savedVersion) {
+                dirty = false;
+            }
+        }
+
+        /**
+         * Mark this chunk as changed, e.g. after a stored row was dropped
+         */
+        public void markDirty() {
+            dirty = true;
+            version++;
+        }
+
+        /**
+         * Get the tier in a slot
+         *
+         * @param slot The slot
+         * @return The tier
+         */
+        public int getTier(int slot) {
+            return tiers[slot];
+        }
+
+        /**
+         * Set the tier in a slot
+         *
+         * @param slot The slot
+         * @param tier The tier
+         */
+        public void setTier(int slot, int tier) {
+            tiers[slot] = (byte) tier;
+            dirty = true;
+            version++;
+        }
+
+        /**
+         * Get the durability in a slot
+         *
+         * @param slot The slot
+         * @return The durability
+         */
+        public int getDurability(int slot) {
+            return durability[slot];
+        }
+
+        /**
+         * Set the durability in a slot
+         *
+         * @param slot The slot
+         * @param value The durability
+         */
+        public void setDurability(int slot, int value) {
+            durability[slot] = value;
+            dirty = true;
+            version++;
+        }
+
+        /**
+         * Get the upgrade progress in a slot
+         *
+         * @param slot The slot
+         * @return The upgrade progress
+         */
+        public int getUpgradeProgress(int slot) {
+            return upgradeProgress[slot];
+        }
+
+        /**
+         * Set the upgrade progress in a slot
+         *
+         * @param slot The slot
+         * @param value The upgrade progress
+         */
+        public void setUpgradeProgress(int slot, int value) {
+            upgradeProgress[slot] = value;
+            dirty = true;
+            version++;
+        }
+
+        /**
+         * Get the owner of the frame block in a slot
+         *
+         * @param slot The slot
+         * @return The owner's UUID
+         */
+        public UUID getOwner(int slot) {
+            return store.getOwner(owners[slot]);
+        }
+
+        /**
+         * Get the chunk X coordinate
+         *
+         * @return The chunk X coordinate
+         */
+        public int getChunkX() {
+            return chunkX;
+        }
+
+        /**
+         * Get the chunk Z coordinate
+         *
+         * @return The chunk Z coordinate
+         */
+        public int getChunkZ() {
+            return chunkZ;
+        }
+
+        /**
+         * Get the number of frame blocks in this chunk
+         *
+         * @return The count
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * Visit every frame block in this chunk
+         *
+         * @param visitor The visitor
+         */
+        public void forEach(FrameVisitor visitor) {
+            int baseX = chunkX << 4;
+            int baseZ = chunkZ << 4;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (used[slot]) {
+                    int key = keys[slot];
+                    visitor.visit(baseX + (key & 15), key >> 8, baseZ + ((key >> 4) & 15), slot);
+                }
+            }
+        }
+
+        private void copySlot(int from, int to) {
+            keys[to] = keys[from];
+            tiers[to] = tiers[from];
+            durability[to] = durability[from];
+            upgradeProgress[to] = upgradeProgress[from];
+            owners[to] = owners[from];
+        }
+
+        private void rehash(int capacity) {
+            int[] oldKeys = keys;
+            boolean[] oldUsed = used;
+            byte[] oldTiers = tiers;
+            int[] oldDurability = durability;
+            int[] oldProgress = upgradeProgress;
+            int[] oldOwners = owners;
+
+            allocate(capacity);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    int slot = mix(oldKeys[i]) & mask;
+                    while (used[slot]) {
+                        slot = (slot + 1) & mask;
+                    }
+                    used[slot] = true;
+                    keys[slot] = oldKeys[i];
+                    tiers[slot] = oldTiers[i];
+                    durability[slot] = oldDurability[i];
+                    upgradeProgress[slot] = oldProgress[i];
+                    owners[slot] = oldOwners[i];
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new int[capacity];
+            used = new boolean[capacity];
+            tiers = new byte[capacity];
+            durability = new int[capacity];
+            upgradeProgress = new int[capacity];
+            owners = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Visitor for the chunks of the store
+     */
+    @FunctionalInterface
+    public interface ChunkVisitor {
+        void visit(UUID worldId, ChunkFrames chunk);
+    }
+
+    /**
+     * Visitor for the frame blocks of a chunk
+     */
+    @FunctionalInterface
+    public interface FrameVisitor {
+        void visit(int x, int y, int z, int slot);
+    }
+}
@@ -0,0 +1,63 @@
+package com.seventodie.listeners;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.TimeSkipEvent;
+
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
+import com.seventodie.SevenToDiePlugin;
+
+/**
+ * Handles world and entity events that affect trader outposts and their NPCs.
+ */
+public class TraderListener implements Listener {
+    
+    private final SevenToDiePlugin plugin;
+    
+    /**
+     * Constructor for TraderListener
+     * 
+     * @param plugin The SevenToDie plugin instance
+     */
+    public TraderListener(SevenToDiePlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Move a world's next trader open/close time when its clock jumps
+     * 
+     * @param event The time skip event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTimeSkip(TimeSkipEvent event) {
+        if (plugin.getTraderManager() != null) {
+            plugin.getTraderManager().onTimeSkip(event.getWorld());
+        }
+    }
+    
+    /**
+     * Take back trader NPCs saved with a chunk as its entities load
+     * 
+     * @param event The entities load event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        if (plugin.getTraderManager() != null) {
+            plugin.getTraderManager().onEntitiesLoad(event.getChunk(), event.getEntities());
+        }
+    }
+    
+    /**
+     * Drop trader NPCs from the index as they leave the world
+     * 
+     * @param event The entity remove event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityRemove(EntityRemoveFromWorldEvent event) {
+        if (plugin.getTraderManager() != null) {
+            plugin.getTraderManager().onEntityRemove(event.getEntity());
+        }
+    }
+}
@@ -8,6 +8,10 @@ import org.bukkit.entity.Player;
 import org.bukkit.ChatColor;
 
 import com.seventodie.SevenToDiePlugin;
+import com.seventodie.storage.QuestProgressRecord;
+import com.seventodie.storage.QuestRecord;
+import com.seventodie.storage.StateJournal;
+import com.seventodie.storage.repository.Repositories;
 import com.seventodie.worldgen.StructureManager;
 
 import java.util.ArrayList;
@@ -15,6 +19,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
 
 /**
  * Manages all quests in the SevenToDie plugin
@@ -42,15 +48,165 @@ public class QuestManager {
      */
     public QuestManager(SevenToDiePlugin plugin) {
         this.plugin = plugin;
-        loadQuests();
     }
     
     /**
-     * Load quests from database
+     * Load quests from storage, and the progress of players already online
+     * (after a reload). Called once after construction.
      */
-    private void loadQuests() {
-        // TODO: Implement database loading
-        // This is a placeholder - actual implementation would load from database
+    public void loadQuests() {
+        for (World world : plugin.getServer().getWorlds()) {
+            loadWorld(world, false);
+        }
+        
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            loadPlayerProgress(player.getUniqueId(), null);
+        }
+    }
+    
+    /**
+     * Load a world's quests from storage, for worlds loaded after startup.
+     * Online players' progress on them is read again once they are registered.
+     * 
+     * @param world The world
+     */
+    public void loadWorld(World world) {
+        loadWorld(world, true);
+    }
+    
+    /**
+     * Load a world's quests from storage. Quests are registered on the main
+     * thread once the rows arrive, unless the world was unloaded meanwhile.
+     * 
+     * @param world The world
+     * @param reloadProgress True to read online players' progress again afterwards
+     */
+    private void loadWorld(World world, boolean reloadProgress) {
+        getRepositories().getQuests().loadWorld(world.getName()).whenComplete((records, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed to load quests for world " + world.getName(), error);
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (plugin.getServer().getWorld(world.getUID()) != world) {
+                    return;
+                }
+                for (QuestRecord record : records) {
+                    Quest quest = fromRecord(world, record);
+                    if (quest != null) {
+                        quests.putIfAbsent(quest.getId(), quest);
+                    }
+                }
+                if (reloadProgress && !records.isEmpty()) {
+                    for (Player player : plugin.getServer().getOnlinePlayers()) {
+                        loadPlayerProgress(player.getUniqueId(), null);
+                    }
+                }
+            });
+        });
+    }
+    
+    /**
+     * Save a world's quests and online players' progress on them, and drop the
+     * quests from memory. Players keep the quests in their list.
+     * 
+     * @param world The world being unloaded
+     */
+    public void unloadWorld(World world) {
+        List<QuestRecord> records = new ArrayList<>();
+        for (Quest quest : quests.values()) {
+            if (quest.getLocation() != null && world.equals(quest.getLocation().getWorld())) {
+                records.add(toRecord(quest));
+            }
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+        
+        List<QuestProgressRecord> progress = new ArrayList<>();
+        for (UUID playerId : playerQuests.keySet()) {
+            addProgressRecords(playerId, progress);
+        }
+        getRepositories().getQuests().saveAll(records).exceptionally(error -> {
+            plugin.getLogger().log(Level.WARNING, "Failed to save " + records.size() + " quests", error);
+            return null;
+        });
+        saveProgress(progress);
+        
+        for (QuestRecord record : records) {
+            quests.remove(record.id());
+        }
+    }
+    
+    /**
+     * Build a quest from a stored row
+     * 
+     * @param world The world the row belongs to
+     * @param record The row
+     * @return The quest, or null if its target type no longer exists
+     */
+    private Quest fromRecord(World world, QuestRecord record) {
+        QuestTargetType targetType;
+        try {
+            targetType = QuestTargetType.valueOf(record.targetType());
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Skipping quest " + record.id() + " with unknown target type " + record.targetType());
+            return null;
+        }
+        
+        Quest quest = new Quest(record.id(), record.title(), record.description(), targetType, record.targetAmount(),
+                new Location(world, record.x(), record.y(), record.z()), record.structureId());
+        quest.setCompleted(record.completed());
+        if (record.completed()) {
+            quest.setProgress(record.targetAmount());
+        }
+        return quest;
+    }
+    
+    /**
+     * Load a player's quests and progress from storage
+     * 
+     * @param playerId The player's UUID
+     * @param onLoaded Run on the main thread once loaded, or null
+     */
+    public void loadPlayerProgress(UUID playerId, Runnable onLoaded) {
+        getRepositories().getQuestProgress().loadPlayer(playerId).whenComplete((records, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed to load quest progress for " + playerId, error);
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                // Progress of a player who left while loading would never be unloaded
+                if (plugin.getServer().getPlayer(playerId) == null) {
+                    return;
+                }
+                List<UUID> questIds = playerQuests.computeIfAbsent(playerId, k -> new ArrayList<>());
+                for (QuestProgressRecord record : records) {
+                    if (!questIds.contains(record.questId())) {
+                        questIds.add(record.questId());
+                    }
+                    Quest quest = quests.get(record.questId());
+                    if (quest != null && quest.getProgress() < record.progress()) {
+                        quest.setProgress(record.progress());
+                    }
+                }
+                if (onLoaded != null) {
+                    onLoaded.run();
+                }
+            });
+        });
+    }
+    
+    /**
+     * Save a player's progress and drop it from memory
+     * 
+     * @param playerId The player's UUID
+     */
+    public void unloadPlayerProgress(UUID playerId) {
+        List<QuestProgressRecord> records = new ArrayList<>();
+        addProgressRecords(playerId, records);
+        playerQuests.remove(playerId);
+        saveProgress(records);
     }
     
     /**
@@ -65,6 +221,7 @@ public class QuestManager {
         }
         
         quests.put(quest.getId(), quest);
+        journalQuest(quest);
         return true;
     }
     
@@ -177,6 +334,7 @@ public class QuestManager {
                 int newProgress = currentProgress + amount;
                 
                 quest.setProgress(newProgress);
+                journalProgress(player.getUniqueId(), quest);
                 
                 // Check if the quest is completed
                 if (newProgress >= quest.getTargetAmount() && !quest.isCompleted()) {
@@ -212,6 +370,7 @@ public class QuestManager {
         
         quest.setCompleted(true);
         quest.setProgress(quest.getTargetAmount()); // Set progress to max
+        journalQuest(quest);
         return true;
     }
     
@@ -229,6 +388,14 @@ public class QuestManager {
         
         quest.setCompleted(false);
         quest.setProgress(0);
+        journalQuest(quest);
+        
+        // Progress rows would otherwise restore the old progress on the next load
+        for (Map.Entry<UUID, List<UUID>> entry : playerQuests.entrySet()) {
+            if (entry.getValue().contains(questId)) {
+                journalProgress(entry.getKey(), quest);
+            }
+        }
         return true;
     }
     
@@ -268,11 +435,87 @@ public class QuestManager {
     }
     
     /**
-     * Save all quests to database
+     * Save all quests and the progress of players in memory to storage
+     * 
+     * @return A future completed once everything is written
      */
-    public void saveQuests() {
-        // TODO: Implement database saving
-        // This is a placeholder - actual implementation would save to database
+    public CompletableFuture<Void> saveQuests() {
+        List<QuestRecord> records = new ArrayList<>(quests.size());
+        for (Quest quest : quests.values()) {
+            QuestRecord record = toRecord(quest);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        CompletableFuture<Void> questsSaved = getRepositories().getQuests().saveAll(records);
+        questsSaved.exceptionally(error -> {
+            plugin.getLogger().log(Level.WARNING, "Failed to save " + records.size() + " quests", error);
+            return null;
+        });
+        
+        List<QuestProgressRecord> progress = new ArrayList<>();
+        for (UUID playerId : playerQuests.keySet()) {
+            addProgressRecords(playerId, progress);
+        }
+        return CompletableFuture.allOf(questsSaved, saveProgress(progress));
+    }
+    
+    /**
+     * Build the stored row for a quest
+     * 
+     * @param quest The quest
+     * @return The row, or null if the quest has no world to store it in
+     */
+    private QuestRecord toRecord(Quest quest) {
+        Location location = quest.getLocation();
+        if (location == null || location.getWorld() == null) {
+            return null;
+        }
+        return new QuestRecord(quest.getId(), quest.getTitle(), quest.getDescription(),
+                quest.getTargetType().name(), quest.getTargetAmount(), location.getWorld().getName(),
+                location.getX(), location.getY(), location.getZ(), quest.getStructureId(), quest.isCompleted());
+    }
+    
+    private void journalQuest(Quest quest) {
+        StateJournal journal = plugin.getDatabaseManager().getJournal();
+        QuestRecord record = toRecord(quest);
+        if (journal != null && record != null) {
+            journal.recordQuest(record);
+        }
+    }
+    
+    private void journalProgress(UUID playerId, Quest quest) {
+        StateJournal journal = plugin.getDatabaseManager().getJournal();
+        if (journal != null) {
+            journal.recordQuestProgress(new QuestProgressRecord(playerId, quest.getId(), quest.getProgress()));
+        }
+    }
+    
+    private void addProgressRecords(UUID playerId, List<QuestProgressRecord> records) {
+        List<UUID> questIds = playerQuests.get(playerId);
+        if (questIds == null) {
+            return;
+        }
+        for (UUID questId : questIds) {
+            // Quests of unloaded worlds keep their stored progress
+            Quest quest = quests.get(questId);
+            if (quest != null) {
+                records.add(new QuestProgressRecord(playerId, questId, quest.getProgress()));
+            }
+        }
+    }
+    
+    private CompletableFuture<Void> saveProgress(List<QuestProgressRecord> records) {
+        CompletableFuture<Void> saved = getRepositories().getQuestProgress().saveAll(records);
+        saved.exceptionally(error -> {
+            plugin.getLogger().log(Level.WARNING, "Failed to save " + records.size() + " quest progress rows", error);
+            return null;
+        });
+        return saved;
+    }
+    
+    private Repositories getRepositories() {
+        return plugin.getDatabaseManager().getRepositories();
     }
     
     /**
@@ -285,6 +528,37 @@ public class QuestManager {
         return !getPlayerActiveQuests(player).isEmpty();
     }
     
+    /**
+     * Send a player the list of their active quests and their progress
+     * 
+     * @param player The player
+     */
+    public void sendActiveQuests(Player player) {
+        player.sendMessage(ChatColor.GOLD + "Your Active Quests:");
+        
+        int questCount = 0;
+        for (Quest quest : getPlayerActiveQuests(player)) {
+            int progress = quest.getProgress(player.getUniqueId());
+            int target = quest.getTargetAmount();
+            int percent = (int)((progress / (double)target) * 100);
+            
+            player.sendMessage(ChatColor.YELLOW + "- " + quest.getTitle() + 
+                              ChatColor.GRAY + " (" + progress + "/" + target + ", " + percent + "%)");
+            player.sendMessage(ChatColor.WHITE + "  " + quest.getDescription());
+            
+            // If quest is complete, show completion message
+            if (quest.isCompletedByPlayer(player.getUniqueId())) {
+                player.sendMessage(ChatColor.GREEN + "  This quest is complete! Talk to a trader to claim your reward.");
+            }
+            
+            questCount++;
+        }
+        
+        if (questCount == 0) {
+            player.sendMessage(ChatColor.RED + "You have no active quests. Talk to a trader to get some!");
+        }
+    }
+    
     /**
      * Process monster kill progress for a player
      * 
@@ -0,0 +1,64 @@
+package com.seventodie.storage;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replace every frame_blocks row of one chunk with a new set of rows.
+ *
+ * Used when a chunk with modified frame blocks is unloaded or saved, so a
+ * chunk is always written as a unit and later saves of the same chunk
+ * coalesce into one write.
+ */
+public record FrameChunkReplace(String world, int chunkX, int chunkZ,
+                                List<FrameBlockRecord> frames) implements Mutation {
+
+    private static final String DELETE_SQL = "DELETE FROM frame_blocks "
+            + "WHERE world = ? AND chunk_x = ? AND chunk_z = ?";
+    private static final Map<SqlDialect, String> INSERT_SQL = SqlDialect.upserts("frame_blocks",
+            List.of("world", "x", "y", "z", "tier", "chunk_x", "chunk_z", "owner", "durability", "upgrade_progress"),
+            List.of("world", "x", "y", "z"));
+
+    /**
+     * Get the mutation key of a chunk's frame blocks
+     *
+     * @param world The world name
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The key
+     */
+    public static String key(String world, int chunkX, int chunkZ) {
+        return "frame_blocks:" + world + ":" + chunkX + ":" + chunkZ;
+    }
+
+    @Override
+    public String getKey() {
+        return key(world, chunkX, chunkZ);
+    }
+
+    @Override
+    public void write(Batch batch) throws SQLException {
+        PreparedStatement delete = batch.statement(DELETE_SQL);
+        delete.setString(1, world);
+        delete.setInt(2, chunkX);
+        delete.setInt(3, chunkZ);
+        delete.addBatch();
+
+        for (FrameBlockRecord frame : frames) {
+            PreparedStatement insert = batch.statement(INSERT_SQL.get(batch.dialect()));
+            insert.setString(1, world);
+            insert.setInt(2, frame.x());
+            insert.setInt(3, frame.y());
+            insert.setInt(4, frame.z());
+            insert.setInt(5, frame.tier());
+            insert.setInt(6, chunkX);
+            insert.setInt(7, chunkZ);
+            insert.setString(8, frame.owner() != null ? frame.owner().toString() : null);
+            insert.setInt(9, frame.durability());
+            insert.setInt(10, frame.upgradeProgress());
+            insert.addBatch();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.seventodie.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The frame blocks of one region (32x32 chunks) in a single memory-mapped file.
+ *
+ * Layout: a fixed header (magic, version, end of data, bytes in use), then an
+ * offset table with one (offset, length, capacity) entry per chunk, then the
+ * chunk records. A chunk record is a varint frame count, a varint owner
+ * count and the distinct owners as 16-byte UUIDs, then the frames sorted by Y.
+ * Each frame is one byte of packed local X/Z, the zigzag varint Y delta from
+ * the previous frame, and varints for the tier, durability + 1, upgrade
+ * progress and owner (0 for none, otherwise an index into the owners plus
+ * one). A typical frame takes seven or eight bytes.
+ *
+ * A record is rewritten in place when it fits its slot and appended otherwise.
+ * When more than half of the data area is abandoned slots, the file is compacted.
+ *
+ * Not thread safe; callers must hold a lock while using the file.
+ */
+public class FrameRegionFile {
+
+    private static final int MAGIC = 0x53374446; // "S7DF"
+    private static final int VERSION = 1;
+    private static final int CHUNKS = 32 * 32;
+    private static final int ENTRY_SIZE = 12;
+    private static final int END_POSITION = 8;
+    private static final int USED_POSITION = 12;
+    private static final int TABLE_POSITION = 16;
+    private static final int HEADER_SIZE = TABLE_POSITION + CHUNKS * ENTRY_SIZE;
+    private static final int GROWTH_STEP = 256 * 1024;
+    private static final int MIN_COMPACT_WASTE = 64 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    /**
+     * Open a region file, creating it if it does not exist
+     *
+     * @param path The file
+     * @throws IOException If the file cannot be opened or is not a region file
+     */
+    public FrameRegionFile(File path) throws IOException {
+        this.file = new RandomAccessFile(path, "rw");
+        this.channel = file.getChannel();
+
+        try {
+            boolean created = file.length() == 0;
+            map(Math.max(file.length(), HEADER_SIZE));
+            if (created) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(END_POSITION, HEADER_SIZE);
+                buffer.putInt(USED_POSITION, 0);
+            } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a frame region file: " + path);
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Check whether a chunk has ever been written to this file
+     *
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return True if the chunk has a record, even an empty one
+     */
+    public boolean contains(int chunkX, int chunkZ) {
+        return buffer.getInt(entry(chunkX, chunkZ)) != 0;
+    }
+
+    /**
+     * Read the frame blocks of a chunk
+     *
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The frames, empty if the chunk has no record
+     */
+    public List<FrameBlockRecord> read(int chunkX, int chunkZ) {
+        int entry = entry(chunkX, chunkZ);
+        int offset = buffer.getInt(entry);
+        if (offset == 0) {
+            return new ArrayList<>();
+        }
+
+        return decode(buffer.slice(offset, buffer.getInt(entry + 4)), chunkX, chunkZ);
+    }
+
+    /**
+     * Replace the frame blocks of a chunk
+     *
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @param frames The chunk's frames; every frame must lie inside the chunk
+     * @throws IOException If the file cannot grow
+     */
+    public void write(int chunkX, int chunkZ, List<FrameBlockRecord> frames) throws IOException {
+        byte[] record = encode(frames);
+        int entry = entry(chunkX, chunkZ);
+        int offset = buffer.getInt(entry);
+        int capacity = buffer.getInt(entry + 8);
+
+        if (offset == 0 || record.length > capacity) {
+            if (offset != 0) {
+                buffer.putInt(USED_POSITION, buffer.getInt(USED_POSITION) - capacity);
+            }
+            // Leave room to grow so a chunk that gains a few frames stays in place
+            capacity = record.length + record.length / 4 + 8;
+            offset = allocate(capacity);
+            buffer.putInt(USED_POSITION, buffer.getInt(USED_POSITION) + capacity);
+        }
+
+        buffer.put(offset, record);
+        buffer.putInt(entry, offset);
+        buffer.putInt(entry + 4, record.length);
+        buffer.putInt(entry + 8, capacity);
+
+        int dataSize = buffer.getInt(END_POSITION) - HEADER_SIZE;
+        int waste = dataSize - buffer.getInt(USED_POSITION);
+        if (waste > MIN_COMPACT_WASTE && waste > dataSize / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * Write changes to disk
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Write changes to disk and close the file
+     *
+     * @throws IOException If closing fails
+     */
+    public void close() throws IOException {
+        force();
+        channel.close();
+        file.close();
+    }
+
+    /**
+     * Reserve space at the end of the data area
+     */
+    private int allocate(int size) throws IOException {
+        int offset = buffer.getInt(END_POSITION);
+        long end = (long) offset + size;
+        if (end > Integer.MAX_VALUE) {
+            throw new IOException("Frame region file is full");
+        }
+        if (end > buffer.capacity()) {
+            map(Math.min(Integer.MAX_VALUE, Math.max(end, (long) buffer.capacity() * 2) + GROWTH_STEP));
+        }
+        buffer.putInt(END_POSITION, (int) end);
+        return offset;
+    }
+
+    /**
+     * Rewrite every record back to back, dropping abandoned slots
+     */
+    private void compact() {
+        byte[][] records = new byte[CHUNKS][];
+        for (int i = 0; i < CHUNKS; i++) {
+            int entry = TABLE_POSITION + i * ENTRY_SIZE;
+            int offset = buffer.getInt(entry);
+            if (offset != 0) {
+                records[i] = new byte[buffer.getInt(entry + 4)];
+                buffer.get(offset, records[i]);
+            }
+        }
+
+        int position = HEADER_SIZE;
+        for (int i = 0; i < CHUNKS; i++) {
+            if (records[i] == null) {
+                continue;
+            }
+            int entry = TABLE_POSITION + i * ENTRY_SIZE;
+            int capacity = buffer.getInt(entry + 8);
+            buffer.put(position, records[i]);
+            buffer.putInt(entry, position);
+            position += capacity;
+        }
+        buffer.putInt(END_POSITION, position);
+    }
+
+    private void map(long size) throws IOException {
+        if (buffer != null) {
+            buffer.force();
+        }
+        if (file.length() < size) {
+            file.setLength(size);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private static int entry(int chunkX, int chunkZ) {
+        return TABLE_POSITION + ((chunkX & 31) + (chunkZ & 31) * 32) * ENTRY_SIZE;
+    }
+
+    private static byte[] encode(List<FrameBlockRecord> frames) {
+        List<FrameBlockRecord> sorted = new ArrayList<>(frames);
+        sorted.sort(Comparator.comparingInt(FrameBlockRecord::y));
+
+        Map<UUID, Integer> owners = new LinkedHashMap<>();
+        for (FrameBlockRecord frame : sorted) {
+            if (frame.owner() != null) {
+                owners.putIfAbsent(frame.owner(), owners.size() + 1);
+            }
+        }
+
+        // At most 1 + 5 * 5 bytes per frame, 16 per owner, plus the counts
+        ByteBuffer out = ByteBuffer.allocate(10 + owners.size() * 16 + sorted.size() * 26);
+        writeVarInt(out, sorted.size());
+        writeVarInt(out, owners.size());
+        for (UUID owner : owners.keySet()) {
+            out.putLong(owner.getMostSignificantBits());
+            out.putLong(owner.getLeastSignificantBits());
+        }
+        int y = 0;
+        for (FrameBlockRecord frame : sorted) {
+            out.put((byte) (((frame.x() & 0xF) << 4) | (frame.z() & 0xF)));
+            writeVarInt(out, zigzagEncode(frame.y() - y));
+            writeVarInt(out, frame.tier());
+            writeVarInt(out, Math.max(frame.durability(), FrameBlockRecord.FULL_DURABILITY) + 1);
+            writeVarInt(out, frame.upgradeProgress());
+            writeVarInt(out, frame.owner() != null ? owners.get(frame.owner()) : 0);
+            y = frame.y();
+        }
+
+        byte[] record = new byte[out.position()];
+        out.flip().get(record);
+        return record;
+    }
+
+    private static List<FrameBlockRecord> decode(ByteBuffer record, int chunkX, int chunkZ) {
+        int count = readVarInt(record);
+        UUID[] owners = new UUID[readVarInt(record)];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = new UUID(record.getLong(), record.getLong());
+        }
+
+        List<FrameBlockRecord> frames = new ArrayList<>(count);
+        int baseX = chunkX << 4;
+        int baseZ = chunkZ << 4;
+        int y = 0;
+        for (int i = 0; i < count; i++) {
+            int packed = record.get() & 0xFF;
+            y += zigzagDecode(readVarInt(record));
+            int tier = readVarInt(record);
+            int durability = readVarInt(record) - 1;
+            int upgradeProgress = readVarInt(record);
+            int ownerIndex = readVarInt(record);
+            UUID owner = ownerIndex == 0 ? null : owners[ownerIndex - 1];
+            frames.add(new FrameBlockRecord(baseX | (packed >>> 4), y, baseZ | (packed & 0xF), tier,
+                    owner, durability, upgradeProgress));
+        }
+        return frames;
+    }
+
+    private static void writeVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static int zigzagEncode(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int zigzagDecode(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
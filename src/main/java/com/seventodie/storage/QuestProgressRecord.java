@@ -0,0 +1,9 @@
+package com.seventodie.storage;
+
+import java.util.UUID;
+
+/**
+ * A player's progress on a quest, as stored in the player_quests table.
+ */
+public record QuestProgressRecord(UUID playerId, UUID questId, int progress) {
+}
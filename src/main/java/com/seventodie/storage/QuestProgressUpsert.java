@@ -0,0 +1,30 @@
+package com.seventodie.storage;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Insert or replace a player's progress on a quest.
+ */
+public record QuestProgressUpsert(QuestProgressRecord progress) implements Mutation {
+
+    private static final Map<SqlDialect, String> SQL = SqlDialect.upserts("player_quests",
+            List.of("player_id", "quest_id", "progress"),
+            List.of("player_id", "quest_id"));
+
+    @Override
+    public String getKey() {
+        return "player_quests:" + progress.playerId() + ":" + progress.questId();
+    }
+
+    @Override
+    public void write(Batch batch) throws SQLException {
+        PreparedStatement stmt = batch.statement(SQL.get(batch.dialect()));
+        stmt.setString(1, progress.playerId().toString());
+        stmt.setString(2, progress.questId().toString());
+        stmt.setInt(3, progress.progress());
+        stmt.addBatch();
+    }
+}
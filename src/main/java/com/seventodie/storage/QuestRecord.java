@@ -0,0 +1,11 @@
+package com.seventodie.storage;
+
+import java.util.UUID;
+
+/**
+ * A quest row as stored in the quests table.
+ */
+public record QuestRecord(UUID id, String title, String description, String targetType, int targetAmount,
+                          String world, double x, double y, double z, UUID structureId,
+                          boolean completed) implements PositionalRecord {
+}
@@ -0,0 +1,24 @@
+package com.seventodie.storage;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Insert or replace one positional record in its table.
+ *
+ * @param <T> The record type
+ */
+public record RowUpsert<T extends PositionalRecord>(TableMapping<T> mapping, T record) implements Mutation {
+
+    @Override
+    public String getKey() {
+        return mapping.getTable() + ":" + record.id();
+    }
+
+    @Override
+    public void write(Batch batch) throws SQLException {
+        PreparedStatement stmt = batch.statement(mapping.getUpsert(batch.dialect()));
+        mapping.bind(stmt, record);
+        stmt.addBatch();
+    }
+}
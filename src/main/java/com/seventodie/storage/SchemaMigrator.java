@@ -0,0 +1,189 @@
+package com.seventodie.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Applies schema migrations in version order and records each one in the
+ * schema_version table.
+ *
+ * Every migration runs in its own transaction together with its version row,
+ * so a failed migration leaves the schema at the last version that applied
+ * cleanly and is retried on the next start. MySQL commits each DDL statement
+ * on its own, so a migration that fails there can leave part of its changes
+ * behind; migrations therefore check for each table, column and index before
+ * creating it, and a retry completes the partial migration instead of failing
+ * on it.
+ *
+ * On MySQL, where several servers may share one database, migrating holds a
+ * named lock so only one server migrates at a time. The lock belongs to the
+ * database session, which outlives a pooled connection's close, so it is
+ * always released explicitly.
+ */
+public class SchemaMigrator {
+
+    /**
+     * One step of a migration
+     */
+    @FunctionalInterface
+    public interface Step {
+        void apply(Connection connection) throws SQLException;
+    }
+
+    /**
+     * A numbered schema change
+     *
+     * @param version The schema version this migration produces
+     * @param description A short description, stored with the version
+     * @param step The change
+     */
+    public record Migration(int version, String description, Step step) {
+    }
+
+    private static final String TABLE_SCHEMA_VERSION = "schema_version";
+    private static final String LOCK_NAME = "seventodie_schema";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private final Logger logger;
+    private final List<Migration> migrations;
+
+    /**
+     * Constructor for SchemaMigrator
+     *
+     * @param logger The logger for applied migrations
+     * @param migrations The migrations, in any order
+     */
+    public SchemaMigrator(Logger logger, List<Migration> migrations) {
+        this.logger = logger;
+        this.migrations = new ArrayList<>(migrations);
+        this.migrations.sort(Comparator.comparingInt(Migration::version));
+    }
+
+    /**
+     * Apply every migration newer than the database's current version
+     *
+     * @param connection The connection to migrate on
+     * @return The schema version after migrating
+     * @throws SQLException If a migration fails
+     */
+    public int migrate(Connection connection) throws SQLException {
+        boolean locked = acquireLock(connection);
+        try {
+            return migrateLocked(connection);
+        } finally {
+            if (locked) {
+                releaseLock(connection);
+            }
+        }
+    }
+
+    private int migrateLocked(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + TABLE_SCHEMA_VERSION + " ("
+                    + "version INTEGER PRIMARY KEY, "
+                    + "description VARCHAR(255) NOT NULL, "
+                    + "applied_at BIGINT NOT NULL"
+                    + ")");
+        }
+
+        int current = getVersion(connection);
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            for (Migration migration : migrations) {
+                if (migration.version() <= current) {
+                    continue;
+                }
+                try {
+                    migration.step().apply(connection);
+                    try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + TABLE_SCHEMA_VERSION
+                            + " (version, description, applied_at) VALUES (?, ?, ?)")) {
+                        insert.setInt(1, migration.version());
+                        insert.setString(2, migration.description());
+                        insert.setLong(3, System.currentTimeMillis());
+                        insert.executeUpdate();
+                    }
+                    connection.commit();
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw new SQLException("Schema migration " + migration.version() + " ("
+                            + migration.description() + ") failed", e);
+                }
+                current = migration.version();
+                logger.info("Applied schema migration " + current + ": " + migration.description());
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return current;
+    }
+
+    /**
+     * Take the MySQL named lock that serializes migrations between servers.
+     * Other databases have a single server per file or run locally, and H2
+     * does not support named locks, so they take no lock.
+     *
+     * @param connection The connection to migrate on; the lock belongs to its session
+     * @return True if a lock was taken and must be released
+     * @throws SQLException If the lock is not granted in time
+     */
+    private static boolean acquireLock(Connection connection) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName();
+        if (product == null || !(product.contains("MySQL") || product.contains("MariaDB"))) {
+            return false;
+        }
+        try (PreparedStatement lock = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            lock.setString(1, LOCK_NAME);
+            lock.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = lock.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another server to finish migrating the schema");
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Release the MySQL named lock. Closing a pooled connection only returns
+     * it to the pool with its session, and the lock, still open; if the
+     * release fails the physical connection is aborted so the session ends.
+     *
+     * @param connection The connection the lock was taken on
+     */
+    private void releaseLock(Connection connection) {
+        try (PreparedStatement release = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            release.setString(1, LOCK_NAME);
+            release.executeQuery().close();
+        } catch (SQLException e) {
+            logger.warning("Failed to release the schema migration lock, closing its connection: " + e.getMessage());
+            try {
+                connection.abort(Runnable::run);
+            } catch (SQLException abortError) {
+                logger.warning("Failed to close the connection holding the schema migration lock: "
+                        + abortError.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get the newest version recorded in the schema_version table
+     *
+     * @param connection The connection
+     * @return The version, or 0 for a new database
+     * @throws SQLException If the query fails
+     */
+    public static int getVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT MAX(version) FROM " + TABLE_SCHEMA_VERSION)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
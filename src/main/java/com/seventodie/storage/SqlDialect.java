@@ -0,0 +1,127 @@
+package com.seventodie.storage;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The SQL differences between the supported databases.
+ *
+ * MySQL is also what H2 accepts in MySQL compatibility mode, which is how the
+ * MySQL backend can be run locally without a server.
+ */
+public enum SqlDialect {
+
+    SQLITE {
+        @Override
+        public String upsert(String table, List<String> columns, List<String> keyColumns) {
+            return "INSERT OR REPLACE INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                    + placeholders(columns.size()) + ")";
+        }
+
+        @Override
+        public String keyType() {
+            return "TEXT";
+        }
+
+        @Override
+        public String createIndex(String name, String table, String columns) {
+            return "CREATE INDEX IF NOT EXISTS " + name + " ON " + table + " (" + columns + ")";
+        }
+
+        @Override
+        public String foreignKey(String column, String referencedTable) {
+            return ", FOREIGN KEY (" + column + ") REFERENCES " + referencedTable + "(id)";
+        }
+    },
+
+    MYSQL {
+        @Override
+        public String upsert(String table, List<String> columns, List<String> keyColumns) {
+            // VALUES() keeps the statement in the form the driver can rewrite into multi-row inserts
+            String updates = columns.stream()
+                    .filter(column -> !keyColumns.contains(column))
+                    .map(column -> column + " = VALUES(" + column + ")")
+                    .collect(Collectors.joining(", "));
+            return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                    + placeholders(columns.size()) + ") ON DUPLICATE KEY UPDATE " + updates;
+        }
+
+        @Override
+        public String keyType() {
+            // TEXT columns cannot be keys or indexed without a prefix length
+            return "VARCHAR(64)";
+        }
+
+        @Override
+        public String createIndex(String name, String table, String columns) {
+            // MySQL has no IF NOT EXISTS here; migrations check for the index first
+            return "CREATE INDEX " + name + " ON " + table + " (" + columns + ")";
+        }
+
+        @Override
+        public String foreignKey(String column, String referencedTable) {
+            // SQLite never enforced these, and write-behind flushes do not order
+            // parent rows first, so they are left out rather than enforced here
+            return "";
+        }
+    };
+
+    /**
+     * Build an insert that replaces the row with the same key
+     *
+     * @param table The table
+     * @param columns Every column written, in parameter order
+     * @param keyColumns The primary key columns
+     * @return The SQL
+     */
+    public abstract String upsert(String table, List<String> columns, List<String> keyColumns);
+
+    /**
+     * Get the column type for string keys and indexed strings
+     *
+     * @return The type
+     */
+    public abstract String keyType();
+
+    /**
+     * Build a CREATE INDEX statement
+     *
+     * @param name The index name
+     * @param table The table
+     * @param columns The indexed columns, comma separated
+     * @return The SQL
+     */
+    public abstract String createIndex(String name, String table, String columns);
+
+    /**
+     * Build a foreign key clause to append to a column list
+     *
+     * @param column The referencing column
+     * @param referencedTable The table whose id column is referenced
+     * @return The clause, including its leading comma, or an empty string
+     */
+    public abstract String foreignKey(String column, String referencedTable);
+
+    /**
+     * Build the upsert for every dialect, for mutations that keep their SQL in constants
+     *
+     * @param table The table
+     * @param columns Every column written, in parameter order
+     * @param keyColumns The primary key columns
+     * @return The SQL by dialect
+     */
+    public static Map<SqlDialect, String> upserts(String table, List<String> columns, List<String> keyColumns) {
+        Map<SqlDialect, String> sql = new EnumMap<>(SqlDialect.class);
+        for (SqlDialect dialect : values()) {
+            sql.put(dialect, dialect.upsert(table, columns, keyColumns));
+        }
+        return sql;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,554 @@
+package com.seventodie.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of game state changes that are otherwise only in memory
+ * until the next save: quest progress, quest state, frame state and trader state.
+ *
+ * Recording a change serializes it into an in-memory buffer and returns; a
+ * background thread writes the buffer to the current segment file and forces
+ * it to disk every commit interval, so one fsync covers every change made in
+ * that interval (group commit). At most one interval of changes is lost in a crash.
+ *
+ * Every entry holds the full new value, never a delta, so replaying a segment
+ * twice or replaying it over a newer database snapshot is harmless. Each entry
+ * is framed by its length and a CRC32, and replay stops at the first torn or
+ * corrupt entry of a segment.
+ *
+ * Compaction: {@link #rotate()} starts a new segment, the caller saves a full
+ * snapshot to the database, and once that is written {@link #deleteBefore(long)}
+ * drops the segments the snapshot covers.
+ */
+public class StateJournal {
+
+    /**
+     * Receives journal entries during replay, oldest first
+     */
+    public interface Replayer {
+        void questProgress(QuestProgressRecord record);
+
+        void quest(QuestRecord record);
+
+        /**
+         * @param frame The frame's new state; a negative tier means the frame was removed
+         */
+        void frame(String world, FrameBlockRecord frame);
+
+        void trader(TraderRecord record);
+    }
+
+    private static final byte TYPE_QUEST_PROGRESS = 1;
+    private static final byte TYPE_QUEST = 2;
+    private static final byte TYPE_FRAME = 3;
+    private static final byte TYPE_TRADER = 4;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int ENTRY_HEADER_SIZE = 8;
+    private static final int MAX_ENTRY_SIZE = 1 << 20;
+
+    private final Logger logger;
+    private final File directory;
+    private final long commitIntervalMs;
+
+    private final ReentrantLock bufferLock = new ReentrantLock();
+    private final Condition dataAvailable = bufferLock.newCondition();
+    // Held while swapping the buffer and writing it, so buffers reach segments in order
+    private final ReentrantLock channelLock = new ReentrantLock();
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream(128);
+    private final DataOutputStream payloadOut = new DataOutputStream(payload);
+    private final CRC32 crc = new CRC32();
+
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+    private FileChannel channel;
+    private long segment;
+    private Thread commitThread;
+    private volatile boolean running;
+
+    // Metrics
+    private volatile long totalEntries;
+    private volatile long totalCommits;
+    private volatile long totalBytes;
+
+    /**
+     * Constructor for StateJournal
+     *
+     * @param logger The logger
+     * @param directory The directory holding the segment files
+     * @param commitIntervalMs How often buffered entries are written and forced to disk
+     */
+    public StateJournal(Logger logger, File directory, long commitIntervalMs) {
+        this.logger = logger;
+        this.directory = directory;
+        this.commitIntervalMs = Math.max(1, commitIntervalMs);
+    }
+
+    /**
+     * Start a new segment after the existing ones and start the commit thread.
+     * Existing segments are left for {@link #replay(long, Replayer)}.
+     *
+     * @return The new segment's number; every older segment predates this run
+     * @throws IOException If the segment cannot be created
+     */
+    public long open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create " + directory);
+        }
+
+        List<Long> existing = listSegments();
+        long next = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+        channelLock.lock();
+        try {
+            openSegment(next);
+        } finally {
+            channelLock.unlock();
+        }
+
+        running = true;
+        commitThread = new Thread(this::run, "SevenToDie-Journal");
+        commitThread.setDaemon(true);
+        commitThread.start();
+        return next;
+    }
+
+    /**
+     * Replay every segment older than the given one
+     *
+     * @param before The first segment not to replay, normally the one returned by {@link #open()}
+     * @param replayer Receives the entries
+     * @return The number of entries replayed
+     */
+    public int replay(long before, Replayer replayer) {
+        int replayed = 0;
+        for (long number : listSegments()) {
+            if (number >= before) {
+                break;
+            }
+            File file = segmentFile(number);
+            try {
+                ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+                replayed += replaySegment(file, data, replayer);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to read journal segment " + file.getName(), e);
+            }
+        }
+        return replayed;
+    }
+
+    private int replaySegment(File file, ByteBuffer data, Replayer replayer) {
+        int replayed = 0;
+        CRC32 check = new CRC32();
+        while (data.remaining() >= ENTRY_HEADER_SIZE) {
+            int start = data.position();
+            int length = data.getInt();
+            int expected = data.getInt();
+            if (length <= 0 || length > MAX_ENTRY_SIZE || length > data.remaining()) {
+                data.position(start);
+                break;
+            }
+            check.reset();
+            check.update(data.array(), data.position(), length);
+            if ((int) check.getValue() != expected) {
+                data.position(start);
+                break;
+            }
+
+            DataInputStream entry = new DataInputStream(
+                    new ByteArrayInputStream(data.array(), data.position(), length));
+            data.position(data.position() + length);
+            try {
+                replayEntry(entry, replayer);
+                replayed++;
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "Skipping unreadable journal entry in " + file.getName(), e);
+            }
+        }
+
+        if (data.hasRemaining()) {
+            logger.warning("Journal segment " + file.getName() + " ends with a torn entry; ignoring the last "
+                    + data.remaining() + " bytes");
+        }
+        return replayed;
+    }
+
+    private void replayEntry(DataInputStream in, Replayer replayer) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_QUEST_PROGRESS:
+                replayer.questProgress(new QuestProgressRecord(readUuid(in), readUuid(in), in.readInt()));
+                break;
+            case TYPE_QUEST:
+                replayer.quest(new QuestRecord(readUuid(in), in.readUTF(), in.readUTF(), in.readUTF(),
+                        in.readInt(), in.readUTF(), in.readDouble(), in.readDouble(), in.readDouble(),
+                        readNullableUuid(in), in.readBoolean()));
+                break;
+            case TYPE_FRAME:
+                replayer.frame(in.readUTF(), new FrameBlockRecord(in.readInt(), in.readInt(), in.readInt(),
+                        in.readInt(), readNullableUuid(in), in.readInt(), in.readInt()));
+                break;
+            case TYPE_TRADER:
+                replayer.trader(new TraderRecord(readUuid(in), in.readUTF(), in.readUTF(), in.readDouble(),
+                        in.readDouble(), in.readDouble(), readNullableUuid(in), in.readBoolean()));
+                break;
+            default:
+                throw new IOException("Unknown journal entry type " + type);
+        }
+    }
+
+    /**
+     * Record a player's progress on a quest
+     *
+     * @param record The new progress
+     */
+    public void recordQuestProgress(QuestProgressRecord record) {
+        append("quest progress", () -> {
+            payloadOut.writeByte(TYPE_QUEST_PROGRESS);
+            writeUuid(record.playerId());
+            writeUuid(record.questId());
+            payloadOut.writeInt(record.progress());
+        });
+    }
+
+    /**
+     * Record a quest's new state
+     *
+     * @param record The quest
+     */
+    public void recordQuest(QuestRecord record) {
+        append("a quest", () -> {
+            payloadOut.writeByte(TYPE_QUEST);
+            writeUuid(record.id());
+            payloadOut.writeUTF(record.title());
+            payloadOut.writeUTF(record.description());
+            payloadOut.writeUTF(record.targetType());
+            payloadOut.writeInt(record.targetAmount());
+            payloadOut.writeUTF(record.world());
+            payloadOut.writeDouble(record.x());
+            payloadOut.writeDouble(record.y());
+            payloadOut.writeDouble(record.z());
+            writeNullableUuid(record.structureId());
+            payloadOut.writeBoolean(record.completed());
+        });
+    }
+
+    /**
+     * Record a frame block's new state
+     *
+     * @param world The world name
+     * @param frame The frame's new state; a negative tier means the frame was removed
+     */
+    public void recordFrame(String world, FrameBlockRecord frame) {
+        append("a frame block", () -> {
+            payloadOut.writeByte(TYPE_FRAME);
+            payloadOut.writeUTF(world);
+            payloadOut.writeInt(frame.x());
+            payloadOut.writeInt(frame.y());
+            payloadOut.writeInt(frame.z());
+            payloadOut.writeInt(frame.tier());
+            writeNullableUuid(frame.owner());
+            payloadOut.writeInt(frame.durability());
+            payloadOut.writeInt(frame.upgradeProgress());
+        });
+    }
+
+    /**
+     * Record a trader's new state
+     *
+     * @param record The trader
+     */
+    public void recordTrader(TraderRecord record) {
+        append("a trader", () -> {
+            payloadOut.writeByte(TYPE_TRADER);
+            writeUuid(record.id());
+            payloadOut.writeUTF(record.name());
+            payloadOut.writeUTF(record.world());
+            payloadOut.writeDouble(record.x());
+            payloadOut.writeDouble(record.y());
+            payloadOut.writeDouble(record.z());
+            writeNullableUuid(record.structureId());
+            payloadOut.writeBoolean(record.open());
+        });
+    }
+
+    /**
+     * Writes one entry's payload
+     */
+    @FunctionalInterface
+    private interface EntryWriter {
+        void write() throws IOException;
+    }
+
+    /**
+     * Write an entry and append it to the buffer. An entry that cannot be
+     * written, e.g. a string over 64 KiB, is logged and skipped rather than
+     * thrown at the caller; the change still reaches the database with the
+     * next snapshot.
+     *
+     * @param what What the entry records, for the log
+     * @param writer Writes the payload
+     */
+    private void append(String what, EntryWriter writer) {
+        bufferLock.lock();
+        try {
+            writer.write();
+            appendEntry();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to journal " + what, e);
+        } finally {
+            // A payload left partly written would be prepended to the next entry
+            payload.reset();
+            bufferLock.unlock();
+        }
+    }
+
+    /**
+     * Frame the payload written so far and append it to the buffer. Called
+     * with the buffer lock held.
+     */
+    private void appendEntry() throws IOException {
+        byte[] bytes = payload.toByteArray();
+        payload.reset();
+        crc.reset();
+        crc.update(bytes);
+
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(bytes.length);
+        out.writeInt((int) crc.getValue());
+        out.write(bytes);
+        totalEntries++;
+        dataAvailable.signal();
+    }
+
+    /**
+     * Finish the current segment and continue in a new one. Everything
+     * recorded before this call is in the finished segment or older ones.
+     *
+     * @return The new segment's number
+     * @throws IOException If the new segment cannot be created
+     */
+    public long rotate() throws IOException {
+        channelLock.lock();
+        try {
+            commit();
+            channel.close();
+            openSegment(segment + 1);
+            return segment;
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    /**
+     * Delete every segment older than the given one, once their entries are
+     * in a database snapshot
+     *
+     * @param before The first segment to keep
+     */
+    public void deleteBefore(long before) {
+        for (long number : listSegments()) {
+            if (number >= before) {
+                break;
+            }
+            File file = segmentFile(number);
+            if (!file.delete()) {
+                logger.warning("Failed to delete journal segment " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * Write everything recorded so far and stop the commit thread
+     *
+     * @param snapshotSaved True if every recorded change was also saved to the
+     *        database, in which case all segments are deleted
+     */
+    public void close(boolean snapshotSaved) {
+        running = false;
+        bufferLock.lock();
+        try {
+            dataAvailable.signal();
+        } finally {
+            bufferLock.unlock();
+        }
+        if (commitThread != null) {
+            try {
+                commitThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        channelLock.lock();
+        try {
+            if (channel != null) {
+                commit();
+                channel.close();
+                channel = null;
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to write the journal on shutdown", e);
+        } finally {
+            channelLock.unlock();
+        }
+
+        if (snapshotSaved) {
+            deleteBefore(Long.MAX_VALUE);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            bufferLock.lock();
+            try {
+                while (running && buffer.size() == 0) {
+                    dataAvailable.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                bufferLock.unlock();
+            }
+
+            try {
+                // Let more changes arrive so one fsync covers all of them
+                Thread.sleep(commitIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            channelLock.lock();
+            try {
+                commit();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Failed to write the journal", e);
+            } finally {
+                channelLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Write the buffer to the current segment and force it to disk. Called
+     * with the channel lock held.
+     */
+    private void commit() throws IOException {
+        byte[] bytes;
+        bufferLock.lock();
+        try {
+            if (buffer.size() == 0) {
+                return;
+            }
+            bytes = buffer.toByteArray();
+            buffer = new ByteArrayOutputStream(Math.max(8192, bytes.length));
+        } finally {
+            bufferLock.unlock();
+        }
+
+        ByteBuffer data = ByteBuffer.wrap(bytes);
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+        channel.force(false);
+        totalCommits++;
+        totalBytes += bytes.length;
+    }
+
+    private void openSegment(long number) throws IOException {
+        channel = FileChannel.open(segmentFile(number).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segment = number;
+    }
+
+    private File segmentFile(long number) {
+        return new File(directory, SEGMENT_PREFIX + String.format("%016d", number) + SEGMENT_SUFFIX);
+    }
+
+    private List<Long> listSegments() {
+        List<Long> numbers = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return numbers;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private void writeUuid(UUID id) throws IOException {
+        payloadOut.writeLong(id.getMostSignificantBits());
+        payloadOut.writeLong(id.getLeastSignificantBits());
+    }
+
+    private void writeNullableUuid(UUID id) throws IOException {
+        payloadOut.writeBoolean(id != null);
+        if (id != null) {
+            writeUuid(id);
+        }
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static UUID readNullableUuid(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readUuid(in) : null;
+    }
+
+    /**
+     * Get the number of entries recorded since the journal was opened
+     *
+     * @return The entry count
+     */
+    public long getTotalEntries() {
+        return totalEntries;
+    }
+
+    /**
+     * Get the number of group commits, each one fsync
+     *
+     * @return The commit count
+     */
+    public long getTotalCommits() {
+        return totalCommits;
+    }
+
+    /**
+     * Get the number of bytes written
+     *
+     * @return The byte count
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+}
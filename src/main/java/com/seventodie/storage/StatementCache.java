@@ -0,0 +1,141 @@
+package com.seventodie.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepared statements cached per physical connection.
+ *
+ * Statements are keyed on the driver's own connection (unwrapped from the
+ * pool proxy), so they survive the connection being returned to and borrowed
+ * from the pool. Callers must not close statements obtained from the cache.
+ * A connection is only ever used by one thread at a time, so the per-connection
+ * maps need no locking of their own.
+ */
+public class StatementCache {
+
+    private final int maxPerConnection;
+    private final Map<Connection, Map<String, PreparedStatement>> statements = new ConcurrentHashMap<>();
+
+    // Statistics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor for StatementCache
+     *
+     * @param maxPerConnection The maximum statements kept for each connection
+     */
+    public StatementCache(int maxPerConnection) {
+        this.maxPerConnection = maxPerConnection;
+    }
+
+    /**
+     * Get a cached prepared statement, preparing it on the first use
+     *
+     * @param connection The connection, as borrowed from the pool
+     * @param sql The SQL
+     * @return The prepared statement, with parameters cleared
+     * @throws SQLException If the statement cannot be prepared
+     */
+    public PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        Connection raw = unwrap(connection);
+        Map<String, PreparedStatement> cached = statements.get(raw);
+        if (cached == null) {
+            purgeClosed();
+            cached = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= maxPerConnection) {
+                        return false;
+                    }
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+            };
+            statements.put(raw, cached);
+        }
+
+        PreparedStatement statement = cached.get(sql);
+        if (statement != null && !statement.isClosed()) {
+            hits.incrementAndGet();
+            statement.clearParameters();
+            return statement;
+        }
+
+        misses.incrementAndGet();
+        statement = raw.prepareStatement(sql);
+        cached.put(sql, statement);
+        return statement;
+    }
+
+    /**
+     * Drop the statements of connections the pool has closed
+     */
+    private void purgeClosed() {
+        Iterator<Map.Entry<Connection, Map<String, PreparedStatement>>> iterator = statements.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Connection, Map<String, PreparedStatement>> entry = iterator.next();
+            try {
+                if (!entry.getKey().isClosed()) {
+                    continue;
+                }
+            } catch (SQLException ignored) {
+                // Treat a connection that cannot report its state as closed
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Close every cached statement
+     */
+    public void clear() {
+        for (Map<String, PreparedStatement> cached : statements.values()) {
+            for (PreparedStatement statement : cached.values()) {
+                closeQuietly(statement);
+            }
+        }
+        statements.clear();
+    }
+
+    /**
+     * Get the number of statements served from the cache
+     *
+     * @return The hit count
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of statements that had to be prepared
+     *
+     * @return The miss count
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static Connection unwrap(Connection connection) {
+        try {
+            return connection.unwrap(Connection.class);
+        } catch (SQLException e) {
+            return connection;
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // Closing is best effort
+        }
+    }
+}
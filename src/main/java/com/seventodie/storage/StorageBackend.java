@@ -0,0 +1,61 @@
+package com.seventodie.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A database the plugin can persist to.
+ *
+ * Writes go through {@link #getWriteConnection()}, which the write-behind
+ * queue borrows for each flush. Loads go through {@link #getReadConnection()}.
+ * A backend may hand out the same pool for both.
+ */
+public interface StorageBackend {
+
+    /**
+     * Get a display name for the backend
+     *
+     * @return The name
+     */
+    String getName();
+
+    /**
+     * Get the SQL dialect the backend speaks
+     *
+     * @return The dialect
+     */
+    SqlDialect getDialect();
+
+    /**
+     * Borrow a connection for writes
+     *
+     * @return The connection
+     * @throws SQLException If no connection becomes available in time
+     */
+    Connection getWriteConnection() throws SQLException;
+
+    /**
+     * Borrow a connection for reads
+     *
+     * @return The connection
+     * @throws SQLException If no connection becomes available in time
+     */
+    Connection getReadConnection() throws SQLException;
+
+    /**
+     * Get the prepared statement cache for this backend's connections
+     *
+     * @return The statement cache
+     */
+    StatementCache getStatementCache();
+
+    /**
+     * Retire every pooled connection so fresh ones are opened
+     */
+    void evictConnections();
+
+    /**
+     * Close the backend's connections
+     */
+    void close();
+}
@@ -0,0 +1,311 @@
+package com.seventodie.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded executor for blocking storage work: JDBC queries and region file reads.
+ *
+ * At most maxThreads tasks run at once, gated by a semaphore. Tasks that find
+ * no free permit wait in a bounded queue; a task is handed to a new thread only
+ * when a permit is free, and that thread keeps draining the queue until it is
+ * empty. With virtual threads each burst costs a cheap virtual thread and a
+ * blocked JDBC call parks instead of holding a platform thread; the semaphore
+ * still caps how many connections are in use at once, since the pools are sized
+ * to match.
+ *
+ * When the queue is full the rejection policy applies, so slow storage turns
+ * into back-pressure on callers instead of an ever-growing queue. Threads that
+ * must never block on storage, such as the server thread, are always refused
+ * rather than made to run the task.
+ */
+public class StorageExecutor implements Executor {
+
+    /**
+     * What to do with a task when the queue is full
+     */
+    public enum RejectionPolicy {
+        /** Run the task on the submitting thread, slowing the submitter down, unless that thread may not block */
+        CALLER_RUNS,
+        /** Throw a RejectedExecutionException, failing the task's future */
+        ABORT;
+
+        /**
+         * Parse a policy from a config value such as "caller-runs"
+         *
+         * @param value The config value
+         * @return The policy, or ABORT if the value is not recognized
+         */
+        public static RejectionPolicy fromConfig(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                return ABORT;
+            }
+        }
+    }
+
+    private static final int LATENCY_SAMPLES = 1024;
+
+    private final Logger logger;
+    private final int maxThreads;
+    private final RejectionPolicy rejectionPolicy;
+    private final BooleanSupplier callerMayBlock;
+    private final Semaphore permits;
+    private final BlockingQueue<TimedTask> queue;
+    private final ExecutorService launcher;
+    private volatile boolean closed;
+
+    private final AtomicLong totalCompleted = new AtomicLong();
+    private final AtomicLong totalRejected = new AtomicLong();
+    private final AtomicLong totalCallerRuns = new AtomicLong();
+    // Submit-to-completion times of the most recent tasks, as a ring buffer
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private final AtomicLong latencyIndex = new AtomicLong();
+
+    /**
+     * Constructor for StorageExecutor
+     *
+     * @param logger The logger
+     * @param maxThreads The most tasks that run at once
+     * @param queueSize The most tasks that wait for a free thread
+     * @param rejectionPolicy What to do with tasks when the queue is full
+     * @param callerMayBlock Whether the submitting thread may run a rejected task itself
+     * @param virtualThreads Whether to run tasks on virtual threads
+     * @param threadPriority The priority of platform threads; ignored for virtual threads
+     */
+    public StorageExecutor(Logger logger, int maxThreads, int queueSize, RejectionPolicy rejectionPolicy,
+                           BooleanSupplier callerMayBlock, boolean virtualThreads, int threadPriority) {
+        this.logger = logger;
+        this.maxThreads = Math.max(1, maxThreads);
+        this.rejectionPolicy = rejectionPolicy;
+        this.callerMayBlock = callerMayBlock;
+        this.permits = new Semaphore(this.maxThreads);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+
+        if (virtualThreads) {
+            this.launcher = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("SevenToDie-Db-", 1).factory());
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            int priority = Math.max(Thread.MIN_PRIORITY, Math.min(Thread.MAX_PRIORITY, threadPriority));
+            ThreadFactory factory = runnable -> {
+                Thread thread = new Thread(runnable, "SevenToDie-Db-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(priority);
+                return thread;
+            };
+            // Idle threads are kept for a minute, so bursts reuse them
+            this.launcher = Executors.newCachedThreadPool(factory);
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (closed) {
+            throw new RejectedExecutionException("Storage executor is shut down");
+        }
+
+        TimedTask task = new TimedTask(command, System.nanoTime());
+        if (permits.tryAcquire()) {
+            startWorker(task);
+            return;
+        }
+
+        if (!queue.offer(task)) {
+            reject(task);
+            return;
+        }
+
+        // Every worker may have finished between the failed tryAcquire and the offer
+        if (permits.tryAcquire()) {
+            startWorker(null);
+        }
+    }
+
+    /**
+     * Stop accepting tasks and wait for queued and running tasks to finish
+     *
+     * @param timeout The longest time to wait
+     * @param unit The unit of the timeout
+     * @return True if every task finished in time
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        closed = true;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            // Workers drain the queue before giving up their permits
+            while (permits.availablePermits() < maxThreads || !queue.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                if (!queue.isEmpty() && permits.tryAcquire()) {
+                    startWorker(null);
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(10)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        boolean finished = permits.availablePermits() == maxThreads && queue.isEmpty();
+        if (!finished) {
+            logger.warning("Storage executor shut down with " + getActiveCount() + " tasks running and "
+                    + queue.size() + " queued");
+            queue.clear();
+        }
+        launcher.shutdownNow();
+        return finished;
+    }
+
+    /**
+     * Run tasks on a new thread until the queue is empty. The caller holds a
+     * permit, which the worker gives back when it stops.
+     *
+     * @param first The first task, or null to start with the queue
+     */
+    private void startWorker(TimedTask first) {
+        try {
+            launcher.execute(() -> runWorker(first));
+        } catch (RejectedExecutionException e) {
+            // The launcher only rejects once shut down
+            permits.release();
+            if (first != null) {
+                reject(first);
+            }
+        }
+    }
+
+    private void runWorker(TimedTask first) {
+        TimedTask task = first != null ? first : queue.poll();
+        while (true) {
+            while (task != null) {
+                run(task);
+                task = queue.poll();
+            }
+            permits.release();
+
+            // A task queued after the last poll may have found no free permit
+            if (queue.isEmpty() || !permits.tryAcquire()) {
+                return;
+            }
+            task = queue.poll();
+        }
+    }
+
+    private void run(TimedTask task) {
+        try {
+            task.command.run();
+        } catch (RuntimeException | Error e) {
+            logger.log(Level.WARNING, "Storage task failed", e);
+        } finally {
+            recordLatency(System.nanoTime() - task.submitted);
+            totalCompleted.incrementAndGet();
+        }
+    }
+
+    private void reject(TimedTask task) {
+        totalRejected.incrementAndGet();
+        // Running blocking JDBC on the server thread would stall the tick, so it is refused instead
+        if (rejectionPolicy == RejectionPolicy.CALLER_RUNS && !closed && callerMayBlock.getAsBoolean()) {
+            totalCallerRuns.incrementAndGet();
+            run(task);
+            return;
+        }
+        throw new RejectedExecutionException("Storage queue is full (" + queue.size() + " tasks)");
+    }
+
+    private void recordLatency(long nanos) {
+        latencies[(int) (latencyIndex.getAndIncrement() % LATENCY_SAMPLES)] = nanos;
+    }
+
+    /**
+     * Get the number of tasks running now
+     *
+     * @return The active task count
+     */
+    public int getActiveCount() {
+        return maxThreads - permits.availablePermits();
+    }
+
+    /**
+     * Get the number of tasks waiting for a thread
+     *
+     * @return The queue depth
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Get the most tasks that run at once
+     *
+     * @return The thread limit
+     */
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * Get the number of tasks that ran to completion
+     *
+     * @return The completed task count
+     */
+    public long getTotalCompleted() {
+        return totalCompleted.get();
+    }
+
+    /**
+     * Get the number of tasks that found the queue full, including those
+     * the rejection policy ran on the caller
+     *
+     * @return The rejected task count
+     */
+    public long getTotalRejected() {
+        return totalRejected.get();
+    }
+
+    /**
+     * Get the number of rejected tasks that ran on the submitting thread
+     *
+     * @return The caller-run task count
+     */
+    public long getTotalCallerRuns() {
+        return totalCallerRuns.get();
+    }
+
+    /**
+     * Get the 99th percentile time from submit to completion over the most
+     * recent tasks
+     *
+     * @return The latency in nanoseconds, or 0 if no task has run
+     */
+    public long getP99LatencyNanos() {
+        int count = (int) Math.min(latencyIndex.get(), LATENCY_SAMPLES);
+        if (count == 0) {
+            return 0;
+        }
+        long[] samples = Arrays.copyOf(latencies, count);
+        Arrays.sort(samples);
+        return samples[Math.min(count - 1, (int) Math.ceil(count * 0.99) - 1)];
+    }
+
+    /**
+     * A task and the time it was submitted
+     */
+    private record TimedTask(Runnable command, long submitted) {
+    }
+}
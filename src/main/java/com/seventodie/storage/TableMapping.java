@@ -0,0 +1,181 @@
+package com.seventodie.storage;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Maps a positional record type to its table.
+ *
+ * Every mapped table has an id primary key, a world column and the chunk_x and
+ * chunk_z columns, which are written from the record's coordinates and not
+ * stored on the record itself.
+ *
+ * @param <T> The record type
+ */
+public abstract class TableMapping<T extends PositionalRecord> {
+
+    public static final TableMapping<StructureRecord> STRUCTURES = new TableMapping<>("structures",
+            List.of("id", "type", "world", "x", "y", "z", "size_x", "size_y", "size_z", "schematic", "rotation")) {
+        @Override
+        protected int bindColumns(PreparedStatement stmt, StructureRecord record) throws SQLException {
+            stmt.setString(1, record.id().toString());
+            stmt.setString(2, record.type());
+            stmt.setString(3, record.world());
+            stmt.setDouble(4, record.x());
+            stmt.setDouble(5, record.y());
+            stmt.setDouble(6, record.z());
+            stmt.setDouble(7, record.sizeX());
+            stmt.setDouble(8, record.sizeY());
+            stmt.setDouble(9, record.sizeZ());
+            stmt.setString(10, record.schematic());
+            stmt.setInt(11, record.rotation());
+            return 12;
+        }
+
+        @Override
+        public StructureRecord read(ResultSet rs) throws SQLException {
+            return new StructureRecord(UUID.fromString(rs.getString("id")), rs.getString("type"),
+                    rs.getString("world"), rs.getDouble("x"), rs.getDouble("y"), rs.getDouble("z"),
+                    rs.getDouble("size_x"), rs.getDouble("size_y"), rs.getDouble("size_z"),
+                    rs.getString("schematic"), rs.getInt("rotation"));
+        }
+    };
+
+    public static final TableMapping<TraderRecord> TRADERS = new TableMapping<>("traders",
+            List.of("id", "name", "world", "x", "y", "z", "structure_id", "is_open")) {
+        @Override
+        protected int bindColumns(PreparedStatement stmt, TraderRecord record) throws SQLException {
+            stmt.setString(1, record.id().toString());
+            stmt.setString(2, record.name());
+            stmt.setString(3, record.world());
+            stmt.setDouble(4, record.x());
+            stmt.setDouble(5, record.y());
+            stmt.setDouble(6, record.z());
+            stmt.setString(7, record.structureId() != null ? record.structureId().toString() : null);
+            stmt.setBoolean(8, record.open());
+            return 9;
+        }
+
+        @Override
+        public TraderRecord read(ResultSet rs) throws SQLException {
+            String structureId = rs.getString("structure_id");
+            return new TraderRecord(UUID.fromString(rs.getString("id")), rs.getString("name"),
+                    rs.getString("world"), rs.getDouble("x"), rs.getDouble("y"), rs.getDouble("z"),
+                    structureId != null ? UUID.fromString(structureId) : null, rs.getBoolean("is_open"));
+        }
+    };
+
+    public static final TableMapping<QuestRecord> QUESTS = new TableMapping<>("quests",
+            List.of("id", "title", "description", "target_type", "target_amount", "world", "x", "y", "z",
+                    "structure_id", "completed")) {
+        @Override
+        protected int bindColumns(PreparedStatement stmt, QuestRecord record) throws SQLException {
+            stmt.setString(1, record.id().toString());
+            stmt.setString(2, record.title());
+            stmt.setString(3, record.description());
+            stmt.setString(4, record.targetType());
+            stmt.setInt(5, record.targetAmount());
+            stmt.setString(6, record.world());
+            stmt.setDouble(7, record.x());
+            stmt.setDouble(8, record.y());
+            stmt.setDouble(9, record.z());
+            stmt.setString(10, record.structureId() != null ? record.structureId().toString() : null);
+            stmt.setBoolean(11, record.completed());
+            return 12;
+        }
+
+        @Override
+        public QuestRecord read(ResultSet rs) throws SQLException {
+            String structureId = rs.getString("structure_id");
+            return new QuestRecord(UUID.fromString(rs.getString("id")), rs.getString("title"),
+                    rs.getString("description"), rs.getString("target_type"), rs.getInt("target_amount"),
+                    rs.getString("world"), rs.getDouble("x"), rs.getDouble("y"), rs.getDouble("z"),
+                    structureId != null ? UUID.fromString(structureId) : null, rs.getBoolean("completed"));
+        }
+    };
+
+    private final String table;
+    private final String columns;
+    private final Map<SqlDialect, String> upserts;
+
+    /**
+     * Constructor for TableMapping
+     *
+     * @param table The table name
+     * @param columns The record's columns, in the order {@link #bindColumns} binds them
+     */
+    protected TableMapping(String table, List<String> columns) {
+        this.table = table;
+        this.columns = String.join(", ", columns);
+
+        List<String> written = new ArrayList<>(columns);
+        written.add("chunk_x");
+        written.add("chunk_z");
+        this.upserts = SqlDialect.upserts(table, written, List.of("id"));
+    }
+
+    /**
+     * Bind the record's own columns
+     *
+     * @param stmt The statement
+     * @param record The record
+     * @return The index of the next parameter
+     * @throws SQLException If binding fails
+     */
+    protected abstract int bindColumns(PreparedStatement stmt, T record) throws SQLException;
+
+    /**
+     * Read a record from the current row of a query built with {@link #getColumns()}
+     *
+     * @param rs The result set
+     * @return The record
+     * @throws SQLException If reading fails
+     */
+    public abstract T read(ResultSet rs) throws SQLException;
+
+    /**
+     * Bind every column of the upsert, including the chunk coordinates
+     *
+     * @param stmt The upsert statement
+     * @param record The record
+     * @throws SQLException If binding fails
+     */
+    public void bind(PreparedStatement stmt, T record) throws SQLException {
+        int next = bindColumns(stmt, record);
+        stmt.setInt(next, SchemaMigrations.toChunk(record.x()));
+        stmt.setInt(next + 1, SchemaMigrations.toChunk(record.z()));
+    }
+
+    /**
+     * Get the table name
+     *
+     * @return The table name
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Get the record's columns, comma separated, for SELECT statements
+     *
+     * @return The columns
+     */
+    public String getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the upsert for a dialect
+     *
+     * @param dialect The dialect
+     * @return The SQL
+     */
+    public String getUpsert(SqlDialect dialect) {
+        return upserts.get(dialect);
+    }
+}
@@ -0,0 +1,36 @@
+package com.seventodie.storage;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Insert a trade into the ledger. Written as an upsert on the trade ID, so a
+ * retried flush does not record the trade twice.
+ */
+public record TradeInsert(TradeRecord trade) implements Mutation {
+
+    private static final Map<SqlDialect, String> SQL = SqlDialect.upserts("trade_ledger",
+            List.of("id", "player_id", "trader_id", "material", "amount", "price", "side", "created_at"),
+            List.of("id"));
+
+    @Override
+    public String getKey() {
+        return "trade_ledger:" + trade.id();
+    }
+
+    @Override
+    public void write(Batch batch) throws SQLException {
+        PreparedStatement stmt = batch.statement(SQL.get(batch.dialect()));
+        stmt.setString(1, trade.id().toString());
+        stmt.setString(2, trade.playerId().toString());
+        stmt.setString(3, trade.traderId().toString());
+        stmt.setString(4, trade.material());
+        stmt.setInt(5, trade.amount());
+        stmt.setLong(6, trade.price());
+        stmt.setString(7, trade.side().name());
+        stmt.setLong(8, trade.time());
+        stmt.addBatch();
+    }
+}
@@ -0,0 +1,30 @@
+package com.seventodie.storage;
+
+import java.util.UUID;
+
+/**
+ * One buy or sell at a trader, as stored in the trade_ledger table. Trades
+ * are never changed once recorded.
+ *
+ * @param id The trade ID
+ * @param playerId The player who traded
+ * @param traderId The outpost traded with
+ * @param material The item's material name
+ * @param amount The number of items
+ * @param price The total price
+ * @param side Whether the player bought or sold
+ * @param time When the trade happened, in epoch milliseconds
+ */
+public record TradeRecord(UUID id, UUID playerId, UUID traderId, String material, int amount, long price,
+                          Side side, long time) {
+
+    /**
+     * The direction of a trade, from the player's side
+     */
+    public enum Side {
+        /** The player bought from the trader */
+        BUY,
+        /** The player sold to the trader */
+        SELL
+    }
+}
@@ -0,0 +1,18 @@
+package com.seventodie.storage;
+
+import java.util.UUID;
+
+/**
+ * One day's trade totals for an item at a trader, as stored in the
+ * trade_totals table.
+ *
+ * @param day The day, as days since the epoch in UTC
+ * @param traderId The outpost
+ * @param material The item's material name
+ * @param side Whether players bought or sold
+ * @param volume The number of items traded
+ * @param revenue The total price paid
+ */
+public record TradeTotalRecord(int day, UUID traderId, String material, TradeRecord.Side side, long volume,
+                               long revenue) {
+}
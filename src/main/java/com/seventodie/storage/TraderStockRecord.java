@@ -0,0 +1,10 @@
+package com.seventodie.storage;
+
+import java.util.UUID;
+
+/**
+ * A trader outpost's current stock, as stored in the trader_stock table. The
+ * stock itself is an opaque encoded snapshot owned by the trader stock engine.
+ */
+public record TraderStockRecord(UUID traderId, long restockedAt, String stock) {
+}
@@ -0,0 +1,358 @@
+package com.seventodie.storage;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams every plugin table to and from a gzip-compressed NDJSON file, for
+ * moving a world's data between servers.
+ *
+ * The first line is a header with the format and schema version; every other
+ * line is one row, {"table": ..., "row": {column: value}}. Tables are written
+ * parents first, so rows referencing a structure or quest follow it.
+ *
+ * Both directions hold one row in memory at a time. Exports read with a
+ * forward-only cursor; imports upsert in JDBC batches and commit every
+ * {@link #TRANSACTION_SIZE} rows, returning the write connection between
+ * transactions so the write-behind queue can still flush.
+ */
+public class WorldDataTransfer {
+
+    /**
+     * Receives progress while a transfer runs
+     */
+    @FunctionalInterface
+    public interface Progress {
+        /**
+         * @param table The table being transferred
+         * @param rows The rows of that table transferred so far
+         */
+        void report(String table, long rows);
+    }
+
+    private static final String FORMAT = "seventodie-export";
+    private static final int FORMAT_VERSION = 1;
+    private static final int FETCH_SIZE = 1000;
+    private static final int BATCH_SIZE = 1000;
+    private static final int TRANSACTION_SIZE = 50000;
+    private static final int PROGRESS_INTERVAL = 25000;
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_]+");
+
+    // Every exported table and its primary key, parents before children
+    private static final Map<String, List<String>> TABLES = new LinkedHashMap<>();
+
+    static {
+        TABLES.put("structures", List.of("id"));
+        TABLES.put("quests", List.of("id"));
+        TABLES.put("traders", List.of("id"));
+        TABLES.put("player_quests", List.of("player_id", "quest_id"));
+        TABLES.put("frame_blocks", List.of("world", "x", "y", "z"));
+        TABLES.put("trader_stock", List.of("trader_id"));
+        TABLES.put("player_balances", List.of("player_id"));
+        TABLES.put("trade_ledger", List.of("id"));
+        TABLES.put("trade_totals", List.of("trade_day", "trader_id", "material", "side"));
+    }
+
+    private final StorageBackend backend;
+
+    /**
+     * Constructor for WorldDataTransfer
+     *
+     * @param backend The storage backend to read from or write to
+     */
+    public WorldDataTransfer(StorageBackend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * Write every table to a file. The file is written under a temporary name
+     * and moved into place once complete.
+     *
+     * @param file The file to write
+     * @param progress Receives progress
+     * @return The number of rows written per table
+     * @throws IOException If the file cannot be written
+     * @throws SQLException If a table cannot be read
+     */
+    public Map<String, Long> exportTo(File file, Progress progress) throws IOException, SQLException {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        File temp = new File(file.getPath() + ".tmp");
+
+        try (Connection connection = backend.getReadConnection();
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                     new GZIPOutputStream(new FileOutputStream(temp), 65536), StandardCharsets.UTF_8))) {
+            JsonObject header = new JsonObject();
+            header.addProperty("format", FORMAT);
+            header.addProperty("version", FORMAT_VERSION);
+            header.addProperty("schema", SchemaMigrator.getVersion(connection));
+            out.write(header.toString());
+            out.write('\n');
+
+            for (String table : TABLES.keySet()) {
+                counts.put(table, exportTable(connection, table, out, progress));
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return counts;
+    }
+
+    /**
+     * Upsert every row of an export file. Rows already in the database with
+     * the same key are replaced; other rows are left alone.
+     *
+     * @param file The file to read
+     * @param progress Receives progress
+     * @return The number of rows imported per table
+     * @throws IOException If the file cannot be read or is not an export
+     * @throws SQLException If rows cannot be written
+     */
+    public Map<String, Long> importFrom(File file, Progress progress) throws IOException, SQLException {
+        Map<String, Long> counts = new LinkedHashMap<>();
+
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(file), 65536), StandardCharsets.UTF_8))) {
+            checkHeader(in.readLine());
+
+            String line = in.readLine();
+            while (line != null) {
+                line = importTransaction(in, line, counts, progress);
+            }
+        }
+
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            progress.report(entry.getKey(), entry.getValue());
+        }
+        return counts;
+    }
+
+    /**
+     * Stream one table with a forward-only cursor
+     */
+    private long exportTable(Connection connection, String table, Writer out, Progress progress)
+            throws IOException, SQLException {
+        long rows = 0;
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = statement.executeQuery("SELECT * FROM " + table)) {
+                ResultSetMetaData meta = rs.getMetaData();
+                String[] columns = new String[meta.getColumnCount()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = meta.getColumnLabel(i + 1).toLowerCase();
+                }
+
+                while (rs.next()) {
+                    out.write(toLine(table, columns, rs));
+                    out.write('\n');
+                    if (++rows % PROGRESS_INTERVAL == 0) {
+                        progress.report(table, rows);
+                    }
+                }
+            }
+        }
+        progress.report(table, rows);
+        return rows;
+    }
+
+    private static String toLine(String table, String[] columns, ResultSet rs) throws IOException, SQLException {
+        StringWriter line = new StringWriter(128);
+        JsonWriter json = new JsonWriter(line);
+        json.setSerializeNulls(true);
+        json.beginObject();
+        json.name("table").value(table);
+        json.name("row").beginObject();
+        for (int i = 0; i < columns.length; i++) {
+            json.name(columns[i]);
+            Object value = rs.getObject(i + 1);
+            if (value == null) {
+                json.nullValue();
+            } else if (value instanceof Boolean bool) {
+                json.value(bool);
+            } else if (value instanceof Number number) {
+                json.value(number);
+            } else {
+                json.value(value.toString());
+            }
+        }
+        json.endObject();
+        json.endObject();
+        json.close();
+        return line.toString();
+    }
+
+    private void checkHeader(String line) throws IOException {
+        try {
+            JsonObject header = line != null ? JsonParser.parseString(line).getAsJsonObject() : null;
+            if (header == null || !header.has("format") || !FORMAT.equals(header.get("format").getAsString())) {
+                throw new IOException("Not a SevenToDie export file");
+            }
+            if (header.get("version").getAsInt() > FORMAT_VERSION) {
+                throw new IOException("Export file was written by a newer version of SevenToDie");
+            }
+
+            int schema = header.get("schema").getAsInt();
+            int current;
+            try (Connection connection = backend.getReadConnection()) {
+                current = SchemaMigrator.getVersion(connection);
+            }
+            if (schema > current) {
+                throw new IOException("Export file has schema version " + schema
+                        + " but this database is at version " + current);
+            }
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException | NullPointerException e) {
+            throw new IOException("Malformed export header", e);
+        } catch (SQLException e) {
+            throw new IOException("Failed to read the database schema version", e);
+        }
+    }
+
+    /**
+     * Import rows starting at the given line until the transaction is full
+     *
+     * @return The first line of the next transaction, or null at the end of the file
+     */
+    private String importTransaction(BufferedReader in, String line, Map<String, Long> counts, Progress progress)
+            throws IOException, SQLException {
+        Map<String, PreparedStatement> statements = new HashMap<>();
+        Map<PreparedStatement, Integer> pending = new HashMap<>();
+
+        try (Connection connection = backend.getWriteConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                int rows = 0;
+                while (line != null && rows < TRANSACTION_SIZE) {
+                    if (!line.isBlank()) {
+                        importRow(connection, line, statements, pending, counts, progress);
+                        rows++;
+                    }
+                    line = in.readLine();
+                }
+                for (Map.Entry<PreparedStatement, Integer> batch : pending.entrySet()) {
+                    if (batch.getValue() > 0) {
+                        batch.getKey().executeBatch();
+                    }
+                }
+                connection.commit();
+            } catch (IOException | SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                for (PreparedStatement stmt : statements.values()) {
+                    stmt.close();
+                }
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        return line;
+    }
+
+    private void importRow(Connection connection, String line, Map<String, PreparedStatement> statements,
+                           Map<PreparedStatement, Integer> pending, Map<String, Long> counts, Progress progress)
+            throws IOException, SQLException {
+        String table;
+        JsonObject row;
+        try {
+            JsonObject entry = JsonParser.parseString(line).getAsJsonObject();
+            table = entry.get("table").getAsString();
+            row = entry.getAsJsonObject("row");
+        } catch (JsonParseException | IllegalStateException | ClassCastException | NullPointerException e) {
+            throw new IOException("Malformed export line: " + abbreviate(line), e);
+        }
+
+        List<String> keys = TABLES.get(table);
+        if (keys == null || row == null) {
+            throw new IOException("Unknown table in export line: " + abbreviate(line));
+        }
+
+        // Column names come from the file, so only plain identifiers reach the SQL
+        List<String> columns = new ArrayList<>(row.keySet());
+        for (String column : columns) {
+            if (!IDENTIFIER.matcher(column).matches()) {
+                throw new IOException("Invalid column name in export line: " + abbreviate(line));
+            }
+        }
+
+        String statementKey = table + ":" + String.join(",", columns);
+        PreparedStatement stmt = statements.get(statementKey);
+        if (stmt == null) {
+            stmt = connection.prepareStatement(backend.getDialect().upsert(table, columns, keys));
+            statements.put(statementKey, stmt);
+        }
+
+        for (int i = 0; i < columns.size(); i++) {
+            bindValue(stmt, i + 1, row.get(columns.get(i)));
+        }
+        stmt.addBatch();
+
+        int batched = pending.merge(stmt, 1, Integer::sum);
+        if (batched >= BATCH_SIZE) {
+            stmt.executeBatch();
+            pending.put(stmt, 0);
+        }
+
+        long rows = counts.merge(table, 1L, Long::sum);
+        if (rows % PROGRESS_INTERVAL == 0) {
+            progress.report(table, rows);
+        }
+    }
+
+    private static void bindValue(PreparedStatement stmt, int index, JsonElement value) throws SQLException {
+        if (value == null || value.isJsonNull()) {
+            stmt.setObject(index, null);
+            return;
+        }
+
+        JsonPrimitive primitive = value.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+            stmt.setBoolean(index, primitive.getAsBoolean());
+        } else if (primitive.isNumber()) {
+            String number = primitive.getAsString();
+            if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0) {
+                stmt.setDouble(index, primitive.getAsDouble());
+            } else {
+                stmt.setLong(index, primitive.getAsLong());
+            }
+        } else {
+            stmt.setString(index, primitive.getAsString());
+        }
+    }
+
+    private static String abbreviate(String line) {
+        return line.length() > 120 ? line.substring(0, 120) + "..." : line;
+    }
+}
@@ -0,0 +1,49 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.ConnectionHealthMonitor;
+import com.seventodie.storage.QuestProgressRecord;
+import com.seventodie.storage.QuestProgressUpsert;
+import com.seventodie.storage.StorageBackend;
+import com.seventodie.storage.WriteBehindQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * JDBC repository for the player_quests table.
+ */
+public class JdbcQuestProgressRepository extends JdbcRepository implements QuestProgressRepository {
+
+    private static final String PLAYER_SQL = "SELECT quest_id, progress FROM player_quests WHERE player_id = ?";
+
+    /**
+     * Constructor for JdbcQuestProgressRepository
+     *
+     * @param backend The storage backend
+     * @param writeQueue The write-behind queue
+     * @param executor The executor that runs queries
+     * @param healthMonitor The monitor query outcomes are reported to, or null
+     */
+    public JdbcQuestProgressRepository(StorageBackend backend, WriteBehindQueue writeQueue, Executor executor,
+                                       ConnectionHealthMonitor healthMonitor) {
+        super(backend, writeQueue, executor, healthMonitor);
+    }
+
+    @Override
+    public CompletableFuture<List<QuestProgressRecord>> loadPlayer(UUID playerId) {
+        return query(PLAYER_SQL, stmt -> stmt.setString(1, playerId.toString()),
+                rs -> new QuestProgressRecord(playerId, UUID.fromString(rs.getString(1)), rs.getInt(2)));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAll(Collection<QuestProgressRecord> progress) {
+        List<QuestProgressUpsert> upserts = new ArrayList<>(progress.size());
+        for (QuestProgressRecord record : progress) {
+            upserts.add(new QuestProgressUpsert(record));
+        }
+        return write(upserts);
+    }
+}
@@ -0,0 +1,132 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.ConnectionHealthMonitor;
+import com.seventodie.storage.Mutation;
+import com.seventodie.storage.StorageBackend;
+import com.seventodie.storage.WriteBehindQueue;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Shared plumbing for the JDBC repositories: reads run on the storage
+ * executor with cached statements, writes go through the write-behind queue.
+ */
+abstract class JdbcRepository {
+
+    /**
+     * Binds query parameters
+     */
+    @FunctionalInterface
+    interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    /**
+     * Reads one row of a result set
+     *
+     * @param <R> The row type
+     */
+    @FunctionalInterface
+    interface RowReader<R> {
+        R read(ResultSet rs) throws SQLException;
+    }
+
+    private final StorageBackend backend;
+    private final WriteBehindQueue writeQueue;
+    private final Executor executor;
+    private final ConnectionHealthMonitor healthMonitor;
+
+    /**
+     * Constructor for JdbcRepository
+     *
+     * @param backend The storage backend
+     * @param writeQueue The write-behind queue
+     * @param executor The executor that runs queries
+     * @param healthMonitor The monitor query outcomes are reported to, or null
+     */
+    JdbcRepository(StorageBackend backend, WriteBehindQueue writeQueue, Executor executor,
+                   ConnectionHealthMonitor healthMonitor) {
+        this.backend = backend;
+        this.writeQueue = writeQueue;
+        this.executor = executor;
+        this.healthMonitor = healthMonitor;
+    }
+
+    /**
+     * Run a query on a reader connection
+     *
+     * @param sql The SQL
+     * @param binder Binds the parameters
+     * @param reader Reads each row
+     * @param <R> The row type
+     * @return The rows
+     */
+    <R> CompletableFuture<List<R>> query(String sql, Binder binder, RowReader<R> reader) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                List<R> rows = new ArrayList<>();
+                try (Connection connection = backend.getReadConnection()) {
+                    PreparedStatement stmt = backend.getStatementCache().prepare(connection, sql);
+                    binder.bind(stmt);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            rows.add(reader.read(rs));
+                        }
+                    }
+                } catch (SQLException e) {
+                    if (healthMonitor != null) {
+                        healthMonitor.recordFailure(e);
+                    }
+                    throw new CompletionException(e);
+                }
+                if (healthMonitor != null) {
+                    healthMonitor.recordSuccess();
+                }
+                return rows;
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            // The storage queue is full and its rejection policy is to fail
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Get the newest uncommitted mutation for a key
+     *
+     * @param key The mutation key
+     * @return The mutation, or null if the database is up to date for the key
+     */
+    Mutation getQueued(String key) {
+        return writeQueue.getQueued(key);
+    }
+
+    /**
+     * Get the newest uncommitted mutation of every key with a prefix
+     *
+     * @param prefix The key prefix
+     * @return The mutations by key
+     */
+    Map<String, Mutation> getQueuedByPrefix(String prefix) {
+        return writeQueue.getQueuedByPrefix(prefix);
+    }
+
+    /**
+     * Queue mutations on the write-behind queue
+     *
+     * @param mutations The mutations
+     * @return A future completed once they are written
+     */
+    CompletableFuture<Void> write(Collection<? extends Mutation> mutations) {
+        return writeQueue.enqueueAll(mutations);
+    }
+}
@@ -0,0 +1,50 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.BalanceRecord;
+import com.seventodie.storage.TradeRecord;
+import com.seventodie.storage.TradeTotalRecord;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory trade ledger repository. Nothing survives a restart, and the
+ * ledger itself is not kept since nothing reads it back.
+ */
+public class MemoryTradeLedgerRepository implements TradeLedgerRepository {
+
+    private final Map<UUID, Long> balances = new ConcurrentHashMap<>();
+    private final Map<String, TradeTotalRecord> totals = new ConcurrentHashMap<>();
+
+    @Override
+    public CompletableFuture<Long> loadBalance(UUID playerId) {
+        return CompletableFuture.completedFuture(balances.get(playerId));
+    }
+
+    @Override
+    public CompletableFuture<List<TradeTotalRecord>> loadTotalsSince(int firstDay) {
+        List<TradeTotalRecord> result = new ArrayList<>();
+        for (TradeTotalRecord record : totals.values()) {
+            if (record.day() >= firstDay) {
+                result.add(record);
+            }
+        }
+        return CompletableFuture.completedFuture(result);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAll(Collection<TradeRecord> trades, Collection<BalanceRecord> balances,
+                                           Collection<TradeTotalRecord> totals) {
+        for (BalanceRecord balance : balances) {
+            this.balances.put(balance.playerId(), balance.balance());
+        }
+        for (TradeTotalRecord total : totals) {
+            this.totals.put(total.day() + ":" + total.traderId() + ":" + total.material() + ":" + total.side(), total);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,29 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.QuestProgressRecord;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Repository for players' quest progress.
+ */
+public interface QuestProgressRepository {
+
+    /**
+     * Load a player's progress on every quest they have
+     *
+     * @param playerId The player's UUID
+     * @return The progress records
+     */
+    CompletableFuture<List<QuestProgressRecord>> loadPlayer(UUID playerId);
+
+    /**
+     * Insert or replace progress records
+     *
+     * @param progress The progress records
+     * @return A future completed once the records are stored
+     */
+    CompletableFuture<Void> saveAll(Collection<QuestProgressRecord> progress);
+}
@@ -0,0 +1,43 @@
+package com.seventodie.storage.repository;
+
+import com.seventodie.storage.BalanceRecord;
+import com.seventodie.storage.TradeRecord;
+import com.seventodie.storage.TradeTotalRecord;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Repository for the trade ledger, player balances and trade totals.
+ */
+public interface TradeLedgerRepository {
+
+    /**
+     * Load a player's balance
+     *
+     * @param playerId The player's UUID
+     * @return The balance, or null if the player has never traded
+     */
+    CompletableFuture<Long> loadBalance(UUID playerId);
+
+    /**
+     * Load the trade totals of recent days
+     *
+     * @param firstDay The first day to load, as days since the epoch in UTC
+     * @return The totals of that day and every later day
+     */
+    CompletableFuture<List<TradeTotalRecord>> loadTotalsSince(int firstDay);
+
+    /**
+     * Write trades together with the balances and totals they changed, in
+     * one write so they are committed together
+     *
+     * @param trades The new trades
+     * @param balances The changed balances
+     * @param totals The changed totals
+     * @return A future completed once everything is stored
+     */
+    CompletableFuture<Void> saveAll(Collection<TradeRecord> trades, Collection<BalanceRecord> balances,
+                                    Collection<TradeTotalRecord> totals);
+}
@@ -0,0 +1,392 @@
+package com.seventodie.traders;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.scheduler.BukkitTask;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+
+import com.seventodie.SevenToDiePlugin;
+import com.seventodie.menu.MenuTemplate;
+import com.seventodie.storage.TradeRecord;
+import com.seventodie.storage.TraderStockRecord;
+import com.seventodie.storage.repository.TraderStockRepository;
+import com.seventodie.traders.TraderStock.StockItem;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Generates and restocks trader stock.
+ *
+ * The stock config is compiled once into a weighted {@link StockTable} per
+ * category. Each outpost holds an immutable {@link TraderStock} snapshot;
+ * opening a trader reads the current snapshot and never generates anything
+ * unless the outpost has no stock yet. A timer off the main thread finds
+ * outposts due for a restock, rolls their new stock, swaps the snapshots in
+ * and persists them in one batch, so restock times survive restarts.
+ *
+ * Buying takes items out of the stock by swapping in a copy of the snapshot
+ * with the new amount, and settles the price through the {@link TradeLedger}.
+ * Players sell by clicking items in their own inventory while a category
+ * page is open.
+ */
+public class StockEngine {
+
+    private static final long CHECK_INTERVAL_TICKS = 20L * 60;
+
+    private final SevenToDiePlugin plugin;
+    private final TradeLedger ledger;
+    private final Map<String, StockTable> tables;
+    private final long restockMillis;
+    private final double sellRatio;
+    // Keyed by outpost ID
+    private final Map<UUID, TraderStock> stocks = new ConcurrentHashMap<>();
+    private BukkitTask restockTask;
+
+    /**
+     * Constructor for StockEngine
+     *
+     * @param plugin The SevenToDie plugin instance
+     * @param ledger The ledger trades are settled through
+     */
+    public StockEngine(SevenToDiePlugin plugin, TradeLedger ledger) {
+        this.plugin = plugin;
+        this.ledger = ledger;
+        this.tables = StockTable.compileAll(plugin.getConfigManager().getConfig("trader-stock")
+                .getConfigurationSection("categories"), plugin.getLogger());
+        long hours = Math.max(1, plugin.getConfig().getLong("mechanics.traders.restock-time", 24));
+        this.restockMillis = TimeUnit.HOURS.toMillis(hours);
+        this.sellRatio = Math.max(0, Math.min(1, plugin.getConfig().getDouble("mechanics.traders.sell-price-ratio", 0.5)));
+    }
+
+    /**
+     * Load stored stock and start the restock timer
+     */
+    public void start() {
+        getRepository().loadAll().whenComplete((records, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed to load trader stock", error);
+                return;
+            }
+            for (TraderStockRecord record : records) {
+                try {
+                    // Stock generated on demand while this loaded is newer, so keep it
+                    stocks.putIfAbsent(record.traderId(), TraderStock.decode(record.stock(), record.restockedAt()));
+                } catch (IllegalArgumentException e) {
+                    plugin.getLogger().warning("Discarding malformed stock of trader " + record.traderId());
+                }
+            }
+        });
+
+        restockTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin,
+                this::restockDue, CHECK_INTERVAL_TICKS, CHECK_INTERVAL_TICKS);
+    }
+
+    /**
+     * Get an outpost's current stock, generating it if the outpost has none yet
+     *
+     * @param outpostId The outpost ID
+     * @return The stock snapshot
+     */
+    public TraderStock getStock(UUID outpostId) {
+        TraderStock stock = stocks.get(outpostId);
+        if (stock != null) {
+            return stock;
+        }
+
+        TraderStock generated = generate(System.currentTimeMillis());
+        stock = stocks.putIfAbsent(outpostId, generated);
+        if (stock != null) {
+            return stock;
+        }
+        save(List.of(toRecord(outpostId, generated)));
+        return generated;
+    }
+
+    /**
+     * Get the trade categories every trader offers, in config order
+     *
+     * @return The categories
+     */
+    public List<String> getCategories() {
+        return List.copyOf(tables.keySet());
+    }
+
+    /**
+     * Get the menu page of a category in an outpost's current stock
+     *
+     * @param outpostId The outpost ID
+     * @param category The category
+     * @return The page
+     */
+    public MenuTemplate<TraderNPC> getPage(UUID outpostId, String category) {
+        return getStock(outpostId).getPage(category, this::renderPage);
+    }
+
+    /**
+     * Restock every outpost whose stock is older than the restock time.
+     * Runs off the main thread.
+     */
+    private void restockDue() {
+        long now = System.currentTimeMillis();
+        List<TraderStockRecord> restocked = new ArrayList<>();
+        for (Map.Entry<UUID, TraderStock> entry : stocks.entrySet()) {
+            TraderStock current = entry.getValue();
+            if (now - current.getRestockedAt() < restockMillis) {
+                continue;
+            }
+
+            TraderStock fresh = generate(now);
+            // Skipped if the stock was replaced since it was read
+            if (stocks.replace(entry.getKey(), current, fresh)) {
+                restocked.add(toRecord(entry.getKey(), fresh));
+            }
+        }
+
+        if (!restocked.isEmpty()) {
+            save(restocked);
+        }
+    }
+
+    /**
+     * Roll new stock for every category
+     *
+     * @param now The current time in epoch milliseconds
+     * @return The stock snapshot
+     */
+    private TraderStock generate(long now) {
+        Map<String, List<StockItem>> items = new LinkedHashMap<>();
+        for (StockTable table : tables.values()) {
+            items.put(table.getCategory(), table.generate(ThreadLocalRandom.current()));
+        }
+        return new TraderStock(items, now);
+    }
+
+    /**
+     * Render a category page: the items in stock and a back button in the
+     * last slot. Pages hold at most {@link StockTable#MAX_ROLLS} items, which
+     * compiling the stock tables ensures. Clicking an item buys one,
+     * shift-clicking buys a stack; clicking in the player's inventory sells.
+     */
+    private MenuTemplate<TraderNPC> renderPage(String category, List<StockItem> items) {
+        int rows = Math.min(6, items.size() / 9 + 1);
+        int backSlot = rows * 9 - 1;
+        MenuTemplate.Builder<TraderNPC> builder = MenuTemplate.builder(rows,
+                Component.text("Trader - " + category, NamedTextColor.DARK_GREEN));
+
+        for (int slot = 0; slot < items.size() && slot < backSlot; slot++) {
+            Material material = items.get(slot).material();
+            builder.button(slot, createStockItem(items.get(slot)),
+                    (player, trader, event) -> buy(player, trader, category, material, event));
+        }
+        builder.playerInventoryClick(this::sell);
+
+        ItemStack back = new ItemStack(Material.ARROW);
+        ItemMeta meta = back.getItemMeta();
+        meta.displayName(Component.text("Back", NamedTextColor.YELLOW).decoration(TextDecoration.ITALIC, false));
+        back.setItemMeta(meta);
+        // Open the next menu a tick later, since the click is still being handled
+        builder.button(backSlot, back, (player, trader, event) ->
+                plugin.getServer().getScheduler().runTask(plugin, () -> trader.openMenu(player)));
+        return builder.build();
+    }
+
+    private ItemStack createStockItem(StockItem item) {
+        ItemStack stack = new ItemStack(item.material(),
+                Math.max(1, Math.min(item.amount(), item.material().getMaxStackSize())));
+        ItemMeta meta = stack.getItemMeta();
+        meta.lore(List.of(
+                Component.text("Price: " + item.price() + " " + TradeLedger.CURRENCY, NamedTextColor.GOLD)
+                        .decoration(TextDecoration.ITALIC, false),
+                Component.text("In stock: " + item.amount(), NamedTextColor.GRAY)
+                        .decoration(TextDecoration.ITALIC, false),
+                Component.text("Sells back for " + formatSellPrice(item.price()) + " " + TradeLedger.CURRENCY
+                        + " each", NamedTextColor.GRAY).decoration(TextDecoration.ITALIC, false),
+                Component.text("Click to buy one, shift-click for a stack", NamedTextColor.DARK_GRAY)
+                        .decoration(TextDecoration.ITALIC, false)));
+        stack.setItemMeta(meta);
+        return stack;
+    }
+
+    /**
+     * Buy an item from a category page. The stock is taken first and put
+     * back if the player cannot pay, so a trade never oversells.
+     */
+    private void buy(Player player, TraderNPC trader, String category, Material material, InventoryClickEvent event) {
+        UUID outpostId = trader.getOutpost().getId();
+        TraderStock current = getStock(outpostId);
+        StockItem item = current.find(category, material);
+        if (item == null) {
+            player.sendMessage(Component.text("That item is sold out.", NamedTextColor.RED));
+            event.getInventory().setItem(event.getSlot(), null);
+            return;
+        }
+
+        int wanted = event.isShiftClick() ? material.getMaxStackSize() : 1;
+        int amount = Math.min(Math.min(wanted, item.amount()), spaceFor(player.getInventory(), material));
+        if (amount <= 0) {
+            player.sendMessage(Component.text("Your inventory is full.", NamedTextColor.RED));
+            return;
+        }
+
+        long price = (long) amount * item.price();
+        TraderStock taken = current.withAmount(category, material, item.amount() - amount);
+        if (!stocks.replace(outpostId, current, taken)) {
+            // A restock swapped the snapshot since it was read
+            player.sendMessage(Component.text("The trader just restocked. Try again.", NamedTextColor.RED));
+            return;
+        }
+
+        TradeLedger.Settlement settlement = ledger.settle(player.getUniqueId(), outpostId, material.name(),
+                amount, price, TradeRecord.Side.BUY);
+        if (settlement != TradeLedger.Settlement.OK) {
+            stocks.replace(outpostId, taken, current);
+            player.sendMessage(Component.text(settlement == TradeLedger.Settlement.NOT_LOADED
+                    ? "Your balance is still loading. Try again in a moment."
+                    : "You cannot afford that. It costs " + price + " " + TradeLedger.CURRENCY + ".",
+                    NamedTextColor.RED));
+            return;
+        }
+
+        save(List.of(toRecord(outpostId, taken)));
+        player.getInventory().addItem(new ItemStack(material, amount));
+        StockItem left = taken.find(category, material);
+        event.getInventory().setItem(event.getSlot(), left != null ? createStockItem(left) : null);
+        player.sendMessage(Component.text("Bought " + amount + " " + formatMaterial(material) + " for " + price
+                + " " + TradeLedger.CURRENCY + ". Balance: " + ledger.getBalance(player.getUniqueId()) + " "
+                + TradeLedger.CURRENCY, NamedTextColor.GREEN));
+    }
+
+    /**
+     * Sell the clicked item from the player's inventory: one, or the whole
+     * stack on shift-click. The trader buys what it stocks, at a share of
+     * its price, and only plain undamaged items.
+     */
+    private void sell(Player player, TraderNPC trader, InventoryClickEvent event) {
+        ItemStack clicked = event.getCurrentItem();
+        if (clicked == null || clicked.getType().isAir()) {
+            return;
+        }
+
+        Material material = clicked.getType();
+        int unitPrice = getStock(trader.getOutpost().getId()).findPrice(material);
+        if (unitPrice < 0) {
+            player.sendMessage(Component.text("This trader does not buy " + formatMaterial(material) + ".",
+                    NamedTextColor.RED));
+            return;
+        }
+        if (!clicked.isSimilar(new ItemStack(material))) {
+            player.sendMessage(Component.text("The trader only buys undamaged, unmodified items.", NamedTextColor.RED));
+            return;
+        }
+
+        int amount = event.isShiftClick() ? clicked.getAmount() : 1;
+        long price = sellPrice(unitPrice, amount);
+        if (price <= 0) {
+            // Items worth less than one coin are bought in lots, so the sell ratio always holds
+            long lot = sellPrice(unitPrice, clicked.getAmount()) > 0 ? minimumLot(unitPrice) : 0;
+            player.sendMessage(Component.text(lot > 0
+                    ? "The trader pays " + formatSellPrice(unitPrice) + " " + TradeLedger.CURRENCY + " each. Sell at least "
+                            + lot + " at once (shift-click for the stack)."
+                    : "The trader pays " + formatSellPrice(unitPrice) + " " + TradeLedger.CURRENCY
+                            + " each, which is not enough for this stack.", NamedTextColor.RED));
+            return;
+        }
+        TradeLedger.Settlement settlement = ledger.settle(player.getUniqueId(), trader.getOutpost().getId(),
+                material.name(), amount, price, TradeRecord.Side.SELL);
+        if (settlement != TradeLedger.Settlement.OK) {
+            player.sendMessage(Component.text("Your balance is still loading. Try again in a moment.",
+                    NamedTextColor.RED));
+            return;
+        }
+
+        ItemStack remainder = clicked.clone();
+        remainder.setAmount(clicked.getAmount() - amount);
+        event.getClickedInventory().setItem(event.getSlot(), remainder.getAmount() > 0 ? remainder : null);
+        player.sendMessage(Component.text("Sold " + amount + " " + formatMaterial(material) + " for " + price
+                + " " + TradeLedger.CURRENCY + ". Balance: " + ledger.getBalance(player.getUniqueId()) + " "
+                + TradeLedger.CURRENCY, NamedTextColor.GREEN));
+    }
+
+    /**
+     * Get what the trader pays for several items, rounded down to whole coins
+     * over the whole amount rather than per item
+     */
+    private long sellPrice(int unitPrice, int amount) {
+        // The epsilon keeps e.g. 10 * 0.3 from rounding down to 2
+        return (long) Math.floor((double) unitPrice * amount * sellRatio + 1e-9);
+    }
+
+    /**
+     * Get the fewest items that sell for at least one coin
+     */
+    private long minimumLot(int unitPrice) {
+        return (long) Math.ceil(1 / (unitPrice * sellRatio) - 1e-9);
+    }
+
+    private String formatSellPrice(int unitPrice) {
+        double each = unitPrice * sellRatio;
+        return each == Math.rint(each) ? Long.toString((long) each) : String.format(Locale.ROOT, "%.2f", each);
+    }
+
+    /**
+     * Count how many of a material fit in a player's storage slots
+     */
+    private static int spaceFor(PlayerInventory inventory, Material material) {
+        int maxStack = material.getMaxStackSize();
+        ItemStack plain = new ItemStack(material);
+        int space = 0;
+        for (ItemStack stack : inventory.getStorageContents()) {
+            if (stack == null || stack.getType().isAir()) {
+                space += maxStack;
+            } else if (stack.isSimilar(plain)) {
+                space += Math.max(0, maxStack - stack.getAmount());
+            }
+        }
+        return space;
+    }
+
+    private static String formatMaterial(Material material) {
+        return material.name().toLowerCase().replace('_', ' ');
+    }
+
+    private void save(List<TraderStockRecord> records) {
+        getRepository().saveAll(records).exceptionally(error -> {
+            plugin.getLogger().log(Level.WARNING, "Failed to save the stock of " + records.size() + " traders", error);
+            return null;
+        });
+    }
+
+    private static TraderStockRecord toRecord(UUID outpostId, TraderStock stock) {
+        return new TraderStockRecord(outpostId, stock.getRestockedAt(), stock.encode());
+    }
+
+    private TraderStockRepository getRepository() {
+        return plugin.getDatabaseManager().getRepositories().getTraderStock();
+    }
+
+    /**
+     * Stop the restock timer
+     */
+    public void cleanup() {
+        if (restockTask != null) {
+            restockTask.cancel();
+            restockTask = null;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.seventodie.utils;
+
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Weighted random choice in constant time, using Vose's alias method.
+ *
+ * Building the table is linear in the number of values; every sample after
+ * that costs one random index and one random double, however many values
+ * there are or how skewed their weights. Immutable, so one table can be
+ * sampled from any thread with that thread's own generator.
+ *
+ * @param <T> The value type
+ */
+public final class AliasTable<T> {
+
+    private final List<T> values;
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * Constructor for AliasTable
+     *
+     * @param values The values
+     * @param weights The weight of each value, in the same order; need not sum to 1
+     * @throws IllegalArgumentException If there are no values, the counts differ
+     *         or a weight is negative, infinite or NaN, or every weight is 0
+     */
+    public AliasTable(List<T> values, double[] weights) {
+        int n = values.size();
+        if (n == 0 || weights.length != n) {
+            throw new IllegalArgumentException("Expected one weight per value, got " + weights.length
+                    + " weights for " + n + " values");
+        }
+
+        double total = 0;
+        for (double weight : weights) {
+            if (!(weight >= 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Invalid weight: " + weight);
+            }
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Every weight is 0");
+        }
+
+        this.values = List.copyOf(values);
+        this.probability = new double[n];
+        this.alias = new int[n];
+
+        // Scale so the average weight is 1, then pair each under-full column
+        // with an over-full one that tops it up
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // Whatever is left is full, up to rounding error
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1;
+        }
+    }
+
+    /**
+     * Pick a value with probability proportional to its weight
+     *
+     * @param random The random generator
+     * @return The value
+     */
+    public T sample(RandomGenerator random) {
+        int column = random.nextInt(probability.length);
+        return values.get(random.nextDouble() < probability[column] ? column : alias[column]);
+    }
+
+    /**
+     * Get the number of values
+     *
+     * @return The size
+     */
+    public int size() {
+        return probability.length;
+    }
+}
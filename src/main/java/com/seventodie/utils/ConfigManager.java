@@ -62,6 +62,29 @@ public class ConfigManager {
         // Performance settings
         DEFAULT_CONFIG.put("performance.async-schematic-loading", true);
         DEFAULT_CONFIG.put("performance.block-update-throttle", 1000);
+        DEFAULT_CONFIG.put("performance.structure-placement.max-blocks-per-tick", 2000);
+        DEFAULT_CONFIG.put("performance.structure-placement.max-millis-per-tick", 2.0);
+        DEFAULT_CONFIG.put("performance.schematic-cache-mb", 64);
+        
+        // MySQL storage settings
+        DEFAULT_CONFIG.put("database.pool-size", 4);
+        DEFAULT_CONFIG.put("database.url", "");
+        DEFAULT_CONFIG.put("database.frame-block-storage", "sql");
+        DEFAULT_CONFIG.put("database.journal.enabled", true);
+        DEFAULT_CONFIG.put("database.journal.commit-interval-ms", 50);
+        DEFAULT_CONFIG.put("database.journal.compact-interval-minutes", 5);
+        
+        // SQLite storage settings
+        DEFAULT_CONFIG.put("database.sqlite.reader-connections", 4);
+        DEFAULT_CONFIG.put("database.sqlite.cache-size-kb", 16384);
+        DEFAULT_CONFIG.put("database.sqlite.mmap-size-mb", 256);
+        
+        // Threading settings
+        DEFAULT_CONFIG.put("advanced.threading.max-threads", 4);
+        DEFAULT_CONFIG.put("advanced.threading.thread-priority", 5);
+        DEFAULT_CONFIG.put("advanced.threading.virtual-threads", true);
+        DEFAULT_CONFIG.put("advanced.threading.queue-size", 1024);
+        DEFAULT_CONFIG.put("advanced.threading.rejection-policy", "abort");
     }
     
     public ConfigManager(SevenToDiePlugin plugin) {
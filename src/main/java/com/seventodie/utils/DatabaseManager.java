@@ -1,30 +1,36 @@
 package com.seventodie.utils;
 
 import com.seventodie.SevenToDiePlugin;
-import com.zaxxer.hikari.HikariConfig;
-import com.zaxxer.hikari.HikariDataSource;
+import com.seventodie.storage.ConnectionHealthMonitor;
+import com.seventodie.storage.SchemaMigrations;
+import com.seventodie.storage.SchemaMigrator;
+import com.seventodie.storage.MysqlStorage;
+import com.seventodie.storage.SqliteStorage;
+import com.seventodie.storage.StateJournal;
+import com.seventodie.storage.StorageBackend;
+import com.seventodie.storage.StorageExecutor;
+import com.seventodie.storage.WorldDataTransfer;
+import com.seventodie.storage.WriteBehindQueue;
+import com.seventodie.storage.repository.JournalReplayer;
+import com.seventodie.storage.repository.RegionFrameBlockRepository;
+import com.seventodie.storage.repository.Repositories;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.Enumeration;
-import java.util.UUID;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.logging.Level;
-import org.bukkit.Location;
-import org.bukkit.World;
 
 /**
  * Manages database operations for the plugin.
@@ -32,31 +38,17 @@ import org.bukkit.World;
 public class DatabaseManager {
 
     private final SevenToDiePlugin plugin;
-    private HikariDataSource connectionPool;
+    private StorageBackend backend;
+    private WriteBehindQueue writeQueue;
+    private ConnectionHealthMonitor healthMonitor;
+    private StorageExecutor storageExecutor;
+    private volatile Repositories repositories;
+    private StateJournal journal;
 
-    private static final int MIN_POOL_SIZE = 2;
-    private static final int MAX_POOL_SIZE = 5;
-    private static final int CONNECTION_TIMEOUT = 3000;
-    private static final int IDLE_TIMEOUT = 120000; // 2 minutes
-    private static final int MAX_LIFETIME = 300000; // 5 minutes
-    private static final int LEAK_DETECTION_THRESHOLD = 30000; // 30 seconds
+    private static final String PENDING_IMPORT_FILE = "pending-import";
 
     private boolean inMemoryMode = false;
     private File databaseFile;
-    private static final String TABLE_STRUCTURES = "structures";
-    private static final String TABLE_QUESTS = "quests";
-    private static final String TABLE_TRADERS = "traders";
-    private static final String TABLE_PLAYER_QUESTS = "player_quests";
-    private static final String TABLE_FRAME_BLOCKS = "frame_blocks";
-    private static final String[] NATIVE_LIBRARIES = {
-        "sqlite-native-win-x64.dll",
-        "sqlite-native-win-x86.dll",
-        "libsqlite-native-mac.dylib",
-        "libsqlite-native-linux-x64.so",
-        "libsqlite-native-linux-x86.so",
-        "libsqlite-native-linux-arm.so",
-        "libsqlite-native-linux-aarch64.so"
-    };
 
     public DatabaseManager(SevenToDiePlugin plugin) {
         this.plugin = plugin;
@@ -94,6 +86,18 @@ public class DatabaseManager {
             // Set up database file
             databaseFile = new File(databaseDir, "seventodie.db");
 
+            // A shared MySQL database never falls back to a local file, which would split the network's data
+            if ("mysql".equalsIgnoreCase(plugin.getConfigManager().getString("database.type", "sqlite"))) {
+                if (!initializeWithMySQL()) {
+                    plugin.getLogger().severe("MySQL initialization failed. Data will not be persisted.");
+                    return false;
+                }
+                startWriteQueue();
+                openJournal();
+                runPendingImport();
+                return true;
+            }
+
             // Try multiple approaches for database connectivity
             if (!initializeWithRelocatedSQLite()) {
                 plugin.getLogger().info("Relocated SQLite initialization failed, trying original SQLite...");
@@ -109,6 +113,9 @@ public class DatabaseManager {
             }
 
             // If we get here, one of the SQLite approaches worked
+            startWriteQueue();
+            openJournal();
+            runPendingImport();
             return true;
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "Critical error during database initialization", e);
@@ -116,6 +123,260 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Start the write-behind queue and health monitor once a persistent database is available
+     */
+    private void startWriteQueue() {
+        if (healthMonitor == null) {
+            healthMonitor = new ConnectionHealthMonitor(plugin.getLogger(), this::probeConnection,
+                    () -> getBackend().evictConnections());
+            healthMonitor.start();
+        }
+        if (writeQueue == null) {
+            writeQueue = new WriteBehindQueue(plugin.getLogger(), this::getConnection,
+                    backend.getDialect(), backend.getStatementCache());
+            writeQueue.setHealthMonitor(healthMonitor);
+        }
+        repositories = withFrameStorage(Repositories.jdbc(backend, writeQueue, getStorageExecutor(), healthMonitor));
+    }
+
+    /**
+     * Open the state journal and replay whatever an unclean shutdown left in
+     * it. Runs during startup, before any manager loads, so managers load the
+     * replayed state. If the replay cannot be written the old segments are
+     * kept and replayed again on the next start.
+     */
+    private void openJournal() {
+        ConfigManager config = plugin.getConfigManager();
+        if (!config.getBoolean("database.journal.enabled", true)) {
+            return;
+        }
+
+        StateJournal opened = new StateJournal(plugin.getLogger(), new File(plugin.getDataFolder(), "journal"),
+                config.getInt("database.journal.commit-interval-ms", 50));
+        long current;
+        try {
+            current = opened.open();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to open the state journal; changes are only saved periodically", e);
+            return;
+        }
+        journal = opened;
+
+        JournalReplayer replayer = new JournalReplayer();
+        int entries = opened.replay(current, replayer);
+        if (!replayer.isEmpty()) {
+            try {
+                replayer.apply(getRepositories()).get(60, TimeUnit.SECONDS);
+                plugin.getLogger().info("Recovered " + entries + " journal entries from an unclean shutdown");
+            } catch (ExecutionException | TimeoutException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to write recovered journal entries; keeping them for the next start", e);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        opened.deleteBefore(current);
+    }
+
+    /**
+     * Stage an export file to be imported on the next start. Importing into a
+     * running server would be undone: the managers keep their state in memory
+     * and write it back over the imported rows on the next save, journal
+     * compaction or shutdown. At startup the import runs after journal
+     * recovery and before any manager loads, so the managers load it.
+     *
+     * @param file The export file
+     * @throws IOException If the import cannot be staged
+     */
+    public void stageImport(File file) throws IOException {
+        File marker = getPendingImportFile();
+        File parent = marker.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Failed to create " + parent);
+        }
+        Files.writeString(marker.toPath(), file.getName(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the file that names the export to import on the next start
+     *
+     * @return The file, which exists only while an import is staged
+     */
+    public File getPendingImportFile() {
+        return new File(new File(plugin.getDataFolder(), "exports"), PENDING_IMPORT_FILE);
+    }
+
+    /**
+     * Run an import staged by {@link #stageImport(File)}. The staged import is
+     * dropped whether or not it succeeds, so a bad file does not fail every start.
+     */
+    private void runPendingImport() {
+        File marker = getPendingImportFile();
+        if (!marker.isFile()) {
+            return;
+        }
+
+        File file = null;
+        try {
+            file = new File(marker.getParentFile(), Files.readString(marker.toPath(), StandardCharsets.UTF_8).trim());
+            plugin.getLogger().info("Importing staged export " + file.getName() + " before loading plugin data");
+            Map<String, Long> counts = new WorldDataTransfer(backend).importFrom(file, (table, rows) ->
+                    plugin.getLogger().info("Imported " + rows + " rows of " + table));
+            long total = counts.values().stream().mapToLong(Long::longValue).sum();
+            plugin.getLogger().info("Imported " + total + " rows from " + file.getName());
+        } catch (IOException | SQLException | RuntimeException e) {
+            String name = file != null ? file.getName() : marker.getName();
+            plugin.getLogger().log(Level.SEVERE, "Staged import of " + name
+                    + " failed; rows imported before the failure were kept", e);
+        } finally {
+            if (!marker.delete()) {
+                plugin.getLogger().warning("Failed to delete " + marker
+                        + "; the import will run again on the next start");
+            }
+        }
+    }
+
+    /**
+     * Fold the journal into the database: start a new journal segment, save a
+     * snapshot, and drop the older segments once the snapshot is written
+     *
+     * @param snapshot Saves everything the journal records, completing once written
+     */
+    public void compactJournal(Supplier<CompletableFuture<Void>> snapshot) {
+        StateJournal current = journal;
+        if (current == null) {
+            return;
+        }
+
+        long segment;
+        try {
+            segment = current.rotate();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to rotate the state journal", e);
+            return;
+        }
+
+        snapshot.get().whenComplete((result, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Snapshot failed; keeping the journal until the next one", error);
+            } else {
+                current.deleteBefore(segment);
+            }
+        });
+    }
+
+    /**
+     * Get the state journal
+     *
+     * @return The journal, or null if changes are not journaled
+     */
+    public StateJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Get the executor that runs storage loads, starting it if needed
+     *
+     * @return The executor
+     */
+    public synchronized StorageExecutor getStorageExecutor() {
+        if (storageExecutor == null) {
+            ConfigManager config = plugin.getConfigManager();
+            storageExecutor = new StorageExecutor(plugin.getLogger(),
+                    config.getInt("advanced.threading.max-threads", 4),
+                    config.getInt("advanced.threading.queue-size", 1024),
+                    StorageExecutor.RejectionPolicy.fromConfig(
+                            config.getString("advanced.threading.rejection-policy", "abort")),
+                    () -> !plugin.getServer().isPrimaryThread(),
+                    config.getBoolean("advanced.threading.virtual-threads", true),
+                    config.getInt("advanced.threading.thread-priority", Thread.NORM_PRIORITY));
+        }
+        return storageExecutor;
+    }
+
+    /**
+     * Swap in region file storage for frame blocks if database.frame-block-storage
+     * asks for it. Region files work without a database, and chunks not yet in
+     * a region file are still read from the given repositories' frame blocks.
+     *
+     * @param base The repositories to start from
+     * @return The repositories to use
+     */
+    private Repositories withFrameStorage(Repositories base) {
+        String mode = plugin.getConfigManager().getString("database.frame-block-storage", "sql");
+        if (!"region".equalsIgnoreCase(mode)) {
+            return base;
+        }
+        plugin.getLogger().info("Storing frame blocks in region files");
+        return base.withFrameBlocks(new RegionFrameBlockRepository(plugin.getLogger(),
+                new File(plugin.getDataFolder(), "frames"), base.getFrameBlocks()));
+    }
+
+    /**
+     * Run the keepalive query on a reader connection
+     *
+     * @throws SQLException If the query fails
+     */
+    private void probeConnection() throws SQLException {
+        try (Connection connection = getReadConnection()) {
+            PreparedStatement stmt = backend.getStatementCache().prepare(connection, "SELECT 1");
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Keepalive query returned no rows");
+                }
+            }
+        }
+    }
+
+    /**
+     * Attempts to initialize the shared MySQL backend from the database section
+     * of the config. Setting database.url replaces the URL built from host, port
+     * and database, for example to test against H2 in MySQL mode.
+     *
+     * @return true if successful, false otherwise
+     */
+    private boolean initializeWithMySQL() {
+        ConfigManager config = plugin.getConfigManager();
+        String url = config.getString("database.url", "");
+        if (url.isEmpty()) {
+            url = "jdbc:mysql://" + config.getString("database.host", "localhost") + ":"
+                    + config.getInt("database.port", 3306) + "/" + config.getString("database.database", "seventodie");
+        }
+
+        // Register whichever driver matches the URL; the server normally provides the MySQL one
+        String[] drivers = url.startsWith("jdbc:h2:")
+                ? new String[] {"com.seventodie.lib.h2.Driver", "org.h2.Driver"}
+                : new String[] {"com.mysql.cj.jdbc.Driver", "com.mysql.jdbc.Driver", "org.mariadb.jdbc.Driver"};
+        for (String driver : drivers) {
+            try {
+                Class.forName(driver);
+                break;
+            } catch (ClassNotFoundException ignored) {
+                // Try the next driver
+            }
+        }
+
+        try {
+            backend = new MysqlStorage(url, config.getString("database.username", "root"),
+                    config.getString("database.password", ""), config.getInt("database.pool-size", 4));
+            if (!verifyConnection()) {
+                throw new SQLException("Database connection verification failed with MySQL");
+            }
+            createTables();
+            plugin.getLogger().info("Database initialized successfully with MySQL");
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to initialize MySQL database", e);
+            if (backend != null) {
+                backend.close();
+                backend = null;
+            }
+            return false;
+        }
+    }
+
     /**
      * Attempts to initialize with relocated SQLite library
      *
@@ -254,174 +515,30 @@ public class DatabaseManager {
     }
 
     /**
-     * Extract SQLite native libraries to plugin data folder
-     */
-    private void extractNativeLibraries(String packageName) {
-        try {
-            // Get OS name and architecture
-            String osName = System.getProperty("os.name").toLowerCase();
-            String osArch = System.getProperty("os.arch").toLowerCase();
-
-            // Determine library filename based on OS
-            String libFilename = null;
-            if (osName.contains("win")) {
-                libFilename = osArch.contains("64") ? "sqlite-native-win-x64.dll" : "sqlite-native-win-x86.dll";
-            } else if (osName.contains("mac") || osName.contains("darwin")) {
-                libFilename = "libsqlite-native-mac.dylib";
-            } else if (osName.contains("linux") || osName.contains("unix")) {
-                if (osArch.contains("arm") || osArch.contains("aarch")) {
-                    libFilename = osArch.contains("64") ? "libsqlite-native-linux-aarch64.so" : "libsqlite-native-linux-arm.so";
-                } else {
-                    libFilename = osArch.contains("64") ? "libsqlite-native-linux-x64.so" : "libsqlite-native-linux-x86.so";
-                }
-            }
-
-            if (libFilename == null) {
-                plugin.getLogger().warning("Unsupported OS/architecture for SQLite native library: " + osName + " " + osArch);
-                return;
-            }
-
-            // Create libs directory
-            File libsDir = new File(plugin.getDataFolder(), "libs");
-            if (!libsDir.exists()) {
-                libsDir.mkdirs();
-            }
-
-            // Attempt to extract all libraries
-            extractResourcesFromJar("native", libsDir);
-
-            // Set core system properties used by SQLite JDBC
-            System.setProperty("sqlite.purejava", "true"); // Force pure Java mode as a fallback
-
-            // Try multiple approaches
-            try {
-                // Approach 1: Try System.load direct loading on the right file
-                File libFile = new File(libsDir, libFilename);
-                if (libFile.exists()) {
-                    try {
-                        System.load(libFile.getAbsolutePath());
-                        plugin.getLogger().info("Loaded SQLite native library directly: " + libFile.getAbsolutePath());
-                    } catch (UnsatisfiedLinkError e) {
-                        plugin.getLogger().warning("Direct loading failed: " + e.getMessage());
-                    }
-                }
-
-                // Approach 2: Update java.library.path
-                addDirectoryToJavaLibraryPath(libsDir.getAbsolutePath());
-
-                // Approach 3: Use SQLite's own properties
-                System.setProperty(packageName + ".lib.path", libsDir.getAbsolutePath());
-                System.setProperty(packageName + ".lib.name", libFilename.replaceAll("^lib|\\.(so|dll|dylib)$", ""));
-                System.setProperty(packageName + ".lib.version", "3.43.0");
-
-                // Approach 4: Tell SQLite to use a specific library path for binary loading
-                System.setProperty(packageName + ".tmpdir", libsDir.getAbsolutePath());
-
-                // Approach 5: Make SQLite search the extracted native library path directly
-                System.setProperty("java.io.tmpdir", libsDir.getAbsolutePath());
-
-                plugin.getLogger().info("Set SQLite native library path to: " + libsDir.getAbsolutePath());
-
-                // Log all system properties to help with debugging
-                plugin.getLogger().info("Java library path: " + System.getProperty("java.library.path"));
-                plugin.getLogger().info("SQLite lib path: " + System.getProperty(packageName + ".lib.path"));
-                plugin.getLogger().info("SQLite lib name: " + System.getProperty(packageName + ".lib.name"));
-
-            } catch (Exception e) {
-                plugin.getLogger().log(Level.WARNING, "Failed to update library paths: " + e.getMessage(), e);
-            }
-        } catch (Exception e) {
-            plugin.getLogger().log(Level.WARNING, "Failed to extract SQLite native libraries", e);
-        }
-    }
-
-    /**
-     * Adds the specified path to the java.library.path system property and updates
-     * the ClassLoader's internal cache to reflect the change.
+     * Point the SQLite driver in the given package at the native library for
+     * this platform. Extraction is checked against a manifest and happens at
+     * most once per JAR; the driver loads the library itself from the path set here.
      *
-     * @param path the path to add to java.library.path
-     * @throws Exception if there is a reflection error
+     * @param packageName The driver's package, which prefixes its system properties
      */
-    private void addDirectoryToJavaLibraryPath(String path) throws Exception {
+    private void extractNativeLibraries(String packageName) {
         try {
-            // Get the current java.library.path
-            String libraryPath = System.getProperty("java.library.path");
-
-            // Skip if path is already in java.library.path
-            if (libraryPath.contains(path)) {
+            File jarFile = new File(getClass().getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (!jarFile.isFile()) {
+                // Not running from a JAR, so let the driver use its own bundled library
                 return;
             }
 
-            // Add the new path
-            if (libraryPath == null || libraryPath.isEmpty()) {
-                libraryPath = path;
-            } else {
-                libraryPath = path + File.pathSeparator + libraryPath;
-            }
-
-            // Set the new java.library.path
-            System.setProperty("java.library.path", libraryPath);
-
-            // Force the ClassLoader to reload the native library cache
-            // This uses reflection to access and clear a private field
-            try {
-                Field fieldSysPath = ClassLoader.class.getDeclaredField("sys_paths");
-                fieldSysPath.setAccessible(true);
-                fieldSysPath.set(null, null);
-            } catch (Exception e) {
-                plugin.getLogger().warning("Could not reset ClassLoader's native library cache: " + e.getMessage());
-            }
-
-            plugin.getLogger().info("Added to java.library.path: " + path);
-        } catch (Exception e) {
-            plugin.getLogger().warning("Failed to add directory to java.library.path: " + e.getMessage());
-            throw e;
-        }
-    }
-
-    /**
-     * Extract resources from the plugin JAR
-     */
-    private void extractResourcesFromJar(String folderName, File destDir) {
-        try {
-            URL jarUrl = getClass().getProtectionDomain().getCodeSource().getLocation();
-            if (jarUrl == null) {
-                plugin.getLogger().warning("Failed to get plugin JAR location");
+            File library = new NativeLibraryExtractor(plugin.getLogger(), new File(plugin.getDataFolder(), "libs"),
+                    jarFile).extract();
+            if (library == null) {
                 return;
             }
 
-            // Try to extract resources from the current JAR file
-            try (JarFile jar = new JarFile(new File(jarUrl.toURI()))) {
-                Enumeration<JarEntry> entries = jar.entries();
-                while (entries.hasMoreElements()) {
-                    JarEntry entry = entries.nextElement();
-                    String name = entry.getName();
-
-                    // Check if it's a native library
-                    if (name.startsWith(folderName + "/") && !entry.isDirectory()) {
-                        String fileName = name.substring(name.lastIndexOf('/') + 1);
-                        File outFile = new File(destDir, fileName);
-
-                        // Extract the file
-                        if (!outFile.exists() || outFile.length() != entry.getSize()) {
-                            try (InputStream is = jar.getInputStream(entry);
-                                 OutputStream os = new FileOutputStream(outFile)) {
-                                byte[] buffer = new byte[4096];
-                                int bytesRead;
-                                while ((bytesRead = is.read(buffer)) != -1) {
-                                    os.write(buffer, 0, bytesRead);
-                                }
-                            }
-                            outFile.setExecutable(true);
-                            plugin.getLogger().info("Extracted native library: " + fileName);
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                plugin.getLogger().log(Level.WARNING, "Failed to extract from JAR", e);
-            }
+            System.setProperty(packageName + ".lib.path", library.getParent());
+            System.setProperty(packageName + ".lib.name", library.getName());
         } catch (Exception e) {
-            plugin.getLogger().log(Level.WARNING, "Failed to extract resources from JAR", e);
+            plugin.getLogger().log(Level.WARNING, "Failed to extract SQLite native library", e);
         }
     }
 
@@ -434,7 +551,7 @@ public class DatabaseManager {
      *         mode (which simulates a working connection), false otherwise
      */
     private boolean verifyConnection() {
-        try (Connection connection = getConnection()) {
+        try (Connection connection = getReadConnection()) {
             // If no connection, we can't verify
             if (connection == null) {
                 // In our "null connection" mode, pretend verification succeeded
@@ -457,7 +574,7 @@ public class DatabaseManager {
     }
 
     /**
-     * Create database tables if they don't exist
+     * Create the database tables, or bring an existing database up to the current schema
      *
      * @throws SQLException If there is a database error
      */
@@ -469,103 +586,84 @@ public class DatabaseManager {
                 return;
             }
 
-            try (Statement statement = connection.createStatement()) {
-                // Structures table
-                statement.execute(
-                    "CREATE TABLE IF NOT EXISTS " + TABLE_STRUCTURES + " (" +
-                    "id TEXT PRIMARY KEY, " +
-                    "type TEXT NOT NULL, " +
-                    "world TEXT NOT NULL, " +
-                    "x DOUBLE NOT NULL, " +
-                    "y DOUBLE NOT NULL, " +
-                    "z DOUBLE NOT NULL, " +
-                    "size_x DOUBLE NOT NULL, " +
-                    "size_y DOUBLE NOT NULL, " +
-                    "size_z DOUBLE NOT NULL, " +
-                    "schematic TEXT NOT NULL, " +
-                    "rotation INTEGER NOT NULL" +
-                    ")"
-                );
-
-                // Quests table
-                statement.execute(
-                    "CREATE TABLE IF NOT EXISTS " + TABLE_QUESTS + " (" +
-                    "id TEXT PRIMARY KEY, " +
-                    "title TEXT NOT NULL, " +
-                    "description TEXT NOT NULL, " +
-                    "target_type TEXT NOT NULL, " +
-                    "target_amount INTEGER NOT NULL, " +
-                    "world TEXT NOT NULL, " +
-                    "x DOUBLE NOT NULL, " +
-                    "y DOUBLE NOT NULL, " +
-                    "z DOUBLE NOT NULL, " +
-                    "structure_id TEXT, " +
-                    "completed BOOLEAN NOT NULL DEFAULT 0" +
-                    ")"
-                );
-
-                // Traders table
-                statement.execute(
-                    "CREATE TABLE IF NOT EXISTS " + TABLE_TRADERS + " (" +
-                    "id TEXT PRIMARY KEY, " +
-                    "name TEXT NOT NULL, " +
-                    "world TEXT NOT NULL, " +
-                    "x DOUBLE NOT NULL, " +
-                    "y DOUBLE NOT NULL, " +
-                    "z DOUBLE NOT NULL, " +
-                    "structure_id TEXT, " +
-                    "FOREIGN KEY (structure_id) REFERENCES " + TABLE_STRUCTURES + "(id)" +
-                    ")"
-                );
-
-                // Player quests table
-                statement.execute(
-                    "CREATE TABLE IF NOT EXISTS " + TABLE_PLAYER_QUESTS + " (" +
-                    "player_id TEXT NOT NULL, " +
-                    "quest_id TEXT NOT NULL, " +
-                    "progress INTEGER NOT NULL DEFAULT 0, " +
-                    "PRIMARY KEY (player_id, quest_id), " +
-                    "FOREIGN KEY (quest_id) REFERENCES " + TABLE_QUESTS + "(id)" +
-                    ")"
-                );
-
-                // Frame blocks table
-                statement.execute(
-                    "CREATE TABLE IF NOT EXISTS " + TABLE_FRAME_BLOCKS + " (" +
-                    "world TEXT NOT NULL, " +
-                    "x INTEGER NOT NULL, " +
-                    "y INTEGER NOT NULL, " +
-                    "z INTEGER NOT NULL, " +
-                    "tier INTEGER NOT NULL DEFAULT 0, " +
-                    "PRIMARY KEY (world, x, y, z)" +
-                    ")"
-                );
-            }
+            int version = new SchemaMigrator(plugin.getLogger(), SchemaMigrations.all(getBackend().getDialect())).migrate(connection);
+            plugin.getLogger().info("Database schema is at version " + version);
         }
     }
 
+    /**
+     * Borrow a connection for writes, opening the SQLite pools on first use
+     *
+     * @return The writer connection
+     * @throws SQLException If the connection cannot be borrowed
+     */
     private Connection getConnection() throws SQLException {
-        if (connectionPool == null) {
-            HikariConfig config = new HikariConfig();
-            config.setJdbcUrl("jdbc:sqlite:" + databaseFile.getAbsolutePath());
-            config.setMinimumIdle(MIN_POOL_SIZE);
-            config.setMaximumPoolSize(MAX_POOL_SIZE);
-            config.setConnectionTimeout(CONNECTION_TIMEOUT);
-            config.setIdleTimeout(IDLE_TIMEOUT);
-            config.setMaxLifetime(MAX_LIFETIME);
-            connectionPool = new HikariDataSource(config);
-        }
-        return connectionPool.getConnection();
+        return getBackend().getWriteConnection();
+    }
+
+    /**
+     * Borrow a connection for reads, opening the SQLite pools on first use
+     *
+     * @return A reader connection
+     * @throws SQLException If no reader becomes available in time
+     */
+    private Connection getReadConnection() throws SQLException {
+        return getBackend().getReadConnection();
+    }
+
+    private StorageBackend getBackend() throws SQLException {
+        if (backend == null) {
+            ConfigManager config = plugin.getConfigManager();
+            try {
+                backend = new SqliteStorage(databaseFile,
+                        config.getInt("database.sqlite.reader-connections", 4),
+                        config.getInt("database.sqlite.cache-size-kb", 16384),
+                        config.getInt("database.sqlite.mmap-size-mb", 256));
+            } catch (RuntimeException e) {
+                throw new SQLException("Failed to open SQLite connection pools", e);
+            }
+        }
+        return backend;
     }
 
     /**
      * Shut down the database connection
      */
     public void shutdown() {
+        if (healthMonitor != null) {
+            healthMonitor.shutdown();
+            healthMonitor = null;
+        }
+
+        // Write queued region file saves and close the files; they do not go through the queue
+        if (repositories != null) {
+            repositories.close();
+        }
+
+        // Let running and queued loads finish before the pool goes away
+        if (storageExecutor != null) {
+            storageExecutor.shutdown(5, TimeUnit.SECONDS);
+            storageExecutor = null;
+        }
+
+        // Write everything still queued before the pool goes away
+        boolean drained = false;
+        if (writeQueue != null) {
+            drained = writeQueue.shutdown();
+            plugin.getLogger().info("Write-behind queue flushed (" + writeQueue.getTotalFlushed() + " writes total)");
+            writeQueue = null;
+        }
+
+        // The final saves are in the database, so the journal is only needed if they were not all written
+        if (journal != null) {
+            journal.close(drained);
+            journal = null;
+        }
+
         try {
-            if (connectionPool != null) {
-                connectionPool.close();
-                plugin.getLogger().info("Database connection pool closed");
+            if (backend != null) {
+                backend.close();
+                plugin.getLogger().info("Database connection pools closed");
             }
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "Error closing database connection pool", e);
@@ -573,16 +671,14 @@ public class DatabaseManager {
     }
 
     /**
-     * Check if the database connection is available
+     * Check if the database connection is available. Reads the state tracked
+     * by the health monitor and never touches the database.
      *
      * @return true if the connection is available, false otherwise
      */
     public boolean isConnectionAvailable() {
-        try (Connection connection = getConnection()) {
-            return connection != null && !connection.isClosed() && verifyConnection();
-        } catch (SQLException e) {
-            return false;
-        }
+        ConnectionHealthMonitor monitor = healthMonitor;
+        return monitor != null && monitor.isHealthy();
     }
 
     /**
@@ -625,7 +721,7 @@ public class DatabaseManager {
 
             // Skip the connection entirely - plugin will work in memory-only mode
             // This is better than trying to create a mock connection
-            connectionPool = null;
+            backend = null;
             plugin.getLogger().warning("Using no database mode. Data will not be persisted.");
 
             // Give up on real database implementation - plugin will be limited
@@ -645,52 +741,59 @@ public class DatabaseManager {
     }
 
     /**
-     * Save a structure to the database
+     * Check if writes can be persisted
      *
-     * @param id The structure ID
-     * @param type The structure type
-     * @param location The structure location
-     * @param sizeX The structure X size
-     * @param sizeY The structure Y size
-     * @param sizeZ The structure Z size
-     * @param schematic The schematic name
-     * @param rotation The rotation
-     * @return True if the operation was successful
+     * @return True if a persistent database and the write-behind queue are available
      */
-    public boolean saveStructure(UUID id, String type, Location location,
-                               double sizeX, double sizeY, double sizeZ,
-                               String schematic, int rotation) {
-        if (!isConnectionAvailable()) {
-            plugin.getLogger().severe("Database connection not available. Structure could not be saved. Attempting reconnection...");
-            if (initialize()) {
-                return saveStructure(id, type, location, sizeX, sizeY, sizeZ, schematic, rotation);
+    public boolean isPersistent() {
+        return writeQueue != null;
+    }
+
+    /**
+     * Get the repositories for stored data. Falls back to in-memory
+     * repositories when no persistent database is available, so callers never
+     * need to check.
+     *
+     * @return The repositories
+     */
+    public Repositories getRepositories() {
+        Repositories current = repositories;
+        if (current == null) {
+            synchronized (this) {
+                if (repositories == null) {
+                    repositories = withFrameStorage(Repositories.memory());
+                }
+                current = repositories;
             }
-            return false;
         }
+        return current;
+    }
 
-        String sql = "INSERT OR REPLACE INTO " + TABLE_STRUCTURES +
-                     " (id, type, world, x, y, z, size_x, size_y, size_z, schematic, rotation) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-
-        try (Connection connection = getConnection();
-             PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, id.toString());
-            stmt.setString(2, type);
-            stmt.setString(3, location.getWorld().getName());
-            stmt.setDouble(4, location.getX());
-            stmt.setDouble(5, location.getY());
-            stmt.setDouble(6, location.getZ());
-            stmt.setDouble(7, sizeX);
-            stmt.setDouble(8, sizeY);
-            stmt.setDouble(9, sizeZ);
-            stmt.setString(10, schematic);
-            stmt.setInt(11, rotation);
-
-            return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Error saving structure", e);
-            return false;
-        }
+    /**
+     * Get the connection health monitor
+     *
+     * @return The monitor, or null if no persistent database is available
+     */
+    public ConnectionHealthMonitor getHealthMonitor() {
+        return healthMonitor;
+    }
+
+    /**
+     * Get the storage backend
+     *
+     * @return The backend, or null if no database is available
+     */
+    public StorageBackend getStorageBackend() {
+        return backend;
+    }
+
+    /**
+     * Get the write-behind queue used for asynchronous writes
+     *
+     * @return The queue, or null if no persistent database is available
+     */
+    public WriteBehindQueue getWriteQueue() {
+        return writeQueue;
     }
 
     // Additional database methods would go here...
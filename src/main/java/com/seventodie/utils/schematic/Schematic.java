@@ -0,0 +1,47 @@
+package com.seventodie.utils.schematic;
+
+import org.bukkit.block.data.BlockData;
+
+/**
+ * A loaded schematic that can be placed block by block
+ */
+public interface Schematic {
+    
+    /**
+     * Get the schematic name it was loaded under
+     * 
+     * @return The name (without extension)
+     */
+    String getName();
+    
+    /**
+     * Get the size along the X axis
+     * 
+     * @return The width
+     */
+    int getWidth();
+    
+    /**
+     * Get the size along the Y axis
+     * 
+     * @return The height
+     */
+    int getHeight();
+    
+    /**
+     * Get the size along the Z axis
+     * 
+     * @return The length
+     */
+    int getLength();
+    
+    /**
+     * Get the block at a position relative to the schematic origin
+     * 
+     * @param x The x position (0 to width - 1)
+     * @param y The y position (0 to height - 1)
+     * @param z The z position (0 to length - 1)
+     * @return The block data, or null to leave the world block unchanged
+     */
+    BlockData getBlockData(int x, int y, int z);
+}
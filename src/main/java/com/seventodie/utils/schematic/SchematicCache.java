@@ -0,0 +1,244 @@
+package com.seventodie.utils.schematic;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Least-recently-used schematic cache bounded by decoded size.
+ *
+ * Each entry holds a decoded schematic and its rotated variants, which are
+ * built the first time each rotation is requested. When the total size goes
+ * over the limit, the least recently used entries are evicted.
+ *
+ * Names the loader could not find are remembered until {@link #clear()}, so
+ * a missing schematic is only looked for once. Loads run outside the cache
+ * lock; concurrent requests for a name that is loading wait for that load
+ * instead of starting another.
+ */
+public class SchematicCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> missing = new HashSet<>();
+    private final Map<String, CompletableFuture<PaletteSchematic>> loading = new HashMap<>();
+    private long totalBytes;
+    private int generation;
+
+    // Statistics
+    private long hits;
+    private long misses;
+    private long rotationsBuilt;
+    private long evictions;
+
+    /**
+     * Constructor for SchematicCache
+     *
+     * @param maxBytes The maximum decoded size to keep
+     */
+    public SchematicCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get a schematic at a rotation, loading and rotating it if needed
+     *
+     * @param name The schematic name
+     * @param rotation The rotation (0-3, clockwise)
+     * @param loader Loads the unrotated schematic on a miss, returning null if not found
+     * @return The schematic, or null if the loader could not load it
+     */
+    public PaletteSchematic get(String name, int rotation, Function<String, PaletteSchematic> loader) {
+        rotation &= 3;
+        CompletableFuture<PaletteSchematic> pending;
+        int loadGeneration = -1;
+        synchronized (this) {
+            Entry entry = entries.get(name);
+            if (entry != null) {
+                return getVariant(entry, rotation);
+            }
+            if (missing.contains(name)) {
+                hits++;
+                return null;
+            }
+            pending = loading.get(name);
+            if (pending == null) {
+                misses++;
+                pending = new CompletableFuture<>();
+                loading.put(name, pending);
+                loadGeneration = generation;
+            }
+        }
+
+        if (loadGeneration >= 0) {
+            PaletteSchematic loaded = null;
+            try {
+                loaded = loader.apply(name);
+            } finally {
+                finishLoad(name, pending, loaded, loadGeneration);
+            }
+        }
+
+        PaletteSchematic schematic = pending.join();
+        if (schematic == null) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(name);
+            // Evicted or cleared since it loaded; serve it without caching
+            return entry != null ? getVariant(entry, rotation) : schematic.rotate(rotation);
+        }
+    }
+
+    /**
+     * Cache the outcome of a load, unless the cache was cleared while it ran,
+     * and wake the requests waiting for it
+     */
+    private void finishLoad(String name, CompletableFuture<PaletteSchematic> pending, PaletteSchematic schematic,
+                            int loadGeneration) {
+        synchronized (this) {
+            loading.remove(name, pending);
+            if (loadGeneration == generation) {
+                if (schematic == null) {
+                    missing.add(name);
+                } else {
+                    Entry entry = new Entry(schematic);
+                    entries.put(name, entry);
+                    totalBytes += entry.bytes;
+                    evict(entry);
+                }
+            }
+        }
+        pending.complete(schematic);
+    }
+
+    /**
+     * Get a cached entry's variant, building it if needed. Caller holds the lock.
+     */
+    private PaletteSchematic getVariant(Entry entry, int rotation) {
+        PaletteSchematic variant = entry.variants[rotation];
+        if (variant != null) {
+            hits++;
+            return variant;
+        }
+
+        variant = entry.variants[0].rotate(rotation);
+        entry.variants[rotation] = variant;
+        entry.bytes += variant.getMemoryBytes();
+        totalBytes += variant.getMemoryBytes();
+        rotationsBuilt++;
+
+        evict(entry);
+        return variant;
+    }
+
+    /**
+     * Evict least recently used entries until the cache fits, keeping one entry
+     *
+     * @param keep The entry that must stay
+     */
+    private void evict(Entry keep) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (entry == keep) {
+                continue;
+            }
+            iterator.remove();
+            totalBytes -= entry.bytes;
+            evictions++;
+        }
+    }
+
+    /**
+     * Remove every cached schematic and forget which names were not found.
+     * Loads still running finish without being cached.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        missing.clear();
+        totalBytes = 0;
+        generation++;
+    }
+
+    /**
+     * Get the number of cached schematics
+     *
+     * @return The entry count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the decoded size of everything cached
+     *
+     * @return The size in bytes
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Get the size limit
+     *
+     * @return The size in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Get the number of requests served without loading or rotating
+     *
+     * @return The hit count
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of requests that had to load the schematic
+     *
+     * @return The miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of rotated variants built
+     *
+     * @return The rotation count
+     */
+    public synchronized long getRotationsBuilt() {
+        return rotationsBuilt;
+    }
+
+    /**
+     * Get the number of schematics evicted to stay under the size limit
+     *
+     * @return The eviction count
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * A cached schematic and its rotated variants
+     */
+    private static class Entry {
+        private final PaletteSchematic[] variants = new PaletteSchematic[4];
+        private long bytes;
+
+        Entry(PaletteSchematic schematic) {
+            variants[0] = schematic;
+            bytes = schematic.getMemoryBytes();
+        }
+    }
+}
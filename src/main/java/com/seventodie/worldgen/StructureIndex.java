@@ -0,0 +1,154 @@
+package com.seventodie.worldgen;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import com.seventodie.worldgen.StructureManager.Structure;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Spatial index of structures, bucketed per world by packed chunk coordinates.
+ * A structure is registered in every chunk its bounding box overlaps, so a
+ * point lookup only tests the structures that share the point's chunk.
+ */
+public class StructureIndex {
+
+    private final Map<UUID, Map<Long, List<Structure>>> worlds = new HashMap<>();
+
+    /**
+     * Pack chunk coordinates into a single key (same layout as Paper's chunk keys)
+     *
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The packed key
+     */
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX & 0xFFFFFFFFL) | (((long) chunkZ & 0xFFFFFFFFL) << 32);
+    }
+
+    /**
+     * Add a structure to every chunk bucket its bounding box overlaps
+     *
+     * @param structure The structure
+     */
+    public void add(Structure structure) {
+        World world = structure.getLocation().getWorld();
+        if (world == null) {
+            return;
+        }
+
+        Map<Long, List<Structure>> chunks = worlds.computeIfAbsent(world.getUID(), k -> new HashMap<>());
+
+        for (int cx = structure.getMinChunkX(); cx <= structure.getMaxChunkX(); cx++) {
+            for (int cz = structure.getMinChunkZ(); cz <= structure.getMaxChunkZ(); cz++) {
+                chunks.computeIfAbsent(chunkKey(cx, cz), k -> new ArrayList<>(2)).add(structure);
+            }
+        }
+    }
+
+    /**
+     * Remove every structure in a world
+     *
+     * @param world The world
+     */
+    public void removeWorld(World world) {
+        worlds.remove(world.getUID());
+    }
+
+    /**
+     * Remove a structure from every chunk bucket it was registered in
+     *
+     * @param structure The structure
+     */
+    public void remove(Structure structure) {
+        World world = structure.getLocation().getWorld();
+        if (world == null) {
+            return;
+        }
+
+        Map<Long, List<Structure>> chunks = worlds.get(world.getUID());
+        if (chunks == null) {
+            return;
+        }
+
+        for (int cx = structure.getMinChunkX(); cx <= structure.getMaxChunkX(); cx++) {
+            for (int cz = structure.getMinChunkZ(); cz <= structure.getMaxChunkZ(); cz++) {
+                long key = chunkKey(cx, cz);
+                List<Structure> bucket = chunks.get(key);
+                if (bucket != null && bucket.remove(structure) && bucket.isEmpty()) {
+                    chunks.remove(key);
+                }
+            }
+        }
+
+        if (chunks.isEmpty()) {
+            worlds.remove(world.getUID());
+        }
+    }
+
+    /**
+     * Find the structure containing a location
+     *
+     * @param location The location
+     * @return The structure, or null if the location is not inside one
+     */
+    public Structure find(Location location) {
+        World world = location.getWorld();
+        if (world == null) {
+            return null;
+        }
+
+        Map<Long, List<Structure>> chunks = worlds.get(world.getUID());
+        if (chunks == null) {
+            return null;
+        }
+
+        double x = location.getX();
+        double y = location.getY();
+        double z = location.getZ();
+
+        List<Structure> bucket = chunks.getOrDefault(chunkKey(floor(x) >> 4, floor(z) >> 4),
+                Collections.emptyList());
+        for (int i = 0, size = bucket.size(); i < size; i++) {
+            Structure structure = bucket.get(i);
+            if (structure.contains(x, y, z)) {
+                return structure;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the structures whose bounding boxes overlap a chunk
+     *
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The overlapping structures (do not modify)
+     */
+    public List<Structure> getInChunk(World world, int chunkX, int chunkZ) {
+        Map<Long, List<Structure>> chunks = worlds.get(world.getUID());
+        if (chunks == null) {
+            return Collections.emptyList();
+        }
+        return chunks.getOrDefault(chunkKey(chunkX, chunkZ), Collections.emptyList());
+    }
+
+    /**
+     * Remove every entry from the index
+     */
+    public void clear() {
+        worlds.clear();
+    }
+
+    private static int floor(double value) {
+        int i = (int) value;
+        return value < i ? i - 1 : i;
+    }
+}
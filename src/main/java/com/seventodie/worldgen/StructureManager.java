@@ -3,14 +3,19 @@ package com.seventodie.worldgen;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Block;
+import org.bukkit.util.Vector;
 
 import com.seventodie.SevenToDiePlugin;
+import com.seventodie.storage.StructureRecord;
+import com.seventodie.storage.repository.PositionalRepository;
 import com.seventodie.utils.SchematicUtils;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
+import java.util.logging.Level;
 
 /**
  * Manages the creation, placement, and tracking of structures in the world
@@ -21,6 +26,7 @@ public class StructureManager {
     private final SchematicUtils schematicUtils;
     private final Random random = new Random();
     private final Map<UUID, Structure> structures = new HashMap<>();
+    private final StructureIndex structureIndex = new StructureIndex();
     
     /**
      * Types of structures that can be placed
@@ -46,6 +52,59 @@ public class StructureManager {
         this.schematicUtils = schematicUtils;
     }
     
+    /**
+     * Load structures for the worlds that are already loaded. Called once
+     * after construction; worlds loaded later go through {@link #loadWorld(World)}.
+     */
+    public void loadWorlds() {
+        for (World world : plugin.getServer().getWorlds()) {
+            loadWorld(world);
+        }
+    }
+    
+    /**
+     * Load a world's structures from storage. They are registered on the main
+     * thread once the rows arrive, unless the world was unloaded meanwhile.
+     * 
+     * @param world The world
+     */
+    public void loadWorld(World world) {
+        getRepository().loadWorld(world.getName()).whenComplete((records, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Failed to load structures for world " + world.getName(), error);
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (plugin.getServer().getWorld(world.getUID()) != world) {
+                    return;
+                }
+                for (StructureRecord record : records) {
+                    StructureType type;
+                    try {
+                        type = StructureType.valueOf(record.type());
+                    } catch (IllegalArgumentException e) {
+                        plugin.getLogger().warning("Skipping structure " + record.id() + " with unknown type " + record.type());
+                        continue;
+                    }
+                    registerStructure(new Structure(record.id(), type,
+                            new Location(world, record.x(), record.y(), record.z()),
+                            (int) record.sizeX(), (int) record.sizeY(), (int) record.sizeZ(), record.rotation()));
+                }
+            });
+        });
+    }
+    
+    /**
+     * Drop a world's structures from memory. They are saved when created, so
+     * nothing is written here.
+     * 
+     * @param world The world being unloaded
+     */
+    public void unloadWorld(World world) {
+        structures.values().removeIf(structure -> world.equals(structure.getLocation().getWorld()));
+        structureIndex.removeWorld(world);
+    }
+    
     /**
      * Place a random structure of the given type
      * 
@@ -58,18 +117,104 @@ public class StructureManager {
      * @return The created structure, or null if failed
      */
     public Structure placeRandomStructure(World world, int x, int y, int z, StructureType type, int rotation) {
-        // TODO: Implement schematic loading and placement
-        // This is a placeholder for now since we don't have actual schematics yet
-        
         UUID structureId = UUID.randomUUID();
-        Structure structure = new Structure(structureId, type, new Location(world, x, y, z), 16, 8, 16, rotation);
+        int sizeX = 16;
+        int sizeY = 8;
+        int sizeZ = 16;
+        
+        // Queue the schematic; its blocks are placed over the following ticks
+        Object schematic = schematicUtils.loadSchematic(getSchematicName(type));
+        Vector dimensions = schematicUtils.getSchematicDimensions(schematic);
+        if (dimensions != null && schematicUtils.placeSchematic(structureId, schematic, world, x, y, z, rotation)) {
+            boolean rotated = (rotation & 1) == 1;
+            sizeX = rotated ? dimensions.getBlockZ() : dimensions.getBlockX();
+            sizeY = dimensions.getBlockY();
+            sizeZ = rotated ? dimensions.getBlockX() : dimensions.getBlockZ();
+        }
+        
+        Structure structure = new Structure(structureId, type, new Location(world, x, y, z), sizeX, sizeY, sizeZ, rotation);
         
         // Register the structure
-        structures.put(structureId, structure);
+        registerStructure(structure);
+        saveStructure(structure);
         
         return structure;
     }
     
+    /**
+     * Get the schematic name for a structure type
+     * 
+     * @param type The structure type
+     * @return The schematic name (without extension)
+     */
+    private String getSchematicName(StructureType type) {
+        switch (type) {
+            case POLICE_STATION:
+                return "poi_police_01";
+            case TRADER_OUTPOST:
+                return "trader_outpost_01";
+            case SPECIAL:
+                return "special_bunker_01";
+            default:
+                return "poi_" + type.name().toLowerCase() + "_01";
+        }
+    }
+    
+    /**
+     * Register a structure so it can be looked up by ID and location
+     * 
+     * @param structure The structure
+     */
+    public void registerStructure(Structure structure) {
+        Structure previous = structures.put(structure.getId(), structure);
+        if (previous != null) {
+            structureIndex.remove(previous);
+        }
+        structureIndex.add(structure);
+    }
+    
+    /**
+     * Remove a structure
+     * 
+     * @param id The structure ID
+     * @return The removed structure, or null if not found
+     */
+    public Structure removeStructure(UUID id) {
+        Structure structure = structures.remove(id);
+        if (structure != null) {
+            structureIndex.remove(structure);
+            getRepository().delete(id).exceptionally(error -> {
+                plugin.getLogger().log(Level.WARNING, "Failed to delete structure " + id, error);
+                return null;
+            });
+        }
+        return structure;
+    }
+    
+    /**
+     * Queue a structure to be written to storage
+     * 
+     * @param structure The structure
+     */
+    public void saveStructure(Structure structure) {
+        Location location = structure.getLocation();
+        if (location.getWorld() == null) {
+            return;
+        }
+        StructureRecord record = new StructureRecord(structure.getId(), structure.getType().name(),
+                location.getWorld().getName(), location.getX(), location.getY(), location.getZ(),
+                structure.getSizeX(), structure.getSizeY(), structure.getSizeZ(),
+                getSchematicName(structure.getType()), structure.getRotation());
+        getRepository().saveAll(List.of(record)).exceptionally(error -> {
+            plugin.getLogger().log(Level.WARNING, "Failed to save structure " + structure.getId(), error);
+            return null;
+        });
+    }
+    
+    private PositionalRepository<StructureRecord> getRepository() {
+        return plugin.getDatabaseManager().getRepositories().getStructures();
+    }
+    
     /**
      * Get a structure by its ID
      * 
@@ -87,12 +232,7 @@ public class StructureManager {
      * @return The structure, or null if not in a structure
      */
     public Structure getStructureAt(Location location) {
-        for (Structure structure : structures.values()) {
-            if (structure.isInside(location)) {
-                return structure;
-            }
-        }
-        return null;
+        return structureIndex.find(location);
     }
     
     /**
@@ -114,6 +254,19 @@ public class StructureManager {
      * @param radius The radius to check
      */
     public void scheduleStructuresAroundNode(World world, int x, int z, int radius) {
+        scheduleStructuresAroundNode(world, x, z, radius, random);
+    }
+    
+    /**
+     * Schedule structures to be placed around a road node
+     * 
+     * @param world The world
+     * @param x The x coordinate
+     * @param z The z coordinate
+     * @param radius The radius to check
+     * @param random The random source, seeded per node for repeatable placement
+     */
+    public void scheduleStructuresAroundNode(World world, int x, int z, int radius, Random random) {
         // This method is called from RoadGenerator
         // Place random structures around the road node
         int structureCount = 1 + random.nextInt(3); // 1-3 structures per node
@@ -131,39 +284,24 @@ public class StructureManager {
             int structureX = x + offsetX;
             int structureZ = z + offsetZ;
             
-            // Get y level for structure
-            int y = getHighestBlockYAt(world, structureX, structureZ);
-            
             // Choose a random structure type
             StructureType type = StructureType.values()[random.nextInt(StructureType.values().length)];
             
             // Random rotation (0-3)
             int rotation = random.nextInt(4);
             
-            // Place the structure
-            placeRandomStructure(world, structureX, y, structureZ, type, rotation);
+            // Place the structure once its chunk is loaded and the surface is known
+            plugin.getSurfaceHeightService().getSurfaceYAsync(world, structureX, structureZ).whenComplete((y, error) -> {
+                if (error != null) {
+                    plugin.getLogger().log(Level.WARNING, "Failed to find the surface for a structure at "
+                            + structureX + "," + structureZ + " in " + world.getName(), error);
+                    return;
+                }
+                placeRandomStructure(world, structureX, y, structureZ, type, rotation);
+            });
         }
     }
     
-    /**
-     * Get the highest solid block Y coordinate at the given position
-     * 
-     * @param world The world
-     * @param x The x coordinate
-     * @param z The z coordinate
-     * @return The y coordinate of the highest solid block
-     */
-    private int getHighestBlockYAt(World world, int x, int z) {
-        // Find the highest non-air block
-        for (int y = world.getMaxHeight() - 1; y >= 0; y--) {
-            Block block = world.getBlockAt(x, y, z);
-            if (!block.getType().isAir()) {
-                return y + 1;
-            }
-        }
-        return 64; // Default if nothing is found
-    }
-    
     /**
      * Clean up resources when the plugin is disabled
      */
@@ -171,6 +309,7 @@ public class StructureManager {
         // Save any necessary data
         // Clear in-memory structure data
         structures.clear();
+        structureIndex.clear();
         plugin.getLogger().info("Structure manager cleaned up");
     }
     
@@ -185,6 +324,12 @@ public class StructureManager {
         private final int sizeY;
         private final int sizeZ;
         private final int rotation;
+        private final double minX;
+        private final double minY;
+        private final double minZ;
+        private final double maxX;
+        private final double maxY;
+        private final double maxZ;
         
         /**
          * Constructor for a Structure
@@ -205,6 +350,12 @@ public class StructureManager {
             this.sizeY = sizeY;
             this.sizeZ = sizeZ;
             this.rotation = rotation;
+            this.minX = location.getX();
+            this.minY = location.getY();
+            this.minZ = location.getZ();
+            this.maxX = minX + sizeX;
+            this.maxY = minY + sizeY;
+            this.maxZ = minZ + sizeZ;
         }
         
         /**
@@ -281,16 +432,57 @@ public class StructureManager {
                 return false;
             }
             
-            double minX = location.getX();
-            double minY = location.getY();
-            double minZ = location.getZ();
-            double maxX = minX + sizeX;
-            double maxY = minY + sizeY;
-            double maxZ = minZ + sizeZ;
-            
-            return loc.getX() >= minX && loc.getX() < maxX &&
-                   loc.getY() >= minY && loc.getY() < maxY &&
-                   loc.getZ() >= minZ && loc.getZ() < maxZ;
+            return contains(loc.getX(), loc.getY(), loc.getZ());
+        }
+        
+        /**
+         * Check if a point is inside this structure's bounding box (world not checked)
+         * 
+         * @param x The x coordinate
+         * @param y The y coordinate
+         * @param z The z coordinate
+         * @return True if inside
+         */
+        public boolean contains(double x, double y, double z) {
+            return x >= minX && x < maxX &&
+                   y >= minY && y < maxY &&
+                   z >= minZ && z < maxZ;
+        }
+        
+        /**
+         * Get the lowest chunk X coordinate this structure overlaps
+         * 
+         * @return The chunk X coordinate
+         */
+        public int getMinChunkX() {
+            return (int) Math.floor(minX) >> 4;
+        }
+        
+        /**
+         * Get the highest chunk X coordinate this structure overlaps
+         * 
+         * @return The chunk X coordinate
+         */
+        public int getMaxChunkX() {
+            return (int) Math.floor(Math.nextDown(maxX)) >> 4;
+        }
+        
+        /**
+         * Get the lowest chunk Z coordinate this structure overlaps
+         * 
+         * @return The chunk Z coordinate
+         */
+        public int getMinChunkZ() {
+            return (int) Math.floor(minZ) >> 4;
+        }
+        
+        /**
+         * Get the highest chunk Z coordinate this structure overlaps
+         * 
+         * @return The chunk Z coordinate
+         */
+        public int getMaxChunkZ() {
+            return (int) Math.floor(Math.nextDown(maxZ)) >> 4;
         }
         
         /**
@@ -0,0 +1,197 @@
+package com.seventodie.worldgen;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.bukkit.Chunk;
+import org.bukkit.HeightMap;
+import org.bukkit.Material;
+import org.bukkit.RegionAccessor;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.generator.WorldInfo;
+
+import com.seventodie.utils.LongObjectMap;
+
+/**
+ * Shared surface height lookups for world generation and structure placement.
+ * 
+ * Uses the server's {@link HeightMap#MOTION_BLOCKING_NO_LEAVES} heightmap and
+ * only steps down past fluids, so a lookup is usually a single heightmap read
+ * instead of a scan from the build limit. Heights for loaded chunks are cached
+ * per column; the cache is main-thread only and is dropped when the chunk unloads.
+ * Lookups in a live world never load chunks on the calling thread; use
+ * {@link #getSurfaceYAsync(World, int, int)} when the chunk may be unloaded.
+ */
+public class SurfaceHeightService {
+    
+    /** Height returned when a column has no surface */
+    public static final int DEFAULT_HEIGHT = 64;
+    
+    private static final short UNKNOWN = Short.MIN_VALUE;
+    
+    /** Materials that are not ground, indexed by ordinal */
+    private static final BitSet PASS_THROUGH = new BitSet();
+    
+    static {
+        for (Material material : Material.values()) {
+            if (material.name().startsWith("LEGACY_")) {
+                continue;
+            }
+            if (material.isAir()
+                    || material == Material.WATER
+                    || material == Material.LAVA
+                    || material.name().endsWith("LEAVES")) {
+                PASS_THROUGH.set(material.ordinal());
+            }
+        }
+    }
+    
+    // World UUID -> chunk key -> surface height per column (index z << 4 | x)
+    private final Map<UUID, LongObjectMap<short[]>> cache = new HashMap<>();
+    
+    /**
+     * Check if a material is skipped when looking for the surface
+     * 
+     * @param material The material
+     * @return True if the material is air, fluid or leaves
+     */
+    public static boolean isPassThrough(Material material) {
+        return PASS_THROUGH.get(material.ordinal());
+    }
+    
+    /**
+     * Get the Y coordinate above the surface block at a position without caching.
+     * Safe to call from world generation threads with a generation region.
+     * 
+     * @param worldInfo The world info
+     * @param region The region to read
+     * @param x The x coordinate
+     * @param z The z coordinate
+     * @return The Y coordinate of the first block above the surface
+     */
+    public int getSurfaceY(WorldInfo worldInfo, RegionAccessor region, int x, int z) {
+        int minHeight = worldInfo.getMinHeight();
+        int y = region.getHighestBlockYAt(x, z, HeightMap.MOTION_BLOCKING_NO_LEAVES);
+        
+        // The heightmap stops at fluids; step down to the ground beneath them
+        while (y >= minHeight && isPassThrough(region.getType(x, y, z))) {
+            y--;
+        }
+        return y >= minHeight ? y + 1 : DEFAULT_HEIGHT;
+    }
+    
+    /**
+     * Get the Y coordinate above the surface block at a position in a loaded
+     * chunk. Results are cached. Main thread only.
+     * 
+     * @param world The world
+     * @param x The x coordinate
+     * @param z The z coordinate
+     * @return The Y coordinate of the first block above the surface
+     * @throws IllegalStateException If the chunk is not loaded
+     */
+    public int getSurfaceY(World world, int x, int z) {
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        if (!world.isChunkLoaded(chunkX, chunkZ)) {
+            // Reading an unloaded chunk would load or generate it on this thread
+            throw new IllegalStateException("Chunk " + chunkX + "," + chunkZ + " in " + world.getName() + " is not loaded");
+        }
+        
+        short[] heights = cache.computeIfAbsent(world.getUID(), id -> new LongObjectMap<>())
+                .computeIfAbsent(StructureIndex.chunkKey(chunkX, chunkZ), key -> newGrid());
+        int column = ((z & 15) << 4) | (x & 15);
+        if (heights[column] == UNKNOWN) {
+            heights[column] = (short) getSurfaceY(world, world, x, z);
+        }
+        return heights[column];
+    }
+    
+    /**
+     * Get the Y coordinate above the surface block at a position, loading the
+     * chunk in the background first if needed. Call from the main thread; the
+     * future completes on the main thread.
+     * 
+     * @param world The world
+     * @param x The x coordinate
+     * @param z The z coordinate
+     * @return A future with the Y coordinate of the first block above the surface
+     */
+    public CompletableFuture<Integer> getSurfaceYAsync(World world, int x, int z) {
+        if (world.isChunkLoaded(x >> 4, z >> 4)) {
+            return CompletableFuture.completedFuture(getSurfaceY(world, x, z));
+        }
+        return world.getChunkAtAsync(x >> 4, z >> 4).thenApply(chunk -> getSurfaceY(world, x, z));
+    }
+    
+    /**
+     * Forget the cached height of a block's column after it changed
+     * 
+     * @param block The changed block
+     */
+    public void invalidate(Block block) {
+        LongObjectMap<short[]> chunks = cache.get(block.getWorld().getUID());
+        if (chunks == null) {
+            return;
+        }
+        short[] heights = chunks.get(StructureIndex.chunkKey(block.getX() >> 4, block.getZ() >> 4));
+        if (heights != null) {
+            heights[((block.getZ() & 15) << 4) | (block.getX() & 15)] = UNKNOWN;
+        }
+    }
+    
+    /**
+     * Forget the cached heights of a box of columns, for blocks changed
+     * without a block event such as structure placement
+     * 
+     * @param world The world
+     * @param minX The lowest x coordinate
+     * @param minZ The lowest z coordinate
+     * @param sizeX The number of columns along x
+     * @param sizeZ The number of columns along z
+     */
+    public void invalidate(World world, int minX, int minZ, int sizeX, int sizeZ) {
+        LongObjectMap<short[]> chunks = cache.get(world.getUID());
+        if (chunks == null) {
+            return;
+        }
+        for (int x = minX; x < minX + sizeX; x++) {
+            for (int z = minZ; z < minZ + sizeZ; z++) {
+                short[] heights = chunks.get(StructureIndex.chunkKey(x >> 4, z >> 4));
+                if (heights != null) {
+                    heights[((z & 15) << 4) | (x & 15)] = UNKNOWN;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Drop the cached heights for a chunk
+     * 
+     * @param chunk The chunk
+     */
+    public void invalidate(Chunk chunk) {
+        LongObjectMap<short[]> chunks = cache.get(chunk.getWorld().getUID());
+        if (chunks != null) {
+            chunks.remove(StructureIndex.chunkKey(chunk.getX(), chunk.getZ()));
+        }
+    }
+    
+    /**
+     * Drop all cached heights
+     */
+    public void clear() {
+        cache.clear();
+    }
+    
+    private static short[] newGrid() {
+        short[] heights = new short[256];
+        Arrays.fill(heights, UNKNOWN);
+        return heights;
+    }
+}
@@ -0,0 +1,62 @@
+package com.seventodie.worldgen;
+
+import java.util.Random;
+
+import org.bukkit.World;
+import org.bukkit.generator.BlockPopulator;
+import org.bukkit.generator.LimitedRegion;
+import org.bukkit.generator.WorldInfo;
+
+import com.seventodie.SevenToDiePlugin;
+
+/**
+ * Applies biome palettes and roads while chunks generate.
+ * 
+ * Runs on the server's world generation workers and writes through the
+ * {@link LimitedRegion}, so the changes are part of the chunk before it is
+ * sent to players. Everything called from here must be thread-safe.
+ */
+public class WorldPopulator extends BlockPopulator {
+    
+    private final SevenToDiePlugin plugin;
+    
+    /**
+     * Constructor for WorldPopulator
+     * 
+     * @param plugin The SevenToDie plugin instance
+     */
+    public WorldPopulator(SevenToDiePlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Add this populator to a world if it should be generated with roads
+     * 
+     * @param world The world
+     */
+    public void attach(World world) {
+        // Skip non-overworld dimensions
+        if (world.getEnvironment() != World.Environment.NORMAL) {
+            return;
+        }
+        if (!world.getPopulators().contains(this)) {
+            world.getPopulators().add(this);
+        }
+    }
+    
+    /**
+     * Remove this populator from every world
+     */
+    public void detachAll() {
+        for (World world : plugin.getServer().getWorlds()) {
+            world.getPopulators().remove(this);
+        }
+    }
+    
+    @Override
+    public void populate(WorldInfo worldInfo, Random random, int chunkX, int chunkZ, LimitedRegion region) {
+        // Palette first so the road surface and supports are not swapped afterwards
+        plugin.getBiomeMapper().applyBiomeToChunk(worldInfo, region, chunkX, chunkZ);
+        plugin.getRoadGenerator().populateChunk(worldInfo, chunkX, chunkZ, region);
+    }
+}